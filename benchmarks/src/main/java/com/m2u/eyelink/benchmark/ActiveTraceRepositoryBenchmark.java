@@ -0,0 +1,91 @@
+package com.m2u.eyelink.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.m2u.eyelink.context.ActiveTraceRepository;
+import com.m2u.eyelink.context.DisableTrace;
+import com.m2u.eyelink.context.Trace;
+
+/**
+ * Active trace registration of one transaction: put at the start and remove at the end, on one repository shared by all threads
+ * with activeTraceCount other transactions of each thread active.
+ * <ul>
+ *     <li>putAndRemove : the transaction ends before the next one starts</li>
+ *     <li>putAndRemoveWithActive : the transaction stays active and the oldest one of the thread ends</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class ActiveTraceRepositoryBenchmark {
+
+    @Param({"16"})
+    private int activeTraceCount;
+
+    private final AtomicLong threadCount = new AtomicLong();
+
+    private ActiveTraceRepository repository;
+
+    @Setup
+    public void setup() {
+        repository = new ActiveTraceRepository();
+    }
+
+    @State(Scope.Thread)
+    public static class TraceState {
+
+        private long nextId;
+        private Trace[] traces;
+        private int index;
+
+        @Setup
+        public void setup(ActiveTraceRepositoryBenchmark benchmark) {
+            // ids of each thread are disjoint
+            nextId = benchmark.threadCount.incrementAndGet() << 32;
+            traces = new Trace[benchmark.activeTraceCount];
+            for (int i = 0; i < traces.length; i++) {
+                traces[i] = new DisableTrace(nextId++);
+                benchmark.repository.put(traces[i]);
+            }
+        }
+
+        private Trace newTrace() {
+            return new DisableTrace(nextId++);
+        }
+    }
+
+    @Benchmark
+    public boolean putAndRemove(TraceState state) {
+        final Trace trace = state.newTrace();
+        repository.put(trace);
+        return repository.remove(trace.getId());
+    }
+
+    @Benchmark
+    public boolean putAndRemoveWithActive(TraceState state) {
+        final Trace trace = state.newTrace();
+        repository.put(trace);
+        final Trace oldest = state.traces[state.index];
+        state.traces[state.index] = trace;
+        state.index = (state.index + 1) % state.traces.length;
+        return repository.remove(oldest.getId());
+    }
+}
@@ -0,0 +1,94 @@
+package com.m2u.eyelink.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.m2u.eyelink.agent.profiler.sender.queue.AsyncQueue;
+import com.m2u.eyelink.agent.profiler.sender.queue.AsyncQueueFactory;
+
+/**
+ * Span sender queue under contention. The producers are the benchmark threads (-t 1..64),
+ * one consumer thread polls and drains like AsyncQueueingExecutor does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AsyncQueueBenchmark {
+
+    private static final Object MESSAGE = new Object();
+
+    @Param({"LINKED", "RING_BUFFER"})
+    private String queueType;
+
+    @Param({"BLOCKING"})
+    private String waitStrategy;
+
+    // profiler.spandatasender.write.queue.size
+    @Param({"5120"})
+    private int capacity;
+
+    private AsyncQueue<Object> queue;
+    private Thread consumer;
+    private volatile boolean running;
+
+    @Setup
+    public void setup() {
+        queue = new AsyncQueueFactory(queueType, waitStrategy).createQueue(capacity);
+        running = true;
+        consumer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                final List<Object> drain = new ArrayList<Object>(100);
+                while (running) {
+                    try {
+                        final Object first = queue.poll(100, TimeUnit.MILLISECONDS);
+                        if (first == null) {
+                            continue;
+                        }
+                        queue.drainTo(drain, 99);
+                        drain.clear();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            }
+        }, "AsyncQueueBenchmark-consumer");
+        consumer.setDaemon(true);
+        consumer.start();
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        running = false;
+        consumer.interrupt();
+        consumer.join();
+    }
+
+    /**
+     * a full queue would only measure the rejection path. back off until the consumer makes room,
+     * so the score is the throughput actually delivered to the consumer.
+     */
+    @Benchmark
+    public void offer() {
+        while (!queue.offer(MESSAGE)) {
+            Thread.yield();
+        }
+    }
+}
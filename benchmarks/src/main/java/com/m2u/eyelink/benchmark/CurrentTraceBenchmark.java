@@ -0,0 +1,118 @@
+package com.m2u.eyelink.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.m2u.eyelink.context.AsyncTraceId;
+import com.m2u.eyelink.context.BaseTraceFactory;
+import com.m2u.eyelink.context.Binder;
+import com.m2u.eyelink.context.DisableTrace;
+import com.m2u.eyelink.context.ThreadIdBinder;
+import com.m2u.eyelink.context.ThreadLocalBinder;
+import com.m2u.eyelink.context.ThreadLocalTraceFactory;
+import com.m2u.eyelink.context.Trace;
+import com.m2u.eyelink.context.TraceId;
+
+/**
+ * currentTraceObject() of a request thread, the lookup every interceptor does first.
+ * Request threads of an application server usually carry many other ThreadLocals, which crowd the ThreadLocalMap.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CurrentTraceBenchmark {
+
+    @Param({"THREAD_ID", "THREAD_LOCAL"})
+    private String binderType;
+
+    // ThreadLocals set by the application on the same thread
+    @Param({"0", "64"})
+    private int otherThreadLocals;
+
+    // a trace is bound to the thread, otherwise the lookup misses
+    @Param({"true", "false"})
+    private boolean bound;
+
+    private ThreadLocalTraceFactory traceFactory;
+    // keeps the application ThreadLocals reachable
+    private final List<ThreadLocal<Object>> threadLocals = new ArrayList<ThreadLocal<Object>>();
+
+    @Setup
+    public void setup() {
+        final Binder<Trace> binder = "THREAD_ID".equals(binderType) ? new ThreadIdBinder<Trace>() : new ThreadLocalBinder<Trace>();
+        traceFactory = new ThreadLocalTraceFactory(new DisabledTraceFactory(), binder);
+        for (int i = 0; i < otherThreadLocals; i++) {
+            final ThreadLocal<Object> threadLocal = new ThreadLocal<Object>();
+            threadLocal.set(i);
+            threadLocals.add(threadLocal);
+        }
+        if (bound) {
+            // runs on the benchmark thread
+            traceFactory.disableSampling();
+        }
+    }
+
+    @Benchmark
+    public Trace currentTraceObject() {
+        return traceFactory.currentTraceObject();
+    }
+
+    @Benchmark
+    public Trace currentRawTraceObject() {
+        return traceFactory.currentRawTraceObject();
+    }
+
+    private static class DisabledTraceFactory implements BaseTraceFactory {
+
+        @Override
+        public Trace disableSampling() {
+            return new DisableTrace(1);
+        }
+
+        @Override
+        public Trace continueTraceObject(TraceId traceId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Trace continueTraceObject(Trace trace) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Trace continueAsyncTraceObject(TraceId traceId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Trace continueAsyncTraceObject(AsyncTraceId traceId, int asyncId, long startTime) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Trace newTraceObject() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Trace newAsyncTraceObject() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
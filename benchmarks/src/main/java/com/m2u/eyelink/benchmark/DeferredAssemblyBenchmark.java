@@ -0,0 +1,115 @@
+package com.m2u.eyelink.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.thrift.TBase;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.m2u.eyelink.agent.profiler.context.SpanChunkFactory;
+import com.m2u.eyelink.agent.profiler.context.storage.BufferedStorage;
+import com.m2u.eyelink.context.AgentInformation;
+import com.m2u.eyelink.context.Span;
+import com.m2u.eyelink.context.SpanEvent;
+import com.m2u.eyelink.context.WrappedSpanEventRecorder;
+import com.m2u.eyelink.sender.DataSender;
+import com.m2u.eyelink.sender.DeferredAssembly;
+import com.m2u.eyelink.trace.AnnotationKey;
+import com.m2u.eyelink.trace.ServiceType;
+
+/**
+ * One transaction of spanEventCount span events recorded through a WrappedSpanEventRecorder and stored in a BufferedStorage,
+ * with span event assembly inline on the request thread or deferred to the sender.
+ * <ul>
+ *     <li>record : request thread only. The sender drops what it is handed.</li>
+ *     <li>recordAndAssemble : the sender assembles what it is handed on the same thread, the total work of both threads.</li>
+ * </ul>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DeferredAssemblyBenchmark {
+
+    @Param({"false", "true"})
+    private boolean deferAssembly;
+
+    @Param({"20", "100"})
+    private int spanEventCount;
+
+    @Param({"20"})
+    private int bufferSize;
+
+    private final AgentInformation agentInformation = new AgentInformation("agentId", "applicationName", 1L, 1, "machineName", "127.0.0.1",
+            ServiceType.UNDEFINED, "1.8", "1.0");
+
+    private boolean assemble;
+    private BufferedStorage storage;
+    private WrappedSpanEventRecorder recorder;
+
+    @Setup
+    public void setup() {
+        final DataSender dataSender = new DataSender() {
+            @Override
+            public boolean send(TBase<?, ?> data) {
+                if (assemble && data instanceof DeferredAssembly) {
+                    ((DeferredAssembly) data).assemble();
+                }
+                return true;
+            }
+
+            @Override
+            public void stop() {
+            }
+        };
+        storage = new BufferedStorage(dataSender, new SpanChunkFactory(agentInformation, null, deferAssembly), bufferSize);
+        // the workload records nothing that needs the trace context
+        recorder = new WrappedSpanEventRecorder(null);
+    }
+
+    @Benchmark
+    public Span record() {
+        assemble = false;
+        return recordTransaction();
+    }
+
+    @Benchmark
+    public Span recordAndAssemble() {
+        assemble = true;
+        return recordTransaction();
+    }
+
+    private Span recordTransaction() {
+        final Span span = new Span();
+        span.markBeforeTime();
+        for (int i = 0; i < spanEventCount; i++) {
+            final SpanEvent spanEvent = storage.newSpanEvent(span);
+            spanEvent.setSequence((short) i);
+            spanEvent.setDepth(2);
+            spanEvent.markStartTime();
+            recorder.setWrapped(spanEvent);
+            recorder.recordApiId(10);
+            recorder.recordServiceType(ServiceType.UNDEFINED);
+            recorder.recordEndPoint("127.0.0.1:3306");
+            recorder.recordDestinationId("database");
+            recorder.recordAttribute(AnnotationKey.ARGS0, "SELECT * FROM member WHERE id = ?");
+            recorder.recordAttribute(AnnotationKey.CACHE_ARGS0, i);
+            spanEvent.markAfterTime();
+            storage.store(spanEvent);
+        }
+        span.markAfterTime();
+        storage.store(span);
+        return span;
+    }
+}
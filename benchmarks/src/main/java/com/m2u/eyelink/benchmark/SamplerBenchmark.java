@@ -0,0 +1,52 @@
+package com.m2u.eyelink.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.m2u.eyelink.agent.profiler.sampler.SamplerFactory;
+import com.m2u.eyelink.context.Sampler;
+
+/**
+ * Sampling decision of a new transaction, shared by all request threads (-t 1..64).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SamplerBenchmark {
+
+    @Param({"COUNTER", "STRIPED", "ADAPTIVE"})
+    private String samplerType;
+
+    @Param({"10"})
+    private int samplingRate;
+
+    // used by ADAPTIVE only
+    @Param({"100"})
+    private int tracesPerSecond;
+
+    private Sampler sampler;
+
+    @Setup
+    public void setup() {
+        sampler = new SamplerFactory().createSampler(true, samplingRate, samplerType, tracesPerSecond);
+    }
+
+    @Benchmark
+    public boolean isSampling() {
+        return sampler.isSampling();
+    }
+}
@@ -0,0 +1,75 @@
+package com.m2u.eyelink.benchmark;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.m2u.eyelink.context.Result;
+import com.m2u.eyelink.context.SimpleCache;
+
+/**
+ * Hit path of the api/string/sql id caches, shared by all request threads (-t 1..64).
+ * mapGet is the plain map lookup underneath, the difference is the cost of the hit counter and the reference bit.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SimpleCacheBenchmark {
+
+    // distinct api descriptors of a typical application
+    @Param({"512"})
+    private int keyCount;
+
+    private String[] keys;
+    private SimpleCache<String> cache;
+    private ConcurrentMap<String, Result> map;
+
+    @Setup
+    public void setup() {
+        keys = new String[keyCount];
+        cache = new SimpleCache<String>();
+        map = new ConcurrentHashMap<String, Result>();
+        for (int i = 0; i < keyCount; i++) {
+            keys[i] = "com.example.service.OrderService.method" + i + "(java.lang.String, long)";
+            map.put(keys[i], cache.put(keys[i]));
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int index;
+
+        private String next(String[] keys) {
+            final String key = keys[index];
+            if (++index == keys.length) {
+                index = 0;
+            }
+            return key;
+        }
+    }
+
+    @Benchmark
+    public Result hit(Cursor cursor) {
+        return cache.put(cursor.next(keys));
+    }
+
+    @Benchmark
+    public Result mapGet(Cursor cursor) {
+        return map.get(cursor.next(keys));
+    }
+}
@@ -0,0 +1,94 @@
+package com.m2u.eyelink.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.m2u.eyelink.context.Span;
+import com.m2u.eyelink.context.SpanEvent;
+import com.m2u.eyelink.context.clock.CoarseClock;
+import com.m2u.eyelink.context.clock.SpanClock;
+import com.m2u.eyelink.context.clock.SystemClock;
+
+/**
+ * Timing overhead of one span event: the start and end marks every traced method call does.
+ * <ul>
+ *     <li>SYSTEM : {@link System#currentTimeMillis()} per mark</li>
+ *     <li>COARSE : volatile read of a {@link CoarseClock} per mark</li>
+ *     <li>NANO : {@link System#nanoTime()} per mark relative to the span start, with elapsedMicros recorded</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SpanClockBenchmark {
+
+    @Param({"SYSTEM", "COARSE", "NANO"})
+    private String timing;
+
+    private CoarseClock coarseClock;
+
+    @Setup
+    public void setup() {
+        if ("COARSE".equals(timing)) {
+            coarseClock = new CoarseClock(1);
+            coarseClock.start();
+            SpanClock.setClock(coarseClock);
+        } else {
+            SpanClock.setClock(SystemClock.INSTANCE);
+        }
+        SpanClock.setNanoTiming("NANO".equals(timing));
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (coarseClock != null) {
+            coarseClock.stop();
+            coarseClock = null;
+        }
+        SpanClock.setClock(SystemClock.INSTANCE);
+        SpanClock.setNanoTiming(false);
+    }
+
+    @State(Scope.Thread)
+    public static class SpanState {
+
+        private Span span;
+        private SpanEvent spanEvent;
+
+        // after SpanClockBenchmark.setup(), so the span is marked with the timing under test
+        @Setup
+        public void setup(SpanClockBenchmark benchmark) {
+            span = new Span();
+            span.markBeforeTime();
+            spanEvent = new SpanEvent(span);
+        }
+    }
+
+    @Benchmark
+    public long currentTimeMillis() {
+        return SpanClock.currentTimeMillis();
+    }
+
+    @Benchmark
+    public SpanEvent spanEventMarks(SpanState state) {
+        final SpanEvent spanEvent = state.spanEvent;
+        spanEvent.markStartTime();
+        spanEvent.markAfterTime();
+        return spanEvent;
+    }
+}
@@ -0,0 +1,143 @@
+package com.m2u.eyelink.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.m2u.eyelink.context.DefaultSqlParser;
+import com.m2u.eyelink.context.TokenizingSqlParser;
+import com.m2u.eyelink.util.NormalizedSql;
+import com.m2u.eyelink.util.SqlParser;
+
+/**
+ * Sql normalization over the shapes of sql an application sends.
+ * <ul>
+ *     <li>OLTP : short statements of a few literals, different literals on every execution</li>
+ *     <li>REPORT : a reporting query of about 50 KB with comments, CASE expressions and long IN lists</li>
+ *     <li>BATCH : a multi-statement batch of 200 inserts</li>
+ * </ul>
+ * Both the normalized sql and the parameter output are consumed, as the span event recorder does.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SqlNormalizerBenchmark {
+
+    private static final String[] OLTP_TEMPLATES = {
+            "select id, name, email, status from users where id = %d",
+            "select * from orders o where o.user_id = %d and o.status = 'PAID' and o.created_at > '2017-01-%02d'",
+            "update accounts set balance = balance - %d.50, updated_at = now() where account_id = %d",
+            "insert into audit_log (user_id, action, detail) values (%d, 'login', 'ip=10.0.0.%d')",
+            "select count(*) from cart_items where cart_id = %d /* cart badge */",
+            "delete from sessions where expires_at < %d",
+            "select p.id, p.price from products p join stock s on s.product_id = p.id where p.category_id = %d and s.qty > %d",
+            "SELECT a.code, b.label FROM codes a LEFT JOIN labels b ON a.code = b.code WHERE a.type = 'T%d' AND b.lang = 'ko'"
+    };
+
+    public enum Corpus {
+        OLTP, REPORT, BATCH
+    }
+
+    @Param({"TOKENIZING", "DEFAULT"})
+    private String parserType;
+
+    @Param({"OLTP", "REPORT", "BATCH"})
+    private Corpus corpus;
+
+    private SqlParser sqlParser;
+    private String[] sqls;
+    private int index;
+
+    @Setup
+    public void setup() {
+        sqlParser = "TOKENIZING".equals(parserType) ? new TokenizingSqlParser() : new DefaultSqlParser();
+        switch (corpus) {
+            case OLTP:
+                sqls = newOltpSqls(1024);
+                break;
+            case REPORT:
+                sqls = new String[] {newReportSql(50 * 1024)};
+                break;
+            case BATCH:
+                sqls = new String[] {newBatchSql(200)};
+                break;
+            default:
+                throw new IllegalStateException("unknown corpus " + corpus);
+        }
+    }
+
+    static String[] newOltpSqls(int count) {
+        final String[] sqls = new String[count];
+        for (int i = 0; i < count; i++) {
+            final String template = OLTP_TEMPLATES[i % OLTP_TEMPLATES.length];
+            sqls[i] = String.format(template, i * 7919 % 100000, i % 28 + 1);
+        }
+        return sqls;
+    }
+
+    static String newReportSql(int length) {
+        final StringBuilder sql = new StringBuilder(length + 1024);
+        sql.append("/* monthly sales report. generated by the reporting module */\n");
+        sql.append("SELECT r.region_name, p.category, SUM(s.amount) AS total,\n");
+        int column = 0;
+        while (sql.length() < length / 2) {
+            sql.append("  SUM(CASE WHEN s.month = ").append(column % 12 + 1)
+                    .append(" AND s.channel = 'channel-").append(column % 5)
+                    .append("' THEN s.amount * ").append(1 + column % 3).append(".25 ELSE 0 END) AS m")
+                    .append(column).append(",\n");
+            column++;
+        }
+        sql.append("  COUNT(*) AS cnt\nFROM sales s\n  JOIN regions r ON r.id = s.region_id -- region dimension\n");
+        sql.append("  JOIN products p ON p.id = s.product_id\nWHERE s.year = 2017\n  AND s.product_id IN (");
+        int id = 0;
+        while (sql.length() < length - 200) {
+            if (id > 0) {
+                sql.append(", ");
+            }
+            sql.append(100000 + id * 13);
+            id++;
+        }
+        sql.append(")\n  AND r.country = 'KR'\nGROUP BY r.region_name, p.category\nORDER BY total DESC");
+        return sql.toString();
+    }
+
+    static String newBatchSql(int statements) {
+        final StringBuilder sql = new StringBuilder(statements * 96);
+        for (int i = 0; i < statements; i++) {
+            sql.append("insert into order_items (order_id, product_id, qty, price, memo) values (")
+                    .append(500000 + i / 4).append(", ").append(1000 + i).append(", ").append(i % 9 + 1)
+                    .append(", ").append(i % 100).append(".99, 'gift wrap, no card ").append(i).append("');\n");
+        }
+        return sql.toString();
+    }
+
+    private String nextSql() {
+        final String[] sqls = this.sqls;
+        final String sql = sqls[index];
+        if (++index == sqls.length) {
+            index = 0;
+        }
+        return sql;
+    }
+
+    @Benchmark
+    public void normalizedSql(Blackhole blackhole) {
+        final NormalizedSql normalizedSql = sqlParser.normalizedSql(nextSql());
+        blackhole.consume(normalizedSql.getNormalizedSql());
+        blackhole.consume(normalizedSql.getParseParameter());
+    }
+}
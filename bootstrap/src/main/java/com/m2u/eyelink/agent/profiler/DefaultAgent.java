@@ -1,5 +1,7 @@
 package com.m2u.eyelink.agent.profiler;
 
+import java.io.File;
+import java.io.IOException;
 import java.lang.instrument.ClassFileTransformer;
 import java.lang.instrument.Instrumentation;
 import java.util.List;
@@ -18,6 +20,7 @@ import com.m2u.eyelink.agent.interceptor.InterceptorInvokerHelper;
 import com.m2u.eyelink.agent.profiler.context.TransactionCounter;
 import com.m2u.eyelink.agent.profiler.context.storage.BufferedStorageFactory;
 import com.m2u.eyelink.agent.profiler.context.storage.SpanStorageFactory;
+import com.m2u.eyelink.agent.profiler.context.storage.TailSamplingStorageFactory;
 import com.m2u.eyelink.agent.profiler.instrument.ASMBytecodeDumpService;
 import com.m2u.eyelink.agent.profiler.instrument.ASMClassPool;
 import com.m2u.eyelink.agent.profiler.instrument.BytecodeDumpTransformer;
@@ -33,13 +36,24 @@ import com.m2u.eyelink.agent.profiler.receiver.ProfilerCommandLocatorBuilder;
 import com.m2u.eyelink.agent.profiler.receiver.service.ActiveThreadService;
 import com.m2u.eyelink.agent.profiler.receiver.service.EchoService;
 import com.m2u.eyelink.agent.profiler.sampler.SamplerFactory;
+import com.m2u.eyelink.agent.profiler.sender.AsyncQueueingExecutorFactory;
+import com.m2u.eyelink.agent.profiler.sender.DiskSpill;
+import com.m2u.eyelink.agent.profiler.sender.FlushPolicy;
+import com.m2u.eyelink.agent.profiler.sender.RetryQueue;
 import com.m2u.eyelink.agent.profiler.sender.TcpDataSender;
+import com.m2u.eyelink.agent.profiler.sender.UdpDataSender;
 import com.m2u.eyelink.agent.profiler.sender.UdpDataSenderFactory;
+import com.m2u.eyelink.agent.profiler.sender.UdpDataSenderType;
+import com.m2u.eyelink.agent.profiler.sender.spill.ConnectionMonitor;
+import com.m2u.eyelink.agent.profiler.sender.spill.SpillQueue;
+import com.m2u.eyelink.agent.profiler.sender.queue.AsyncQueueFactory;
+import com.m2u.eyelink.agent.profiler.sender.queue.AsyncQueueType;
 import com.m2u.eyelink.agent.profiler.util.ApplicationServerTypeResolver;
 import com.m2u.eyelink.common.service.ServiceTypeRegistryService;
 import com.m2u.eyelink.config.ProfilerConfig;
 import com.m2u.eyelink.context.ActiveTraceLocator;
 import com.m2u.eyelink.context.AgentInformation;
+import com.m2u.eyelink.context.Binder;
 import com.m2u.eyelink.context.DefaultServerMetaDataHolder;
 import com.m2u.eyelink.context.DefaultTraceContext;
 import com.m2u.eyelink.context.HandshakePropertyType;
@@ -47,7 +61,13 @@ import com.m2u.eyelink.context.RuntimeMXBeanUtils;
 import com.m2u.eyelink.context.Sampler;
 import com.m2u.eyelink.context.ServerMetaDataHolder;
 import com.m2u.eyelink.context.StorageFactory;
+import com.m2u.eyelink.context.ThreadIdBinder;
+import com.m2u.eyelink.context.ThreadLocalBinder;
+import com.m2u.eyelink.context.Trace;
 import com.m2u.eyelink.context.TraceContext;
+import com.m2u.eyelink.context.clock.CoarseClock;
+import com.m2u.eyelink.context.clock.SpanClock;
+import com.m2u.eyelink.context.clock.SystemClock;
 import com.m2u.eyelink.logging.PLogger;
 import com.m2u.eyelink.logging.PLoggerBinder;
 import com.m2u.eyelink.logging.PLoggerFactory;
@@ -77,11 +97,14 @@ public class DefaultAgent implements Agent {
     private final TraceContext traceContext;
 
     private ELAgentClientFactory clientFactory;
-    private ELAgentClient client;
+    // volatile. read by the span spill replayer, assigned after the span data sender is created.
+    private volatile ELAgentClient client;
     private final EnhancedDataSender tcpDataSender;
 
     private final DataSender statDataSender;
     private final DataSender spanDataSender;
+    // null if spilling is disabled
+    private DiskSpill spanDiskSpill;
 
     private final AgentInformation agentInformation;
     private final ServerMetaDataHolder serverMetaDataHolder;
@@ -96,6 +119,9 @@ public class DefaultAgent implements Agent {
     private final InstrumentClassPool classPool;
     private final DynamicTransformService dynamicTransformService;
     private final List<DefaultProfilerPluginContext> pluginContexts;
+
+    // null unless profiler.timing.clock=COARSE
+    private CoarseClock coarseClock;
     
 
     static {
@@ -196,7 +222,8 @@ public class DefaultAgent implements Agent {
         defaultTraceContext.setPriorityDataSender(this.tcpDataSender);
         this.traceContext = defaultTraceContext;
 
-        AgentStatCollectorFactory agentStatCollectorFactory = new AgentStatCollectorFactory(this.traceContext);
+        final SpillQueue spanSpillQueue = spanDiskSpill == null ? null : spanDiskSpill.getSpillQueue();
+        AgentStatCollectorFactory agentStatCollectorFactory = new AgentStatCollectorFactory(this.traceContext, spanSpillQueue);
 
         JvmInformationFactory jvmInformationFactory = new JvmInformationFactory(agentStatCollectorFactory.getGarbageCollector());
 
@@ -205,6 +232,29 @@ public class DefaultAgent implements Agent {
         this.agentStatMonitor = new AgentStatMonitor(this.statDataSender, this.agentInformation.getAgentId(), this.agentInformation.getStartTime(), agentStatCollectorFactory);
         
         InterceptorInvokerHelper.setPropagateException(profilerConfig.isPropagateInterceptorException());
+        initSpanClock();
+    }
+
+    private void initSpanClock() {
+        final String timingClock = profilerConfig.getTimingClock();
+        final String clockType = timingClock == null ? null : timingClock.trim().toUpperCase();
+        if (DefaultProfilerConfig.TIMING_CLOCK_COARSE.equals(clockType)) {
+            try {
+                this.coarseClock = new CoarseClock(profilerConfig.getTimingCoarseClockTick());
+                this.coarseClock.start();
+                SpanClock.setClock(this.coarseClock);
+            } catch (IllegalArgumentException e) {
+                logger.warn("Invalid coarse clock tick:{}. use {}", profilerConfig.getTimingCoarseClockTick(), DefaultProfilerConfig.TIMING_CLOCK_SYSTEM, e);
+                SpanClock.setClock(SystemClock.INSTANCE);
+            }
+        } else {
+            if (!DefaultProfilerConfig.TIMING_CLOCK_SYSTEM.equals(clockType)) {
+                logger.warn("Unknown timing clock:{}. use {}", timingClock, DefaultProfilerConfig.TIMING_CLOCK_SYSTEM);
+            }
+            SpanClock.setClock(SystemClock.INSTANCE);
+        }
+        SpanClock.setNanoTiming(profilerConfig.isTimingNanoEnable());
+        logger.info("span timing clock:{}, nanoTiming:{}", SpanClock.getClock(), SpanClock.isNanoTiming());
     }
 
     private InstrumentClassPool createInstrumentEngine(AgentOption agentOption, InterceptorRegistryBinder interceptorRegistryBinder) {
@@ -326,16 +376,36 @@ public class DefaultAgent implements Agent {
 
         final Sampler sampler = createSampler();
         logger.info("SamplerType:{}", sampler);
+        final Sampler continuationSampler = createContinuationSampler();
+        logger.info("ContinuationSamplerType:{}", continuationSampler);
+        final TailSamplingStorageFactory tailStorageFactory = createTailStorageFactory(storageFactory);
+        if (tailStorageFactory != null) {
+            logger.info("TailStorageFactoryType:{}", tailStorageFactory);
+        }
         
         final int jdbcSqlCacheSize = profilerConfig.getJdbcSqlCacheSize();
         final boolean traceActiveThread = profilerConfig.isTraceAgentActiveThread();
         final boolean traceDataSource = profilerConfig.isTraceAgentDataSource();
-        final DefaultTraceContext traceContext = new DefaultTraceContext(jdbcSqlCacheSize, this.agentInformation, storageFactory, sampler, this.serverMetaDataHolder, traceActiveThread, traceDataSource);
+        final Binder<Trace> traceBinder = createTraceBinder();
+        logger.info("TraceBinderType:{}", traceBinder.getClass().getSimpleName());
+        final DefaultTraceContext traceContext = new DefaultTraceContext(jdbcSqlCacheSize, this.agentInformation, storageFactory, sampler, continuationSampler, tailStorageFactory, this.serverMetaDataHolder, traceActiveThread, traceDataSource, traceBinder);
         traceContext.setProfilerConfig(profilerConfig);
 
         return traceContext;
     }
 
+    private Binder<Trace> createTraceBinder() {
+        final String traceBinder = profilerConfig.getTraceBinder();
+        final String binderType = traceBinder == null ? null : traceBinder.trim().toUpperCase();
+        if (DefaultProfilerConfig.TRACE_BINDER_THREAD_ID.equals(binderType)) {
+            return new ThreadIdBinder<Trace>();
+        }
+        if (!DefaultProfilerConfig.TRACE_BINDER_THREAD_LOCAL.equals(binderType)) {
+            logger.warn("Unknown trace binder:{}. use {}", traceBinder, DefaultProfilerConfig.TRACE_BINDER_THREAD_LOCAL);
+        }
+        return new ThreadLocalBinder<Trace>();
+    }
+
     protected StorageFactory createStorageFactory() {
         if (profilerConfig.isIoBufferingEnable()) {
             return new BufferedStorageFactory(this.spanDataSender, this.profilerConfig, this.agentInformation);
@@ -345,12 +415,31 @@ public class DefaultAgent implements Agent {
         }
     }
 
+    private TailSamplingStorageFactory createTailStorageFactory(StorageFactory storageFactory) {
+        if (!profilerConfig.isSamplingTailEnable()) {
+            return null;
+        }
+        final long latencyThreshold = profilerConfig.getSamplingTailLatencyThreshold();
+        final int maxEvents = profilerConfig.getSamplingTailTraceMaxEvents();
+        final long maxBufferBytes = profilerConfig.getSamplingTailBufferMaxBytes();
+        return new TailSamplingStorageFactory(storageFactory, latencyThreshold, maxEvents, maxBufferBytes);
+    }
+
     private Sampler createSampler() {
         boolean samplingEnable = this.profilerConfig.isSamplingEnable();
         int samplingRate = this.profilerConfig.getSamplingRate();
+        String samplingType = this.profilerConfig.getSamplingType();
+        int tracesPerSecond = this.profilerConfig.getSamplingAdaptiveTracesPerSecond();
 
         SamplerFactory samplerFactory = new SamplerFactory();
-        return samplerFactory.createSampler(samplingEnable, samplingRate);
+        return samplerFactory.createSampler(samplingEnable, samplingRate, samplingType, tracesPerSecond);
+    }
+
+    private Sampler createContinuationSampler() {
+        int continuationLimit = this.profilerConfig.getSamplingContinuationLimit();
+
+        SamplerFactory samplerFactory = new SamplerFactory();
+        return samplerFactory.createContinuationSampler(continuationLimit);
     }
     
     protected ServerMetaDataHolder createServerMetaDataHolder() {
@@ -376,6 +465,8 @@ public class DefaultAgent implements Agent {
         } else {
             properties.put(HandshakePropertyType.SUPPORT_SERVER.getName(), false);
         }
+        // the collector answers with its own flag. batches are sent only if both sides support them
+        properties.put(HandshakePropertyType.SUPPORT_REQUEST_BATCH.getName(), this.profilerConfig.getTcpDataSenderRequestBatchSize() > 1);
 
         pinpointClientFactory.setProperties(properties);
         return pinpointClientFactory;
@@ -384,19 +475,84 @@ public class DefaultAgent implements Agent {
     protected EnhancedDataSender createTcpDataSender(CommandDispatcher commandDispatcher) {
         this.clientFactory = createELAgentClientFactory(commandDispatcher);
         this.client = ClientFactoryUtils.createELAgentClient(this.profilerConfig.getCollectorTcpServerIp(), this.profilerConfig.getCollectorTcpServerPort(), clientFactory);
-        return new TcpDataSender(client);
+        final RetryQueue retryQueue = new RetryQueue(profilerConfig.getTcpDataSenderRetryBudgets());
+        return new TcpDataSender(client, createAsyncQueueingExecutorFactory(AsyncQueueType.LINKED.name()), profilerConfig.getTcpDataSenderRequestBatchSize(), retryQueue);
+    }
+
+    private AsyncQueueingExecutorFactory createAsyncQueueingExecutorFactory(String queueType) {
+        AsyncQueueFactory queueFactory = new AsyncQueueFactory(queueType, profilerConfig.getDataSenderWriteQueueWaitStrategy());
+        FlushPolicy flushPolicy = new FlushPolicy(profilerConfig.getDataSenderFlushMaxBatchCount(), profilerConfig.getDataSenderFlushMaxBatchBytes(), profilerConfig.getDataSenderFlushLingerTime());
+        return new AsyncQueueingExecutorFactory(queueFactory, flushPolicy);
     }
 
     protected DataSender createUdpStatDataSender(int port, String threadName, int writeQueueSize, int timeout, int sendBufferSize) {
-        UdpDataSenderFactory factory = new UdpDataSenderFactory(this.profilerConfig.getCollectorStatServerIp(), port, threadName, writeQueueSize, timeout, sendBufferSize);
+        AsyncQueueingExecutorFactory executorFactory = createAsyncQueueingExecutorFactory(profilerConfig.getStatDataSenderWriteQueueType());
+        UdpDataSenderFactory factory = new UdpDataSenderFactory(this.profilerConfig.getCollectorStatServerIp(), port, threadName, writeQueueSize, timeout, sendBufferSize, executorFactory);
         return factory.create(profilerConfig.getStatDataSenderSocketType());
     }
     
     protected DataSender createUdpSpanDataSender(int port, String threadName, int writeQueueSize, int timeout, int sendBufferSize) {
-        UdpDataSenderFactory factory = new UdpDataSenderFactory(this.profilerConfig.getCollectorSpanServerIp(), port, threadName, writeQueueSize, timeout, sendBufferSize);
+        AsyncQueueingExecutorFactory executorFactory = createAsyncQueueingExecutorFactory(profilerConfig.getSpanDataSenderWriteQueueType());
+        int packingLength = getSpanPackingLength();
+        DiskSpill diskSpill = createSpanDiskSpill();
+        this.spanDiskSpill = diskSpill;
+        UdpDataSenderFactory factory = new UdpDataSenderFactory(this.profilerConfig.getCollectorSpanServerIp(), port, threadName, writeQueueSize, timeout, sendBufferSize, executorFactory, packingLength, diskSpill);
         return factory.create(profilerConfig.getSpanDataSenderSocketType());
     }
 
+    private int getSpanPackingLength() {
+        if (!profilerConfig.isSpanDataSenderPackingEnable()) {
+            return UdpDataSender.NO_PACKING;
+        }
+        if (UdpDataSenderType.valueOf(profilerConfig.getSpanDataSenderSocketType()) != UdpDataSenderType.OIO) {
+            logger.warn("span packing disabled. not supported socket type:{}", profilerConfig.getSpanDataSenderSocketType());
+            return UdpDataSender.NO_PACKING;
+        }
+        return profilerConfig.getSpanDataSenderPackingLength();
+    }
+
+    private DiskSpill createSpanDiskSpill() {
+        if (!profilerConfig.isSpanDataSenderSpillEnable()) {
+            return null;
+        }
+        if (UdpDataSenderType.valueOf(profilerConfig.getSpanDataSenderSocketType()) != UdpDataSenderType.OIO) {
+            logger.warn("span spill disabled. not supported socket type:{}", profilerConfig.getSpanDataSenderSocketType());
+            return null;
+        }
+        final File spillDir = getSpillDir();
+        if (spillDir == null) {
+            logger.warn("span spill disabled. spill directory not found");
+            return null;
+        }
+        try {
+            SpillQueue spillQueue = new SpillQueue(new File(spillDir, agentInformation.getAgentId()), profilerConfig.getSpanDataSenderSpillSegmentSize(), profilerConfig.getSpanDataSenderSpillMaxSize());
+            ConnectionMonitor connectionMonitor = new ConnectionMonitor() {
+                @Override
+                public boolean isConnected() {
+                    final ELAgentClient client = DefaultAgent.this.client;
+                    return client != null && client.isConnected();
+                }
+            };
+            return new DiskSpill(spillQueue, connectionMonitor, profilerConfig.getSpanDataSenderSpillHighWaterMark(), profilerConfig.getSpanDataSenderSpillReplayBytesPerSecond());
+        } catch (IOException e) {
+            logger.warn("span spill disabled. Caused:{}", e.getMessage(), e);
+            return null;
+        }
+    }
+
+    private File getSpillDir() {
+        final String spillDir = profilerConfig.getSpanDataSenderSpillDir();
+        if (spillDir != null && !spillDir.isEmpty()) {
+            return new File(spillDir);
+        }
+        // next to the log directory under the agent home
+        final String logPath = System.getProperty(ProductInfo.NAME + ".log");
+        if (logPath == null) {
+            return null;
+        }
+        return new File(new File(logPath).getParentFile(), "spill");
+    }
+
     protected EnhancedDataSender getTcpDataSender() {
         return tcpDataSender;
     }
@@ -460,6 +616,11 @@ public class DefaultAgent implements Agent {
         this.statDataSender.stop();
 
         closeTcpDataSender();
+
+        if (this.coarseClock != null) {
+            SpanClock.setClock(SystemClock.INSTANCE);
+            this.coarseClock.stop();
+        }
         // for testcase
         if (staticResourceCleanup) {
             PLoggerFactory.unregister(this.binder);
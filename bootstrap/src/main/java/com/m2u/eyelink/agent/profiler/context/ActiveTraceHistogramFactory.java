@@ -1,16 +1,12 @@
 package com.m2u.eyelink.agent.profiler.context;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.LinkedHashMap;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
 
-import com.m2u.eyelink.context.ActiveTraceInfo;
 import com.m2u.eyelink.context.ActiveTraceLocator;
 import com.m2u.eyelink.trace.BaseHistogramSchema;
 import com.m2u.eyelink.trace.HistogramSchema;
-import com.m2u.eyelink.trace.HistogramSlot;
 import com.m2u.eyelink.trace.SlotType;
 
 public class ActiveTraceHistogramFactory {
@@ -18,6 +14,8 @@ public class ActiveTraceHistogramFactory {
     private final ActiveTraceLocator activeTraceLocator;
     private final int activeTraceSlotsCount;
     private final HistogramSchema histogramSchema = BaseHistogramSchema.NORMAL_SCHEMA;
+    // upper bounds of FAST, NORMAL and SLOW. the rest is VERY_SLOW
+    private final int[] elapsedLimits;
 
     private static final List<SlotType> ACTIVE_TRACE_SLOTS_ORDER = new ArrayList<SlotType>();
 
@@ -34,64 +32,63 @@ public class ActiveTraceHistogramFactory {
         }
         this.activeTraceLocator = activeTraceLocator;
         this.activeTraceSlotsCount = ACTIVE_TRACE_SLOTS_ORDER.size();
+        this.elapsedLimits = new int[] {
+                histogramSchema.getFastSlot().getSlotTime(),
+                histogramSchema.getNormalSlot().getSlotTime(),
+                histogramSchema.getSlowSlot().getSlotTime()
+        };
     }
 
-    public ActiveTraceHistogram createHistogram() {
-        Map<SlotType, IntAdder> mappedSlot = new LinkedHashMap<SlotType, IntAdder>(activeTraceSlotsCount);
-        for (SlotType slotType : ACTIVE_TRACE_SLOTS_ORDER) {
-            mappedSlot.put(slotType, new IntAdder(0));
-        }
-
-        long currentTime = System.currentTimeMillis();
-
-        List<ActiveTraceInfo> collectedActiveTraceInfo = activeTraceLocator.collect();
-        for (ActiveTraceInfo activeTraceInfo : collectedActiveTraceInfo) {
-            HistogramSlot slot = histogramSchema.findHistogramSlot((int) (currentTime - activeTraceInfo.getStartTime()), false);
-            mappedSlot.get(slot.getSlotType()).incrementAndGet();
-        }
-
-        List<Integer> activeTraceCount = new ArrayList<Integer>(activeTraceSlotsCount);
-        for (IntAdder statusCount : mappedSlot.values()) {
-            activeTraceCount.add(statusCount.get());
-        }
-        return new ActiveTraceHistogram(this.histogramSchema, activeTraceCount);
+    public ActiveTraceHistogram newHistogram() {
+        return new ActiveTraceHistogram(this.histogramSchema, activeTraceSlotsCount);
     }
 
-    private static class IntAdder {
-        private int value = 0;
-
-        public IntAdder(int defaultValue) {
-            this.value = defaultValue;
-        }
-
-        public int incrementAndGet() {
-            return ++value;
+    /**
+     * Refills the counts of the given histogram in place, so that a histogram read every second allocates nothing.
+     * Callers sharing a histogram between threads synchronize on it.
+     */
+    public void updateHistogram(ActiveTraceHistogram histogram) {
+        if (histogram == null) {
+            throw new NullPointerException("histogram must not be null");
         }
+        final long currentTime = System.currentTimeMillis();
 
-        public int get() {
-            return this.value;
-        }
+        final int[] counts = histogram.activeTraceCounts;
+        Arrays.fill(counts, 0);
+        activeTraceLocator.countByElapsedTime(currentTime, elapsedLimits, counts);
     }
 
     public static class ActiveTraceHistogram {
 
         private final HistogramSchema histogramSchema;
-        private final List<Integer> activeTraceCounts;
+        // in ACTIVE_TRACE_SLOTS_ORDER
+        private final int[] activeTraceCounts;
 
-        private ActiveTraceHistogram(HistogramSchema histogramSchema, List<Integer> activeTraceCounts) {
+        private ActiveTraceHistogram(HistogramSchema histogramSchema, int slotsCount) {
             this.histogramSchema = histogramSchema;
-            if (activeTraceCounts == null) {
-                this.activeTraceCounts = Collections.emptyList();
-            } else {
-                this.activeTraceCounts = activeTraceCounts;
-            }
+            this.activeTraceCounts = new int[slotsCount];
         }
 
         public HistogramSchema getHistogramSchema() {
             return histogramSchema;
         }
 
+        public int getSlotsCount() {
+            return activeTraceCounts.length;
+        }
+
+        public int getActiveTraceCount(int slotIndex) {
+            return activeTraceCounts[slotIndex];
+        }
+
+        /**
+         * @return a new list of the counts, built when the histogram is written to a thrift message
+         */
         public List<Integer> getActiveTraceCounts() {
+            final List<Integer> activeTraceCounts = new ArrayList<Integer>(this.activeTraceCounts.length);
+            for (int count : this.activeTraceCounts) {
+                activeTraceCounts.add(count);
+            }
             return activeTraceCounts;
         }
     }
@@ -1,16 +1,122 @@
 package com.m2u.eyelink.agent.profiler.context;
 
+import java.util.ArrayList;
 import java.util.List;
 
+import com.m2u.eyelink.context.Span;
 import com.m2u.eyelink.context.SpanEvent;
+import com.m2u.eyelink.context.SpanEventRecords;
+import com.m2u.eyelink.context.TSpanEvent;
+import com.m2u.eyelink.context.recycle.Recyclable;
+import com.m2u.eyelink.context.recycle.Recycler;
 import com.m2u.eyelink.context.thrift.TSpanChunk;
+import com.m2u.eyelink.sender.DeferredAssembly;
 
-public class SpanChunk extends TSpanChunk {
+public class SpanChunk extends TSpanChunk implements Recyclable, DeferredAssembly {
+
+    // null if not pooled
+    private final Recycler.Handle<SpanChunk> handle;
+    // pooled only. kept across recycling so that the list is not reallocated.
+    private final List<TSpanEvent> recycledSpanEventList;
+    // set while the header is still to be filled in by the sender thread
+    private SpanChunkFactory assembler;
+    // events still to be built by the sender thread. null unless recorded
+    private SpanEventRecords spanEventRecords;
 
     public SpanChunk(List<SpanEvent> spanEventList) {
         if (spanEventList == null) {
             throw new NullPointerException("spanEventList must not be null");
         }
         setSpanEventList((List) spanEventList);
+        this.handle = null;
+        this.recycledSpanEventList = null;
+    }
+
+    SpanChunk(SpanEventRecords spanEventRecords) {
+        if (spanEventRecords == null) {
+            throw new NullPointerException("spanEventRecords must not be null");
+        }
+        setSpanEventList(new ArrayList<TSpanEvent>(spanEventRecords.size()));
+        this.spanEventRecords = spanEventRecords;
+        this.handle = null;
+        this.recycledSpanEventList = null;
+    }
+
+    SpanChunk(Recycler.Handle<SpanChunk> handle) {
+        if (handle == null) {
+            throw new NullPointerException("handle must not be null");
+        }
+        this.handle = handle;
+        this.recycledSpanEventList = new ArrayList<TSpanEvent>();
+        setSpanEventList(recycledSpanEventList);
+    }
+
+    void addAll(List<SpanEvent> spanEventList) {
+        // index loop. addAll(Collection) would allocate a copy through toArray().
+        final int size = spanEventList.size();
+        for (int i = 0; i < size; i++) {
+            recycledSpanEventList.add(spanEventList.get(i));
+        }
+    }
+
+    void setSpanEventRecords(SpanEventRecords spanEventRecords) {
+        this.spanEventRecords = spanEventRecords;
+    }
+
+    void deferAssembly(SpanChunkFactory assembler) {
+        this.assembler = assembler;
+    }
+
+    @Override
+    public void assemble() {
+        final SpanChunkFactory assembler = this.assembler;
+        if (assembler == null) {
+            return;
+        }
+        this.assembler = null;
+        final SpanEventRecords spanEventRecords = this.spanEventRecords;
+        if (spanEventRecords == null) {
+            assembler.assemble(this);
+            return;
+        }
+        this.spanEventRecords = null;
+        final Span parentSpan = spanEventRecords.getSpan();
+        spanEventRecords.toSpanEventList(getSpanEventList());
+        spanEventRecords.recycle();
+        assembler.assemble(this, parentSpan);
+    }
+
+    /**
+     * Recycles the SpanEvents of this chunk and, if pooled, the chunk itself together with its list.
+     */
+    @Override
+    public void recycle() {
+        final SpanEventRecords spanEventRecords = this.spanEventRecords;
+        if (spanEventRecords != null) {
+            // never assembled
+            this.spanEventRecords = null;
+            spanEventRecords.recycle();
+        }
+        final List<TSpanEvent> spanEventList = getSpanEventList();
+        if (spanEventList != null) {
+            final int size = spanEventList.size();
+            for (int i = 0; i < size; i++) {
+                final TSpanEvent spanEvent = spanEventList.get(i);
+                if (spanEvent instanceof SpanEvent) {
+                    ((SpanEvent) spanEvent).recycle();
+                }
+            }
+        }
+        if (handle != null) {
+            handle.recycle();
+        }
+    }
+
+    void resetForRecycle() {
+        this.assembler = null;
+        this.spanEventRecords = null;
+        clear();
+        recycledSpanEventList.clear();
+        setSpanEventList(recycledSpanEventList);
     }
 }
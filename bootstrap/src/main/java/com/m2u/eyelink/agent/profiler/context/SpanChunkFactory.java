@@ -1,41 +1,133 @@
 package com.m2u.eyelink.agent.profiler.context;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import com.m2u.eyelink.context.AgentInformation;
 import com.m2u.eyelink.context.Span;
 import com.m2u.eyelink.context.SpanEvent;
+import com.m2u.eyelink.context.SpanEventRecords;
+import com.m2u.eyelink.context.SpanEventRecordsRecycler;
 
 public class SpanChunkFactory {
 
     private final AgentInformation agentInformation;
+    // null if SpanChunks are not recycled
+    private final SpanChunkRecycler spanChunkRecycler;
+    // record span events and build the chunks on the sender thread instead of the request thread
+    private final boolean deferAssembly;
+    // null if SpanEventRecords are not recycled
+    private final SpanEventRecordsRecycler spanEventRecordsRecycler;
 
     public SpanChunkFactory(AgentInformation agentInformation) {
+        this(agentInformation, null);
+    }
+
+    public SpanChunkFactory(AgentInformation agentInformation, SpanChunkRecycler spanChunkRecycler) {
+        this(agentInformation, spanChunkRecycler, false);
+    }
+
+    public SpanChunkFactory(AgentInformation agentInformation, SpanChunkRecycler spanChunkRecycler, boolean deferAssembly) {
+        this(agentInformation, spanChunkRecycler, null, deferAssembly);
+    }
+
+    /**
+     * @param deferAssembly storages record span events with {@link #newSpanEventRecords()} and send them with {@link #create(SpanEventRecords)}
+     */
+    public SpanChunkFactory(AgentInformation agentInformation, SpanChunkRecycler spanChunkRecycler, SpanEventRecordsRecycler spanEventRecordsRecycler, boolean deferAssembly) {
         if (agentInformation == null) {
             throw new NullPointerException("agentInformation must not be null");
         }
         this.agentInformation = agentInformation;
+        this.spanChunkRecycler = spanChunkRecycler;
+        this.spanEventRecordsRecycler = spanEventRecordsRecycler;
+        this.deferAssembly = deferAssembly;
+    }
+
+    public SpanEventRecords newSpanEventRecords() {
+        if (spanEventRecordsRecycler == null) {
+            return new SpanEventRecords();
+        }
+        return spanEventRecordsRecycler.get();
+    }
+
+    /**
+     * Creates a SpanChunk that takes over spanEventRecords. The events and the header are built by the sender thread.
+     */
+    public SpanChunk create(final SpanEventRecords spanEventRecords) {
+        if (spanEventRecords == null) {
+            throw new NullPointerException("spanEventRecords must not be null");
+        }
+        if (spanEventRecords.isEmpty()) {
+            throw new IllegalArgumentException("spanEventRecords is empty");
+        }
+        final SpanChunk spanChunk;
+        if (spanChunkRecycler == null) {
+            spanChunk = new SpanChunk(spanEventRecords);
+        } else {
+            spanChunk = spanChunkRecycler.get();
+            spanChunk.setSpanEventRecords(spanEventRecords);
+        }
+        spanChunk.deferAssembly(this);
+        return spanChunk;
+    }
+
+    /**
+     * Creates a SpanChunk holding a copy of flushData, so the caller may clear and reuse flushData.
+     */
+    public SpanChunk copyOf(final List<SpanEvent> flushData) {
+        if (flushData == null) {
+            throw new NullPointerException("flushData must not be null");
+        }
+        if (spanChunkRecycler == null) {
+            return create(new ArrayList<SpanEvent>(flushData));
+        }
+        checkFlushData(flushData);
+        final SpanChunk spanChunk = spanChunkRecycler.get();
+        spanChunk.addAll(flushData);
+        prepare(spanChunk);
+        return spanChunk;
     }
 
     public SpanChunk create(final List<SpanEvent> flushData) {
         if (flushData == null) {
             throw new NullPointerException("flushData must not be null");
         }
-        // TODO must be equals to or greater than 1
+        checkFlushData(flushData);
+        final SpanChunk spanChunk = new SpanChunk(flushData);
+        prepare(spanChunk);
+        return spanChunk;
+    }
+
+    private void checkFlushData(final List<SpanEvent> flushData) {
         final int size = flushData.size();
         if (size < 1) {
             throw new IllegalArgumentException("flushData.size() < 1 size:" + size);
         }
-
-
-        final SpanEvent first = flushData.get(0);
-        if (first == null) {
+        if (flushData.get(0) == null) {
             throw new IllegalStateException("first SpanEvent is null");
         }
-        final Span parentSpan = first.getSpan();
+    }
+
+    private void prepare(final SpanChunk spanChunk) {
+        if (deferAssembly) {
+            spanChunk.deferAssembly(this);
+        } else {
+            assemble(spanChunk);
+        }
+    }
+
+    /**
+     * Fills in the chunk header from the agent and the parent Span of the first SpanEvent.
+     */
+    void assemble(final SpanChunk spanChunk) {
+        final SpanEvent first = (SpanEvent) spanChunk.getSpanEventList().get(0);
+        assemble(spanChunk, first.getSpan());
+    }
+
+    void assemble(final SpanChunk spanChunk, final Span parentSpan) {
         final String agentId = this.agentInformation.getAgentId();
 
-        final SpanChunk spanChunk = new SpanChunk(flushData);
         spanChunk.setAgentId(agentId);
         spanChunk.setApplicationName(this.agentInformation.getApplicationName());
         spanChunk.setAgentStartTime(this.agentInformation.getStartTime());
@@ -51,6 +143,17 @@ public class SpanChunkFactory {
         spanChunk.setSpanId(parentSpan.getSpanId());
 
         spanChunk.setEndPoint(parentSpan.getEndPoint());
-        return spanChunk;
+    }
+
+    public SpanChunkRecycler getSpanChunkRecycler() {
+        return spanChunkRecycler;
+    }
+
+    public SpanEventRecordsRecycler getSpanEventRecordsRecycler() {
+        return spanEventRecordsRecycler;
+    }
+
+    public boolean isDeferAssembly() {
+        return deferAssembly;
     }
 }
@@ -0,0 +1,23 @@
+package com.m2u.eyelink.agent.profiler.context;
+
+import com.m2u.eyelink.context.recycle.Recycler;
+
+public class SpanChunkRecycler extends Recycler<SpanChunk> {
+
+    public SpanChunkRecycler() {
+    }
+
+    public SpanChunkRecycler(int maxCapacityPerThread) {
+        super(maxCapacityPerThread);
+    }
+
+    @Override
+    protected SpanChunk newObject(Handle<SpanChunk> handle) {
+        return new SpanChunk(handle);
+    }
+
+    @Override
+    protected void resetObject(SpanChunk spanChunk) {
+        spanChunk.resetForRecycle();
+    }
+}
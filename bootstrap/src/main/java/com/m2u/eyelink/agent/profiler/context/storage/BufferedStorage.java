@@ -10,6 +10,8 @@ import com.m2u.eyelink.agent.profiler.context.SpanChunk;
 import com.m2u.eyelink.agent.profiler.context.SpanChunkFactory;
 import com.m2u.eyelink.context.Span;
 import com.m2u.eyelink.context.SpanEvent;
+import com.m2u.eyelink.context.SpanEventRecords;
+import com.m2u.eyelink.context.SpanEventRecycler;
 import com.m2u.eyelink.context.Storage;
 import com.m2u.eyelink.sender.DataSender;
 
@@ -18,18 +20,41 @@ public class BufferedStorage implements Storage {
     private static final boolean isDebug = logger.isDebugEnabled();
 
     private static final int DEFAULT_BUFFER_SIZE = 20;
+    public static final int NO_BYTE_BUDGET = 0;
+    // events per chunk with a byte budget. only bounds the memory held by a chunk of tiny events
+    static final int BYTE_BUDGET_MAX_BUFFER_SIZE = 1024;
 
     private final int bufferSize;
+    // estimated serialized bytes of events per chunk. NO_BYTE_BUDGET flushes on bufferSize only.
+    private final int bufferBytes;
+    // bufferSize without a byte budget. with one, chunks are cut by bytes and this is only a safety cap
+    private final int maxBufferedEvents;
+    private int storageBytes = 0;
 
+    // null if span events are recorded
     private List<SpanEvent> storage;
+    // finished span events are copied here and recycled at once. the sender thread builds the TSpanEvents from it
+    private final boolean recordSpanEvent;
+    // null until the first span event after a flush
+    private SpanEventRecords spanEventRecords;
     private final DataSender dataSender;
     private final SpanChunkFactory spanChunkFactory;
+    // null if SpanEvents are not recycled
+    private final SpanEventRecycler spanEventRecycler;
 
     public BufferedStorage(DataSender dataSender, SpanChunkFactory spanChunkFactory) {
         this(dataSender, spanChunkFactory, DEFAULT_BUFFER_SIZE);
     }
 
     public BufferedStorage(DataSender dataSender, SpanChunkFactory spanChunkFactory, int bufferSize) {
+        this(dataSender, spanChunkFactory, null, bufferSize);
+    }
+
+    public BufferedStorage(DataSender dataSender, SpanChunkFactory spanChunkFactory, SpanEventRecycler spanEventRecycler, int bufferSize) {
+        this(dataSender, spanChunkFactory, spanEventRecycler, bufferSize, NO_BYTE_BUDGET);
+    }
+
+    public BufferedStorage(DataSender dataSender, SpanChunkFactory spanChunkFactory, SpanEventRecycler spanEventRecycler, int bufferSize, int bufferBytes) {
         if (dataSender == null) {
             throw new NullPointerException("dataSender must not be null");
         }
@@ -38,34 +63,118 @@ public class BufferedStorage implements Storage {
         }
         this.dataSender = dataSender;
         this.spanChunkFactory = spanChunkFactory;
+        this.spanEventRecycler = spanEventRecycler;
+        if (bufferBytes < 0) {
+            throw new IllegalArgumentException("bufferBytes");
+        }
         this.bufferSize = bufferSize;
-        this.storage = new ArrayList<SpanEvent>(bufferSize);
+        this.bufferBytes = bufferBytes;
+        this.maxBufferedEvents = bufferBytes == NO_BYTE_BUDGET ? bufferSize : Math.max(bufferSize, BYTE_BUDGET_MAX_BUFFER_SIZE);
+        this.recordSpanEvent = spanChunkFactory.isDeferAssembly();
+        if (!recordSpanEvent) {
+            this.storage = new ArrayList<SpanEvent>(bufferSize);
+        }
     }
 
     @Override
-    public void store(SpanEvent spanEvent) {
-        List<SpanEvent> flushData = null;
-        storage.add(spanEvent);
-        if (storage.size() >= bufferSize) {
-            // data copy
-            flushData = storage;
-            storage = new ArrayList<SpanEvent>(bufferSize);
+    public SpanEvent newSpanEvent(Span span) {
+        if (spanEventRecycler == null) {
+            return new SpanEvent(span);
         }
+        return spanEventRecycler.get(span);
+    }
 
-        if (flushData != null) {
-            final SpanChunk spanChunk = spanChunkFactory.create(flushData);
-            if (isDebug) {
-                logger.debug("[BufferedStorage] Flush span-chunk {}", spanChunk);
+    @Override
+    public void store(SpanEvent spanEvent) {
+        if (spanEvent.isRecycled()) {
+            // already handed back to the pool. storing it again would send whatever the next owner writes.
+            logger.warn("[BufferedStorage] discard recycled SpanEvent. stackId:{}", spanEvent.getStackId());
+            return;
+        }
+        if (recordSpanEvent && spanEventRecords != null && spanEventRecords.getSpan() != spanEvent.getSpan()) {
+            // a chunk carries the events of one span
+            sendSpanChunk();
+        }
+        if (bufferBytes == NO_BYTE_BUDGET) {
+            add(spanEvent);
+            if (bufferedSize() >= bufferSize) {
+                sendSpanChunk();
             }
-            dataSender.send(spanChunk);
+            return;
+        }
+
+        final int eventBytes = SpanEventSizeEstimator.estimate(spanEvent);
+        if (bufferedSize() > 0 && storageBytes + eventBytes > bufferBytes) {
+            // would not fit in one packet together with the buffered events
+            sendSpanChunk();
+        }
+        add(spanEvent);
+        storageBytes += eventBytes;
+        if (storageBytes >= bufferBytes || bufferedSize() >= maxBufferedEvents) {
+            sendSpanChunk();
+        }
+    }
+
+    private void add(SpanEvent spanEvent) {
+        if (!recordSpanEvent) {
+            storage.add(spanEvent);
+            return;
         }
+        SpanEventRecords spanEventRecords = this.spanEventRecords;
+        if (spanEventRecords == null) {
+            spanEventRecords = spanChunkFactory.newSpanEventRecords();
+            this.spanEventRecords = spanEventRecords;
+        }
+        spanEventRecords.add(spanEvent);
+        // copied. only the events on the call stack stay alive
+        spanEvent.recycle();
+    }
+
+    private int bufferedSize() {
+        if (!recordSpanEvent) {
+            return storage.size();
+        }
+        return spanEventRecords == null ? 0 : spanEventRecords.size();
+    }
+
+    private void sendSpanChunk() {
+        final SpanChunk spanChunk;
+        if (recordSpanEvent) {
+            spanChunk = spanChunkFactory.create(spanEventRecords);
+            spanEventRecords = null;
+        } else {
+            // the chunk copies the events, so the buffer list is reused
+            spanChunk = spanChunkFactory.copyOf(storage);
+            storage.clear();
+        }
+        storageBytes = 0;
+        if (isDebug) {
+            logger.debug("[BufferedStorage] Flush span-chunk {}", spanChunk);
+        }
+        // may be recycled by the sender from here on
+        dataSender.send(spanChunk);
     }
 
     @Override
     public void store(Span span) {
+        if (recordSpanEvent) {
+            final SpanEventRecords spanEventRecords = this.spanEventRecords;
+            this.spanEventRecords = null;
+            this.storageBytes = 0;
+            if (spanEventRecords != null) {
+                // built by the sender thread
+                span.setSpanEventRecords(spanEventRecords);
+            }
+            dataSender.send(span);
+            if (isDebug) {
+                logger.debug("[BufferedStorage] Flush span {}", span);
+            }
+            return;
+        }
         List<SpanEvent> spanEventList;
         spanEventList = storage;
         this.storage = new ArrayList<SpanEvent>(bufferSize);
+        this.storageBytes = 0;
 
         if (spanEventList != null && !spanEventList.isEmpty()) {
             span.setSpanEventList((List) spanEventList);
@@ -78,16 +187,8 @@ public class BufferedStorage implements Storage {
     }
 
     public void flush() {
-        List<SpanEvent> spanEventList;
-        spanEventList = storage;
-        this.storage = new ArrayList<SpanEvent>(bufferSize);
-
-        if (spanEventList != null && !spanEventList.isEmpty()) {
-            final SpanChunk spanChunk = spanChunkFactory.create(spanEventList);
-            dataSender.send(spanChunk);
-            if (isDebug) {
-                logger.debug("flush span chunk {}", spanChunk);
-            }
+        if (bufferedSize() > 0) {
+            sendSpanChunk();
         }
     }
 
@@ -97,6 +198,6 @@ public class BufferedStorage implements Storage {
 
     @Override
     public String toString() {
-        return "BufferedStorage{" + "bufferSize=" + bufferSize + ", dataSender=" + dataSender + '}';
+        return "BufferedStorage{" + "bufferSize=" + bufferSize + ", bufferBytes=" + bufferBytes + ", recycle=" + (spanEventRecycler != null) + ", recordSpanEvent=" + recordSpanEvent + ", dataSender=" + dataSender + '}';
     }
 }
\ No newline at end of file
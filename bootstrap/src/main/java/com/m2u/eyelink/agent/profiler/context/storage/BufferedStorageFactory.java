@@ -1,17 +1,26 @@
 package com.m2u.eyelink.agent.profiler.context.storage;
 
 import com.m2u.eyelink.agent.profiler.context.SpanChunkFactory;
+import com.m2u.eyelink.agent.profiler.context.SpanChunkRecycler;
+import com.m2u.eyelink.agent.profiler.sender.UdpDataSender;
 import com.m2u.eyelink.config.ProfilerConfig;
 import com.m2u.eyelink.context.AgentInformation;
+import com.m2u.eyelink.context.SpanEventRecordsRecycler;
+import com.m2u.eyelink.context.SpanEventRecycler;
 import com.m2u.eyelink.context.Storage;
 import com.m2u.eyelink.context.StorageFactory;
 import com.m2u.eyelink.sender.DataSender;
 
 public class BufferedStorageFactory implements StorageFactory {
 
+    public static final int AUTO_BUFFER_BYTES = -1;
+
     private final DataSender dataSender;
     private final int bufferSize;
+    private final int bufferBytes;
     private final SpanChunkFactory spanChunkFactory;
+    // null if recycling is disabled
+    private final SpanEventRecycler spanEventRecycler;
 
     public BufferedStorageFactory(DataSender dataSender, ProfilerConfig config, AgentInformation agentInformation) {
         if (dataSender == null) {
@@ -23,22 +32,55 @@ public class BufferedStorageFactory implements StorageFactory {
         this.dataSender = dataSender;
 
         this.bufferSize = config.getIoBufferingBufferSize();
+        this.bufferBytes = getBufferBytes(config);
 
-        this.spanChunkFactory = new SpanChunkFactory(agentInformation);
+        final boolean deferAssembly = config.isIoBufferingDeferredAssemblyEnable();
+        if (config.isIoBufferingRecycleEnable()) {
+            final int capacity = config.getIoBufferingRecycleCapacity();
+            this.spanEventRecycler = new SpanEventRecycler(capacity);
+            final SpanEventRecordsRecycler spanEventRecordsRecycler = deferAssembly ? new SpanEventRecordsRecycler(capacity) : null;
+            this.spanChunkFactory = new SpanChunkFactory(agentInformation, new SpanChunkRecycler(capacity), spanEventRecordsRecycler, deferAssembly);
+        } else {
+            this.spanEventRecycler = null;
+            this.spanChunkFactory = new SpanChunkFactory(agentInformation, null, deferAssembly);
+        }
     }
 
+    private int getBufferBytes(ProfilerConfig config) {
+        int packetSize = config.getIoBufferingBufferBytes();
+        if (packetSize == AUTO_BUFFER_BYTES) {
+            // align chunks to what the span data sender puts into one datagram
+            packetSize = config.isSpanDataSenderPackingEnable() ? config.getSpanDataSenderPackingLength() : UdpDataSender.UDP_MAX_PACKET_LENGTH;
+        }
+        if (packetSize <= 0) {
+            return BufferedStorage.NO_BYTE_BUDGET;
+        }
+        return Math.max(packetSize - SpanEventSizeEstimator.CHUNK_OVERHEAD, 1);
+    }
 
     @Override
     public Storage createStorage() {
-        BufferedStorage bufferedStorage = new BufferedStorage(this.dataSender, spanChunkFactory, this.bufferSize);
+        BufferedStorage bufferedStorage = new BufferedStorage(this.dataSender, spanChunkFactory, spanEventRecycler, this.bufferSize, this.bufferBytes);
         return bufferedStorage;
     }
 
+    public SpanEventRecycler getSpanEventRecycler() {
+        return spanEventRecycler;
+    }
+
+    public SpanChunkFactory getSpanChunkFactory() {
+        return spanChunkFactory;
+    }
+
     @Override
     public String toString() {
         return "BufferedStorageFactory{" +
                 "bufferSize=" + bufferSize +
+                ", bufferBytes=" + bufferBytes +
                 ", dataSender=" + dataSender +
+                ", spanEventRecycler=" + spanEventRecycler +
+                ", spanChunkRecycler=" + spanChunkFactory.getSpanChunkRecycler() +
+                ", deferAssembly=" + spanChunkFactory.isDeferAssembly() +
                 '}';
     }
 }
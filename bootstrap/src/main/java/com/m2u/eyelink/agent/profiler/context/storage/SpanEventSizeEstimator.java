@@ -0,0 +1,106 @@
+package com.m2u.eyelink.agent.profiler.context.storage;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import com.m2u.eyelink.context.SpanEvent;
+import com.m2u.eyelink.context.TAnnotationValue;
+import com.m2u.eyelink.context.TIntStringStringValue;
+import com.m2u.eyelink.context.TIntStringValue;
+import com.m2u.eyelink.context.TSpanEvent;
+import com.m2u.eyelink.context.thrift.TAnnotation;
+
+/**
+ * Cheap upper-bound-ish estimate of the compact protocol size of a SpanEvent.
+ * A string is counted as length() bytes when it is all ASCII and as 3 bytes per char otherwise,
+ * the most a char takes in UTF-8, so non-ASCII SQL and bind values are never underestimated.
+ */
+final class SpanEventSizeEstimator {
+
+    // span chunk / span envelope: header, agentId, applicationName, transactionId, endPoint, list header ...
+    static final int CHUNK_OVERHEAD = 512;
+
+    // field headers + varints of the numeric fields, struct stop
+    private static final int SPAN_EVENT_FIXED_SIZE = 40;
+    private static final int FIELD_HEADER_SIZE = 1;
+    private static final int ANNOTATION_FIXED_SIZE = 8;
+    private static final int PRIMITIVE_VALUE_SIZE = 10;
+    // a surrogate pair takes 4 bytes for 2 chars, so 3 bytes per char covers every char
+    private static final int MAX_UTF8_BYTES_PER_CHAR = 3;
+
+    private SpanEventSizeEstimator() {
+    }
+
+    static int estimate(TSpanEvent spanEvent) {
+        int size = SPAN_EVENT_FIXED_SIZE;
+        size += stringSize(spanEvent.getRpc());
+        size += stringSize(spanEvent.getEndPoint());
+        size += stringSize(spanEvent.getDestinationId());
+
+        final TIntStringValue exceptionInfo = spanEvent.getExceptionInfo();
+        if (exceptionInfo != null) {
+            size += ANNOTATION_FIXED_SIZE + stringSize(exceptionInfo.getStringValue());
+        }
+
+        final List<TAnnotation> annotations = spanEvent.getAnnotations();
+        if (annotations != null) {
+            final int annotationSize = annotations.size();
+            for (int i = 0; i < annotationSize; i++) {
+                size += annotationSize(annotations.get(i));
+            }
+        }
+        if (spanEvent instanceof SpanEvent) {
+            // primitive annotations become TAnnotations when written
+            size += ((SpanEvent) spanEvent).getPendingAnnotationSize() * (ANNOTATION_FIXED_SIZE + PRIMITIVE_VALUE_SIZE);
+        }
+        return size;
+    }
+
+    private static int annotationSize(TAnnotation annotation) {
+        final TAnnotationValue value = annotation.getValue();
+        if (value == null) {
+            return ANNOTATION_FIXED_SIZE;
+        }
+        final Object fieldValue = value.getFieldValue();
+        if (fieldValue instanceof String) {
+            return ANNOTATION_FIXED_SIZE + stringSize((String) fieldValue);
+        }
+        if (fieldValue instanceof byte[]) {
+            return ANNOTATION_FIXED_SIZE + binarySize(((byte[]) fieldValue).length);
+        }
+        if (fieldValue instanceof ByteBuffer) {
+            return ANNOTATION_FIXED_SIZE + binarySize(((ByteBuffer) fieldValue).remaining());
+        }
+        if (fieldValue instanceof TIntStringValue) {
+            return ANNOTATION_FIXED_SIZE + PRIMITIVE_VALUE_SIZE + stringSize(((TIntStringValue) fieldValue).getStringValue());
+        }
+        if (fieldValue instanceof TIntStringStringValue) {
+            final TIntStringStringValue intStringStringValue = (TIntStringStringValue) fieldValue;
+            return ANNOTATION_FIXED_SIZE + PRIMITIVE_VALUE_SIZE
+                    + stringSize(intStringStringValue.getStringValue1()) + stringSize(intStringStringValue.getStringValue2());
+        }
+        return ANNOTATION_FIXED_SIZE + PRIMITIVE_VALUE_SIZE;
+    }
+
+    private static int stringSize(String value) {
+        if (value == null) {
+            return 0;
+        }
+        return binarySize(utf8SizeUpperBound(value));
+    }
+
+    private static int utf8SizeUpperBound(String value) {
+        final int length = value.length();
+        for (int i = 0; i < length; i++) {
+            if (value.charAt(i) >= 0x80) {
+                return length * MAX_UTF8_BYTES_PER_CHAR;
+            }
+        }
+        return length;
+    }
+
+    private static int binarySize(int length) {
+        // field header + varint length (5 bytes at most) + payload
+        return FIELD_HEADER_SIZE + 5 + length;
+    }
+}
@@ -21,6 +21,11 @@ public class SpanStorage implements Storage {
         this.dataSender = dataSender;
     }
 
+    @Override
+    public SpanEvent newSpanEvent(Span span) {
+        return new SpanEvent(span);
+    }
+
     @Override
     public void store(SpanEvent spanEvent) {
         if (spanEvent == null) {
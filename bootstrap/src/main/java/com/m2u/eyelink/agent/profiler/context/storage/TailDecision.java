@@ -0,0 +1,65 @@
+package com.m2u.eyelink.agent.profiler.context.storage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Whether a deferred trace is sent, shared by the trace and its async traces.
+ * An async trace that ends before the decision is left here, and is sent or dropped when the decision is made.
+ */
+final class TailDecision {
+
+    static final int UNDECIDED = 0;
+    static final int EMIT = 1;
+    static final int DISCARD = 2;
+
+    // changed under the lock, read without it
+    private volatile int state = UNDECIDED;
+    // guarded by this
+    private List<TailSamplingAsyncStorage> pending;
+
+    int getState() {
+        return state;
+    }
+
+    /**
+     * @return false if the decision is already made. the storage then resolves itself
+     */
+    synchronized boolean addPending(TailSamplingAsyncStorage storage) {
+        if (state != UNDECIDED) {
+            return false;
+        }
+        if (pending == null) {
+            pending = new ArrayList<TailSamplingAsyncStorage>(2);
+        }
+        pending.add(storage);
+        return true;
+    }
+
+    void emit() {
+        decide(EMIT);
+    }
+
+    void discard() {
+        decide(DISCARD);
+    }
+
+    private void decide(int decision) {
+        final List<TailSamplingAsyncStorage> pending;
+        synchronized (this) {
+            if (state != UNDECIDED) {
+                return;
+            }
+            state = decision;
+            pending = this.pending;
+            this.pending = null;
+        }
+        if (pending == null) {
+            return;
+        }
+        // the async traces have ended. their storages are not touched by their own threads anymore
+        for (TailSamplingAsyncStorage storage : pending) {
+            storage.resolveAndClose();
+        }
+    }
+}
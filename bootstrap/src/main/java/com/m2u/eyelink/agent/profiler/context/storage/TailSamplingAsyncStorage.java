@@ -0,0 +1,183 @@
+package com.m2u.eyelink.agent.profiler.context.storage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.m2u.eyelink.context.Span;
+import com.m2u.eyelink.context.SpanEvent;
+import com.m2u.eyelink.context.Storage;
+
+/**
+ * Storage of an async trace of a deferred trace. Follows the decision of the trace instead of making its own:
+ * events are buffered while the trace is undecided, then sent or dropped with it.
+ * Owned by the thread of the async trace until it is closed undecided, then by the thread that makes the decision.
+ * The async trace is not counted as a transaction of its own.
+ */
+class TailSamplingAsyncStorage implements Storage {
+
+    private static final int INITIAL_BUFFER_SIZE = 8;
+
+    private final Storage storage;
+    private final TailSamplingStorageFactory factory;
+    private final TailDecision decision;
+
+    private List<SpanEvent> buffer;
+    private Span span;
+    private long bufferBytes = 0;
+    // the memory caps were hit. nothing of this async trace is sent
+    private boolean overflow = false;
+
+    TailSamplingAsyncStorage(Storage storage, TailSamplingStorageFactory factory, TailDecision decision) {
+        if (storage == null) {
+            throw new NullPointerException("storage must not be null");
+        }
+        if (factory == null) {
+            throw new NullPointerException("factory must not be null");
+        }
+        if (decision == null) {
+            throw new NullPointerException("decision must not be null");
+        }
+        this.storage = storage;
+        this.factory = factory;
+        this.decision = decision;
+    }
+
+    @Override
+    public SpanEvent newSpanEvent(Span span) {
+        return storage.newSpanEvent(span);
+    }
+
+    @Override
+    public void store(SpanEvent spanEvent) {
+        if (spanEvent == null) {
+            throw new NullPointerException("spanEvent must not be null");
+        }
+        if (overflow) {
+            spanEvent.recycle();
+            return;
+        }
+        final int state = decision.getState();
+        if (state != TailDecision.UNDECIDED) {
+            resolve(state);
+            if (state == TailDecision.EMIT) {
+                storage.store(spanEvent);
+            } else {
+                spanEvent.recycle();
+            }
+            return;
+        }
+        List<SpanEvent> buffer = this.buffer;
+        if (buffer == null) {
+            buffer = new ArrayList<SpanEvent>(INITIAL_BUFFER_SIZE);
+            this.buffer = buffer;
+        }
+        if (buffer.size() >= factory.getMaxEvents()) {
+            giveUp();
+            spanEvent.recycle();
+            return;
+        }
+        final int eventBytes = SpanEventSizeEstimator.estimate(spanEvent);
+        if (!factory.reserve(eventBytes)) {
+            giveUp();
+            spanEvent.recycle();
+            return;
+        }
+        buffer.add(spanEvent);
+        bufferBytes += eventBytes;
+    }
+
+    private void giveUp() {
+        overflow = true;
+        span = null;
+        release();
+    }
+
+    @Override
+    public void store(Span span) {
+        if (span == null) {
+            throw new NullPointerException("span must not be null");
+        }
+        if (overflow) {
+            return;
+        }
+        final int state = decision.getState();
+        if (state == TailDecision.UNDECIDED) {
+            this.span = span;
+            return;
+        }
+        resolve(state);
+        if (state == TailDecision.EMIT) {
+            storage.store(span);
+        }
+    }
+
+    // sends or drops what was recorded before the decision
+    private void resolve(int state) {
+        if (state == TailDecision.EMIT) {
+            final List<SpanEvent> buffer = this.buffer;
+            if (buffer != null) {
+                this.buffer = null;
+                for (SpanEvent spanEvent : buffer) {
+                    storage.store(spanEvent);
+                }
+                factory.release(bufferBytes);
+                this.bufferBytes = 0;
+            }
+            final Span span = this.span;
+            if (span != null) {
+                this.span = null;
+                storage.store(span);
+            }
+        } else {
+            span = null;
+            release();
+        }
+    }
+
+    private void release() {
+        final List<SpanEvent> buffer = this.buffer;
+        if (buffer == null) {
+            return;
+        }
+        this.buffer = null;
+        for (SpanEvent spanEvent : buffer) {
+            spanEvent.recycle();
+        }
+        factory.release(bufferBytes);
+        this.bufferBytes = 0;
+    }
+
+    void resolveAndClose() {
+        if (!overflow) {
+            resolve(decision.getState());
+        }
+        storage.close();
+    }
+
+    @Override
+    public void flush() {
+        if (overflow) {
+            return;
+        }
+        final int state = decision.getState();
+        if (state == TailDecision.EMIT) {
+            resolve(state);
+            storage.flush();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (!overflow && decision.getState() == TailDecision.UNDECIDED && (buffer != null || span != null)) {
+            if (decision.addPending(this)) {
+                return;
+            }
+        }
+        resolveAndClose();
+    }
+
+    @Override
+    public String toString() {
+        return "TailSamplingAsyncStorage{" + "storage=" + storage + '}';
+    }
+}
@@ -0,0 +1,184 @@
+package com.m2u.eyelink.agent.profiler.context.storage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.m2u.eyelink.context.DeferredStorage;
+import com.m2u.eyelink.context.Span;
+import com.m2u.eyelink.context.SpanEvent;
+import com.m2u.eyelink.context.Storage;
+import com.m2u.eyelink.context.StorageFactory;
+
+/**
+ * Buffers the events of one trace until its span is stored, then forwards everything to the underlying storage or drops it.
+ * Owned by the thread of the trace like the other storages. flush() does not send anything because the decision is not made yet.
+ * The async traces of the trace are stored through {@link #getAsyncStorageFactory()} and follow the same decision.
+ */
+class TailSamplingStorage implements DeferredStorage {
+    private static final Logger logger = LoggerFactory.getLogger(TailSamplingStorage.class);
+    private static final boolean isDebug = logger.isDebugEnabled();
+
+    private static final int INITIAL_BUFFER_SIZE = 16;
+
+    private final Storage storage;
+    private final TailSamplingStorageFactory factory;
+    private final TailDecision decision = new TailDecision();
+    private StorageFactory asyncStorageFactory;
+
+    // null once the trace is decided or given up
+    private List<SpanEvent> buffer = new ArrayList<SpanEvent>(INITIAL_BUFFER_SIZE);
+    private long bufferBytes = 0;
+    private boolean error = false;
+    private boolean overflow = false;
+
+    TailSamplingStorage(Storage storage, TailSamplingStorageFactory factory) {
+        if (storage == null) {
+            throw new NullPointerException("storage must not be null");
+        }
+        if (factory == null) {
+            throw new NullPointerException("factory must not be null");
+        }
+        this.storage = storage;
+        this.factory = factory;
+    }
+
+    @Override
+    public SpanEvent newSpanEvent(Span span) {
+        return storage.newSpanEvent(span);
+    }
+
+    @Override
+    public void store(SpanEvent spanEvent) {
+        if (spanEvent == null) {
+            throw new NullPointerException("spanEvent must not be null");
+        }
+        final List<SpanEvent> buffer = this.buffer;
+        if (buffer == null) {
+            spanEvent.recycle();
+            return;
+        }
+        if (buffer.size() >= factory.getMaxEvents()) {
+            giveUp();
+            spanEvent.recycle();
+            return;
+        }
+        final int eventBytes = SpanEventSizeEstimator.estimate(spanEvent);
+        if (!factory.reserve(eventBytes)) {
+            giveUp();
+            spanEvent.recycle();
+            return;
+        }
+        buffer.add(spanEvent);
+        bufferBytes += eventBytes;
+        if (spanEvent.isSetExceptionInfo()) {
+            error = true;
+        }
+    }
+
+    private void giveUp() {
+        overflow = true;
+        factory.overflowed();
+        release();
+        decision.discard();
+    }
+
+    @Override
+    public void store(Span span) {
+        if (span == null) {
+            throw new NullPointerException("span must not be null");
+        }
+        if (overflow) {
+            return;
+        }
+        final List<SpanEvent> buffer = this.buffer;
+        if (buffer == null) {
+            return;
+        }
+        if (!isInteresting(span)) {
+            if (isDebug) {
+                logger.debug("[TailSamplingStorage] discard span. elapsed:{}", span.getElapsed());
+            }
+            factory.discarded();
+            release();
+            decision.discard();
+            return;
+        }
+
+        this.buffer = null;
+        factory.release(bufferBytes);
+        this.bufferBytes = 0;
+        for (SpanEvent spanEvent : buffer) {
+            storage.store(spanEvent);
+        }
+        storage.store(span);
+        factory.emitted();
+        decision.emit();
+        if (isDebug) {
+            logger.debug("[TailSamplingStorage] emit span. elapsed:{}, error:{}, events:{}", span.getElapsed(), error, buffer.size());
+        }
+    }
+
+    private boolean isInteresting(Span span) {
+        if (error) {
+            return true;
+        }
+        if (span.isSetErrCode() && span.getErrCode() != 0) {
+            return true;
+        }
+        if (span.isSetExceptionInfo()) {
+            return true;
+        }
+        return span.getElapsed() >= factory.getLatencyThreshold();
+    }
+
+    private void release() {
+        final List<SpanEvent> buffer = this.buffer;
+        if (buffer == null) {
+            return;
+        }
+        this.buffer = null;
+        for (SpanEvent spanEvent : buffer) {
+            spanEvent.recycle();
+        }
+        factory.release(bufferBytes);
+        this.bufferBytes = 0;
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+        // the span was never stored. e.g. corrupted call stack
+        if (buffer != null) {
+            factory.discarded();
+            release();
+            decision.discard();
+        }
+        storage.close();
+    }
+
+    @Override
+    public StorageFactory getAsyncStorageFactory() {
+        StorageFactory asyncStorageFactory = this.asyncStorageFactory;
+        if (asyncStorageFactory == null) {
+            asyncStorageFactory = new StorageFactory() {
+                @Override
+                public Storage createStorage() {
+                    return factory.createAsyncStorage(decision);
+                }
+            };
+            this.asyncStorageFactory = asyncStorageFactory;
+        }
+        return asyncStorageFactory;
+    }
+
+    @Override
+    public String toString() {
+        return "TailSamplingStorage{" + "storage=" + storage + '}';
+    }
+}
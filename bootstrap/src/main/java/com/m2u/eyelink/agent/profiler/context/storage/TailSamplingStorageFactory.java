@@ -0,0 +1,149 @@
+package com.m2u.eyelink.agent.profiler.context.storage;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.m2u.eyelink.context.DeferredStorage;
+import com.m2u.eyelink.context.Storage;
+import com.m2u.eyelink.context.StorageFactory;
+
+/**
+ * Storage for transactions the head sampler rejected. A trace is recorded into a bounded in-memory buffer
+ * and handed to the underlying storage only if, when the span is stored, it turned out slow or failed.
+ * <ul>
+ *     <li>per trace : at most maxEvents span events are buffered. A trace that exceeds it is given up.</li>
+ *     <li>global : the estimated bytes buffered by all traces stay below maxBufferBytes. A trace that does not fit is given up.</li>
+ * </ul>
+ * The async traces of a buffered trace share its caps and its decision.
+ */
+public class TailSamplingStorageFactory implements StorageFactory {
+
+    private final StorageFactory storageFactory;
+    private final long latencyThreshold;
+    private final int maxEvents;
+    private final long maxBufferBytes;
+
+    private final AtomicLong bufferBytes = new AtomicLong();
+
+    private final AtomicLong bufferedCount = new AtomicLong();
+    private final AtomicLong emittedCount = new AtomicLong();
+    private final AtomicLong discardedCount = new AtomicLong();
+    private final AtomicLong overflowCount = new AtomicLong();
+
+    /**
+     * @param latencyThreshold milliseconds. a trace at least this slow is kept
+     */
+    public TailSamplingStorageFactory(StorageFactory storageFactory, long latencyThreshold, int maxEvents, long maxBufferBytes) {
+        if (storageFactory == null) {
+            throw new NullPointerException("storageFactory must not be null");
+        }
+        if (latencyThreshold < 0) {
+            throw new IllegalArgumentException("latencyThreshold");
+        }
+        if (maxEvents <= 0) {
+            throw new IllegalArgumentException("maxEvents");
+        }
+        if (maxBufferBytes <= 0) {
+            throw new IllegalArgumentException("maxBufferBytes");
+        }
+        this.storageFactory = storageFactory;
+        this.latencyThreshold = latencyThreshold;
+        this.maxEvents = maxEvents;
+        this.maxBufferBytes = maxBufferBytes;
+    }
+
+    @Override
+    public DeferredStorage createStorage() {
+        bufferedCount.incrementAndGet();
+        return new TailSamplingStorage(storageFactory.createStorage(), this);
+    }
+
+    // not counted. an async trace is part of the transaction of its trace
+    Storage createAsyncStorage(TailDecision decision) {
+        return new TailSamplingAsyncStorage(storageFactory.createStorage(), this, decision);
+    }
+
+    long getLatencyThreshold() {
+        return latencyThreshold;
+    }
+
+    int getMaxEvents() {
+        return maxEvents;
+    }
+
+    boolean reserve(int bytes) {
+        while (true) {
+            final long current = bufferBytes.get();
+            final long next = current + bytes;
+            if (next > maxBufferBytes) {
+                return false;
+            }
+            if (bufferBytes.compareAndSet(current, next)) {
+                return true;
+            }
+        }
+    }
+
+    void release(long bytes) {
+        if (bytes > 0) {
+            bufferBytes.addAndGet(-bytes);
+        }
+    }
+
+    void emitted() {
+        emittedCount.incrementAndGet();
+    }
+
+    void discarded() {
+        discardedCount.incrementAndGet();
+    }
+
+    void overflowed() {
+        overflowCount.incrementAndGet();
+    }
+
+    /**
+     * @return traces recorded into the buffer
+     */
+    public long getBufferedCount() {
+        return bufferedCount.get();
+    }
+
+    /**
+     * @return buffered traces handed to the underlying storage
+     */
+    public long getEmittedCount() {
+        return emittedCount.get();
+    }
+
+    /**
+     * @return buffered traces dropped because they were neither slow nor failed
+     */
+    public long getDiscardedCount() {
+        return discardedCount.get();
+    }
+
+    /**
+     * @return buffered traces given up because of the memory caps
+     */
+    public long getOverflowCount() {
+        return overflowCount.get();
+    }
+
+    public long getBufferBytes() {
+        return bufferBytes.get();
+    }
+
+    @Override
+    public String toString() {
+        return "TailSamplingStorageFactory{" +
+                "storageFactory=" + storageFactory +
+                ", latencyThreshold=" + latencyThreshold +
+                ", maxEvents=" + maxEvents +
+                ", maxBufferBytes=" + maxBufferBytes +
+                ", buffered=" + bufferedCount +
+                ", emitted=" + emittedCount +
+                ", discarded=" + discardedCount +
+                ", overflow=" + overflowCount +
+                '}';
+    }
+}
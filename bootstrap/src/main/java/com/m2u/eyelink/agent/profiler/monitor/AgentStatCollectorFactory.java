@@ -5,40 +5,65 @@ import static com.m2u.eyelink.agent.profiler.monitor.codahale.MetricMonitorValue
 import static com.m2u.eyelink.agent.profiler.monitor.codahale.MetricMonitorValues.JVM_GC_PS_OLDGEN_COUNT;
 import static com.m2u.eyelink.agent.profiler.monitor.codahale.MetricMonitorValues.JVM_GC_SERIAL_OLDGEN_COUNT;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.codahale.metrics.MetricSet;
+import com.m2u.eyelink.agent.profiler.context.SpanChunkFactory;
 import com.m2u.eyelink.agent.profiler.context.TransactionCounter;
+import com.m2u.eyelink.agent.profiler.context.storage.BufferedStorageFactory;
+import com.m2u.eyelink.agent.profiler.context.storage.TailSamplingStorageFactory;
 import com.m2u.eyelink.agent.profiler.monitor.codahale.ActiveTraceMetricCollector;
 import com.m2u.eyelink.agent.profiler.monitor.codahale.ActiveTraceMetricSet;
+import com.m2u.eyelink.agent.profiler.monitor.codahale.AdaptiveSamplerMetricSet;
+import com.m2u.eyelink.agent.profiler.monitor.codahale.AgentMetricCollector;
+import com.m2u.eyelink.agent.profiler.monitor.codahale.CacheMetricSet;
+import com.m2u.eyelink.agent.profiler.monitor.codahale.CallStackMetricSet;
 import com.m2u.eyelink.agent.profiler.monitor.codahale.CmsCollector;
 import com.m2u.eyelink.agent.profiler.monitor.codahale.CmsDetailedMetricsCollector;
+import com.m2u.eyelink.agent.profiler.monitor.codahale.ContinuationMetricSet;
 import com.m2u.eyelink.agent.profiler.monitor.codahale.CpuLoadCollector;
 import com.m2u.eyelink.agent.profiler.monitor.codahale.CpuLoadMetricSet;
 import com.m2u.eyelink.agent.profiler.monitor.codahale.DataSourceCollector;
 import com.m2u.eyelink.agent.profiler.monitor.codahale.DataSourceMetricSet;
 import com.m2u.eyelink.agent.profiler.monitor.codahale.DefaultActiveTraceMetricCollector;
+import com.m2u.eyelink.agent.profiler.monitor.codahale.DefaultAgentMetricCollector;
 import com.m2u.eyelink.agent.profiler.monitor.codahale.DefaultCpuLoadCollector;
 import com.m2u.eyelink.agent.profiler.monitor.codahale.DefaultDataSourceCollector;
 import com.m2u.eyelink.agent.profiler.monitor.codahale.DefaultTransactionMetricCollector;
+import com.m2u.eyelink.agent.profiler.monitor.codahale.ExceptionMetricSet;
 import com.m2u.eyelink.agent.profiler.monitor.codahale.G1Collector;
 import com.m2u.eyelink.agent.profiler.monitor.codahale.G1DetailedMetricsCollector;
 import com.m2u.eyelink.agent.profiler.monitor.codahale.MetricMonitorValues;
 import com.m2u.eyelink.agent.profiler.monitor.codahale.ParallelCollector;
 import com.m2u.eyelink.agent.profiler.monitor.codahale.ParallelDetailedMetricsCollector;
+import com.m2u.eyelink.agent.profiler.monitor.codahale.RecyclerMetricSet;
 import com.m2u.eyelink.agent.profiler.monitor.codahale.SerialCollector;
 import com.m2u.eyelink.agent.profiler.monitor.codahale.SerialDetailedMetricsCollector;
+import com.m2u.eyelink.agent.profiler.monitor.codahale.SpillMetricSet;
+import com.m2u.eyelink.agent.profiler.monitor.codahale.TailSamplingMetricSet;
 import com.m2u.eyelink.agent.profiler.monitor.codahale.TransactionMetricCollector;
 import com.m2u.eyelink.agent.profiler.monitor.codahale.TransactionMetricSet;
+import com.m2u.eyelink.agent.profiler.sampler.AdaptiveSampler;
+import com.m2u.eyelink.agent.profiler.sender.spill.SpillQueue;
 import com.m2u.eyelink.config.ProfilerConfig;
 import com.m2u.eyelink.context.ActiveTraceLocator;
+import com.m2u.eyelink.context.CallStackOverflowCounter;
+import com.m2u.eyelink.context.DefaultBaseTraceFactory;
 import com.m2u.eyelink.context.DefaultTraceContext;
+import com.m2u.eyelink.context.ExceptionMetaDataCache;
+import com.m2u.eyelink.context.Sampler;
+import com.m2u.eyelink.context.SimpleCache;
+import com.m2u.eyelink.context.StorageFactory;
 import com.m2u.eyelink.context.TraceContext;
 import com.m2u.eyelink.context.monitor.DataSourceMonitorWrapper;
 import com.m2u.eyelink.context.monitor.DefaultPluginMonitorContext;
 import com.m2u.eyelink.context.monitor.PluginMonitorWrapperLocator;
+import com.m2u.eyelink.context.recycle.Recycler;
 import com.m2u.eyelink.plugin.monitor.PluginMonitorContext;
 import com.m2u.eyelink.plugin.tomcat.DefaultProfilerConfig;
 
@@ -51,8 +76,20 @@ public class AgentStatCollectorFactory {
     private final TransactionMetricCollector transactionMetricCollector;
     private final ActiveTraceMetricCollector activeTraceMetricCollector;
     private final DataSourceCollector dataSourceCollector;
+    // null unless the adaptive sampler is used
+    private final AdaptiveSampler adaptiveSampler;
+    // metric sets reported through the metrics map of TAgentStat
+    private final List<MetricSet> agentMetricSets = new ArrayList<MetricSet>();
+    private final AgentMetricCollector agentMetricCollector;
 
     public AgentStatCollectorFactory(TraceContext traceContext) {
+        this(traceContext, null);
+    }
+
+    /**
+     * @param spanSpillQueue spill queue of the span data sender, null if spilling is disabled
+     */
+    public AgentStatCollectorFactory(TraceContext traceContext, SpillQueue spanSpillQueue) {
         if (traceContext == null) {
             throw new NullPointerException("traceContext must not be null");
         }
@@ -66,6 +103,18 @@ public class AgentStatCollectorFactory {
         this.transactionMetricCollector = createTransactionMetricCollector(traceContext);
         this.activeTraceMetricCollector = createActiveTraceCollector(traceContext, profilerConfig.isTraceAgentActiveThread());
         this.dataSourceCollector = createDataSourceCollector(traceContext);
+        this.adaptiveSampler = findAdaptiveSampler(traceContext);
+        if (this.adaptiveSampler != null) {
+            registerAdaptiveSamplerMonitor(this.adaptiveSampler);
+        }
+        registerCacheMonitor(traceContext);
+        registerRecyclerMonitor(traceContext);
+        registerCallStackMonitor(traceContext);
+        registerExceptionMonitor(traceContext);
+        if (spanSpillQueue != null) {
+            registerSpillMonitor(spanSpillQueue);
+        }
+        this.agentMetricCollector = createAgentMetricCollector();
     }
 
     private MetricMonitorRegistry createRegistry() {
@@ -127,12 +176,121 @@ public class AgentStatCollectorFactory {
             if (logger.isInfoEnabled()) {
                 logger.info("loaded : {}", transactionMetricSet);
             }
+            registerContinuationMonitor((DefaultTraceContext) traceContext);
+            registerTailSamplingMonitor((DefaultTraceContext) traceContext);
             return new DefaultTransactionMetricCollector(transactionMetricSet);
         } else {
             return TransactionMetricCollector.EMPTY_TRANSACTION_METRIC_COLLECTOR;
         }
     }
 
+    private void registerContinuationMonitor(DefaultTraceContext traceContext) {
+        DefaultBaseTraceFactory baseTraceFactory = traceContext.getBaseTraceFactory();
+        ContinuationMetricSet continuationMetricSet = this.monitorRegistry.registerContinuationMonitor(new MonitorName(MetricMonitorValues.TRANSACTION_CONTINUATION_DOWNGRADED), baseTraceFactory);
+        if (logger.isInfoEnabled()) {
+            logger.info("loaded : {}", continuationMetricSet);
+        }
+        this.agentMetricSets.add(continuationMetricSet);
+    }
+
+    private void registerTailSamplingMonitor(DefaultTraceContext traceContext) {
+        TailSamplingStorageFactory tailStorageFactory = traceContext.getTailSamplingStorageFactory();
+        if (tailStorageFactory == null) {
+            return;
+        }
+        TailSamplingMetricSet tailSamplingMetricSet = this.monitorRegistry.registerTailSamplingMonitor(new MonitorName(MetricMonitorValues.TRANSACTION_TAIL), tailStorageFactory);
+        if (logger.isInfoEnabled()) {
+            logger.info("loaded : {}", tailSamplingMetricSet);
+        }
+        this.agentMetricSets.add(tailSamplingMetricSet);
+    }
+
+    private void registerAdaptiveSamplerMonitor(AdaptiveSampler adaptiveSampler) {
+        AdaptiveSamplerMetricSet adaptiveSamplerMetricSet = this.monitorRegistry.registerAdaptiveSamplerMonitor(new MonitorName(MetricMonitorValues.SAMPLER_ADAPTIVE), adaptiveSampler);
+        if (logger.isInfoEnabled()) {
+            logger.info("loaded : {}", adaptiveSamplerMetricSet);
+        }
+        this.agentMetricSets.add(adaptiveSamplerMetricSet);
+    }
+
+    private void registerSpillMonitor(SpillQueue spillQueue) {
+        SpillMetricSet spillMetricSet = this.monitorRegistry.registerSpillMonitor(new MonitorName(MetricMonitorValues.SPAN_SPILL), spillQueue);
+        if (logger.isInfoEnabled()) {
+            logger.info("loaded : {}", spillMetricSet);
+        }
+        this.agentMetricSets.add(spillMetricSet);
+    }
+
+    private void registerCacheMonitor(TraceContext traceContext) {
+        if (!(traceContext instanceof DefaultTraceContext)) {
+            return;
+        }
+        final DefaultTraceContext defaultTraceContext = (DefaultTraceContext) traceContext;
+        registerCacheMonitor(MetricMonitorValues.METADATA_CACHE_API, defaultTraceContext.getApiCache());
+        registerCacheMonitor(MetricMonitorValues.METADATA_CACHE_STRING, defaultTraceContext.getStringCache());
+        registerCacheMonitor(MetricMonitorValues.METADATA_CACHE_SQL, defaultTraceContext.getSqlCache());
+    }
+
+    private void registerCacheMonitor(String cacheName, SimpleCache<?> cache) {
+        CacheMetricSet cacheMetricSet = this.monitorRegistry.registerCacheMonitor(new MonitorName(cacheName), cache);
+        if (logger.isInfoEnabled()) {
+            logger.info("loaded : {}", cacheMetricSet);
+        }
+        this.agentMetricSets.add(cacheMetricSet);
+    }
+
+    private void registerRecyclerMonitor(TraceContext traceContext) {
+        if (!(traceContext instanceof DefaultTraceContext)) {
+            return;
+        }
+        final StorageFactory storageFactory = ((DefaultTraceContext) traceContext).getStorageFactory();
+        if (!(storageFactory instanceof BufferedStorageFactory)) {
+            return;
+        }
+        final BufferedStorageFactory bufferedStorageFactory = (BufferedStorageFactory) storageFactory;
+        // null if recycling is disabled
+        registerRecyclerMonitor(MetricMonitorValues.RECYCLER_SPAN_EVENT, bufferedStorageFactory.getSpanEventRecycler());
+        final SpanChunkFactory spanChunkFactory = bufferedStorageFactory.getSpanChunkFactory();
+        registerRecyclerMonitor(MetricMonitorValues.RECYCLER_SPAN_EVENT_RECORDS, spanChunkFactory.getSpanEventRecordsRecycler());
+        registerRecyclerMonitor(MetricMonitorValues.RECYCLER_SPAN_CHUNK, spanChunkFactory.getSpanChunkRecycler());
+    }
+
+    private void registerRecyclerMonitor(String recyclerName, Recycler<?> recycler) {
+        if (recycler == null) {
+            return;
+        }
+        RecyclerMetricSet recyclerMetricSet = this.monitorRegistry.registerRecyclerMonitor(new MonitorName(recyclerName), recycler);
+        if (logger.isInfoEnabled()) {
+            logger.info("loaded : {}", recyclerMetricSet);
+        }
+        this.agentMetricSets.add(recyclerMetricSet);
+    }
+
+    private void registerCallStackMonitor(TraceContext traceContext) {
+        CallStackOverflowCounter overflowCounter = traceContext.getCallStackOverflowCounter();
+        CallStackMetricSet callStackMetricSet = this.monitorRegistry.registerCallStackMonitor(new MonitorName(MetricMonitorValues.CALL_STACK), overflowCounter);
+        if (logger.isInfoEnabled()) {
+            logger.info("loaded : {}", callStackMetricSet);
+        }
+        this.agentMetricSets.add(callStackMetricSet);
+    }
+
+    private void registerExceptionMonitor(TraceContext traceContext) {
+        ExceptionMetaDataCache exceptionMetaDataCache = traceContext.getExceptionMetaDataCache();
+        ExceptionMetricSet exceptionMetricSet = this.monitorRegistry.registerExceptionMonitor(new MonitorName(MetricMonitorValues.EXCEPTION_MESSAGE), exceptionMetaDataCache);
+        if (logger.isInfoEnabled()) {
+            logger.info("loaded : {}", exceptionMetricSet);
+        }
+        this.agentMetricSets.add(exceptionMetricSet);
+    }
+
+    private AgentMetricCollector createAgentMetricCollector() {
+        if (this.agentMetricSets.isEmpty()) {
+            return AgentMetricCollector.EMPTY_AGENT_METRIC_COLLECTOR;
+        }
+        return new DefaultAgentMetricCollector(this.agentMetricSets);
+    }
+
     private ActiveTraceMetricCollector createActiveTraceCollector(TraceContext traceContext, boolean isTraceAgentActiveThread) {
         if (!isTraceAgentActiveThread) {
             return ActiveTraceMetricCollector.EMPTY_ACTIVE_TRACE_COLLECTOR;
@@ -166,6 +324,16 @@ public class AgentStatCollectorFactory {
         return DataSourceCollector.EMPTY_DATASOURCE_COLLECTOR;
     }
 
+    private AdaptiveSampler findAdaptiveSampler(TraceContext traceContext) {
+        if (traceContext instanceof DefaultTraceContext) {
+            Sampler sampler = ((DefaultTraceContext) traceContext).getSampler();
+            if (sampler instanceof AdaptiveSampler) {
+                return (AdaptiveSampler) sampler;
+            }
+        }
+        return null;
+    }
+
     public GarbageCollector getGarbageCollector() {
         return this.garbageCollector;
     }
@@ -186,4 +354,12 @@ public class AgentStatCollectorFactory {
         return this.dataSourceCollector;
     }
 
+    public AdaptiveSampler getAdaptiveSampler() {
+        return this.adaptiveSampler;
+    }
+
+    public AgentMetricCollector getAgentMetricCollector() {
+        return this.agentMetricCollector;
+    }
+
 }
@@ -2,6 +2,7 @@ package com.m2u.eyelink.agent.profiler.monitor;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -10,9 +11,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.m2u.eyelink.agent.profiler.monitor.codahale.ActiveTraceMetricCollector;
+import com.m2u.eyelink.agent.profiler.monitor.codahale.AgentMetricCollector;
 import com.m2u.eyelink.agent.profiler.monitor.codahale.CpuLoadCollector;
 import com.m2u.eyelink.agent.profiler.monitor.codahale.DataSourceCollector;
 import com.m2u.eyelink.agent.profiler.monitor.codahale.TransactionMetricCollector;
+import com.m2u.eyelink.agent.profiler.sampler.AdaptiveSampler;
 import com.m2u.eyelink.context.thrift.TActiveTrace;
 import com.m2u.eyelink.context.thrift.TAgentStat;
 import com.m2u.eyelink.context.thrift.TAgentStatBatch;
@@ -86,6 +89,8 @@ public class AgentStatMonitor {
         private final TransactionMetricCollector transactionMetricCollector;
         private final ActiveTraceMetricCollector activeTraceMetricCollector;
         private final DataSourceCollector dataSourceCollector;
+        private final AdaptiveSampler adaptiveSampler;
+        private final AgentMetricCollector agentMetricCollector;
 
         // Not thread safe. For use with single thread ONLY
         private final int numStatsPerBatch;
@@ -99,6 +104,8 @@ public class AgentStatMonitor {
             this.transactionMetricCollector = agentStatCollectorFactory.getTransactionMetricCollector();
             this.activeTraceMetricCollector = agentStatCollectorFactory.getActiveTraceMetricCollector();
             this.dataSourceCollector = agentStatCollectorFactory.getDataSourceCollector();
+            this.adaptiveSampler = agentStatCollectorFactory.getAdaptiveSampler();
+            this.agentMetricCollector = agentStatCollectorFactory.getAgentMetricCollector();
             this.numStatsPerBatch = numStatsPerBatch;
             this.agentStats = new ArrayList<TAgentStat>(this.numStatsPerBatch);
         }
@@ -135,6 +142,11 @@ public class AgentStatMonitor {
             agentStat.setActiveTrace(activeTrace);
              final TDataSourceList dataSourceList = dataSourceCollector.collect();
              agentStat.setDataSourceList(dataSourceList);
+            if (adaptiveSampler != null) {
+                agentStat.setSamplingRatio(adaptiveSampler.getSamplingRatio());
+            }
+            final Map<String, Long> metrics = agentMetricCollector.collect();
+            agentStat.setMetrics(metrics);
 
             return agentStat;
         }
@@ -9,16 +9,32 @@ import com.codahale.metrics.jvm.GarbageCollectorMetricSet;
 import com.codahale.metrics.jvm.MemoryUsageGaugeSet;
 import com.codahale.metrics.jvm.ThreadStatesGaugeSet;
 import com.m2u.eyelink.agent.profiler.context.TransactionCounter;
+import com.m2u.eyelink.agent.profiler.context.storage.TailSamplingStorageFactory;
+import com.m2u.eyelink.agent.profiler.sampler.AdaptiveSampler;
+import com.m2u.eyelink.agent.profiler.sender.spill.SpillQueue;
 import com.m2u.eyelink.agent.profiler.monitor.codahale.ActiveTraceMetricSet;
+import com.m2u.eyelink.agent.profiler.monitor.codahale.AdaptiveSamplerMetricSet;
+import com.m2u.eyelink.agent.profiler.monitor.codahale.CacheMetricSet;
+import com.m2u.eyelink.agent.profiler.monitor.codahale.CallStackMetricSet;
+import com.m2u.eyelink.agent.profiler.monitor.codahale.ContinuationMetricSet;
 import com.m2u.eyelink.agent.profiler.monitor.codahale.CpuLoadMetricSet;
 import com.m2u.eyelink.agent.profiler.monitor.codahale.CpuLoadMetricSetSelector;
 import com.m2u.eyelink.agent.profiler.monitor.codahale.DataSourceMetricSet;
+import com.m2u.eyelink.agent.profiler.monitor.codahale.ExceptionMetricSet;
 import com.m2u.eyelink.agent.profiler.monitor.codahale.MetricCounterMonitor;
 import com.m2u.eyelink.agent.profiler.monitor.codahale.MetricEventRateMonitor;
 import com.m2u.eyelink.agent.profiler.monitor.codahale.MetricHistogramMonitor;
+import com.m2u.eyelink.agent.profiler.monitor.codahale.RecyclerMetricSet;
+import com.m2u.eyelink.agent.profiler.monitor.codahale.SpillMetricSet;
+import com.m2u.eyelink.agent.profiler.monitor.codahale.TailSamplingMetricSet;
 import com.m2u.eyelink.agent.profiler.monitor.codahale.TransactionMetricSet;
 import com.m2u.eyelink.context.ActiveTraceLocator;
+import com.m2u.eyelink.context.CallStackOverflowCounter;
+import com.m2u.eyelink.context.DefaultBaseTraceFactory;
+import com.m2u.eyelink.context.ExceptionMetaDataCache;
+import com.m2u.eyelink.context.SimpleCache;
 import com.m2u.eyelink.context.monitor.DataSourceMonitorWrapper;
+import com.m2u.eyelink.context.recycle.Recycler;
 import com.m2u.eyelink.context.monitor.PluginMonitorWrapperLocator;
 
 public class MetricMonitorRegistry implements MonitorRegistry {
@@ -89,6 +105,63 @@ public class MetricMonitorRegistry implements MonitorRegistry {
 				new TransactionMetricSet(transactionCounter));
 	}
 
+	public TailSamplingMetricSet registerTailSamplingMonitor(
+			MonitorName monitorName,
+			TailSamplingStorageFactory tailStorageFactory) {
+		validateMonitorName(monitorName);
+		return this.delegate.register(monitorName.getName(),
+				new TailSamplingMetricSet(tailStorageFactory));
+	}
+
+	public ContinuationMetricSet registerContinuationMonitor(
+			MonitorName monitorName, DefaultBaseTraceFactory baseTraceFactory) {
+		validateMonitorName(monitorName);
+		return this.delegate.register(monitorName.getName(),
+				new ContinuationMetricSet(baseTraceFactory));
+	}
+
+	public SpillMetricSet registerSpillMonitor(MonitorName monitorName,
+			SpillQueue spillQueue) {
+		validateMonitorName(monitorName);
+		return this.delegate.register(monitorName.getName(),
+				new SpillMetricSet(spillQueue));
+	}
+
+	public CacheMetricSet registerCacheMonitor(MonitorName monitorName,
+			SimpleCache<?> cache) {
+		validateMonitorName(monitorName);
+		return this.delegate.register(monitorName.getName(),
+				new CacheMetricSet(monitorName.getName(), cache));
+	}
+
+	public RecyclerMetricSet registerRecyclerMonitor(MonitorName monitorName,
+			Recycler<?> recycler) {
+		validateMonitorName(monitorName);
+		return this.delegate.register(monitorName.getName(),
+				new RecyclerMetricSet(monitorName.getName(), recycler));
+	}
+
+	public AdaptiveSamplerMetricSet registerAdaptiveSamplerMonitor(MonitorName monitorName,
+			AdaptiveSampler adaptiveSampler) {
+		validateMonitorName(monitorName);
+		return this.delegate.register(monitorName.getName(),
+				new AdaptiveSamplerMetricSet(adaptiveSampler));
+	}
+
+	public CallStackMetricSet registerCallStackMonitor(MonitorName monitorName,
+			CallStackOverflowCounter overflowCounter) {
+		validateMonitorName(monitorName);
+		return this.delegate.register(monitorName.getName(),
+				new CallStackMetricSet(overflowCounter));
+	}
+
+	public ExceptionMetricSet registerExceptionMonitor(MonitorName monitorName,
+			ExceptionMetaDataCache exceptionMetaDataCache) {
+		validateMonitorName(monitorName);
+		return this.delegate.register(monitorName.getName(),
+				new ExceptionMetricSet(exceptionMetaDataCache));
+	}
+
 	public ActiveTraceMetricSet registerActiveTraceMetricSet(
 			MonitorName monitorName, ActiveTraceLocator activeTraceLocator) {
 		validateMonitorName(monitorName);
@@ -37,14 +37,17 @@ public class ActiveTraceMetricSet implements MetricSet {
     private static class ActiveTraceHistogramGauge implements Gauge<TActiveTraceHistogram> {
 
         private final ActiveTraceHistogramFactory activeTraceHistogramFactory;
+        // read by the agent stat collector thread only
+        private final ActiveTraceHistogram activeTraceHistogram;
 
         private ActiveTraceHistogramGauge(ActiveTraceLocator activeTraceLocator) {
             this.activeTraceHistogramFactory = new ActiveTraceHistogramFactory(activeTraceLocator);
+            this.activeTraceHistogram = activeTraceHistogramFactory.newHistogram();
         }
 
         @Override
         public TActiveTraceHistogram getValue() {
-            ActiveTraceHistogram activeTraceHistogram = this.activeTraceHistogramFactory.createHistogram();
+            this.activeTraceHistogramFactory.updateHistogram(activeTraceHistogram);
             TActiveTraceHistogram tActiveTraceHistogram = new TActiveTraceHistogram();
             tActiveTraceHistogram.setHistogramSchemaType(activeTraceHistogram.getHistogramSchema().getTypeCode());
             tActiveTraceHistogram.setActiveTraceCount(activeTraceHistogram.getActiveTraceCounts());
@@ -0,0 +1,51 @@
+package com.m2u.eyelink.agent.profiler.monitor.codahale;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricSet;
+import com.m2u.eyelink.agent.profiler.sampler.AdaptiveSampler;
+
+/**
+ * New transactions sampled and rejected by the {@link AdaptiveSampler} since the previous collection.
+ * Together with the sampling ratio of the agent stat they show what the sampler did during the interval.
+ */
+public class AdaptiveSamplerMetricSet implements MetricSet {
+
+    private final Gauge<Long> sampledGauge;
+    private final Gauge<Long> rejectedGauge;
+
+    public AdaptiveSamplerMetricSet(final AdaptiveSampler adaptiveSampler) {
+        if (adaptiveSampler == null) {
+            throw new NullPointerException("adaptiveSampler must not be null");
+        }
+        this.sampledGauge = new DeltaCountGauge() {
+            @Override
+            protected long getCount() {
+                return adaptiveSampler.getSampledCount();
+            }
+        };
+        this.rejectedGauge = new DeltaCountGauge() {
+            @Override
+            protected long getCount() {
+                return adaptiveSampler.getRejectedCount();
+            }
+        };
+    }
+
+    @Override
+    public Map<String, Metric> getMetrics() {
+        final Map<String, Metric> gauges = new HashMap<String, Metric>();
+        gauges.put(MetricMonitorValues.SAMPLER_ADAPTIVE_SAMPLED, this.sampledGauge);
+        gauges.put(MetricMonitorValues.SAMPLER_ADAPTIVE_REJECTED, this.rejectedGauge);
+        return Collections.unmodifiableMap(gauges);
+    }
+
+    @Override
+    public String toString() {
+        return "AdaptiveSamplerMetricSet";
+    }
+}
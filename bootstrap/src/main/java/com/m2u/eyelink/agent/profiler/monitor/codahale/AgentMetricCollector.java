@@ -0,0 +1,20 @@
+package com.m2u.eyelink.agent.profiler.monitor.codahale;
+
+import java.util.Map;
+
+/**
+ * Agent internal counters that have no struct of their own in TAgentStat, sent as the metrics map keyed by
+ * {@link MetricMonitorValues} names.
+ */
+public interface AgentMetricCollector {
+
+    AgentMetricCollector EMPTY_AGENT_METRIC_COLLECTOR = new AgentMetricCollector() {
+        @Override
+        public Map<String, Long> collect() {
+            return null;
+        }
+    };
+
+    Map<String, Long> collect();
+
+}
@@ -0,0 +1,75 @@
+package com.m2u.eyelink.agent.profiler.monitor.codahale;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricSet;
+import com.m2u.eyelink.context.SimpleCache;
+
+/**
+ * Hits, misses and evictions of a metadata cache since the previous collection, and its current size.
+ * Every miss is a metadata packet sent to the collector.
+ */
+public class CacheMetricSet implements MetricSet {
+
+    private final String cacheName;
+    private final Gauge<Long> hitGauge;
+    private final Gauge<Long> missGauge;
+    private final Gauge<Long> evictionGauge;
+    private final Gauge<Long> sizeGauge;
+
+    /**
+     * @param cacheName prefix of the metric names, one of the METADATA_CACHE names of {@link MetricMonitorValues}
+     */
+    public CacheMetricSet(String cacheName, final SimpleCache<?> cache) {
+        if (cacheName == null) {
+            throw new NullPointerException("cacheName must not be null");
+        }
+        if (cache == null) {
+            throw new NullPointerException("cache must not be null");
+        }
+        this.cacheName = cacheName;
+        this.hitGauge = new DeltaCountGauge() {
+            @Override
+            protected long getCount() {
+                return cache.getHitCount();
+            }
+        };
+        this.missGauge = new DeltaCountGauge() {
+            @Override
+            protected long getCount() {
+                return cache.getMissCount();
+            }
+        };
+        this.evictionGauge = new DeltaCountGauge() {
+            @Override
+            protected long getCount() {
+                return cache.getEvictionCount();
+            }
+        };
+        this.sizeGauge = new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return (long) cache.size();
+            }
+        };
+    }
+
+    @Override
+    public Map<String, Metric> getMetrics() {
+        final Map<String, Metric> gauges = new HashMap<String, Metric>();
+        gauges.put(cacheName + MetricMonitorValues.CACHE_HIT, this.hitGauge);
+        gauges.put(cacheName + MetricMonitorValues.CACHE_MISS, this.missGauge);
+        gauges.put(cacheName + MetricMonitorValues.CACHE_EVICTION, this.evictionGauge);
+        gauges.put(cacheName + MetricMonitorValues.CACHE_SIZE, this.sizeGauge);
+        return Collections.unmodifiableMap(gauges);
+    }
+
+    @Override
+    public String toString() {
+        return "CacheMetricSet(" + cacheName + ")";
+    }
+}
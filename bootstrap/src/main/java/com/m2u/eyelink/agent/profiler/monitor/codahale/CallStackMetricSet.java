@@ -0,0 +1,58 @@
+package com.m2u.eyelink.agent.profiler.monitor.codahale;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricSet;
+import com.m2u.eyelink.context.CallStackOverflowCounter;
+
+/**
+ * Call stack overflows: traces that overflowed, frames dropped and the deepest overflow since the previous collection.
+ */
+public class CallStackMetricSet implements MetricSet {
+
+    private final Gauge<Long> overflowTraceGauge;
+    private final Gauge<Long> droppedFrameGauge;
+    private final Gauge<Long> maxOverflowDepthGauge;
+
+    public CallStackMetricSet(final CallStackOverflowCounter overflowCounter) {
+        if (overflowCounter == null) {
+            throw new NullPointerException("overflowCounter must not be null");
+        }
+        this.overflowTraceGauge = new DeltaCountGauge() {
+            @Override
+            protected long getCount() {
+                return overflowCounter.getOverflowTraceCount();
+            }
+        };
+        this.droppedFrameGauge = new DeltaCountGauge() {
+            @Override
+            protected long getCount() {
+                return overflowCounter.getDroppedFrameCount();
+            }
+        };
+        this.maxOverflowDepthGauge = new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return (long) overflowCounter.getAndResetMaxOverflowDepth();
+            }
+        };
+    }
+
+    @Override
+    public Map<String, Metric> getMetrics() {
+        final Map<String, Metric> gauges = new HashMap<String, Metric>();
+        gauges.put(MetricMonitorValues.CALL_STACK_OVERFLOW_TRACE, this.overflowTraceGauge);
+        gauges.put(MetricMonitorValues.CALL_STACK_DROPPED_FRAMES, this.droppedFrameGauge);
+        gauges.put(MetricMonitorValues.CALL_STACK_MAX_OVERFLOW_DEPTH, this.maxOverflowDepthGauge);
+        return Collections.unmodifiableMap(gauges);
+    }
+
+    @Override
+    public String toString() {
+        return "CallStackMetricSet";
+    }
+}
@@ -0,0 +1,40 @@
+package com.m2u.eyelink.agent.profiler.monitor.codahale;
+
+import java.util.Collections;
+import java.util.Map;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricSet;
+import com.m2u.eyelink.context.DefaultBaseTraceFactory;
+
+/**
+ * Continued traces not traced because the continuation sampler rejected them, since the previous collection.
+ * They are also counted as unsampled continuations by {@link TransactionMetricSet}.
+ */
+public class ContinuationMetricSet implements MetricSet {
+
+    private final Gauge<Long> downgradedGauge;
+
+    public ContinuationMetricSet(final DefaultBaseTraceFactory baseTraceFactory) {
+        if (baseTraceFactory == null) {
+            throw new NullPointerException("baseTraceFactory must not be null");
+        }
+        this.downgradedGauge = new DeltaCountGauge() {
+            @Override
+            protected long getCount() {
+                return baseTraceFactory.getContinuationDowngradeCount();
+            }
+        };
+    }
+
+    @Override
+    public Map<String, Metric> getMetrics() {
+        return Collections.<String, Metric>singletonMap(MetricMonitorValues.TRANSACTION_CONTINUATION_DOWNGRADED, this.downgradedGauge);
+    }
+
+    @Override
+    public String toString() {
+        return "ContinuationMetricSet";
+    }
+}
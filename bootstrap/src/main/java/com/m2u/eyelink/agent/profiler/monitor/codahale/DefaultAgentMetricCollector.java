@@ -0,0 +1,56 @@
+package com.m2u.eyelink.agent.profiler.monitor.codahale;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricSet;
+
+/**
+ * Reads every gauge of the given metric sets on each collection. Gauges that count per collection must have
+ * this collector as their only reader.
+ */
+public class DefaultAgentMetricCollector implements AgentMetricCollector {
+
+    private final String[] names;
+    private final Gauge<?>[] gauges;
+
+    public DefaultAgentMetricCollector(List<MetricSet> metricSets) {
+        if (metricSets == null) {
+            throw new NullPointerException("metricSets must not be null");
+        }
+        final List<String> names = new ArrayList<String>();
+        final List<Gauge<?>> gauges = new ArrayList<Gauge<?>>();
+        for (MetricSet metricSet : metricSets) {
+            for (Map.Entry<String, Metric> entry : metricSet.getMetrics().entrySet()) {
+                if (entry.getValue() instanceof Gauge) {
+                    names.add(entry.getKey());
+                    gauges.add((Gauge<?>) entry.getValue());
+                }
+            }
+        }
+        this.names = names.toArray(new String[names.size()]);
+        this.gauges = gauges.toArray(new Gauge<?>[gauges.size()]);
+    }
+
+    @Override
+    public Map<String, Long> collect() {
+        final Map<String, Long> metrics = new HashMap<String, Long>(names.length * 2);
+        for (int i = 0; i < gauges.length; i++) {
+            final Object value = gauges[i].getValue();
+            // non numeric gauges are not sent
+            if (value instanceof Number) {
+                metrics.put(names[i], ((Number) value).longValue());
+            }
+        }
+        return metrics;
+    }
+
+    @Override
+    public String toString() {
+        return "DefaultAgentMetricCollector{metrics=" + names.length + '}';
+    }
+}
@@ -0,0 +1,26 @@
+package com.m2u.eyelink.agent.profiler.monitor.codahale;
+
+import com.codahale.metrics.Gauge;
+
+/**
+ * Increase of a monotonic count since the previous collection. The first collection only records the count and reports 0.
+ */
+abstract class DeltaCountGauge implements Gauge<Long> {
+    private static final long UNINITIALIZED = -1L;
+
+    private long prevCount = UNINITIALIZED;
+
+    protected abstract long getCount();
+
+    @Override
+    public final Long getValue() {
+        final long count = getCount();
+        if (this.prevCount == UNINITIALIZED) {
+            this.prevCount = count;
+            return 0L;
+        }
+        final long countDelta = count - this.prevCount;
+        this.prevCount = count;
+        return countDelta;
+    }
+}
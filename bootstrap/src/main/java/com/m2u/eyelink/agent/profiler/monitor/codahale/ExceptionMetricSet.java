@@ -0,0 +1,40 @@
+package com.m2u.eyelink.agent.profiler.monitor.codahale;
+
+import java.util.Collections;
+import java.util.Map;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricSet;
+import com.m2u.eyelink.context.ExceptionMetaDataCache;
+
+/**
+ * Exception messages not recorded since the previous collection because they repeated within the dedup window
+ * of the {@link ExceptionMetaDataCache}. Always 0 without a window.
+ */
+public class ExceptionMetricSet implements MetricSet {
+
+    private final Gauge<Long> dedupGauge;
+
+    public ExceptionMetricSet(final ExceptionMetaDataCache exceptionMetaDataCache) {
+        if (exceptionMetaDataCache == null) {
+            throw new NullPointerException("exceptionMetaDataCache must not be null");
+        }
+        this.dedupGauge = new DeltaCountGauge() {
+            @Override
+            protected long getCount() {
+                return exceptionMetaDataCache.getDedupCount();
+            }
+        };
+    }
+
+    @Override
+    public Map<String, Metric> getMetrics() {
+        return Collections.<String, Metric>singletonMap(MetricMonitorValues.EXCEPTION_MESSAGE_DEDUP, this.dedupGauge);
+    }
+
+    @Override
+    public String toString() {
+        return "ExceptionMetricSet";
+    }
+}
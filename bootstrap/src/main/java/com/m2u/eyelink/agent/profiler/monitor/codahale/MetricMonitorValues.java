@@ -89,6 +89,55 @@ public final class MetricMonitorValues {
     public static final String TRANSACTION_SAMPLED_CONTINUATION = TRANSACTION + ".sampled.continuation";
     public static final String TRANSACTION_UNSAMPLED_NEW = TRANSACTION + ".unsampled.new";
     public static final String TRANSACTION_UNSAMPLED_CONTINUATION = TRANSACTION + ".unsampled.continuation";
+    // continued traces not traced because of the continuation sampler
+    public static final String TRANSACTION_CONTINUATION_DOWNGRADED = TRANSACTION + ".continuation.downgraded";
+    public static final String TRANSACTION_TAIL = TRANSACTION + ".tail";
+    public static final String TRANSACTION_TAIL_BUFFERED = TRANSACTION_TAIL + ".buffered";
+    public static final String TRANSACTION_TAIL_EMITTED = TRANSACTION_TAIL + ".emitted";
+    public static final String TRANSACTION_TAIL_DISCARDED = TRANSACTION_TAIL + ".discarded";
+    public static final String TRANSACTION_TAIL_OVERFLOW = TRANSACTION_TAIL + ".overflow";
+    public static final String TRANSACTION_TAIL_BUFFER_BYTES = TRANSACTION_TAIL + ".buffer.bytes";
+
+    public static final String SAMPLER_ADAPTIVE = "sampler.adaptive";
+    public static final String SAMPLER_ADAPTIVE_SAMPLED = SAMPLER_ADAPTIVE + ".sampled";
+    public static final String SAMPLER_ADAPTIVE_REJECTED = SAMPLER_ADAPTIVE + ".rejected";
+
+    public static final String SPAN_SPILL = "span.spill";
+    public static final String SPAN_SPILL_SPILLED_BYTES = SPAN_SPILL + ".spilled.bytes";
+    public static final String SPAN_SPILL_REPLAYED_BYTES = SPAN_SPILL + ".replayed.bytes";
+    // larger than a segment or over the disk budget
+    public static final String SPAN_SPILL_DROPPED_BYTES = SPAN_SPILL + ".dropped.bytes";
+    public static final String SPAN_SPILL_PENDING_BYTES = SPAN_SPILL + ".pending.bytes";
+    public static final String SPAN_SPILL_DISK_USAGE = SPAN_SPILL + ".disk.usage";
+
+    public static final String METADATA_CACHE = "metadata.cache";
+    public static final String METADATA_CACHE_API = METADATA_CACHE + ".api";
+    public static final String METADATA_CACHE_STRING = METADATA_CACHE + ".string";
+    public static final String METADATA_CACHE_SQL = METADATA_CACHE + ".sql";
+    // suffixes of the metadata cache names
+    public static final String CACHE_HIT = ".hit";
+    public static final String CACHE_MISS = ".miss";
+    public static final String CACHE_EVICTION = ".eviction";
+    public static final String CACHE_SIZE = ".size";
+
+    public static final String RECYCLER = "recycler";
+    public static final String RECYCLER_SPAN_EVENT = RECYCLER + ".span.event";
+    public static final String RECYCLER_SPAN_EVENT_RECORDS = RECYCLER + ".span.event.records";
+    public static final String RECYCLER_SPAN_CHUNK = RECYCLER + ".span.chunk";
+    // suffixes of the recycler names
+    public static final String RECYCLER_CREATED = ".created";
+    public static final String RECYCLER_REUSED = ".reused";
+    public static final String RECYCLER_RECYCLED = ".recycled";
+    public static final String RECYCLER_DROPPED = ".dropped";
+
+    public static final String CALL_STACK = "callstack";
+    public static final String CALL_STACK_OVERFLOW_TRACE = CALL_STACK + ".overflow.trace";
+    public static final String CALL_STACK_DROPPED_FRAMES = CALL_STACK + ".dropped.frames";
+    public static final String CALL_STACK_MAX_OVERFLOW_DEPTH = CALL_STACK + ".overflow.max.depth";
+
+    public static final String EXCEPTION_MESSAGE = "exception.message";
+    // repeated within the dedup window, recorded without the message
+    public static final String EXCEPTION_MESSAGE_DEDUP = EXCEPTION_MESSAGE + ".dedup";
 
     public static final String ACTIVE_TRACE = "active.trace";
     public static final String ACTIVE_TRACE_COUNT = ACTIVE_TRACE + ".count";
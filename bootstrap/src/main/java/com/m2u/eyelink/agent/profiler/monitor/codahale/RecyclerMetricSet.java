@@ -0,0 +1,75 @@
+package com.m2u.eyelink.agent.profiler.monitor.codahale;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricSet;
+import com.m2u.eyelink.context.recycle.Recycler;
+
+/**
+ * Objects created, reused, recycled and dropped by a {@link Recycler} since the previous collection.
+ * Created staying high after warm up, or dropped growing, means the pool capacity is too small for the load.
+ */
+public class RecyclerMetricSet implements MetricSet {
+
+    private final String recyclerName;
+    private final Gauge<Long> createdGauge;
+    private final Gauge<Long> reusedGauge;
+    private final Gauge<Long> recycledGauge;
+    private final Gauge<Long> droppedGauge;
+
+    /**
+     * @param recyclerName prefix of the metric names, one of the RECYCLER names of {@link MetricMonitorValues}
+     */
+    public RecyclerMetricSet(String recyclerName, final Recycler<?> recycler) {
+        if (recyclerName == null) {
+            throw new NullPointerException("recyclerName must not be null");
+        }
+        if (recycler == null) {
+            throw new NullPointerException("recycler must not be null");
+        }
+        this.recyclerName = recyclerName;
+        this.createdGauge = new DeltaCountGauge() {
+            @Override
+            protected long getCount() {
+                return recycler.getCreatedCount();
+            }
+        };
+        this.reusedGauge = new DeltaCountGauge() {
+            @Override
+            protected long getCount() {
+                return recycler.getReusedCount();
+            }
+        };
+        this.recycledGauge = new DeltaCountGauge() {
+            @Override
+            protected long getCount() {
+                return recycler.getRecycledCount();
+            }
+        };
+        this.droppedGauge = new DeltaCountGauge() {
+            @Override
+            protected long getCount() {
+                return recycler.getDroppedCount();
+            }
+        };
+    }
+
+    @Override
+    public Map<String, Metric> getMetrics() {
+        final Map<String, Metric> gauges = new HashMap<String, Metric>();
+        gauges.put(recyclerName + MetricMonitorValues.RECYCLER_CREATED, this.createdGauge);
+        gauges.put(recyclerName + MetricMonitorValues.RECYCLER_REUSED, this.reusedGauge);
+        gauges.put(recyclerName + MetricMonitorValues.RECYCLER_RECYCLED, this.recycledGauge);
+        gauges.put(recyclerName + MetricMonitorValues.RECYCLER_DROPPED, this.droppedGauge);
+        return Collections.unmodifiableMap(gauges);
+    }
+
+    @Override
+    public String toString() {
+        return "RecyclerMetricSet(" + recyclerName + ")";
+    }
+}
@@ -0,0 +1,75 @@
+package com.m2u.eyelink.agent.profiler.monitor.codahale;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricSet;
+import com.m2u.eyelink.agent.profiler.sender.spill.SpillQueue;
+
+/**
+ * Span packets spilled to disk. Bytes spilled, replayed and dropped since the previous collection,
+ * pending bytes and disk usage as they are now.
+ */
+public class SpillMetricSet implements MetricSet {
+
+    private final Gauge<Long> spilledGauge;
+    private final Gauge<Long> replayedGauge;
+    private final Gauge<Long> droppedGauge;
+    private final Gauge<Long> pendingGauge;
+    private final Gauge<Long> diskUsageGauge;
+
+    public SpillMetricSet(final SpillQueue spillQueue) {
+        if (spillQueue == null) {
+            throw new NullPointerException("spillQueue must not be null");
+        }
+        this.spilledGauge = new DeltaCountGauge() {
+            @Override
+            protected long getCount() {
+                return spillQueue.getSpilledBytes();
+            }
+        };
+        this.replayedGauge = new DeltaCountGauge() {
+            @Override
+            protected long getCount() {
+                return spillQueue.getReplayedBytes();
+            }
+        };
+        this.droppedGauge = new DeltaCountGauge() {
+            @Override
+            protected long getCount() {
+                return spillQueue.getDroppedBytes();
+            }
+        };
+        this.pendingGauge = new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return spillQueue.getPendingBytes();
+            }
+        };
+        this.diskUsageGauge = new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return spillQueue.getDiskUsage();
+            }
+        };
+    }
+
+    @Override
+    public Map<String, Metric> getMetrics() {
+        final Map<String, Metric> gauges = new HashMap<String, Metric>();
+        gauges.put(MetricMonitorValues.SPAN_SPILL_SPILLED_BYTES, this.spilledGauge);
+        gauges.put(MetricMonitorValues.SPAN_SPILL_REPLAYED_BYTES, this.replayedGauge);
+        gauges.put(MetricMonitorValues.SPAN_SPILL_DROPPED_BYTES, this.droppedGauge);
+        gauges.put(MetricMonitorValues.SPAN_SPILL_PENDING_BYTES, this.pendingGauge);
+        gauges.put(MetricMonitorValues.SPAN_SPILL_DISK_USAGE, this.diskUsageGauge);
+        return Collections.unmodifiableMap(gauges);
+    }
+
+    @Override
+    public String toString() {
+        return "SpillMetricSet";
+    }
+}
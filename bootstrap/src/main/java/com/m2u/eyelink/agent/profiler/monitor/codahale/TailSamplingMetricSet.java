@@ -0,0 +1,74 @@
+package com.m2u.eyelink.agent.profiler.monitor.codahale;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricSet;
+import com.m2u.eyelink.agent.profiler.context.storage.TailSamplingStorageFactory;
+
+/**
+ * Transactions recorded by tail sampling since the previous collection, and the current size of the buffer.
+ */
+public class TailSamplingMetricSet implements MetricSet {
+
+    private final Gauge<Long> bufferedGauge;
+    private final Gauge<Long> emittedGauge;
+    private final Gauge<Long> discardedGauge;
+    private final Gauge<Long> overflowGauge;
+    private final Gauge<Long> bufferBytesGauge;
+
+    public TailSamplingMetricSet(final TailSamplingStorageFactory tailStorageFactory) {
+        if (tailStorageFactory == null) {
+            throw new NullPointerException("tailStorageFactory must not be null");
+        }
+        this.bufferedGauge = new DeltaCountGauge() {
+            @Override
+            protected long getCount() {
+                return tailStorageFactory.getBufferedCount();
+            }
+        };
+        this.emittedGauge = new DeltaCountGauge() {
+            @Override
+            protected long getCount() {
+                return tailStorageFactory.getEmittedCount();
+            }
+        };
+        this.discardedGauge = new DeltaCountGauge() {
+            @Override
+            protected long getCount() {
+                return tailStorageFactory.getDiscardedCount();
+            }
+        };
+        this.overflowGauge = new DeltaCountGauge() {
+            @Override
+            protected long getCount() {
+                return tailStorageFactory.getOverflowCount();
+            }
+        };
+        this.bufferBytesGauge = new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return tailStorageFactory.getBufferBytes();
+            }
+        };
+    }
+
+    @Override
+    public Map<String, Metric> getMetrics() {
+        final Map<String, Metric> gauges = new HashMap<String, Metric>();
+        gauges.put(MetricMonitorValues.TRANSACTION_TAIL_BUFFERED, this.bufferedGauge);
+        gauges.put(MetricMonitorValues.TRANSACTION_TAIL_EMITTED, this.emittedGauge);
+        gauges.put(MetricMonitorValues.TRANSACTION_TAIL_DISCARDED, this.discardedGauge);
+        gauges.put(MetricMonitorValues.TRANSACTION_TAIL_OVERFLOW, this.overflowGauge);
+        gauges.put(MetricMonitorValues.TRANSACTION_TAIL_BUFFER_BYTES, this.bufferBytesGauge);
+        return Collections.unmodifiableMap(gauges);
+    }
+
+    @Override
+    public String toString() {
+        return "TailSamplingMetricSet";
+    }
+}
@@ -44,6 +44,8 @@ public class ActiveThreadCountService implements ProfilerRequestCommandService,
     private final List<ServerStreamChannel> streamChannelRepository = new CopyOnWriteArrayList<ServerStreamChannel>();
 
     private final ActiveTraceHistogramFactory activeTraceHistogramFactory;
+    // shared by command requests and the timer
+    private final ActiveTraceHistogram activeTraceHistogram;
 
     public ActiveThreadCountService(ActiveTraceLocator activeTraceLocator) {
         this(activeTraceLocator, DEFAULT_FLUSH_DELAY);
@@ -54,6 +56,7 @@ public class ActiveThreadCountService implements ProfilerRequestCommandService,
             throw new NullPointerException("activeTraceLocator");
         }
         this.activeTraceHistogramFactory = new ActiveTraceHistogramFactory(activeTraceLocator);
+        this.activeTraceHistogram = activeTraceHistogramFactory.newHistogram();
         this.flushDelay = flushDelay;
     }
 
@@ -79,11 +82,12 @@ public class ActiveThreadCountService implements ProfilerRequestCommandService,
     }
 
     private TCmdActiveThreadCountRes getActiveThreadCountResponse() {
-        ActiveTraceHistogram activeTraceHistogram = this.activeTraceHistogramFactory.createHistogram();
-
         TCmdActiveThreadCountRes response = new TCmdActiveThreadCountRes();
-        response.setHistogramSchemaType(activeTraceHistogram.getHistogramSchema().getTypeCode());
-        response.setActiveThreadCount(activeTraceHistogram.getActiveTraceCounts());
+        synchronized (activeTraceHistogram) {
+            this.activeTraceHistogramFactory.updateHistogram(activeTraceHistogram);
+            response.setHistogramSchemaType(activeTraceHistogram.getHistogramSchema().getTypeCode());
+            response.setActiveThreadCount(activeTraceHistogram.getActiveTraceCounts());
+        }
         response.setTimeStamp(System.currentTimeMillis());
 
         return response;
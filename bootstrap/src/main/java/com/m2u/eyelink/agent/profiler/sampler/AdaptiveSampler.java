@@ -0,0 +1,136 @@
+package com.m2u.eyelink.agent.profiler.sampler;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.m2u.eyelink.context.Sampler;
+
+/**
+ * Samples up to tracesPerSecond new transactions per second regardless of the request rate.
+ * <ul>
+ *     <li>ratio : every interval the request rate is measured and smoothed, and the sampling ratio becomes tracesPerSecond / smoothed rate.
+ *     Requests are sampled with that probability, so samples are spread over the interval instead of taking the first requests of each second.</li>
+ *     <li>token bucket : a sampled request also needs a token from a {@link RateLimitSampler} of tracesPerSecond,
+ *     which bounds the rate while the ratio catches up with a traffic spike.</li>
+ * </ul>
+ * The adjustment runs on whichever request thread crosses the interval boundary first.
+ */
+public class AdaptiveSampler implements Sampler {
+
+    public static final long DEFAULT_INTERVAL = 1000;
+
+    // weight of the latest interval in the smoothed request rate
+    private static final double SMOOTHING = 0.5;
+
+    private final int tracesPerSecond;
+    private final long intervalNanos;
+
+    private final LongAdder requestCount = new LongAdder();
+    // cumulative, for the agent stat
+    private final LongAdder sampledCount = new LongAdder();
+    private final LongAdder rejectedCount = new LongAdder();
+    private final AtomicLong nextAdjustTime;
+    // guarded by this
+    private long lastAdjustTime;
+    private double requestRate = -1;
+    private volatile double samplingRatio = 1.0;
+
+    private final RateLimitSampler rateLimiter;
+
+    public AdaptiveSampler(int tracesPerSecond) {
+        this(tracesPerSecond, DEFAULT_INTERVAL);
+    }
+
+    public AdaptiveSampler(int tracesPerSecond, long intervalMillis) {
+        this(tracesPerSecond, intervalMillis, System.nanoTime());
+    }
+
+    AdaptiveSampler(int tracesPerSecond, long intervalMillis, long startNanos) {
+        if (tracesPerSecond <= 0) {
+            throw new IllegalArgumentException("Invalid tracesPerSecond " + tracesPerSecond);
+        }
+        if (intervalMillis <= 0) {
+            throw new IllegalArgumentException("Invalid intervalMillis " + intervalMillis);
+        }
+        this.tracesPerSecond = tracesPerSecond;
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+        this.lastAdjustTime = startNanos;
+        this.nextAdjustTime = new AtomicLong(startNanos + intervalNanos);
+        this.rateLimiter = new RateLimitSampler(tracesPerSecond, startNanos);
+    }
+
+    @Override
+    public boolean isSampling() {
+        return isSampling(System.nanoTime());
+    }
+
+    boolean isSampling(long now) {
+        requestCount.increment();
+        final long nextAdjustTime = this.nextAdjustTime.get();
+        if (now - nextAdjustTime >= 0 && this.nextAdjustTime.compareAndSet(nextAdjustTime, now + intervalNanos)) {
+            adjust(now);
+        }
+
+        final double samplingRatio = this.samplingRatio;
+        if (samplingRatio < 1.0 && ThreadLocalRandom.current().nextDouble() >= samplingRatio) {
+            rejectedCount.increment();
+            return false;
+        }
+        if (rateLimiter.isSampling(now)) {
+            sampledCount.increment();
+            return true;
+        }
+        rejectedCount.increment();
+        return false;
+    }
+
+    private synchronized void adjust(long now) {
+        final long elapsed = now - lastAdjustTime;
+        this.lastAdjustTime = now;
+        if (elapsed <= 0) {
+            return;
+        }
+        final double currentRate = requestCount.sumThenReset() * (double) TimeUnit.SECONDS.toNanos(1) / elapsed;
+        if (requestRate < 0) {
+            requestRate = currentRate;
+        } else {
+            requestRate = SMOOTHING * currentRate + (1 - SMOOTHING) * requestRate;
+        }
+        if (requestRate <= tracesPerSecond) {
+            this.samplingRatio = 1.0;
+        } else {
+            this.samplingRatio = tracesPerSecond / requestRate;
+        }
+    }
+
+    /**
+     * @return probability with which a new transaction is currently sampled
+     */
+    public double getSamplingRatio() {
+        return samplingRatio;
+    }
+
+    /**
+     * @return new transactions sampled since the sampler was created
+     */
+    public long getSampledCount() {
+        return sampledCount.sum();
+    }
+
+    /**
+     * @return new transactions rejected by the ratio or the token bucket since the sampler was created
+     */
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "AdaptiveSampler{" +
+                    "tracesPerSecond=" + tracesPerSecond +
+                    ", intervalMillis=" + TimeUnit.NANOSECONDS.toMillis(intervalNanos) +
+                '}';
+    }
+}
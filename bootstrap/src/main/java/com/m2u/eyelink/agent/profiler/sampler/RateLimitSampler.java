@@ -0,0 +1,57 @@
+package com.m2u.eyelink.agent.profiler.sampler;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.m2u.eyelink.context.Sampler;
+
+/**
+ * Token bucket sampler. Tokens refill at permitsPerSecond with a burst of one second, and a call is sampled if it gets a token.
+ * The bucket is kept as a theoretical arrival time (GCRA), so a call is a single CAS without a lock or a refill thread.
+ */
+public class RateLimitSampler implements Sampler {
+
+    private final int permitsPerSecond;
+    private final long emissionNanos;
+    private final long burstNanos;
+    private final AtomicLong theoreticalArrivalTime;
+
+    public RateLimitSampler(int permitsPerSecond) {
+        this(permitsPerSecond, System.nanoTime());
+    }
+
+    RateLimitSampler(int permitsPerSecond, long startNanos) {
+        if (permitsPerSecond <= 0) {
+            throw new IllegalArgumentException("Invalid permitsPerSecond " + permitsPerSecond);
+        }
+        this.permitsPerSecond = permitsPerSecond;
+        this.emissionNanos = TimeUnit.SECONDS.toNanos(1) / permitsPerSecond;
+        this.burstNanos = emissionNanos * permitsPerSecond;
+        this.theoreticalArrivalTime = new AtomicLong(startNanos);
+    }
+
+    @Override
+    public boolean isSampling() {
+        return isSampling(System.nanoTime());
+    }
+
+    boolean isSampling(long now) {
+        while (true) {
+            final long tat = theoreticalArrivalTime.get();
+            final long nextTat = Math.max(tat - now, 0) + now + emissionNanos;
+            if (nextTat - now > burstNanos) {
+                return false;
+            }
+            if (theoreticalArrivalTime.compareAndSet(tat, nextTat)) {
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "RateLimitSampler{" +
+                    "permitsPerSecond=" + permitsPerSecond +
+                '}';
+    }
+}
@@ -1,16 +1,67 @@
 package com.m2u.eyelink.agent.profiler.sampler;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import com.m2u.eyelink.context.Sampler;
 import com.m2u.eyelink.context.TrueSampler;
 
 public class SamplerFactory {
+    private static final Logger logger = LoggerFactory.getLogger(SamplerFactory.class);
+
     public Sampler createSampler(boolean sampling, int samplingRate) {
+        return createSampler(sampling, samplingRate, SamplerType.COUNTER, 0);
+    }
+
+    public Sampler createSampler(boolean sampling, int samplingRate, String samplerTypeName, int tracesPerSecond) {
+        return createSampler(sampling, samplingRate, getSamplerType(samplerTypeName), tracesPerSecond);
+    }
+
+    /**
+     * @param samplingRate 1 out of samplingRate. not used by {@link SamplerType#ADAPTIVE}
+     * @param tracesPerSecond target of {@link SamplerType#ADAPTIVE}. not used by the others
+     */
+    public Sampler createSampler(boolean sampling, int samplingRate, SamplerType samplerType, int tracesPerSecond) {
+        if (samplerType == null) {
+            throw new NullPointerException("samplerType must not be null");
+        }
+        if (samplerType == SamplerType.ADAPTIVE) {
+            if (!sampling || tracesPerSecond <= 0) {
+                return new FalseSampler();
+            }
+            return new AdaptiveSampler(tracesPerSecond);
+        }
         if (!sampling || samplingRate <= 0) {
             return new FalseSampler();
         }
         if (samplingRate == 1) {
             return new TrueSampler();
         }
+        if (samplerType == SamplerType.STRIPED) {
+            return new StripedSamplingRateSampler(samplingRate);
+        }
         return new SamplingRateSampler(samplingRate);
     }
+
+    /**
+     * @param continuationLimit max continued traces per second. 0 or less is unlimited
+     */
+    public Sampler createContinuationSampler(int continuationLimit) {
+        if (continuationLimit <= 0) {
+            return new TrueSampler();
+        }
+        return new RateLimitSampler(continuationLimit);
+    }
+
+    static SamplerType getSamplerType(String samplerTypeName) {
+        if (samplerTypeName == null) {
+            return SamplerType.COUNTER;
+        }
+        try {
+            return SamplerType.valueOf(samplerTypeName.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            logger.warn("Unknown sampler type:{}. use {}", samplerTypeName, SamplerType.COUNTER);
+            return SamplerType.COUNTER;
+        }
+    }
 }
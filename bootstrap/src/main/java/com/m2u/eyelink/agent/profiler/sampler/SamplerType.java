@@ -0,0 +1,7 @@
+package com.m2u.eyelink.agent.profiler.sampler;
+
+public enum SamplerType {
+    COUNTER,
+    STRIPED,
+    ADAPTIVE
+}
@@ -0,0 +1,66 @@
+package com.m2u.eyelink.agent.profiler.sampler;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.m2u.eyelink.context.Sampler;
+
+/**
+ * Samples 1 out of samplingRate transactions like {@link SamplingRateSampler}, but counts on one of several counters picked by thread id
+ * so that request threads running on different cores do not contend on a single cache line.
+ * Every stripe samples exactly each samplingRate-th call it sees. The stripes start at staggered counts so that they do not sample their first calls together.
+ */
+public class StripedSamplingRateSampler implements Sampler {
+
+    private static final int MAX_STRIPES = 256;
+    // longs per stripe. keeps stripes 128 bytes apart, beyond adjacent cache line prefetch
+    private static final int PADDING = 16;
+
+    private final AtomicLongArray counters;
+    private final int mask;
+    private final int samplingRate;
+
+    public StripedSamplingRateSampler(int samplingRate) {
+        this(samplingRate, Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    public StripedSamplingRateSampler(int samplingRate, int stripes) {
+        if (samplingRate <= 0) {
+            throw new IllegalArgumentException("Invalid samplingRate " + samplingRate);
+        }
+        if (stripes <= 0) {
+            throw new IllegalArgumentException("Invalid stripes " + stripes);
+        }
+        final int stripeCount = nextPowerOfTwo(Math.min(stripes, MAX_STRIPES));
+        this.counters = new AtomicLongArray(stripeCount * PADDING);
+        for (int i = 0; i < stripeCount; i++) {
+            counters.set(i * PADDING, (long) i * samplingRate / stripeCount);
+        }
+        this.mask = stripeCount - 1;
+        this.samplingRate = samplingRate;
+    }
+
+    private static int nextPowerOfTwo(int value) {
+        if (value <= 1) {
+            return 1;
+        }
+        return Integer.highestOneBit(value - 1) << 1;
+    }
+
+    @Override
+    public boolean isSampling() {
+        final int index = ((int) Thread.currentThread().getId() & mask) * PADDING;
+        return counters.getAndIncrement(index) % samplingRate == 0;
+    }
+
+    int getStripes() {
+        return mask + 1;
+    }
+
+    @Override
+    public String toString() {
+        return "StripedSamplingRateSampler{" +
+                    "stripes=" + (mask + 1) +
+                    ", samplingRate=" + samplingRate +
+                '}';
+    }
+}
@@ -8,9 +8,11 @@ import org.slf4j.LoggerFactory;
 
 import com.m2u.eyelink.context.thrift.HeaderTBaseDeserializer;
 import com.m2u.eyelink.context.thrift.HeaderTBaseSerializer;
+import com.m2u.eyelink.context.recycle.Recyclable;
 import com.m2u.eyelink.context.thrift.SerializationUtils;
 import com.m2u.eyelink.rpc.ResponseMessage;
 import com.m2u.eyelink.sender.DataSender;
+import com.m2u.eyelink.sender.DeferredAssembly;
 import com.m2u.eyelink.sender.FutureListener;
 
 public abstract class AbstractDataSender implements DataSender {
@@ -37,21 +39,76 @@ public abstract class AbstractDataSender implements DataSender {
     }
 
     protected AsyncQueueingExecutor<Object> createAsyncQueueingExecutor(int queueSize, String executorName) {
-        final AsyncQueueingExecutor<Object> executor = new AsyncQueueingExecutor<Object>(queueSize, executorName);
+        return createAsyncQueueingExecutor(AsyncQueueingExecutorFactory.DEFAULT_FACTORY, queueSize, executorName);
+    }
+
+    protected AsyncQueueingExecutor<Object> createAsyncQueueingExecutor(AsyncQueueingExecutorFactory executorFactory, int queueSize, String executorName) {
+        if (executorFactory == null) {
+            throw new NullPointerException("executorFactory must not be null");
+        }
+        final AsyncQueueingExecutor<Object> executor = executorFactory.createExecutor(queueSize, executorName);
         executor.setListener(new AsyncQueueingExecutorListener<Object>() {
             @Override
             public void execute(Collection<Object> messageList) {
-                sendPacketN(messageList);
+                try {
+                    assemble(messageList);
+                    sendPacketN(messageList);
+                } finally {
+                    recycle(messageList);
+                }
             }
 
             @Override
             public void execute(Object message) {
-                sendPacket(message);
+                try {
+                    assemble(message);
+                    sendPacket(message);
+                } finally {
+                    recycle(message);
+                }
             }
         });
         return executor;
     }
 
+    private void assemble(Collection<Object> messageList) {
+        final Object[] dataList = messageList.toArray();
+        final int size = messageList.size();
+        for (int i = 0; i < size; i++) {
+            assemble(dataList[i]);
+        }
+    }
+
+    private void assemble(Object message) {
+        if (message instanceof DeferredAssembly) {
+            try {
+                ((DeferredAssembly) message).assemble();
+            } catch (RuntimeException e) {
+                logger.warn("assemble fail. Caused:{}", e.getMessage(), e);
+            }
+        }
+    }
+
+    // Runs after sendPacket()/sendPacketN() returned. every sender is done with the message by then (bytes are already written or copied).
+    private void recycle(Collection<Object> messageList) {
+        // Cannot use toArray(T[] array) because passed messageList doesn't implement it properly.
+        final Object[] dataList = messageList.toArray();
+        final int size = messageList.size();
+        for (int i = 0; i < size; i++) {
+            recycle(dataList[i]);
+        }
+    }
+
+    private void recycle(Object message) {
+        if (message instanceof Recyclable) {
+            try {
+                ((Recyclable) message).recycle();
+            } catch (IllegalStateException e) {
+                logger.warn("recycle fail. Caused:{}", e.getMessage(), e);
+            }
+        }
+    }
+
     protected byte[] serialize(HeaderTBaseSerializer serializer, TBase tBase) {
         return SerializationUtils.serialize(tBase, serializer, null);
     }
@@ -1,7 +1,6 @@
 package com.m2u.eyelink.agent.profiler.sender;
 
 import java.util.Collection;
-import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -9,6 +8,8 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.m2u.eyelink.agent.profiler.sender.queue.AsyncQueue;
+import com.m2u.eyelink.agent.profiler.sender.queue.AsyncQueueFactory;
 import com.m2u.eyelink.util.ELAgentThreadFactory;
 
 public class AsyncQueueingExecutor<T> implements Runnable {
@@ -18,15 +19,18 @@ public class AsyncQueueingExecutor<T> implements Runnable {
     private final Logger logger = LoggerFactory.getLogger(this.getClass());
     private final boolean isWarn = logger.isWarnEnabled();
 
-    private final LinkedBlockingQueue<T> queue;
+    private final AsyncQueue<T> queue;
     private final AtomicBoolean isRun = new AtomicBoolean(true);
     private final Thread executeThread;
     private final String executorName;
 
-    private final int maxDrainSize;
+    private final FlushPolicy flushPolicy;
     // Caution. single thread only. this Collection is simpler than ArrayList.
     private final Collection<T> drain;
 
+    // moving average of the serialized message size reported by the listener. execute thread only.
+    private int averageMessageSize = 0;
+
     private AsyncQueueingExecutorListener<T> listener = EMPTY_LISTENER;
 
 
@@ -35,13 +39,27 @@ public class AsyncQueueingExecutor<T> implements Runnable {
     }
 
     public AsyncQueueingExecutor(int queueSize, String executorName) {
+        this(AsyncQueueFactory.DEFAULT_FACTORY.<T>createQueue(queueSize), executorName);
+    }
+
+    public AsyncQueueingExecutor(AsyncQueue<T> queue, String executorName) {
+        this(queue, FlushPolicy.DEFAULT_POLICY, executorName);
+    }
+
+    public AsyncQueueingExecutor(AsyncQueue<T> queue, FlushPolicy flushPolicy, String executorName) {
+        if (queue == null) {
+            throw new NullPointerException("queue must not be null");
+        }
+        if (flushPolicy == null) {
+            throw new NullPointerException("flushPolicy must not be null");
+        }
         if (executorName == null) {
             throw new NullPointerException("executorName must not be null");
         }
         // BEFORE executeThread start
-        this.maxDrainSize = 10;
-        this.drain = new UnsafeArrayCollection<T>(maxDrainSize);
-        this.queue = new LinkedBlockingQueue<T>(queueSize);
+        this.flushPolicy = flushPolicy;
+        this.drain = new UnsafeArrayCollection<T>(flushPolicy.getMaxBatchCount());
+        this.queue = queue;
 
         this.executeThread = this.createExecuteThread(executorName);
         this.executorName = executeThread.getName();
@@ -56,7 +74,7 @@ public class AsyncQueueingExecutor<T> implements Runnable {
 
     @Override
     public void run() {
-        logger.info("{} started.", executorName);
+        logger.info("{} started. {}", executorName, flushPolicy);
         doExecute();
     }
 
@@ -65,8 +83,11 @@ public class AsyncQueueingExecutor<T> implements Runnable {
         while (isRun()) {
             try {
                 Collection<T> dtoList = getDrainQueue();
-                int drainSize = takeN(dtoList, this.maxDrainSize);
+                int drainSize = takeN(dtoList, getDrainSize());
                 if (drainSize > 0) {
+                    if (flushPolicy.isLinger()) {
+                        linger(dtoList);
+                    }
                     doExecute(dtoList);
                     continue;
                 }
@@ -74,7 +95,13 @@ public class AsyncQueueingExecutor<T> implements Runnable {
                 while (isRun()) {
                     T dto = takeOne();
                     if (dto != null) {
-                        doExecute(dto);
+                        if (flushPolicy.isLinger()) {
+                            dtoList.add(dto);
+                            linger(dtoList);
+                            doExecute(dtoList);
+                        } else {
+                            doExecute(dto);
+                        }
                         continue drainStartEntry;
                     }
                 }
@@ -85,6 +112,39 @@ public class AsyncQueueingExecutor<T> implements Runnable {
         flushQueue();
     }
 
+    private int getDrainSize() {
+        return flushPolicy.getDrainSize(queue.size(), averageMessageSize);
+    }
+
+    // Waits up to lingerMillis for the batch to fill. Trades a bounded delay for fewer, larger listener calls.
+    // fills toward maxBatchCount and maxBatchBytes, not the drain size, which only reflects the queue depth when lingering started.
+    private void linger(Collection<T> dtoList) {
+        final long deadline = System.currentTimeMillis() + flushPolicy.getLingerMillis();
+        final int lingerSize = flushPolicy.getLingerSize(averageMessageSize);
+        long batchBytes = (long) dtoList.size() * averageMessageSize;
+        while (isRun()) {
+            final int batchCount = dtoList.size();
+            if (batchCount >= lingerSize || flushPolicy.isBatchFull(batchCount, batchBytes)) {
+                return;
+            }
+            final int taken = takeN(dtoList, lingerSize - batchCount);
+            if (taken > 0) {
+                batchBytes += (long) taken * averageMessageSize;
+                continue;
+            }
+            final long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                return;
+            }
+            final T dto = takeOne(remaining);
+            if (dto == null) {
+                return;
+            }
+            dtoList.add(dto);
+            batchBytes += averageMessageSize;
+        }
+    }
+
     private void flushQueue() {
         boolean debugEnabled = logger.isDebugEnabled();
         if (debugEnabled) {
@@ -92,7 +152,7 @@ public class AsyncQueueingExecutor<T> implements Runnable {
         }
         while(true) {
             Collection<T> dtoList = getDrainQueue();
-           int drainSize = takeN(dtoList, this.maxDrainSize);
+            int drainSize = takeN(dtoList, flushPolicy.getMaxBatchCount());
             if (drainSize == 0) {
                 break;
             }
@@ -104,8 +164,12 @@ public class AsyncQueueingExecutor<T> implements Runnable {
     }
 
     protected T takeOne() {
+        return takeOne(1000 * 2);
+    }
+
+    private T takeOne(long timeoutMillis) {
         try {
-            return queue.poll(1000 * 2, TimeUnit.MILLISECONDS);
+            return queue.poll(timeoutMillis, TimeUnit.MILLISECONDS);
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
             return null;
@@ -116,6 +180,35 @@ public class AsyncQueueingExecutor<T> implements Runnable {
         return queue.drainTo(drain, maxDrainSize);
     }
 
+    /**
+     * Reports the serialized size of a message handed to the listener.
+     * Used to bound the batch size by {@link FlushPolicy#getMaxBatchBytes()}. Must be called from the listener, i.e. the execute thread.
+     */
+    public void updateMessageSize(int serializedSize) {
+        if (serializedSize <= 0) {
+            return;
+        }
+        final int average = this.averageMessageSize;
+        if (average == 0) {
+            this.averageMessageSize = serializedSize;
+        } else {
+            // exponential moving average with a weight of 1/8
+            this.averageMessageSize = average + ((serializedSize - average) >> 3);
+        }
+    }
+
+    int getAverageMessageSize() {
+        return averageMessageSize;
+    }
+
+    int getQueueSize() {
+        return queue.size();
+    }
+
+    public FlushPolicy getFlushPolicy() {
+        return flushPolicy;
+    }
+
     public boolean execute(T data) {
         if (data == null) {
             if (isWarn) {
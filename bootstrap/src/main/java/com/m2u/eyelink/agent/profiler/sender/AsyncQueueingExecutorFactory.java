@@ -0,0 +1,41 @@
+package com.m2u.eyelink.agent.profiler.sender;
+
+import com.m2u.eyelink.agent.profiler.sender.queue.AsyncQueue;
+import com.m2u.eyelink.agent.profiler.sender.queue.AsyncQueueFactory;
+
+public class AsyncQueueingExecutorFactory {
+
+    public static final AsyncQueueingExecutorFactory DEFAULT_FACTORY = new AsyncQueueingExecutorFactory(AsyncQueueFactory.DEFAULT_FACTORY, FlushPolicy.DEFAULT_POLICY);
+
+    private final AsyncQueueFactory queueFactory;
+    private final FlushPolicy flushPolicy;
+
+    public AsyncQueueingExecutorFactory(AsyncQueueFactory queueFactory, FlushPolicy flushPolicy) {
+        if (queueFactory == null) {
+            throw new NullPointerException("queueFactory must not be null");
+        }
+        if (flushPolicy == null) {
+            throw new NullPointerException("flushPolicy must not be null");
+        }
+        this.queueFactory = queueFactory;
+        this.flushPolicy = flushPolicy;
+    }
+
+    public <T> AsyncQueueingExecutor<T> createExecutor(int queueSize, String executorName) {
+        final AsyncQueue<T> queue = queueFactory.createQueue(queueSize);
+        return new AsyncQueueingExecutor<T>(queue, flushPolicy, executorName);
+    }
+
+    public AsyncQueueFactory getQueueFactory() {
+        return queueFactory;
+    }
+
+    public FlushPolicy getFlushPolicy() {
+        return flushPolicy;
+    }
+
+    @Override
+    public String toString() {
+        return "AsyncQueueingExecutorFactory{queueFactory=" + queueFactory + ", flushPolicy=" + flushPolicy + '}';
+    }
+}
@@ -0,0 +1,184 @@
+package com.m2u.eyelink.agent.profiler.sender;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.m2u.eyelink.agent.profiler.sender.spill.ConnectionMonitor;
+import com.m2u.eyelink.agent.profiler.sender.spill.SpillQueue;
+import com.m2u.eyelink.util.ELAgentThreadFactory;
+
+/**
+ * Keeps span datagrams on disk while the collector is down or the send queue is backed up, and replays them afterwards.
+ * <ul>
+ *     <li>spill : the sender thread writes a datagram to the {@link SpillQueue} instead of the socket
+ *     when the collector connection is down or the queue holds highWaterMark or more messages.</li>
+ *     <li>replay : a separate thread sends spilled datagrams at up to replayBytesPerSecond
+ *     while the connection is up and the queue is below half of highWaterMark.</li>
+ * </ul>
+ */
+public class DiskSpill {
+
+    private static final long IDLE_MILLIS = 1000;
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private final SpillQueue spillQueue;
+    private final ConnectionMonitor connectionMonitor;
+    private final int highWaterMark;
+    private final int replayBytesPerSecond;
+
+    private AsyncQueueingExecutor<?> executor;
+    private DatagramSocket socket;
+    private Thread replayThread;
+    private volatile boolean running = false;
+
+    // sender thread only
+    private boolean spilling = false;
+
+    public DiskSpill(SpillQueue spillQueue, ConnectionMonitor connectionMonitor, int highWaterMark, int replayBytesPerSecond) {
+        if (spillQueue == null) {
+            throw new NullPointerException("spillQueue must not be null");
+        }
+        if (connectionMonitor == null) {
+            throw new NullPointerException("connectionMonitor must not be null");
+        }
+        if (highWaterMark <= 0) {
+            throw new IllegalArgumentException("highWaterMark");
+        }
+        if (replayBytesPerSecond <= 0) {
+            throw new IllegalArgumentException("replayBytesPerSecond");
+        }
+        this.spillQueue = spillQueue;
+        this.connectionMonitor = connectionMonitor;
+        this.highWaterMark = highWaterMark;
+        this.replayBytesPerSecond = replayBytesPerSecond;
+    }
+
+    synchronized void start(AsyncQueueingExecutor<?> executor, DatagramSocket socket, String threadName) {
+        if (executor == null) {
+            throw new NullPointerException("executor must not be null");
+        }
+        if (socket == null) {
+            throw new NullPointerException("socket must not be null");
+        }
+        if (replayThread != null) {
+            throw new IllegalStateException("already started");
+        }
+        this.executor = executor;
+        this.socket = socket;
+        this.running = true;
+        this.replayThread = new ELAgentThreadFactory(threadName, true).newThread(new Replayer());
+        this.replayThread.start();
+        logger.info("DiskSpill started. highWaterMark={}, replayBytesPerSecond={}, {}", highWaterMark, replayBytesPerSecond, spillQueue);
+    }
+
+    /**
+     * Called by the sender thread in place of the socket write.
+     * @return true if the datagram went to disk and must not be sent
+     */
+    boolean spill(byte[] buffer, int offset, int length) {
+        final boolean connected = connectionMonitor.isConnected();
+        if (connected && executor.getQueueSize() < highWaterMark) {
+            if (spilling) {
+                spilling = false;
+                logger.info("stop spilling. {}", spillQueue);
+            }
+            return false;
+        }
+        if (!spilling) {
+            spilling = true;
+            logger.info("start spilling. connected:{}, queueSize:{}", connected, executor.getQueueSize());
+        }
+        // sent anyway if the disk budget is used up. the collector may still be reachable over udp.
+        return spillQueue.append(buffer, offset, length);
+    }
+
+    private boolean isReplayable() {
+        return connectionMonitor.isConnected() && executor.getQueueSize() < (highWaterMark >> 1);
+    }
+
+    synchronized void stop() {
+        if (replayThread == null) {
+            return;
+        }
+        this.running = false;
+        replayThread.interrupt();
+        try {
+            replayThread.join(IDLE_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        spillQueue.close();
+        logger.info("DiskSpill stopped. {}", spillQueue);
+    }
+
+    public SpillQueue getSpillQueue() {
+        return spillQueue;
+    }
+
+    private class Replayer implements Runnable {
+
+        // replay thread only
+        private final DatagramPacket replayPacket = new DatagramPacket(new byte[1], 1);
+        private long nextSendNanos = System.nanoTime();
+        private boolean replaying = false;
+
+        @Override
+        public void run() {
+            while (running) {
+                try {
+                    if (!isReplayable() || !replayOne()) {
+                        if (replaying) {
+                            replaying = false;
+                            logger.info("replay paused. pendingBytes:{}, {}", spillQueue.getPendingBytes(), spillQueue);
+                        }
+                        Thread.sleep(IDLE_MILLIS);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (Throwable th) {
+                    logger.warn("replay fail. Caused:{}", th.getMessage(), th);
+                }
+            }
+        }
+
+        private boolean replayOne() throws InterruptedException {
+            // wait before poll() so that an interrupt does not lose a datagram taken off the disk
+            final long waitNanos = nextSendNanos - System.nanoTime();
+            if (waitNanos > 0) {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            }
+            final byte[] data = spillQueue.poll();
+            if (data == null) {
+                return false;
+            }
+            if (!replaying) {
+                replaying = true;
+                logger.info("replay started. pendingBytes:{}", spillQueue.getPendingBytes() + data.length);
+            }
+            replayPacket.setData(data);
+            try {
+                socket.send(replayPacket);
+            } catch (IOException e) {
+                logger.info("replay send error. size:{}", data.length, e);
+            }
+            nextSendNanos = System.nanoTime() + TimeUnit.SECONDS.toNanos(data.length) / replayBytesPerSecond;
+            return true;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "DiskSpill{" +
+                "highWaterMark=" + highWaterMark +
+                ", replayBytesPerSecond=" + replayBytesPerSecond +
+                ", spillQueue=" + spillQueue +
+                '}';
+    }
+}
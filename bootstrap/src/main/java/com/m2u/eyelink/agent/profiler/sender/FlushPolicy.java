@@ -0,0 +1,86 @@
+package com.m2u.eyelink.agent.profiler.sender;
+
+/**
+ * Decides how many queued messages the AsyncQueueingExecutor hands to its listener at once.
+ * <ul>
+ *     <li>maxBatchCount : upper bound of one batch. The drain size grows with the queue depth up to this value.</li>
+ *     <li>maxBatchBytes : upper bound of the serialized size of one batch. 0 means unlimited.</li>
+ *     <li>lingerMillis : how long a batch that is not full may wait for more messages. 0 flushes immediately.</li>
+ * </ul>
+ */
+public class FlushPolicy {
+
+    public static final int DEFAULT_MAX_BATCH_COUNT = 10;
+    static final int MIN_DRAIN_SIZE = 10;
+
+    public static final FlushPolicy DEFAULT_POLICY = new FlushPolicy(DEFAULT_MAX_BATCH_COUNT, 0, 0);
+
+    private final int maxBatchCount;
+    private final long maxBatchBytes;
+    private final long lingerMillis;
+
+    public FlushPolicy(int maxBatchCount, long maxBatchBytes, long lingerMillis) {
+        if (maxBatchCount <= 0) {
+            throw new IllegalArgumentException("maxBatchCount:" + maxBatchCount + " must be positive number");
+        }
+        if (maxBatchBytes < 0) {
+            throw new IllegalArgumentException("maxBatchBytes:" + maxBatchBytes + " must not be negative number");
+        }
+        if (lingerMillis < 0) {
+            throw new IllegalArgumentException("lingerMillis:" + lingerMillis + " must not be negative number");
+        }
+        this.maxBatchCount = maxBatchCount;
+        this.maxBatchBytes = maxBatchBytes;
+        this.lingerMillis = lingerMillis;
+    }
+
+    public int getMaxBatchCount() {
+        return maxBatchCount;
+    }
+
+    public long getMaxBatchBytes() {
+        return maxBatchBytes;
+    }
+
+    public long getLingerMillis() {
+        return lingerMillis;
+    }
+
+    public boolean isLinger() {
+        return lingerMillis > 0;
+    }
+
+    /**
+     * @param queueDepth current number of queued messages
+     * @param averageMessageSize moving average of the serialized message size. 0 if unknown.
+     */
+    public int getDrainSize(int queueDepth, int averageMessageSize) {
+        int drainSize = Math.max(queueDepth, MIN_DRAIN_SIZE);
+        if (maxBatchBytes > 0 && averageMessageSize > 0) {
+            final long byteLimit = Math.max(maxBatchBytes / averageMessageSize, 1);
+            if (byteLimit < drainSize) {
+                drainSize = (int) byteLimit;
+            }
+        }
+        return Math.min(drainSize, maxBatchCount);
+    }
+
+    /**
+     * @return the size a lingering batch fills toward. maxBatchCount, bounded by maxBatchBytes once the message size is known.
+     */
+    public int getLingerSize(int averageMessageSize) {
+        return getDrainSize(maxBatchCount, averageMessageSize);
+    }
+
+    public boolean isBatchFull(int batchCount, long batchBytes) {
+        if (batchCount >= maxBatchCount) {
+            return true;
+        }
+        return maxBatchBytes > 0 && batchBytes >= maxBatchBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "FlushPolicy{maxBatchCount=" + maxBatchCount + ", maxBatchBytes=" + maxBatchBytes + ", lingerMillis=" + lingerMillis + '}';
+    }
+}
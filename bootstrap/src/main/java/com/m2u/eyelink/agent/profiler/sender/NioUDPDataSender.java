@@ -17,8 +17,7 @@ import com.m2u.eyelink.rpc.buffer.ByteBufferFactoryLocator;
 import com.m2u.eyelink.rpc.buffer.ByteBufferType;
 import com.m2u.eyelink.sender.DataSender;
 import com.m2u.eyelink.thrift.ByteBufferOutputStream;
-import com.m2u.eyelink.thrift.HeaderTBaseSerializer2;
-import com.m2u.eyelink.thrift.HeaderTBaseSerializerFactory2;
+import com.m2u.eyelink.thrift.HeaderTBaseByteBufferSerializer;
 
 public class NioUDPDataSender extends AbstractDataSender implements DataSender {
 
@@ -30,7 +29,9 @@ public class NioUDPDataSender extends AbstractDataSender implements DataSender {
     public static final int UDP_MAX_PACKET_LENGTH = 65507;
 
     private final DatagramChannel datagramChannel;
-    private final HeaderTBaseSerializer2 serializer;
+    private final HeaderTBaseByteBufferSerializer serializer;
+    private final ByteBuffer sendBuffer;
+    // owner of sendBuffer. close() releases the direct memory.
     private final ByteBufferOutputStream byteBufferOutputStream;
 
     private final AsyncQueueingExecutor<Object> executor;
@@ -42,6 +43,10 @@ public class NioUDPDataSender extends AbstractDataSender implements DataSender {
     }
 
     public NioUDPDataSender(String host, int port, String threadName, int queueSize, int timeout, int sendBufferSize) {
+        this(host, port, threadName, queueSize, timeout, sendBufferSize, AsyncQueueingExecutorFactory.DEFAULT_FACTORY);
+    }
+
+    public NioUDPDataSender(String host, int port, String threadName, int queueSize, int timeout, int sendBufferSize, AsyncQueueingExecutorFactory executorFactory) {
         if (host == null ) {
             throw new NullPointerException("host must not be null");
         }
@@ -57,19 +62,21 @@ public class NioUDPDataSender extends AbstractDataSender implements DataSender {
         if (sendBufferSize <= 0) {
             throw new IllegalArgumentException("sendBufferSize");
         }
+        if (executorFactory == null) {
+            throw new NullPointerException("executorFactory must not be null");
+        }
 
         // TODO If fail to create socket, stop agent start
         logger.info("NioUDPDataSender initialized. host={}, port={}", host, port);
         this.datagramChannel = createChannel(host, port, timeout, sendBufferSize);
 
-        HeaderTBaseSerializerFactory2 serializerFactory = new HeaderTBaseSerializerFactory2();
-        this.serializer = serializerFactory.createSerializer();
+        this.serializer = new HeaderTBaseByteBufferSerializer();
 
         ByteBufferFactory bufferFactory = ByteBufferFactoryLocator.getFactory(ByteBufferType.DIRECT);
-        ByteBuffer byteBuffer = bufferFactory.getBuffer(UDP_MAX_PACKET_LENGTH);
-        this.byteBufferOutputStream = new ByteBufferOutputStream(byteBuffer);
+        this.sendBuffer = bufferFactory.getBuffer(UDP_MAX_PACKET_LENGTH);
+        this.byteBufferOutputStream = new ByteBufferOutputStream(sendBuffer);
 
-        this.executor = createAsyncQueueingExecutor(queueSize, threadName);
+        this.executor = createAsyncQueueingExecutor(executorFactory, queueSize, threadName);
     }
 
     private DatagramChannel createChannel(String host, int port, int timeout, int sendBufferSize) {
@@ -133,21 +140,22 @@ public class NioUDPDataSender extends AbstractDataSender implements DataSender {
         }
 
         if (message instanceof TBase) {
-            byteBufferOutputStream.clear();
+            sendBuffer.clear();
 
             final TBase dto = (TBase) message;
             // do not copy bytes because it's single threaded
 
             try {
-                serializer.serialize(dto,  byteBufferOutputStream);
+                serializer.serialize(dto, sendBuffer);
 //            } catch (TException e) {
             } catch (Exception e) {
                 throw new ELAgentSocketException("Serialize " + dto + " failed. Error:" +  e.getMessage(), e);
             }
-            ByteBuffer byteBuffer = byteBufferOutputStream.getByteBuffer();
-            int bufferSize = byteBuffer.remaining();
+            sendBuffer.flip();
+            int bufferSize = sendBuffer.remaining();
+            executor.updateMessageSize(bufferSize);
             try {
-                datagramChannel.write(byteBuffer);
+                datagramChannel.write(sendBuffer);
             } catch (IOException e) {
                 final Thread currentThread = Thread.currentThread();
                 if (currentThread.isInterrupted()) {
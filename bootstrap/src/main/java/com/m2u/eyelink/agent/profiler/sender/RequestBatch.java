@@ -0,0 +1,131 @@
+package com.m2u.eyelink.agent.profiler.sender;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.thrift.TBase;
+
+import com.m2u.eyelink.context.thrift.TResult;
+
+/**
+ * Requests sent as one chunk request: a chunk header followed by header + message pairs, like a packed UDP datagram.
+ * A collector that accepts chunk requests answers with a chunk holding one TResult per entry, in the same order.
+ */
+final class RequestBatch {
+
+    private static final int[] NO_FAILED_ENTRY = new int[0];
+
+    private final byte[] packet;
+    // start offset of each entry in packet, followed by the end offset of the last one
+    private final int[] offsets;
+    private final int[] maxRetryCounts;
+    private final String[] descriptions;
+
+    RequestBatch(byte[] packet, int[] offsets, int[] maxRetryCounts, String[] descriptions) {
+        if (packet == null) {
+            throw new NullPointerException("packet must not be null");
+        }
+        if (offsets == null) {
+            throw new NullPointerException("offsets must not be null");
+        }
+        if (maxRetryCounts == null) {
+            throw new NullPointerException("maxRetryCounts must not be null");
+        }
+        if (descriptions == null) {
+            throw new NullPointerException("descriptions must not be null");
+        }
+        if (offsets.length != maxRetryCounts.length + 1 || descriptions.length != maxRetryCounts.length) {
+            throw new IllegalArgumentException("offsets:" + offsets.length + ", maxRetryCounts:" + maxRetryCounts.length + ", descriptions:" + descriptions.length);
+        }
+        this.packet = packet;
+        this.offsets = offsets;
+        this.maxRetryCounts = maxRetryCounts;
+        this.descriptions = descriptions;
+    }
+
+    int size() {
+        return maxRetryCounts.length;
+    }
+
+    byte[] getPacket() {
+        return packet;
+    }
+
+    /**
+     * @return the entry as a plain request, without the chunk header
+     */
+    byte[] getEntry(int index) {
+        return Arrays.copyOfRange(packet, offsets[index], offsets[index + 1]);
+    }
+
+    int getMaxRetryCount(int index) {
+        return maxRetryCounts[index];
+    }
+
+    String getDescription(int index) {
+        return descriptions[index];
+    }
+
+    /**
+     * @return the largest retry count of the entries, used when the batch is retried as a whole
+     */
+    int getMaxRetryCount() {
+        int max = 0;
+        for (int maxRetryCount : maxRetryCounts) {
+            max = Math.max(max, maxRetryCount);
+        }
+        return max;
+    }
+
+    /**
+     * @param results messages of the response, not empty
+     * @return index of each entry the collector did not accept. all entries if a single result was returned for the batch and it failed,
+     * or if the results do not match the entries
+     */
+    int[] getFailedEntries(List<TBase<?, ?>> results) {
+        if (results == null) {
+            throw new NullPointerException("results must not be null");
+        }
+        final int size = size();
+        if (results.size() == 1) {
+            return isSuccess(results.get(0)) ? NO_FAILED_ENTRY : allEntries();
+        }
+        if (results.size() != size) {
+            return allEntries();
+        }
+        int failed = 0;
+        for (int i = 0; i < size; i++) {
+            if (!isSuccess(results.get(i))) {
+                failed++;
+            }
+        }
+        if (failed == 0) {
+            return NO_FAILED_ENTRY;
+        }
+        final int[] failedEntries = new int[failed];
+        int index = 0;
+        for (int i = 0; i < size; i++) {
+            if (!isSuccess(results.get(i))) {
+                failedEntries[index++] = i;
+            }
+        }
+        return failedEntries;
+    }
+
+    private boolean isSuccess(TBase<?, ?> result) {
+        return result instanceof TResult && ((TResult) result).isSuccess();
+    }
+
+    private int[] allEntries() {
+        final int[] entries = new int[size()];
+        for (int i = 0; i < entries.length; i++) {
+            entries[i] = i;
+        }
+        return entries;
+    }
+
+    @Override
+    public String toString() {
+        return "RequestBatch{" + "size=" + size() + ", bytes=" + packet.length + '}';
+    }
+}
@@ -0,0 +1,55 @@
+package com.m2u.eyelink.agent.profiler.sender;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Exponential backoff with jitter. The n-th retry waits between half and all of min(maxDelay, baseDelay * 2^(n-1)),
+ * so that requests which failed together do not come back together.
+ */
+public class RetryBackoff {
+
+    public static final long DEFAULT_BASE_DELAY = 1000;
+    public static final long DEFAULT_MAX_DELAY = 1000 * 60;
+
+    private final long baseDelay;
+    private final long maxDelay;
+
+    public RetryBackoff() {
+        this(DEFAULT_BASE_DELAY, DEFAULT_MAX_DELAY);
+    }
+
+    public RetryBackoff(long baseDelay, long maxDelay) {
+        if (baseDelay <= 0) {
+            throw new IllegalArgumentException("baseDelay:" + baseDelay + " must be positive number");
+        }
+        if (maxDelay < baseDelay) {
+            throw new IllegalArgumentException("maxDelay(" + maxDelay + ") must be greater than baseDelay(" + baseDelay + ")");
+        }
+        this.baseDelay = baseDelay;
+        this.maxDelay = maxDelay;
+    }
+
+    /**
+     * @param retryCount 1 for the first retry
+     * @return delay in milliseconds
+     */
+    public long getDelay(int retryCount) {
+        final long delay = getMaxDelay(retryCount);
+        final long half = delay >> 1;
+        return half + ThreadLocalRandom.current().nextLong(delay - half + 1);
+    }
+
+    long getMaxDelay(int retryCount) {
+        final int shift = Math.max(retryCount - 1, 0);
+        // guard against overflow. 2^30 * baseDelay is far above any sane maxDelay.
+        if (shift >= 30 || baseDelay > (maxDelay >> shift)) {
+            return maxDelay;
+        }
+        return baseDelay << shift;
+    }
+
+    @Override
+    public String toString() {
+        return "RetryBackoff{baseDelay=" + baseDelay + ", maxDelay=" + maxDelay + '}';
+    }
+}
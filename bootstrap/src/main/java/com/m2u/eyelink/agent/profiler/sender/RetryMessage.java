@@ -7,6 +7,10 @@ public class RetryMessage {
 
     private final byte[] bytes;
     private final String messageDescription;
+    // not null if the message is a request batch
+    private final RequestBatch requestBatch;
+    // time in millis at which the message may be sent again
+    private long nextRetryTime = 0;
 
     public RetryMessage(int maxRetryCount, byte[] bytes) {
         this(0, maxRetryCount, bytes, "");
@@ -21,6 +25,14 @@ public class RetryMessage {
     }
 
     public RetryMessage(int retryCount, int maxRetryCount, byte[] bytes, String messageDescription) {
+        this(retryCount, maxRetryCount, bytes, messageDescription, null);
+    }
+
+    RetryMessage(int retryCount, RequestBatch requestBatch) {
+        this(retryCount, requestBatch.getMaxRetryCount(), requestBatch.getPacket(), RequestBatch.class.getSimpleName(), requestBatch);
+    }
+
+    private RetryMessage(int retryCount, int maxRetryCount, byte[] bytes, String messageDescription, RequestBatch requestBatch) {
         if (retryCount < 0) {
             throw new IllegalArgumentException("retryCount:" + retryCount + " must be positive number");
         }
@@ -35,6 +47,7 @@ public class RetryMessage {
         this.maxRetryCount = maxRetryCount;
         this.bytes = bytes;
         this.messageDescription = messageDescription;
+        this.requestBatch = requestBatch;
     }
 
     public int getRetryCount() {
@@ -57,11 +70,28 @@ public class RetryMessage {
         return ++retryCount;
     }
 
+    public String getMessageDescription() {
+        return messageDescription;
+    }
+
+    RequestBatch getRequestBatch() {
+        return requestBatch;
+    }
+
+    public long getNextRetryTime() {
+        return nextRetryTime;
+    }
+
+    public void setNextRetryTime(long nextRetryTime) {
+        this.nextRetryTime = nextRetryTime;
+    }
+
     @Override
     public String toString() {
         final StringBuilder sb = new StringBuilder("RetryMessage{");
         sb.append("retryCount=").append(retryCount);
         sb.append(", maxRetryCount=").append(maxRetryCount);
+        sb.append(", nextRetryTime=").append(nextRetryTime);
         sb.append(", bytes=").append(getLength(bytes));
         sb.append(", messageDescription='").append(messageDescription).append('\'');
         sb.append('}');
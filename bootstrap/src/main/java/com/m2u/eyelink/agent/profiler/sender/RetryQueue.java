@@ -1,66 +1,225 @@
 package com.m2u.eyelink.agent.profiler.sender;
 
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Bounded retry schedule.
+ * A message becomes eligible after a jittered exponential backoff on its retry count, and messages are taken in eligible-time order.
+ * Messages with fewer retries have priority: they back off for a shorter time, only first retries are accepted once the queue is half full,
+ * and a full queue evicts the most retried message to make room for a less retried one.
+ * Each message type (messageDescription) may hold at most maxRetryPerType entries so that one type cannot crowd out the others.
+ * The default budget is half the capacity, the same share that is reserved for first retries, so at least two types always fit.
+ * Types whose loss costs more (e.g. sql metadata, which cannot be resent later) can be given their own budget.
+ */
 public class RetryQueue {
+
+    public static final long NO_RETRY = -1;
+
+    private static final Comparator<RetryMessage> RETRY_TIME_ORDER = new Comparator<RetryMessage>() {
+        @Override
+        public int compare(RetryMessage o1, RetryMessage o2) {
+            if (o1.getNextRetryTime() != o2.getNextRetryTime()) {
+                return o1.getNextRetryTime() < o2.getNextRetryTime() ? -1 : 1;
+            }
+            return o1.getRetryCount() - o2.getRetryCount();
+        }
+    };
+
     private final Logger logger = LoggerFactory.getLogger(this.getClass());
-    // Want to make message with less retry count higher priority.
-    // But PriorityQueue of JDK has no size limit, so let's do it without priority for now.
-    private final BlockingQueue<RetryMessage> queue;
+
+    private final PriorityQueue<RetryMessage> queue;
     private final int capacity;
     private final int maxRetryCount;
     private final int halfCapacity;
+    private final int maxRetryPerType;
+    // budgets of types that do not use maxRetryPerType
+    private final Map<String, Integer> maxRetryPerTypes;
+    private final RetryBackoff backoff;
+
+    // queued messages per messageDescription
+    private final Map<String, Integer> typeCount = new HashMap<String, Integer>();
 
 
     public RetryQueue(int capacity, int maxRetryCount) {
-        this.queue = new LinkedBlockingQueue<RetryMessage>();
+        this(capacity, maxRetryCount, capacity / 2, new RetryBackoff());
+    }
+
+    public RetryQueue(int capacity, int maxRetryCount, int maxRetryPerType, RetryBackoff backoff) {
+        this(capacity, maxRetryCount, maxRetryPerType, Collections.<String, Integer>emptyMap(), backoff);
+    }
+
+    /**
+     * @param maxRetryPerTypes budget by messageDescription, for types that do not use maxRetryPerType
+     */
+    public RetryQueue(int capacity, int maxRetryCount, int maxRetryPerType, Map<String, Integer> maxRetryPerTypes, RetryBackoff backoff) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity");
+        }
+        if (maxRetryPerType <= 0) {
+            throw new IllegalArgumentException("maxRetryPerType");
+        }
+        if (maxRetryPerTypes == null) {
+            throw new NullPointerException("maxRetryPerTypes must not be null");
+        }
+        for (Map.Entry<String, Integer> entry : maxRetryPerTypes.entrySet()) {
+            if (entry.getValue() == null || entry.getValue() <= 0) {
+                throw new IllegalArgumentException("maxRetryPerTypes " + entry.getKey() + ":" + entry.getValue());
+            }
+        }
+        if (backoff == null) {
+            throw new NullPointerException("backoff must not be null");
+        }
+        this.queue = new PriorityQueue<RetryMessage>(Math.min(capacity, 64), RETRY_TIME_ORDER);
         this.capacity = capacity;
         this.halfCapacity = capacity / 2;
         this.maxRetryCount = maxRetryCount;
+        this.maxRetryPerType = maxRetryPerType;
+        this.maxRetryPerTypes = new HashMap<String, Integer>(maxRetryPerTypes);
+        this.backoff = backoff;
     }
 
     public RetryQueue() {
         this(1024, 3);
     }
 
-    public void add(RetryMessage retryMessage) {
+    public RetryQueue(Map<String, Integer> maxRetryPerTypes) {
+        this(1024, 3, 1024 / 2, maxRetryPerTypes, new RetryBackoff());
+    }
+
+    public boolean add(RetryMessage retryMessage) {
+        return add(retryMessage, System.currentTimeMillis());
+    }
+
+    public synchronized boolean add(RetryMessage retryMessage, long currentTime) {
         if (retryMessage == null) {
             throw new NullPointerException("retryMessage must not be null");
         }
 
         if (!retryMessage.isRetryAvailable()) {
             logger.warn("discard retry message({}).", retryMessage);
-            return;
+            return false;
         }
         int retryCount = retryMessage.getRetryCount();
         if (retryCount >= this.maxRetryCount) {
             logger.warn("discard retry message({}). queue-maxRetryCount:{}", retryMessage, maxRetryCount);
-            return;
+            return false;
         }
         final int queueSize = queue.size();
+        // the upper half is reserved for first retries
+        if (queueSize >= halfCapacity && retryCount > 1) {
+            logger.warn("discard retry message. retryCount:{}", retryCount);
+            return false;
+        }
+        RetryMessage victim = null;
         if (queueSize >= capacity) {
-            logger.warn("discard retry message. queueSize:{}", queueSize);
-            return;
+            victim = findMostRetried(retryCount);
+            if (victim == null) {
+                logger.warn("discard retry message. queueSize:{}", queueSize);
+                return false;
+            }
         }
-        if (queueSize >= halfCapacity && retryCount >= 1) {
-            logger.warn("discard retry message. retryCount:{}", retryCount);
-            return;
+        final String type = retryMessage.getMessageDescription();
+        int typeCount = getTypeCount(type);
+        if (victim != null && Objects.equals(type, victim.getMessageDescription())) {
+            typeCount--;
         }
-        final boolean offer = this.queue.offer(retryMessage);
-        if (!offer) {
-            logger.warn("offer() fail. discard retry message. retryCount:{}", retryCount);
+        final int budget = getMaxRetry(type);
+        if (typeCount >= budget) {
+            logger.warn("discard retry message. retry budget of {} exhausted. queued:{}", type, budget);
+            return false;
         }
+        if (victim != null) {
+            queue.remove(victim);
+            decreaseTypeCount(victim.getMessageDescription());
+            logger.warn("discard retry message({}). evicted by a message with fewer retries", victim);
+        }
+        retryMessage.setNextRetryTime(currentTime + backoff.getDelay(retryCount));
+        queue.offer(retryMessage);
+        increaseTypeCount(type);
+        return true;
+    }
+
+    // O(n), only when full
+    private RetryMessage findMostRetried(int retryCount) {
+        RetryMessage victim = null;
+        for (RetryMessage message : queue) {
+            if (message.getRetryCount() > retryCount && (victim == null || message.getRetryCount() > victim.getRetryCount())) {
+                victim = message;
+            }
+        }
+        return victim;
+    }
+
+    private int getMaxRetry(String type) {
+        final Integer budget = maxRetryPerTypes.get(type);
+        return budget == null ? maxRetryPerType : budget;
+    }
+
+    private int getTypeCount(String type) {
+        final Integer count = typeCount.get(type);
+        return count == null ? 0 : count;
+    }
+
+    private void increaseTypeCount(String type) {
+        typeCount.put(type, getTypeCount(type) + 1);
+    }
+
+    private void decreaseTypeCount(String type) {
+        final int count = getTypeCount(type) - 1;
+        if (count <= 0) {
+            typeCount.remove(type);
+        } else {
+            typeCount.put(type, count);
+        }
+    }
+
+    /**
+     * @return the next message regardless of its retry time
+     */
+    public synchronized RetryMessage get() {
+        final RetryMessage retryMessage = this.queue.poll();
+        if (retryMessage != null) {
+            decreaseTypeCount(retryMessage.getMessageDescription());
+        }
+        return retryMessage;
     }
 
-    public RetryMessage get() {
-        return this.queue.poll();
+    /**
+     * @return the next message whose retry time has come, null if there is none
+     */
+    public synchronized RetryMessage poll(long currentTime) {
+        final RetryMessage head = this.queue.peek();
+        if (head == null || head.getNextRetryTime() > currentTime) {
+            return null;
+        }
+        return get();
     }
 
-    public int size() {
+    /**
+     * @return retry time of the earliest message, {@link #NO_RETRY} if empty
+     */
+    public synchronized long getNextRetryTime() {
+        final RetryMessage head = this.queue.peek();
+        if (head == null) {
+            return NO_RETRY;
+        }
+        return head.getNextRetryTime();
+    }
+
+    public synchronized int size() {
         return this.queue.size();
     }
+
+    @Override
+    public String toString() {
+        return "RetryQueue{capacity=" + capacity + ", maxRetryCount=" + maxRetryCount + ", maxRetryPerType=" + maxRetryPerType + ", maxRetryPerTypes=" + maxRetryPerTypes + ", " + backoff + '}';
+    }
 }
@@ -0,0 +1,95 @@
+package com.m2u.eyelink.agent.profiler.sender;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.m2u.eyelink.rpc.Future;
+import com.m2u.eyelink.rpc.buffer.ByteBufferFactory;
+import com.m2u.eyelink.rpc.buffer.ByteBufferFactoryLocator;
+import com.m2u.eyelink.rpc.buffer.ByteBufferType;
+import com.m2u.eyelink.sender.FutureListener;
+
+/**
+ * Bounded set of direct buffers that are handed to the socket without copy.
+ * acquire() is called by the executor thread only. A buffer goes back to the pool when its write future completes.
+ * At most maxBuffers are live at a time. When all of them are in flight, acquire() returns null and the caller falls back to byte[].
+ */
+final class SendBufferPool {
+
+    private final BlockingQueue<SendBuffer> pool;
+    private final ByteBufferFactory bufferFactory = ByteBufferFactoryLocator.getFactory(ByteBufferType.DIRECT);
+    private final int maxBuffers;
+    private final int bufferCapacity;
+    private final FutureListener completeListener;
+
+    private final AtomicInteger allocated = new AtomicInteger();
+
+    SendBufferPool(int maxBuffers, int bufferCapacity, FutureListener completeListener) {
+        if (maxBuffers <= 0) {
+            throw new IllegalArgumentException("maxBuffers");
+        }
+        if (bufferCapacity <= 0) {
+            throw new IllegalArgumentException("bufferCapacity");
+        }
+        if (completeListener == null) {
+            throw new NullPointerException("completeListener must not be null");
+        }
+        this.pool = new ArrayBlockingQueue<SendBuffer>(maxBuffers);
+        this.maxBuffers = maxBuffers;
+        this.bufferCapacity = bufferCapacity;
+        this.completeListener = completeListener;
+    }
+
+    SendBuffer acquire() {
+        SendBuffer sendBuffer = pool.poll();
+        if (sendBuffer == null) {
+            // only the executor thread increments, so get() then incrementAndGet() does not overshoot.
+            if (allocated.get() >= maxBuffers) {
+                return null;
+            }
+            allocated.incrementAndGet();
+            sendBuffer = new SendBuffer(bufferFactory.getBuffer(bufferCapacity));
+        }
+        sendBuffer.getByteBuffer().clear();
+        return sendBuffer;
+    }
+
+    void release(SendBuffer sendBuffer) {
+        // never full. every buffer in the pool was allocated by this pool.
+        pool.offer(sendBuffer);
+    }
+
+    private void discard(SendBuffer sendBuffer) {
+        // left to GC. the slot can be allocated again.
+        allocated.decrementAndGet();
+    }
+
+    final class SendBuffer implements FutureListener {
+
+        private final ByteBuffer byteBuffer;
+
+        private SendBuffer(ByteBuffer byteBuffer) {
+            this.byteBuffer = byteBuffer;
+        }
+
+        ByteBuffer getByteBuffer() {
+            return byteBuffer;
+        }
+
+        @Override
+        public void onComplete(Future future) {
+            try {
+                completeListener.onComplete(future);
+            } finally {
+                if (future.isSuccess()) {
+                    release(this);
+                } else {
+                    // a failed future (e.g. write timeout) does not guarantee that netty is done with the buffer.
+                    discard(this);
+                }
+            }
+        }
+    }
+}
@@ -1,10 +1,15 @@
 package com.m2u.eyelink.agent.profiler.sender;
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.thrift.TBase;
+import org.apache.thrift.TException;
 import org.jboss.netty.buffer.ChannelBuffers;
 import org.jboss.netty.util.HashedWheelTimer;
 import org.jboss.netty.util.Timeout;
@@ -13,6 +18,7 @@ import org.jboss.netty.util.TimerTask;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.m2u.eyelink.context.thrift.BufferOverflowException;
 import com.m2u.eyelink.context.thrift.HeaderTBaseDeserializer;
 import com.m2u.eyelink.context.thrift.HeaderTBaseDeserializerFactory;
 import com.m2u.eyelink.context.thrift.HeaderTBaseSerializer;
@@ -25,9 +31,17 @@ import com.m2u.eyelink.rpc.util.TimerFactory;
 import com.m2u.eyelink.sender.ELAgentClientReconnectEventListener;
 import com.m2u.eyelink.sender.EnhancedDataSender;
 import com.m2u.eyelink.sender.FutureListener;
+import com.m2u.eyelink.thrift.HeaderTBaseByteBufferSerializer;
 
 public class TcpDataSender extends AbstractDataSender implements EnhancedDataSender {
 
+    public static final int SEND_BUFFER_POOL_SIZE = 32;
+    public static final int SEND_BUFFER_CAPACITY = 1024 * 16;
+    public static final int NO_REQUEST_BATCH = 0;
+    static final int MAX_REQUEST_BATCH_BYTES = 1024 * 64;
+
+    private static final long RECONNECT_CHECK_DELAY = 1000;
+
     private final Logger logger = LoggerFactory.getLogger(this.getClass());
     static {
         // preClassLoad
@@ -36,23 +50,76 @@ public class TcpDataSender extends AbstractDataSender implements EnhancedDataSen
 
     private final ELAgentClient client;
     private final Timer timer;
-    
-    private final AtomicBoolean fireState = new AtomicBoolean(false);
 
     private final WriteFailFutureListener writeFailFutureListener;
 
 
     private final HeaderTBaseSerializer serializer = HeaderTBaseSerializerFactory.DEFAULT_FACTORY.createSerializer();
-
-    private final RetryQueue retryQueue = new RetryQueue();
+    private final HeaderTBaseByteBufferSerializer bufferSerializer = new HeaderTBaseByteBufferSerializer();
+    private final SendBufferPool sendBufferPool;
+
+    // responses complete on netty io threads. guarded by itself.
+    private final HeaderTBaseDeserializer responseDeserializer = HeaderTBaseDeserializerFactory.DEFAULT_FACTORY.createDeserializer();
+
+    // request batching. executor thread only.
+    private final int requestBatchSize;
+    private final HeaderTBaseSerializer batchSerializer;
+    private final RequestMarker[] batchRequests;
+    // start offset of each batched request in batchBuffer, followed by the end offset of the last one
+    private final int[] batchOffsets;
+    private byte[] batchBuffer;
+    private int batchCount = 0;
+
+    private final RetryQueue retryQueue;
+    private final Object retryLock = new Object();
+    // the pending timer task and the retry time it was scheduled for. guarded by retryLock.
+    private Timeout retryTimeout;
+    private long scheduledRetryTime = RetryQueue.NO_RETRY;
+    private final TimerTask retryTask = new RetryTask();
 
     private AsyncQueueingExecutor<Object> executor;
 
     public TcpDataSender(ELAgentClient client) {
+        this(client, AsyncQueueingExecutorFactory.DEFAULT_FACTORY);
+    }
+
+    public TcpDataSender(ELAgentClient client, AsyncQueueingExecutorFactory executorFactory) {
+        this(client, executorFactory, NO_REQUEST_BATCH);
+    }
+
+    /**
+     * @param requestBatchSize when greater than 1, queued metadata requests are coalesced into one chunk request of up to this many entries.
+     * Only while the collector says in the handshake that it accepts chunk requests.
+     */
+    public TcpDataSender(ELAgentClient client, AsyncQueueingExecutorFactory executorFactory, int requestBatchSize) {
+        this(client, executorFactory, requestBatchSize, new RetryQueue());
+    }
+
+    public TcpDataSender(ELAgentClient client, AsyncQueueingExecutorFactory executorFactory, int requestBatchSize, RetryQueue retryQueue) {
+        if (requestBatchSize < 0) {
+            throw new IllegalArgumentException("requestBatchSize:" + requestBatchSize);
+        }
+        if (retryQueue == null) {
+            throw new NullPointerException("retryQueue must not be null");
+        }
         this.client = client;
+        this.retryQueue = retryQueue;
         this.timer = createTimer();
         writeFailFutureListener = new WriteFailFutureListener(logger, "io write fail.", "host", -1);
-        this.executor = createAsyncQueueingExecutor(1024 * 5, "Pinpoint-TcpDataExecutor");
+        this.sendBufferPool = new SendBufferPool(SEND_BUFFER_POOL_SIZE, SEND_BUFFER_CAPACITY, writeFailFutureListener);
+        if (requestBatchSize > 1) {
+            this.requestBatchSize = requestBatchSize;
+            // returns its internal buffer. the batch is copied once on flush.
+            this.batchSerializer = new HeaderTBaseSerializerFactory(false, HeaderTBaseSerializerFactory.DEFAULT_STREAM_SIZE, true).createSerializer();
+            this.batchRequests = new RequestMarker[requestBatchSize];
+            this.batchOffsets = new int[requestBatchSize + 1];
+        } else {
+            this.requestBatchSize = NO_REQUEST_BATCH;
+            this.batchSerializer = null;
+            this.batchRequests = null;
+            this.batchOffsets = null;
+        }
+        this.executor = createAsyncQueueingExecutor(executorFactory, 1024 * 5, "Pinpoint-TcpDataExecutor");
     }
     
     private Timer createTimer() {
@@ -107,10 +174,14 @@ public class TcpDataSender extends AbstractDataSender implements EnhancedDataSen
     protected void sendPacket(Object message) {
         try {
             if (message instanceof TBase) {
+                if (doSendDirect((TBase) message)) {
+                    return;
+                }
                 byte[] copy = serialize(serializer, (TBase) message);
                 if (copy == null) {
                     return;
                 }
+                executor.updateMessageSize(copy.length);
                 doSend(copy);
             } else if (message instanceof RequestMarker) {
                 RequestMarker requestMarker = (RequestMarker) message;
@@ -122,6 +193,7 @@ public class TcpDataSender extends AbstractDataSender implements EnhancedDataSen
                 if (copy == null) {
                     return;
                 }
+                executor.updateMessageSize(copy.length);
 
                 if (futureListener != null) {
                     doRequest(copy, futureListener);
@@ -137,6 +209,188 @@ public class TcpDataSender extends AbstractDataSender implements EnhancedDataSen
         }
     }
 
+    @Override
+    protected void sendPacketN(Collection<Object> messageList) {
+        if (requestBatchSize == NO_REQUEST_BATCH || !client.isSupportRequestBatch()) {
+            super.sendPacketN(messageList);
+            return;
+        }
+        // Cannot use toArray(T[] array) because passed messageList doesn't implement it properly.
+        final Object[] dataList = messageList.toArray();
+        final int size = messageList.size();
+        for (int i = 0; i < size; i++) {
+            final Object message = dataList[i];
+            try {
+                if (isBatchable(message)) {
+                    appendRequest((RequestMarker) message);
+                } else {
+                    sendPacket(message);
+                }
+            } catch (Throwable th) {
+                logger.warn("Unexpected Error. Cause:{}", th.getMessage(), th);
+                resetRequestBatch();
+            }
+        }
+        try {
+            flushRequestBatch();
+        } catch (Throwable th) {
+            logger.warn("Unexpected Error. Cause:{}", th.getMessage(), th);
+            resetRequestBatch();
+        }
+    }
+
+    // requests with a listener (e.g. agent info) need their own response
+    private boolean isBatchable(Object message) {
+        return message instanceof RequestMarker && ((RequestMarker) message).getFutureListener() == null;
+    }
+
+    private void appendRequest(RequestMarker requestMarker) throws TException {
+        if (batchCount == 0) {
+            batchSerializer.beginChunk();
+        }
+        final int mark = batchSerializer.getInterBufferSize();
+        final byte[] buffer = batchSerializer.continueSerialize(requestMarker.getTBase());
+        final int end = batchSerializer.getInterBufferSize();
+        if (end > MAX_REQUEST_BATCH_BYTES && batchCount > 0) {
+            batchSerializer.reset(mark);
+            flushRequestBatch();
+            appendRequest(requestMarker);
+            return;
+        }
+        executor.updateMessageSize(end - mark);
+        this.batchBuffer = buffer;
+        batchRequests[batchCount] = requestMarker;
+        batchOffsets[batchCount] = mark;
+        batchCount++;
+        batchOffsets[batchCount] = end;
+        if (batchCount >= requestBatchSize) {
+            flushRequestBatch();
+        }
+    }
+
+    private void flushRequestBatch() {
+        final int count = this.batchCount;
+        if (count == 0) {
+            return;
+        }
+        this.batchCount = 0;
+        if (count == 1) {
+            // no need for the chunk header
+            final RequestMarker requestMarker = batchRequests[0];
+            batchRequests[0] = null;
+            final byte[] requestPacket = Arrays.copyOfRange(batchBuffer, batchOffsets[0], batchOffsets[1]);
+            doRequest(requestPacket, requestMarker.getRetryCount(), requestMarker.getTBase());
+            return;
+        }
+        final int[] maxRetryCounts = new int[count];
+        final String[] descriptions = new String[count];
+        for (int i = 0; i < count; i++) {
+            maxRetryCounts[i] = batchRequests[i].getRetryCount();
+            descriptions[i] = batchRequests[i].getTBase().getClass().getSimpleName();
+        }
+        Arrays.fill(batchRequests, 0, count, null);
+        final byte[] requestPacket = Arrays.copyOf(batchBuffer, batchOffsets[count]);
+        final RequestBatch requestBatch = new RequestBatch(requestPacket, Arrays.copyOf(batchOffsets, count + 1), maxRetryCounts, descriptions);
+        if (logger.isDebugEnabled()) {
+            logger.debug("request batch. requests:{}, size:{}", count, requestPacket.length);
+        }
+        doBatchRequest(requestBatch, null);
+    }
+
+    private void resetRequestBatch() {
+        Arrays.fill(batchRequests, 0, batchCount, null);
+        this.batchCount = 0;
+        batchSerializer.reset();
+    }
+
+    // The response holds a result per entry. only the entries that failed are retried, each on its own.
+    // if the batch failed as a whole it is retried as one request.
+    private void doBatchRequest(final RequestBatch requestBatch, final RetryMessage retryMessage) {
+        FutureListener futureListener = (new FutureListener<ResponseMessage>() {
+            @Override
+            public void onComplete(Future<ResponseMessage> future) {
+                if (future.isSuccess()) {
+                    List<TBase<?, ?>> results = deserializeResponseList(future.getResult());
+                    if (results.isEmpty()) {
+                        logger.warn("Invalid response. request:{}", requestBatch);
+                        return;
+                    }
+                    final int[] failedEntries = requestBatch.getFailedEntries(results);
+                    if (failedEntries.length == 0) {
+                        logger.debug("result success");
+                    } else if (failedEntries.length == requestBatch.size()) {
+                        logger.info("batch request fail. request:{}", requestBatch);
+                        retryBatch();
+                    } else {
+                        logger.info("batch request fail. request:{} failed:{}", requestBatch, failedEntries.length);
+                        for (int index : failedEntries) {
+                            retryEntry(index);
+                        }
+                    }
+                } else {
+                    logger.info("batch request fail. request:{} Caused:{}", requestBatch, future.getCause().getMessage(), future.getCause());
+                    retryBatch();
+                }
+            }
+
+            // the batch gets the largest retry count of its entries
+            private void retryBatch() {
+                if (retryMessage == null) {
+                    retryRequest(new RetryMessage(1, requestBatch));
+                } else {
+                    retryRequest(retryMessage);
+                }
+            }
+
+            private void retryEntry(int index) {
+                final int retryCount = retryMessage == null ? 1 : retryMessage.getRetryCount();
+                final int maxRetryCount = requestBatch.getMaxRetryCount(index);
+                if (retryCount > maxRetryCount) {
+                    return;
+                }
+                retryRequest(new RetryMessage(retryCount, maxRetryCount, requestBatch.getEntry(index), requestBatch.getDescription(index)));
+            }
+        });
+
+        doRequest(requestBatch.getPacket(), futureListener);
+    }
+
+    // Serializes into a pooled direct buffer and hands it to netty as is.
+    // Returns false when no buffer is available or the message does not fit. the caller then falls back to byte[].
+    private boolean doSendDirect(TBase<?, ?> tBase) {
+        if (!client.isConnected()) {
+            // the write fails anyway. keeps failed futures from churning the pool while reconnecting.
+            return false;
+        }
+        final SendBufferPool.SendBuffer sendBuffer = sendBufferPool.acquire();
+        if (sendBuffer == null) {
+            return false;
+        }
+        final ByteBuffer byteBuffer = sendBuffer.getByteBuffer();
+        try {
+            final int size = bufferSerializer.serialize(tBase, byteBuffer);
+            executor.updateMessageSize(size);
+        } catch (BufferOverflowException e) {
+            sendBufferPool.release(sendBuffer);
+            return false;
+        } catch (TException e) {
+            sendBufferPool.release(sendBuffer);
+            return false;
+        }
+        byteBuffer.flip();
+
+        final Future write;
+        try {
+            write = this.client.sendAsync(byteBuffer);
+        } catch (RuntimeException e) {
+            sendBufferPool.release(sendBuffer);
+            throw e;
+        }
+        // the buffer is returned to the pool on write completion.
+        write.setListener(sendBuffer);
+        return true;
+    }
+
     private void doSend(byte[] copy) {
         Future write = this.client.sendAsync(copy);
         write.setListener(writeFailFutureListener);
@@ -148,9 +402,7 @@ public class TcpDataSender extends AbstractDataSender implements EnhancedDataSen
             @Override
             public void onComplete(Future<ResponseMessage> future) {
                 if (future.isSuccess()) {
-                    // Should cache?
-                    HeaderTBaseDeserializer deserializer = HeaderTBaseDeserializerFactory.DEFAULT_FACTORY.createDeserializer();
-                    TBase<?, ?> response = deserialize(deserializer, future.getResult());
+                    TBase<?, ?> response = deserializeResponse(future.getResult());
                     if (response instanceof TResult) {
                         TResult result = (TResult) response;
                         if (result.isSuccess()) {
@@ -179,13 +431,26 @@ public class TcpDataSender extends AbstractDataSender implements EnhancedDataSen
 
     // Separate doRequest method to avoid creating unnecessary objects. (Generally, sending message is successed when firt attempt.)
     private void doRequest(final RetryMessage retryMessage) {
+        final RequestBatch requestBatch = retryMessage.getRequestBatch();
+        if (requestBatch != null) {
+            if (client.isSupportRequestBatch()) {
+                doBatchRequest(requestBatch, retryMessage);
+            } else {
+                // reconnected to a collector without chunk requests
+                for (int i = 0; i < requestBatch.size(); i++) {
+                    final int maxRetryCount = requestBatch.getMaxRetryCount(i);
+                    if (retryMessage.getRetryCount() <= maxRetryCount) {
+                        doRequest(new RetryMessage(retryMessage.getRetryCount(), maxRetryCount, requestBatch.getEntry(i), requestBatch.getDescription(i)));
+                    }
+                }
+            }
+            return;
+        }
         FutureListener futureListener = (new FutureListener<ResponseMessage>() {
             @Override
             public void onComplete(Future<ResponseMessage> future) {
                 if (future.isSuccess()) {
-                    // Should cache?
-                    HeaderTBaseDeserializer deserializer = HeaderTBaseDeserializerFactory.DEFAULT_FACTORY.createDeserializer();
-                    TBase<?, ?> response = deserialize(deserializer, future.getResult());
+                    TBase<?, ?> response = deserializeResponse(future.getResult());
                     if (response instanceof TResult) {
                         TResult result = (TResult) response;
                         if (result.isSuccess()) {
@@ -210,43 +475,83 @@ public class TcpDataSender extends AbstractDataSender implements EnhancedDataSen
         doRequest(retryMessage.getBytes(), futureListener);
     }
 
+    private TBase<?, ?> deserializeResponse(ResponseMessage responseMessage) {
+        synchronized (responseDeserializer) {
+            return deserialize(responseDeserializer, responseMessage);
+        }
+    }
+
+    // a plain response gives a list of one
+    private List<TBase<?, ?>> deserializeResponseList(ResponseMessage responseMessage) {
+        try {
+            synchronized (responseDeserializer) {
+                return responseDeserializer.deserializeList(responseMessage.getMessage());
+            }
+        } catch (TException e) {
+            logger.warn("failed to deserialize response. Caused:{}", e.getMessage(), e);
+            return Collections.emptyList();
+        }
+    }
+
     private void retryRequest(RetryMessage retryMessage) {
-        retryQueue.add(retryMessage);
-        if (fireTimeout()) {
-            timer.newTimeout(new TimerTask() {
-                @Override
-                public void run(Timeout timeout) throws Exception {
-                    while(true) {
-                        RetryMessage retryMessage = retryQueue.get();
-                        if (retryMessage == null) {
-                            // Maybe concurrency issue. But ignore it because it's unlikely.
-                            fireComplete();
-                            return;
-                        }
-                        int fail = retryMessage.fail();
-                        doRequest(retryMessage);
-                    }
-                }
-            }, 1000 * 10, TimeUnit.MILLISECONDS);
+        if (retryQueue.add(retryMessage)) {
+            scheduleRetry();
         }
     }
 
-    private void doRequest(final byte[] requestPacket, FutureListener futureListener) {
-        final Future<ResponseMessage> response = this.client.request(requestPacket);
-        response.setListener(futureListener);
+    // one timer task for the earliest retry. the task schedules the next one.
+    private void scheduleRetry() {
+        final long nextRetryTime = retryQueue.getNextRetryTime();
+        if (nextRetryTime == RetryQueue.NO_RETRY) {
+            return;
+        }
+        synchronized (retryLock) {
+            if (scheduledRetryTime != RetryQueue.NO_RETRY && scheduledRetryTime <= nextRetryTime) {
+                return;
+            }
+            // an earlier retry replaces the pending task
+            if (retryTimeout != null) {
+                retryTimeout.cancel();
+            }
+            scheduledRetryTime = nextRetryTime;
+            final long delay = Math.max(nextRetryTime - System.currentTimeMillis(), 0);
+            retryTimeout = timer.newTimeout(retryTask, delay, TimeUnit.MILLISECONDS);
+        }
     }
 
-    private boolean fireTimeout() {
-        if (fireState.compareAndSet(false, true)) {
-            return true;
-        } else {
-            return false;
+    private class RetryTask implements TimerTask {
+        @Override
+        public void run(Timeout timeout) throws Exception {
+            synchronized (retryLock) {
+                if (timeout != retryTimeout) {
+                    // replaced while it was about to run
+                    return;
+                }
+                if (!client.isConnected()) {
+                    // the request would fail right away and use up a retry. check again later.
+                    scheduledRetryTime = System.currentTimeMillis() + RECONNECT_CHECK_DELAY;
+                    retryTimeout = timer.newTimeout(this, RECONNECT_CHECK_DELAY, TimeUnit.MILLISECONDS);
+                    return;
+                }
+                retryTimeout = null;
+                scheduledRetryTime = RetryQueue.NO_RETRY;
+            }
+            final long currentTime = System.currentTimeMillis();
+            while (true) {
+                RetryMessage retryMessage = retryQueue.poll(currentTime);
+                if (retryMessage == null) {
+                    break;
+                }
+                retryMessage.fail();
+                doRequest(retryMessage);
+            }
+            scheduleRetry();
         }
     }
 
-    private void fireComplete() {
-        logger.debug("fireComplete");
-        fireState.compareAndSet(true, false);
+    private void doRequest(final byte[] requestPacket, FutureListener futureListener) {
+        final Future<ResponseMessage> response = this.client.request(requestPacket);
+        response.setListener(futureListener);
     }
 
 }
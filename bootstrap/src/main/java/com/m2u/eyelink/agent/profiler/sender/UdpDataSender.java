@@ -5,11 +5,15 @@ import java.net.DatagramPacket;
 import java.net.DatagramSocket;
 import java.net.InetSocketAddress;
 import java.net.SocketException;
+import java.util.Collection;
 
 import org.apache.thrift.TBase;
+import org.apache.thrift.TException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.m2u.eyelink.context.thrift.BufferOverflowException;
+import com.m2u.eyelink.context.thrift.Header;
 import com.m2u.eyelink.context.thrift.HeaderTBaseSerializer;
 import com.m2u.eyelink.context.thrift.HeaderTBaseSerializerFactory;
 import com.m2u.eyelink.sender.DataSender;
@@ -22,6 +26,7 @@ public class UdpDataSender extends AbstractDataSender implements DataSender {
     public static final int SOCKET_TIMEOUT = 1000 * 5;
     public static final int SEND_BUFFER_SIZE = 1024 * 64 * 16;
     public static final int UDP_MAX_PACKET_LENGTH = 65507;
+    public static final int NO_PACKING = 0;
 
     // Caution. not thread safe
     protected final DatagramPacket reusePacket = new DatagramPacket(new byte[1], 1);
@@ -33,11 +38,39 @@ public class UdpDataSender extends AbstractDataSender implements DataSender {
 
     private final AsyncQueueingExecutor<Object> executor;
 
+    // packing. max length of a packed datagram, NO_PACKING if disabled.
+    private final int packingLength;
+    // number of messages in the datagram being packed. single thread only.
+    private int packedCount = 0;
+    private byte[] packBuffer;
+
+    // null if spilling is disabled
+    private final DiskSpill diskSpill;
+
     public UdpDataSender(String host, int port, String threadName, int queueSize) {
         this(host, port, threadName, queueSize, SOCKET_TIMEOUT, SEND_BUFFER_SIZE);
     }
 
     public UdpDataSender(String host, int port, String threadName, int queueSize, int timeout, int sendBufferSize) {
+        this(host, port, threadName, queueSize, timeout, sendBufferSize, AsyncQueueingExecutorFactory.DEFAULT_FACTORY);
+    }
+
+    public UdpDataSender(String host, int port, String threadName, int queueSize, int timeout, int sendBufferSize, AsyncQueueingExecutorFactory executorFactory) {
+        this(host, port, threadName, queueSize, timeout, sendBufferSize, executorFactory, NO_PACKING);
+    }
+
+    /**
+     * @param packingLength when greater than 0, messages handed over in one batch are packed into datagrams of up to this length.
+     *                      A packed datagram starts with the chunk header followed by header + message pairs.
+     */
+    public UdpDataSender(String host, int port, String threadName, int queueSize, int timeout, int sendBufferSize, AsyncQueueingExecutorFactory executorFactory, int packingLength) {
+        this(host, port, threadName, queueSize, timeout, sendBufferSize, executorFactory, packingLength, null);
+    }
+
+    /**
+     * @param diskSpill when not null, datagrams are kept on disk while the collector is down and replayed afterwards.
+     */
+    public UdpDataSender(String host, int port, String threadName, int queueSize, int timeout, int sendBufferSize, AsyncQueueingExecutorFactory executorFactory, int packingLength, DiskSpill diskSpill) {
         if (host == null ) {
             throw new NullPointerException("host must not be null");
         }
@@ -53,12 +86,27 @@ public class UdpDataSender extends AbstractDataSender implements DataSender {
         if (sendBufferSize <= 0) {
             throw new IllegalArgumentException("sendBufferSize");
         }
+        if (executorFactory == null) {
+            throw new NullPointerException("executorFactory must not be null");
+        }
+        if (packingLength < 0 || packingLength > UDP_MAX_PACKET_LENGTH) {
+            throw new IllegalArgumentException("packingLength:" + packingLength);
+        }
+        if (packingLength != NO_PACKING && packingLength <= Header.HEADER_SIZE) {
+            throw new IllegalArgumentException("packingLength:" + packingLength + " too small");
+        }
+        this.packingLength = packingLength;
 
         // TODO If fail to create socket, stop agent start
-        logger.info("UdpDataSender initialized. host={}, port={}", host, port);
+        logger.info("UdpDataSender initialized. host={}, port={}, packingLength={}", host, port, packingLength);
         this.udpSocket = createSocket(host, port, timeout, sendBufferSize);
 
-        this.executor = createAsyncQueueingExecutor(queueSize, threadName);
+        this.executor = createAsyncQueueingExecutor(executorFactory, queueSize, threadName);
+
+        this.diskSpill = diskSpill;
+        if (diskSpill != null) {
+            diskSpill.start(executor, udpSocket, threadName + "-SpillReplayer");
+        }
     }
 
     @Override
@@ -69,6 +117,9 @@ public class UdpDataSender extends AbstractDataSender implements DataSender {
     @Override
     public void stop() {
         executor.stop();
+        if (diskSpill != null) {
+            diskSpill.stop();
+        }
     }
 
     private DatagramSocket createSocket(String host, int port, int timeout, int sendBufferSize) {
@@ -103,26 +154,136 @@ public class UdpDataSender extends AbstractDataSender implements DataSender {
             }
 
             final int internalBufferSize = this.serializer.getInterBufferSize();
+            executor.updateMessageSize(internalBufferSize);
             if (isLimit(internalBufferSize)) {
                 // When packet size is greater than UDP packet size limit, it's better to discard packet than let the socket API fails.
                 logger.warn("discard packet. Caused:too large message. size:{}, {}", internalBufferSize, dto);
                 return;
             }
-            // it's safe to reuse because it's single threaded
-            reusePacket.setData(internalBufferData, 0, internalBufferSize);
+            send(internalBufferData, 0, internalBufferSize, dto);
+        } else {
+            logger.warn("sendPacket fail. invalid type:{}", message != null ? message.getClass() : null);
+            return;
+        }
+    }
 
+    @Override
+    protected void sendPacketN(Collection<Object> messageList) {
+        if (packingLength == NO_PACKING || messageList.size() <= 1) {
+            super.sendPacketN(messageList);
+            return;
+        }
+        // Cannot use toArray(T[] array) because passed messageList doesn't implement it properly.
+        final Object[] dataList = messageList.toArray();
+        final int size = messageList.size();
+        for (int i = 0; i < size; i++) {
+            final Object message = dataList[i];
+            if (!(message instanceof TBase)) {
+                logger.warn("sendPacket fail. invalid type:{}", message != null ? message.getClass() : null);
+                continue;
+            }
             try {
-                udpSocket.send(reusePacket);
-                if (isDebug) {
-                    logger.debug("Data sent. size:{}, {}", internalBufferSize, dto);
-                }
-            } catch (IOException e) {
-                logger.info("packet send error. size:{}, {}", internalBufferSize, dto, e);
+                appendPacket((TBase) message);
+            } catch (Throwable th) {
+                logger.warn("Unexpected Error. Cause:{}", th.getMessage(), th);
+                resetPacking();
             }
+        }
+        try {
+            flushPacking();
+        } catch (Throwable th) {
+            logger.warn("Unexpected Error. Cause:{}", th.getMessage(), th);
+            resetPacking();
+        }
+    }
+
+    private void appendPacket(TBase dto) throws TException {
+        if (packedCount == 0) {
+            serializer.beginChunk();
+        }
+        final int mark = serializer.getInterBufferSize();
+        try {
+            this.packBuffer = serializer.continueSerialize(dto);
+        } catch (BufferOverflowException e) {
+            serializer.reset(mark);
+            if (packedCount > 0) {
+                // does not fit behind the packed messages. start a new datagram.
+                flushPacking();
+                appendPacket(dto);
+            } else {
+                logger.warn("discard packet. Caused:too large message. {}", dto);
+            }
+            return;
+        }
+        final int messageSize = serializer.getInterBufferSize() - mark;
+        executor.updateMessageSize(messageSize);
+
+        if (mark + messageSize <= packingLength) {
+            packedCount++;
+            return;
+        }
+        if (packedCount > 0) {
+            // send what is packed so far, then move this message right behind the chunk header.
+            sendPacked(mark, packedCount);
+            System.arraycopy(packBuffer, mark, packBuffer, Header.HEADER_SIZE, messageSize);
+            serializer.reset(Header.HEADER_SIZE + messageSize);
+            if (Header.HEADER_SIZE + messageSize <= packingLength) {
+                packedCount = 1;
+                return;
+            }
+        }
+        // a single message larger than packingLength is still sent as a plain datagram.
+        packedCount = 0;
+        if (isLimit(messageSize)) {
+            logger.warn("discard packet. Caused:too large message. size:{}, {}", messageSize, dto);
+            return;
+        }
+        send(packBuffer, Header.HEADER_SIZE, messageSize, dto);
+    }
+
+    private void flushPacking() {
+        final int count = this.packedCount;
+        if (count == 0) {
+            return;
+        }
+        this.packedCount = 0;
+        sendPacked(serializer.getInterBufferSize(), count);
+    }
+
+    private void sendPacked(int packetSize, int count) {
+        if (isDebug) {
+            logger.debug("send packed datagram. messages:{}", count);
+        }
+        if (count == 1) {
+            // no need for the chunk header
+            send(packBuffer, Header.HEADER_SIZE, packetSize - Header.HEADER_SIZE, null);
         } else {
-            logger.warn("sendPacket fail. invalid type:{}", message != null ? message.getClass() : null);
+            send(packBuffer, 0, packetSize, null);
+        }
+    }
+
+    private void resetPacking() {
+        this.packedCount = 0;
+        serializer.reset();
+    }
+
+    private void send(byte[] buffer, int offset, int length, Object dto) {
+        if (diskSpill != null && diskSpill.spill(buffer, offset, length)) {
+            if (isDebug) {
+                logger.debug("Data spilled. size:{}, {}", length, dto);
+            }
             return;
         }
+        // it's safe to reuse because it's single threaded
+        reusePacket.setData(buffer, offset, length);
+        try {
+            udpSocket.send(reusePacket);
+            if (isDebug) {
+                logger.debug("Data sent. size:{}, {}", length, dto);
+            }
+        } catch (IOException e) {
+            logger.info("packet send error. size:{}, {}", length, dto, e);
+        }
     }
 
     // for test
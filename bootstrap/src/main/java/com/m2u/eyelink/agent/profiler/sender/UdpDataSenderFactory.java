@@ -12,14 +12,36 @@ public final class UdpDataSenderFactory {
   private final int queueSize;
   private final int timeout;
   private final int sendBufferSize;
+  private final AsyncQueueingExecutorFactory executorFactory;
+  private final int packingLength;
+  // null if spilling is disabled
+  private final DiskSpill diskSpill;
 
   public UdpDataSenderFactory(String host, int port, String threadName, int queueSize, int timeout, int sendBufferSize) {
+      this(host, port, threadName, queueSize, timeout, sendBufferSize, AsyncQueueingExecutorFactory.DEFAULT_FACTORY);
+  }
+
+  public UdpDataSenderFactory(String host, int port, String threadName, int queueSize, int timeout, int sendBufferSize, AsyncQueueingExecutorFactory executorFactory) {
+      this(host, port, threadName, queueSize, timeout, sendBufferSize, executorFactory, UdpDataSender.NO_PACKING);
+  }
+
+  public UdpDataSenderFactory(String host, int port, String threadName, int queueSize, int timeout, int sendBufferSize, AsyncQueueingExecutorFactory executorFactory, int packingLength) {
+      this(host, port, threadName, queueSize, timeout, sendBufferSize, executorFactory, packingLength, null);
+  }
+
+  public UdpDataSenderFactory(String host, int port, String threadName, int queueSize, int timeout, int sendBufferSize, AsyncQueueingExecutorFactory executorFactory, int packingLength, DiskSpill diskSpill) {
+      if (executorFactory == null) {
+          throw new NullPointerException("executorFactory must not be null");
+      }
       this.host = host;
       this.port = port;
       this.threadName = threadName;
       this.queueSize = queueSize;
       this.timeout = timeout;
       this.sendBufferSize = sendBufferSize;
+      this.executorFactory = executorFactory;
+      this.packingLength = packingLength;
+      this.diskSpill = diskSpill;
   }
 
   public DataSender create(String typeName) {
@@ -28,9 +50,15 @@ public final class UdpDataSenderFactory {
 
   public DataSender create(UdpDataSenderType type) {
       if (type == UdpDataSenderType.NIO) {
-          return new NioUDPDataSender(host, port, threadName, queueSize, timeout, sendBufferSize);
+          if (diskSpill != null) {
+              throw new IllegalArgumentException("disk spill is not supported by " + type);
+          }
+          if (packingLength != UdpDataSender.NO_PACKING) {
+              throw new IllegalArgumentException("packing is not supported by " + type);
+          }
+          return new NioUDPDataSender(host, port, threadName, queueSize, timeout, sendBufferSize, executorFactory);
       } else if (type == UdpDataSenderType.OIO) {
-          return new UdpDataSender(host, port, threadName, queueSize, timeout, sendBufferSize);
+          return new UdpDataSender(host, port, threadName, queueSize, timeout, sendBufferSize, executorFactory, packingLength, diskSpill);
       } else {
           throw new IllegalArgumentException("Unknown type.");
       }
@@ -0,0 +1,26 @@
+package com.m2u.eyelink.agent.profiler.sender.queue;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded queue between the application threads and the single sender thread of an AsyncQueueingExecutor.
+ * offer() may be called from any thread. poll() and drainTo() must only be called by the consumer thread.
+ */
+public interface AsyncQueue<T> {
+
+    /**
+     * @return false if the queue is full. The element is dropped in that case.
+     */
+    boolean offer(T element);
+
+    T poll(long timeout, TimeUnit unit) throws InterruptedException;
+
+    int drainTo(Collection<? super T> drain, int maxElements);
+
+    int size();
+
+    boolean isEmpty();
+
+    int capacity();
+}
@@ -0,0 +1,75 @@
+package com.m2u.eyelink.agent.profiler.sender.queue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class AsyncQueueFactory {
+    private static final Logger logger = LoggerFactory.getLogger(AsyncQueueFactory.class);
+
+    public static final AsyncQueueFactory DEFAULT_FACTORY = new AsyncQueueFactory(AsyncQueueType.LINKED, WaitStrategyType.BLOCKING);
+
+    private final AsyncQueueType queueType;
+    private final WaitStrategyType waitStrategyType;
+
+    public AsyncQueueFactory(String queueTypeName, String waitStrategyTypeName) {
+        this(getQueueType(queueTypeName), getWaitStrategyType(waitStrategyTypeName));
+    }
+
+    public AsyncQueueFactory(AsyncQueueType queueType, WaitStrategyType waitStrategyType) {
+        if (queueType == null) {
+            throw new NullPointerException("queueType must not be null");
+        }
+        if (waitStrategyType == null) {
+            throw new NullPointerException("waitStrategyType must not be null");
+        }
+        this.queueType = queueType;
+        this.waitStrategyType = waitStrategyType;
+    }
+
+    static AsyncQueueType getQueueType(String queueTypeName) {
+        if (queueTypeName == null) {
+            return AsyncQueueType.LINKED;
+        }
+        try {
+            return AsyncQueueType.valueOf(queueTypeName.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            logger.warn("Unknown queue type:{}. use {}", queueTypeName, AsyncQueueType.LINKED);
+            return AsyncQueueType.LINKED;
+        }
+    }
+
+    static WaitStrategyType getWaitStrategyType(String waitStrategyTypeName) {
+        if (waitStrategyTypeName == null) {
+            return WaitStrategyType.BLOCKING;
+        }
+        try {
+            return WaitStrategyType.valueOf(waitStrategyTypeName.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            logger.warn("Unknown wait strategy type:{}. use {}", waitStrategyTypeName, WaitStrategyType.BLOCKING);
+            return WaitStrategyType.BLOCKING;
+        }
+    }
+
+    public <T> AsyncQueue<T> createQueue(int capacity) {
+        if (queueType == AsyncQueueType.RING_BUFFER) {
+            return new RingBufferAsyncQueue<T>(capacity, waitStrategyType.createWaitStrategy());
+        } else if (queueType == AsyncQueueType.LINKED) {
+            return new LinkedAsyncQueue<T>(capacity);
+        } else {
+            throw new IllegalArgumentException("Unknown type.");
+        }
+    }
+
+    public AsyncQueueType getQueueType() {
+        return queueType;
+    }
+
+    public WaitStrategyType getWaitStrategyType() {
+        return waitStrategyType;
+    }
+
+    @Override
+    public String toString() {
+        return "AsyncQueueFactory{queueType=" + queueType + ", waitStrategyType=" + waitStrategyType + '}';
+    }
+}
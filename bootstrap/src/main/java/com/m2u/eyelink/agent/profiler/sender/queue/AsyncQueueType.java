@@ -0,0 +1,6 @@
+package com.m2u.eyelink.agent.profiler.sender.queue;
+
+public enum AsyncQueueType {
+    LINKED,
+    RING_BUFFER
+}
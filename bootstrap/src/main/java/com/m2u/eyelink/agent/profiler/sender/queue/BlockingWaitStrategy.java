@@ -0,0 +1,37 @@
+package com.m2u.eyelink.agent.profiler.sender.queue;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Parks the consumer until a producer publishes. Producers only pay a volatile read unless the consumer is parked.
+ */
+public class BlockingWaitStrategy implements WaitStrategy {
+
+    private volatile Thread waiter;
+
+    @Override
+    public void idle(AsyncQueue<?> queue, int idleCount, long remainingNanos) {
+        this.waiter = Thread.currentThread();
+        try {
+            // re-check after announcing the waiter, otherwise a concurrent signal() could be missed.
+            if (queue.isEmpty()) {
+                LockSupport.parkNanos(this, remainingNanos);
+            }
+        } finally {
+            this.waiter = null;
+        }
+    }
+
+    @Override
+    public void signal() {
+        final Thread waiter = this.waiter;
+        if (waiter != null) {
+            LockSupport.unpark(waiter);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "BlockingWaitStrategy";
+    }
+}
@@ -0,0 +1,20 @@
+package com.m2u.eyelink.agent.profiler.sender.queue;
+
+/**
+ * Never gives up the CPU. Only for hosts with a core to spare for the sender thread.
+ */
+public class BusySpinWaitStrategy implements WaitStrategy {
+
+    @Override
+    public void idle(AsyncQueue<?> queue, int idleCount, long remainingNanos) {
+    }
+
+    @Override
+    public void signal() {
+    }
+
+    @Override
+    public String toString() {
+        return "BusySpinWaitStrategy";
+    }
+}
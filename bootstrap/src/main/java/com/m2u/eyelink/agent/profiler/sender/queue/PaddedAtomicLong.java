@@ -0,0 +1,23 @@
+package com.m2u.eyelink.agent.profiler.sender.queue;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * AtomicLong padded to a full cache line so that producer and consumer sequences do not false share.
+ */
+class PaddedAtomicLong extends AtomicLong {
+
+    public volatile long p1, p2, p3, p4, p5, p6 = 7L;
+
+    PaddedAtomicLong() {
+    }
+
+    PaddedAtomicLong(long initialValue) {
+        super(initialValue);
+    }
+
+    // prevents the JIT from eliminating the padding fields.
+    long sumPaddingToPreventOptimisation() {
+        return p1 + p2 + p3 + p4 + p5 + p6;
+    }
+}
@@ -0,0 +1,197 @@
+package com.m2u.eyelink.agent.profiler.sender.queue;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Preallocated multi-producer / single-consumer ring buffer.
+ * Producers claim a slot with one CAS on the producer sequence and publish the element with an ordered store.
+ * The consumer claims whole batches and advances the consumer sequence once per batch.
+ * offer() never allocates and never takes a lock.
+ */
+public class RingBufferAsyncQueue<T> implements AsyncQueue<T> {
+
+    private static final int MAX_PUBLISH_SPIN = 1000;
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<T> buffer;
+
+    // next sequence to be claimed by a producer
+    private final PaddedAtomicLong producerSequence = new PaddedAtomicLong();
+    // next sequence to be read by the consumer
+    private final PaddedAtomicLong consumerSequence = new PaddedAtomicLong();
+    // producer side snapshot of consumerSequence. keeps producers off the consumer's cache line while there is room.
+    private final PaddedAtomicLong consumerSequenceCache = new PaddedAtomicLong();
+
+    private final WaitStrategy waitStrategy;
+
+    public RingBufferAsyncQueue(int capacity) {
+        this(capacity, new BlockingWaitStrategy());
+    }
+
+    public RingBufferAsyncQueue(int capacity, WaitStrategy waitStrategy) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity");
+        }
+        if (waitStrategy == null) {
+            throw new NullPointerException("waitStrategy must not be null");
+        }
+        // the array is rounded up to a power of 2 for masking, but the bound stays exactly the requested capacity.
+        final int bufferSize = roundToPowerOfTwo(capacity);
+        this.capacity = capacity;
+        this.mask = bufferSize - 1;
+        this.buffer = new AtomicReferenceArray<T>(bufferSize);
+        this.waitStrategy = waitStrategy;
+    }
+
+    static int roundToPowerOfTwo(int value) {
+        if (value > (1 << 30)) {
+            throw new IllegalArgumentException("capacity too large:" + value);
+        }
+        int size = 1;
+        while (size < value) {
+            size <<= 1;
+        }
+        return size;
+    }
+
+    @Override
+    public boolean offer(T element) {
+        if (element == null) {
+            throw new NullPointerException("element must not be null");
+        }
+        long limit = consumerSequenceCache.get() + capacity;
+        long sequence;
+        do {
+            sequence = producerSequence.get();
+            if (sequence >= limit) {
+                final long consumed = consumerSequence.get();
+                limit = consumed + capacity;
+                if (sequence >= limit) {
+                    // full
+                    return false;
+                }
+                consumerSequenceCache.lazySet(consumed);
+            }
+        } while (!producerSequence.compareAndSet(sequence, sequence + 1));
+
+        buffer.lazySet(index(sequence), element);
+        waitStrategy.signal();
+        return true;
+    }
+
+    @Override
+    public T poll(long timeout, TimeUnit unit) throws InterruptedException {
+        T element = poll();
+        if (element != null) {
+            return element;
+        }
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        int idleCount = 0;
+        while (true) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            final long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return null;
+            }
+            waitStrategy.idle(this, idleCount++, remaining);
+            element = poll();
+            if (element != null) {
+                return element;
+            }
+        }
+    }
+
+    private T poll() {
+        final long sequence = consumerSequence.get();
+        final int index = index(sequence);
+        T element = buffer.get(index);
+        if (element == null) {
+            if (sequence == producerSequence.get()) {
+                return null;
+            }
+            // slot claimed but not yet published
+            element = waitForPublish(index);
+            if (element == null) {
+                return null;
+            }
+        }
+        buffer.lazySet(index, null);
+        consumerSequence.lazySet(sequence + 1);
+        return element;
+    }
+
+    private T waitForPublish(int index) {
+        for (int i = 0; i < MAX_PUBLISH_SPIN; i++) {
+            final T element = buffer.get(index);
+            if (element != null) {
+                return element;
+            }
+            Thread.yield();
+        }
+        // producer was descheduled between claim and publish. retry on the next poll.
+        return null;
+    }
+
+    @Override
+    public int drainTo(Collection<? super T> drain, int maxElements) {
+        if (drain == null) {
+            throw new NullPointerException("drain must not be null");
+        }
+        final long sequence = consumerSequence.get();
+        final long claimed = producerSequence.get() - sequence;
+        final int limit = (int) Math.min(claimed, maxElements);
+
+        int drained = 0;
+        while (drained < limit) {
+            final int index = index(sequence + drained);
+            final T element = buffer.get(index);
+            if (element == null) {
+                // stop at the first unpublished slot to keep ordering. the rest is picked up next round.
+                break;
+            }
+            buffer.lazySet(index, null);
+            drain.add(element);
+            drained++;
+        }
+        if (drained > 0) {
+            consumerSequence.lazySet(sequence + drained);
+        }
+        return drained;
+    }
+
+    @Override
+    public int size() {
+        // read the consumer first so that the result is never negative.
+        final long consumed = consumerSequence.get();
+        final long produced = producerSequence.get();
+        final long size = produced - consumed;
+        if (size > capacity) {
+            return capacity;
+        }
+        return (int) size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return producerSequence.get() == consumerSequence.get();
+    }
+
+    @Override
+    public int capacity() {
+        return capacity;
+    }
+
+    private int index(long sequence) {
+        return (int) sequence & mask;
+    }
+
+    @Override
+    public String toString() {
+        return "RingBufferAsyncQueue{capacity=" + capacity + ", waitStrategy=" + waitStrategy + '}';
+    }
+}
@@ -0,0 +1,47 @@
+package com.m2u.eyelink.agent.profiler.sender.queue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Spins, then yields, then sleeps for a short period. Producers never signal.
+ */
+public class SleepingWaitStrategy implements WaitStrategy {
+
+    private static final int SPIN_TRIES = 100;
+    private static final int YIELD_TRIES = 200;
+
+    private final long sleepNanos;
+
+    public SleepingWaitStrategy() {
+        this(TimeUnit.MICROSECONDS.toNanos(100));
+    }
+
+    public SleepingWaitStrategy(long sleepNanos) {
+        if (sleepNanos <= 0) {
+            throw new IllegalArgumentException("sleepNanos");
+        }
+        this.sleepNanos = sleepNanos;
+    }
+
+    @Override
+    public void idle(AsyncQueue<?> queue, int idleCount, long remainingNanos) {
+        if (idleCount < SPIN_TRIES) {
+            return;
+        }
+        if (idleCount < YIELD_TRIES) {
+            Thread.yield();
+            return;
+        }
+        LockSupport.parkNanos(Math.min(sleepNanos, remainingNanos));
+    }
+
+    @Override
+    public void signal() {
+    }
+
+    @Override
+    public String toString() {
+        return "SleepingWaitStrategy{sleepNanos=" + sleepNanos + '}';
+    }
+}
@@ -0,0 +1,21 @@
+package com.m2u.eyelink.agent.profiler.sender.queue;
+
+/**
+ * Decides how the consumer of a RingBufferAsyncQueue waits while the queue is empty.
+ */
+public interface WaitStrategy {
+
+    /**
+     * Called by the consumer thread only.
+     *
+     * @param queue queue being waited on. Implementations that park must re-check {@code queue.isEmpty()} after announcing themselves.
+     * @param idleCount number of consecutive empty polls
+     * @param remainingNanos time left before the poll gives up
+     */
+    void idle(AsyncQueue<?> queue, int idleCount, long remainingNanos);
+
+    /**
+     * Called by producers after an element has been published.
+     */
+    void signal();
+}
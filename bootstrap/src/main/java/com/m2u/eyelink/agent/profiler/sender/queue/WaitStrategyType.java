@@ -0,0 +1,30 @@
+package com.m2u.eyelink.agent.profiler.sender.queue;
+
+public enum WaitStrategyType {
+    BLOCKING {
+        @Override
+        public WaitStrategy createWaitStrategy() {
+            return new BlockingWaitStrategy();
+        }
+    },
+    SLEEPING {
+        @Override
+        public WaitStrategy createWaitStrategy() {
+            return new SleepingWaitStrategy();
+        }
+    },
+    YIELDING {
+        @Override
+        public WaitStrategy createWaitStrategy() {
+            return new YieldingWaitStrategy();
+        }
+    },
+    BUSY_SPIN {
+        @Override
+        public WaitStrategy createWaitStrategy() {
+            return new BusySpinWaitStrategy();
+        }
+    };
+
+    public abstract WaitStrategy createWaitStrategy();
+}
@@ -0,0 +1,25 @@
+package com.m2u.eyelink.agent.profiler.sender.queue;
+
+/**
+ * Spins for a while and then yields. Lowest latency short of busy spinning, but keeps a core busy while idle.
+ */
+public class YieldingWaitStrategy implements WaitStrategy {
+
+    private static final int SPIN_TRIES = 100;
+
+    @Override
+    public void idle(AsyncQueue<?> queue, int idleCount, long remainingNanos) {
+        if (idleCount >= SPIN_TRIES) {
+            Thread.yield();
+        }
+    }
+
+    @Override
+    public void signal() {
+    }
+
+    @Override
+    public String toString() {
+        return "YieldingWaitStrategy";
+    }
+}
@@ -0,0 +1,10 @@
+package com.m2u.eyelink.agent.profiler.sender.spill;
+
+/**
+ * Tells whether the collector is currently reachable.
+ */
+public interface ConnectionMonitor {
+
+    boolean isConnected();
+
+}
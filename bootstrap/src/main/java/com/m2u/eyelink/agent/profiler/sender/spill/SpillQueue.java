@@ -0,0 +1,226 @@
+package com.m2u.eyelink.agent.profiler.sender.spill;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * FIFO of serialized packets kept in rotating memory-mapped segment files.
+ * Disk usage is bounded by maxBytes. Once every segment is full, new packets are dropped and the older ones kept for replay.
+ * Segments left over from a previous run are picked up again on construction.
+ */
+public class SpillQueue {
+
+    private static final Logger logger = LoggerFactory.getLogger(SpillQueue.class);
+
+    static final String SEGMENT_PREFIX = "spill-";
+    static final String SEGMENT_SUFFIX = ".seg";
+
+    private final File directory;
+    private final int segmentSize;
+    private final int maxSegments;
+
+    // head is replayed, tail is appended to
+    private final Deque<SpillSegment> segments = new ArrayDeque<SpillSegment>();
+    private long nextSequence = 0;
+
+    private final AtomicLong spilledBytes = new AtomicLong();
+    private final AtomicLong replayedBytes = new AtomicLong();
+    private final AtomicLong droppedBytes = new AtomicLong();
+
+    public SpillQueue(File directory, int segmentSize, long maxBytes) throws IOException {
+        if (directory == null) {
+            throw new NullPointerException("directory must not be null");
+        }
+        if (segmentSize <= SpillSegment.HEADER_SIZE + SpillSegment.RECORD_HEADER_SIZE) {
+            throw new IllegalArgumentException("segmentSize");
+        }
+        if (maxBytes < segmentSize) {
+            throw new IllegalArgumentException("maxBytes");
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("spill directory create fail. " + directory);
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxSegments = (int) Math.min(maxBytes / segmentSize, Integer.MAX_VALUE);
+        recover();
+    }
+
+    private void recover() {
+        final File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        final long[] sequences = new long[files.length];
+        int count = 0;
+        for (File file : files) {
+            final long sequence = parseSequence(file.getName());
+            if (sequence >= 0) {
+                sequences[count++] = sequence;
+            }
+        }
+        Arrays.sort(sequences, 0, count);
+        for (int i = 0; i < count; i++) {
+            final File file = segmentFile(sequences[i]);
+            // keep the newest ones if the limit was lowered since
+            if (count - i > maxSegments) {
+                logger.warn("delete spill segment over the limit. file:{}", file);
+                file.delete();
+                continue;
+            }
+            try {
+                final SpillSegment segment = SpillSegment.open(file, sequences[i]);
+                if (segment.isDrained() && !segments.isEmpty()) {
+                    segment.delete();
+                    continue;
+                }
+                segments.addLast(segment);
+                logger.info("spill segment recovered. {}", segment);
+            } catch (IOException e) {
+                logger.warn("delete unreadable spill segment. Caused:{}", e.getMessage());
+                file.delete();
+            }
+        }
+        if (count > 0) {
+            this.nextSequence = sequences[count - 1] + 1;
+        }
+    }
+
+    static long parseSequence(String fileName) {
+        if (!fileName.startsWith(SEGMENT_PREFIX) || !fileName.endsWith(SEGMENT_SUFFIX)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(fileName.substring(SEGMENT_PREFIX.length(), fileName.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private File segmentFile(long sequence) {
+        return new File(directory, SEGMENT_PREFIX + sequence + SEGMENT_SUFFIX);
+    }
+
+    /**
+     * @return false if the packet was dropped because the disk budget is used up or it is larger than a segment
+     */
+    public synchronized boolean append(byte[] data, int offset, int length) {
+        if (data == null) {
+            throw new NullPointerException("data must not be null");
+        }
+        if (length <= 0 || length > SpillSegment.maxRecordLength(segmentSize)) {
+            droppedBytes.addAndGet(length);
+            return false;
+        }
+        SpillSegment tail = segments.peekLast();
+        if (tail == null || !tail.append(data, offset, length)) {
+            tail = rollSegment();
+            if (tail == null || !tail.append(data, offset, length)) {
+                droppedBytes.addAndGet(length);
+                return false;
+            }
+        }
+        spilledBytes.addAndGet(length);
+        return true;
+    }
+
+    private SpillSegment rollSegment() {
+        if (segments.size() >= maxSegments) {
+            return null;
+        }
+        final long sequence = nextSequence++;
+        try {
+            final SpillSegment segment = SpillSegment.create(segmentFile(sequence), sequence, segmentSize);
+            segments.addLast(segment);
+            return segment;
+        } catch (IOException e) {
+            logger.warn("spill segment create fail. Caused:{}", e.getMessage(), e);
+            return null;
+        }
+    }
+
+    /**
+     * @return the oldest spilled packet, null if there is none
+     */
+    public synchronized byte[] poll() {
+        while (true) {
+            final SpillSegment head = segments.peekFirst();
+            if (head == null) {
+                return null;
+            }
+            final byte[] data = head.poll();
+            if (data != null) {
+                replayedBytes.addAndGet(data.length);
+                return data;
+            }
+            if (segments.size() == 1) {
+                head.reset();
+                return null;
+            }
+            segments.pollFirst();
+            head.delete();
+        }
+    }
+
+    public synchronized boolean isEmpty() {
+        for (SpillSegment segment : segments) {
+            if (!segment.isDrained()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public synchronized long getPendingBytes() {
+        long pending = 0;
+        for (SpillSegment segment : segments) {
+            pending += segment.getPendingBytes();
+        }
+        return pending;
+    }
+
+    public synchronized long getDiskUsage() {
+        return (long) segments.size() * segmentSize;
+    }
+
+    public long getSpilledBytes() {
+        return spilledBytes.get();
+    }
+
+    public long getReplayedBytes() {
+        return replayedBytes.get();
+    }
+
+    public long getDroppedBytes() {
+        return droppedBytes.get();
+    }
+
+    /**
+     * Flushes and closes the segments. Pending packets stay on disk and are replayed by the next run.
+     */
+    public synchronized void close() {
+        for (SpillSegment segment : segments) {
+            segment.close();
+        }
+        segments.clear();
+    }
+
+    @Override
+    public String toString() {
+        return "SpillQueue{" +
+                "directory=" + directory +
+                ", segmentSize=" + segmentSize +
+                ", maxSegments=" + maxSegments +
+                ", spilledBytes=" + spilledBytes +
+                ", replayedBytes=" + replayedBytes +
+                ", droppedBytes=" + droppedBytes +
+                '}';
+    }
+}
@@ -0,0 +1,222 @@
+package com.m2u.eyelink.agent.profiler.sender.spill;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Fixed size memory-mapped file of length + crc32 prefixed records.
+ * The header holds the committed write position and the replay position. A record is written first and
+ * committed by updating the header afterwards, so a crash in between leaves the segment at its previous state.
+ * Not thread safe.
+ */
+final class SpillSegment {
+
+    private static final Logger logger = LoggerFactory.getLogger(SpillSegment.class);
+
+    static final int MAGIC = 0x454C5350;
+    static final int VERSION = 1;
+    // magic, version, write position, read position
+    static final int HEADER_SIZE = 16;
+    // length, crc32
+    static final int RECORD_HEADER_SIZE = 8;
+
+    private static final int WRITE_POSITION_OFFSET = 8;
+    private static final int READ_POSITION_OFFSET = 12;
+
+    private final File file;
+    private final long sequence;
+    private final int capacity;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final CRC32 crc32 = new CRC32();
+
+    private int writePosition;
+    private int readPosition;
+
+    private SpillSegment(File file, long sequence, FileChannel channel, MappedByteBuffer buffer) {
+        this.file = file;
+        this.sequence = sequence;
+        this.channel = channel;
+        this.buffer = buffer;
+        this.capacity = buffer.capacity();
+    }
+
+    static SpillSegment create(File file, long sequence, int size) throws IOException {
+        if (size <= HEADER_SIZE + RECORD_HEADER_SIZE) {
+            throw new IllegalArgumentException("size:" + size + " too small");
+        }
+        final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            randomAccessFile.setLength(size);
+            final FileChannel channel = randomAccessFile.getChannel();
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            final SpillSegment segment = new SpillSegment(file, sequence, channel, buffer);
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            segment.reset();
+            return segment;
+        } catch (IOException e) {
+            randomAccessFile.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Maps an existing segment and drops records that were not committed completely.
+     */
+    static SpillSegment open(File file, long sequence) throws IOException {
+        final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            final long length = randomAccessFile.length();
+            if (length <= HEADER_SIZE || length > Integer.MAX_VALUE) {
+                throw new IOException("invalid segment length:" + length + " file:" + file);
+            }
+            final FileChannel channel = randomAccessFile.getChannel();
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                throw new IOException("invalid segment header. file:" + file);
+            }
+            final SpillSegment segment = new SpillSegment(file, sequence, channel, buffer);
+            segment.recover();
+            return segment;
+        } catch (IOException e) {
+            randomAccessFile.close();
+            throw e;
+        }
+    }
+
+    private void recover() {
+        int write = buffer.getInt(WRITE_POSITION_OFFSET);
+        if (write < HEADER_SIZE || write > capacity) {
+            write = HEADER_SIZE;
+        }
+        int read = buffer.getInt(READ_POSITION_OFFSET);
+        if (read < HEADER_SIZE || read > write) {
+            read = HEADER_SIZE;
+        }
+        // walk the committed records. anything after the first broken one is unreadable anyway.
+        int position = read;
+        while (position < write) {
+            final int length = buffer.getInt(position);
+            final int recordEnd = position + RECORD_HEADER_SIZE + length;
+            if (length <= 0 || recordEnd > write || recordEnd < 0 || !checksum(position, length)) {
+                logger.warn("truncate broken spill record. file:{} position:{}", file, position);
+                break;
+            }
+            position = recordEnd;
+        }
+        this.readPosition = read;
+        this.writePosition = position;
+        commit();
+    }
+
+    private boolean checksum(int position, int length) {
+        final int expected = buffer.getInt(position + 4);
+        crc32.reset();
+        final int start = position + RECORD_HEADER_SIZE;
+        for (int i = 0; i < length; i++) {
+            crc32.update(buffer.get(start + i));
+        }
+        return (int) crc32.getValue() == expected;
+    }
+
+    static int maxRecordLength(int segmentSize) {
+        return segmentSize - HEADER_SIZE - RECORD_HEADER_SIZE;
+    }
+
+    /**
+     * @return false if the record does not fit in the remaining space
+     */
+    boolean append(byte[] data, int offset, int length) {
+        final int recordEnd = writePosition + RECORD_HEADER_SIZE + length;
+        if (recordEnd > capacity || recordEnd < 0) {
+            return false;
+        }
+        crc32.reset();
+        crc32.update(data, offset, length);
+
+        buffer.putInt(writePosition, length);
+        buffer.putInt(writePosition + 4, (int) crc32.getValue());
+        buffer.position(writePosition + RECORD_HEADER_SIZE);
+        buffer.put(data, offset, length);
+
+        this.writePosition = recordEnd;
+        // commit after the record body
+        buffer.putInt(WRITE_POSITION_OFFSET, writePosition);
+        return true;
+    }
+
+    /**
+     * @return the next record, null if every committed record has been read
+     */
+    byte[] poll() {
+        if (readPosition >= writePosition) {
+            return null;
+        }
+        final int length = buffer.getInt(readPosition);
+        final byte[] data = new byte[length];
+        buffer.position(readPosition + RECORD_HEADER_SIZE);
+        buffer.get(data);
+
+        this.readPosition += RECORD_HEADER_SIZE + length;
+        buffer.putInt(READ_POSITION_OFFSET, readPosition);
+        return data;
+    }
+
+    boolean isDrained() {
+        return readPosition >= writePosition;
+    }
+
+    // reuse the file once everything was replayed
+    void reset() {
+        this.writePosition = HEADER_SIZE;
+        this.readPosition = HEADER_SIZE;
+        commit();
+    }
+
+    private void commit() {
+        buffer.putInt(WRITE_POSITION_OFFSET, writePosition);
+        buffer.putInt(READ_POSITION_OFFSET, readPosition);
+    }
+
+    int getPendingBytes() {
+        return writePosition - readPosition;
+    }
+
+    long getSequence() {
+        return sequence;
+    }
+
+    File getFile() {
+        return file;
+    }
+
+    void close() {
+        try {
+            buffer.force();
+            channel.close();
+        } catch (IOException e) {
+            logger.warn("spill segment close fail. file:{}", file, e);
+        }
+    }
+
+    void delete() {
+        // the mapping itself is released when the buffer is collected. unlinking a mapped file is fine on unix.
+        close();
+        if (!file.delete()) {
+            logger.warn("spill segment delete fail. file:{}", file);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "SpillSegment{file=" + file + ", writePosition=" + writePosition + ", readPosition=" + readPosition + '}';
+    }
+}
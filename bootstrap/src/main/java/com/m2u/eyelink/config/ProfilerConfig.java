@@ -27,6 +27,8 @@ public interface ProfilerConfig {
 
     String getStatDataSenderSocketType();
 
+    String getStatDataSenderWriteQueueType();
+
     int getSpanDataSenderWriteQueueSize();
 
     int getSpanDataSenderSocketSendBufferSize();
@@ -41,6 +43,13 @@ public interface ProfilerConfig {
 
     boolean isTcpDataSenderCommandActiveThreadLightDumpEnable();
 
+    int getTcpDataSenderRequestBatchSize();
+
+    /**
+     * @return retry queue budget by message type, for types that do not use the default of half the queue
+     */
+    Map<String, Integer> getTcpDataSenderRetryBudgets();
+
     boolean isTraceAgentActiveThread();
 
     boolean isTraceAgentDataSource();
@@ -49,6 +58,32 @@ public interface ProfilerConfig {
 
     String getSpanDataSenderSocketType();
 
+    String getSpanDataSenderWriteQueueType();
+
+    boolean isSpanDataSenderPackingEnable();
+
+    int getSpanDataSenderPackingLength();
+
+    boolean isSpanDataSenderSpillEnable();
+
+    String getSpanDataSenderSpillDir();
+
+    int getSpanDataSenderSpillSegmentSize();
+
+    long getSpanDataSenderSpillMaxSize();
+
+    int getSpanDataSenderSpillHighWaterMark();
+
+    int getSpanDataSenderSpillReplayBytesPerSecond();
+
+    String getDataSenderWriteQueueWaitStrategy();
+
+    int getDataSenderFlushMaxBatchCount();
+
+    int getDataSenderFlushMaxBatchBytes();
+
+    long getDataSenderFlushLingerTime();
+
     int getSpanDataSenderChunkSize();
 
     int getStatDataSenderChunkSize();
@@ -65,10 +100,34 @@ public interface ProfilerConfig {
 
     int getSamplingRate();
 
+    String getSamplingType();
+
+    int getSamplingAdaptiveTracesPerSecond();
+
+    int getSamplingContinuationLimit();
+
+    boolean isSamplingTailEnable();
+
+    long getSamplingTailLatencyThreshold();
+
+    int getSamplingTailTraceMaxEvents();
+
+    long getSamplingTailBufferMaxBytes();
+
     boolean isIoBufferingEnable();
 
     int getIoBufferingBufferSize();
 
+    int getIoBufferingBufferBytes();
+
+    boolean isIoBufferingRecycleEnable();
+
+    int getIoBufferingRecycleCapacity();
+
+    boolean isIoBufferingDeferredAssemblyEnable();
+
+    long getExceptionMessageDedupWindow();
+
     int getProfileJvmCollectInterval();
 
     String getProfilerJvmVendorName();
@@ -88,10 +147,18 @@ public interface ProfilerConfig {
 
     int getCallStackMaxDepth();
 
+    String getTraceBinder();
+
     boolean isPropagateInterceptorException();
 
     String getProfileInstrumentEngine();
 
+    String getTimingClock();
+
+    int getTimingCoarseClockTick();
+
+    boolean isTimingNanoEnable();
+
     String readString(String propertyName, String defaultValue);
 
     int readInt(String propertyName, int defaultValue);
@@ -2,7 +2,6 @@ package com.m2u.eyelink.context;
 
 import com.m2u.eyelink.trace.AnnotationKey;
 import com.m2u.eyelink.util.AnnotationKeyUtils;
-import com.m2u.eyelink.util.StringUtils;
 
 public abstract class AbstractRecorder {
 
@@ -20,9 +19,11 @@ public abstract class AbstractRecorder {
         if (throwable == null) {
             return;
         }
-        final String drop = StringUtils.abbreviate(throwable.getMessage(), 256);
+        final ExceptionMetaDataCache exceptionMetaDataCache = traceContext.getExceptionMetaDataCache();
+        final Class<? extends Throwable> exceptionClass = throwable.getClass();
         // An exception that is an instance of a proxy class could make something wrong because the class name will vary.
-        final int exceptionId = traceContext.cacheString(throwable.getClass().getName());
+        final int exceptionId = exceptionMetaDataCache.getExceptionClassId(exceptionClass);
+        final String drop = exceptionMetaDataCache.getExceptionMessage(exceptionClass, throwable.getMessage());
         setExceptionInfo(markError, exceptionId, drop);
     }
 
@@ -101,12 +102,35 @@ public abstract class AbstractRecorder {
     }
 
     public void recordAttribute(AnnotationKey key, int value) {
-        addAnnotation(new Annotation(key.getCode(), value));
+        addAnnotation(key.getCode(), value);
+    }
+
+    public void recordAttribute(AnnotationKey key, long value) {
+        addAnnotation(key.getCode(), value);
+    }
+
+    public void recordAttribute(AnnotationKey key, boolean value) {
+        addAnnotation(key.getCode(), value);
     }
 
     public void recordAttribute(AnnotationKey key, Object value) {
-        addAnnotation(new Annotation(key.getCode(), value));
+        // already boxed, but skips the annotation objects
+        if (value instanceof Integer) {
+            addAnnotation(key.getCode(), ((Integer) value).intValue());
+        } else if (value instanceof Long) {
+            addAnnotation(key.getCode(), ((Long) value).longValue());
+        } else if (value instanceof Boolean) {
+            addAnnotation(key.getCode(), ((Boolean) value).booleanValue());
+        } else {
+            addAnnotation(new Annotation(key.getCode(), value));
+        }
     }
 
     abstract void addAnnotation(Annotation annotation);
+
+    abstract void addAnnotation(int key, int value);
+
+    abstract void addAnnotation(int key, long value);
+
+    abstract void addAnnotation(int key, boolean value);
 }
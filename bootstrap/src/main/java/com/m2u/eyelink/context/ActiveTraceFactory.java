@@ -100,7 +100,7 @@ public class ActiveTraceFactory implements TraceFactory, TraceFactoryWrapper {
         if (trace == null) {
             return;
         }
-        this.activeTraceRepository.put(new ActiveTrace(trace));
+        this.activeTraceRepository.put(trace);
     }
 
     private void detachTrace(Trace trace) {
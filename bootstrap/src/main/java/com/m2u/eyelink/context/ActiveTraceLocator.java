@@ -6,4 +6,6 @@ import java.util.List;
 public interface ActiveTraceLocator {
     List<ActiveTraceInfo> collect();
 
+    void countByElapsedTime(long currentTime, int[] elapsedLimits, int[] counts);
+
 }
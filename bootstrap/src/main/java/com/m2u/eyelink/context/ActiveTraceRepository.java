@@ -1,72 +1,186 @@
 package com.m2u.eyelink.context;
 
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.List;
-import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
-
+/**
+ * Active traces in a fixed-capacity slot array.
+ * A trace is placed at the hash of its id or within the next {@link #PROBE_LIMIT} slots, so put and remove are a CAS near a known index.
+ * Slots hold the trace weakly: a trace that is never removed is cleared by the GC, which is the only sign of the leak.
+ * Holding it strongly would keep a leaked trace and its count forever, so each put still allocates one WeakReference.
+ * Cleared slots are queued by the GC and swept by every {@link #countByElapsedTime(long, int[], int[])},
+ * which the agent stat reads every second, by {@link #collect()} and by a later put that probes over them.
+ * <p>
+ * Active traces are also counted per {@link #BUCKET_MILLIS} of start time in a ring of buckets,
+ * so that {@link #countByElapsedTime(long, int[], int[])} reads counts in O(buckets) without visiting the traces.
+ */
 public class ActiveTraceRepository implements ActiveTraceLocator {
 
     private final Logger logger = LoggerFactory.getLogger(this.getClass());
 
     // memory leak defense threshold
     private static final int DEFAULT_MAX_ACTIVE_TRACE_SIZE = 1024 * 10;
-    // oom safe cache
-    private final ConcurrentMap<Long, ActiveTrace> activeTraceInfoMap;
+    private static final int PROBE_LIMIT = 32;
+
+    static final long BUCKET_MILLIS = 10;
+    // about 10 seconds of start time. older traces are only in activeTraceCount
+    static final int BUCKET_COUNT = 1024;
+
+    private final AtomicReferenceArray<ActiveTraceSlot> slots;
+    private final int mask;
+    // slots whose trace was cleared by the GC
+    private final ReferenceQueue<Trace> clearedSlots = new ReferenceQueue<Trace>();
+
+    private final AtomicLong overflowCount = new AtomicLong();
+
+    private final AtomicReferenceArray<StartTimeBucket> buckets = new AtomicReferenceArray<StartTimeBucket>(BUCKET_COUNT);
+    private final LongAdder activeTraceCount = new LongAdder();
 
     public ActiveTraceRepository() {
         this(DEFAULT_MAX_ACTIVE_TRACE_SIZE);
     }
 
     public ActiveTraceRepository(int maxActiveTraceSize) {
-        this.activeTraceInfoMap = createCache(maxActiveTraceSize);
+        if (maxActiveTraceSize <= 0) {
+            throw new IllegalArgumentException("Invalid maxActiveTraceSize " + maxActiveTraceSize);
+        }
+        final int capacity = Math.max(Integer.highestOneBit(maxActiveTraceSize - 1) << 1, PROBE_LIMIT);
+        this.slots = new AtomicReferenceArray<ActiveTraceSlot>(capacity);
+        this.mask = capacity - 1;
+    }
+
+    public void put(Trace trace) {
+        final long id = trace.getId();
+        final long startTime = trace.getStartTime();
+        // not started traces are not counted
+        final StartTimeBucket bucket = startTime > 0 ? getBucket(startTime) : null;
+        final int start = index(id);
+        for (int i = 0; i < PROBE_LIMIT; i++) {
+            final int index = (start + i) & mask;
+            final ActiveTraceSlot current = slots.get(index);
+            if (current == null || current.get() == null) {
+                final ActiveTraceSlot slot = new ActiveTraceSlot(trace, id, index, bucket, clearedSlots);
+                if (slots.compareAndSet(index, current, slot)) {
+                    if (current != null) {
+                        release(current);
+                    }
+                    if (bucket != null) {
+                        bucket.count.incrementAndGet();
+                        activeTraceCount.increment();
+                    }
+                    return;
+                }
+            }
+        }
+        final long overflow = overflowCount.incrementAndGet();
+        // 1, 2, 4, 8, ...
+        if ((overflow & (overflow - 1)) == 0) {
+            logger.warn("active trace slots exhausted. {} traces not tracked so far. capacity:{}", overflow, slots.length());
+        }
     }
 
-    private ConcurrentMap<Long, ActiveTrace> createCache(int maxActiveTraceSize) {
-        final CacheBuilder<Object, Object> cacheBuilder = CacheBuilder.newBuilder();
-        cacheBuilder.concurrencyLevel(64);
-        cacheBuilder.initialCapacity(maxActiveTraceSize);
-        cacheBuilder.maximumSize(maxActiveTraceSize);
-        // OOM defense
-        cacheBuilder.weakValues();
+    public boolean remove(long id) {
+        final int start = index(id);
+        for (int i = 0; i < PROBE_LIMIT; i++) {
+            final int index = (start + i) & mask;
+            final ActiveTraceSlot current = slots.get(index);
+            if (current != null && current.id == id) {
+                if (slots.compareAndSet(index, current, null)) {
+                    release(current);
+                    return true;
+                }
+                return false;
+            }
+        }
+        return false;
+    }
 
-        final Cache<Long, ActiveTrace> localCache = cacheBuilder.build();
-        return localCache.asMap();
+    private void release(ActiveTraceSlot slot) {
+        final StartTimeBucket bucket = slot.bucket;
+        if (bucket != null) {
+            bucket.count.decrementAndGet();
+            activeTraceCount.decrement();
+        }
     }
 
-    public void put(ActiveTrace activeTrace) {
-        this.activeTraceInfoMap.put(activeTrace.getId(), activeTrace);
+    private StartTimeBucket getBucket(long startTime) {
+        final long epoch = startTime / BUCKET_MILLIS;
+        final int index = (int) (epoch & (BUCKET_COUNT - 1));
+        while (true) {
+            final StartTimeBucket bucket = buckets.get(index);
+            if (bucket != null) {
+                if (bucket.epoch == epoch) {
+                    return bucket;
+                }
+                // started before the ring. counted in activeTraceCount only
+                if (bucket.epoch > epoch) {
+                    return new StartTimeBucket(epoch);
+                }
+            }
+            // a replaced bucket lives on in the slots of its traces
+            final StartTimeBucket newBucket = new StartTimeBucket(epoch);
+            if (buckets.compareAndSet(index, bucket, newBucket)) {
+                return newBucket;
+            }
+        }
     }
 
-    private ActiveTrace get(Long key) {
-        return this.activeTraceInfoMap.get(key);
+    private int index(long id) {
+        // ids are handed out in blocks. spread neighbouring ids over the array
+        final long hash = id * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
     }
 
-    public ActiveTrace remove(Long key) {
-        return this.activeTraceInfoMap.remove(key);
+    // slots removed or taken over before their trace was cleared are no longer in the array and are skipped
+    private void expungeClearedSlots() {
+        Reference<? extends Trace> reference;
+        while ((reference = clearedSlots.poll()) != null) {
+            final ActiveTraceSlot slot = (ActiveTraceSlot) reference;
+            if (slots.compareAndSet(slot.index, slot, null)) {
+                release(slot);
+            }
+        }
     }
 
     // @ThreadSafe
     @Override
     public List<ActiveTraceInfo> collect() {
-        final Collection<ActiveTrace> copied = this.activeTraceInfoMap.values();
-        List<ActiveTraceInfo> collectData = new ArrayList<ActiveTraceInfo>(copied.size());
-        for (ActiveTrace trace : copied) {
-            final long startTime = trace.getStartTime();
+        expungeClearedSlots();
+        List<ActiveTraceInfo> collectData = new ArrayList<ActiveTraceInfo>();
+        final int length = slots.length();
+        for (int index = 0; index < length; index++) {
+            final ActiveTraceSlot slot = slots.get(index);
+            if (slot == null) {
+                continue;
+            }
+            final Trace trace = slot.get();
+            if (trace == null) {
+                // leaked trace cleared by the GC
+                if (slots.compareAndSet(index, slot, null)) {
+                    release(slot);
+                }
+                continue;
+            }
+            final ActiveTrace activeTrace = new ActiveTrace(trace);
+            final long startTime = activeTrace.getStartTime();
             // not started
             if (startTime > 0) {
-                if (trace.isSampled()) {
-                    ActiveTraceInfo activeTraceInfo = new ActiveTraceInfo(trace.getId(), startTime, trace.getBindThread(), true, trace.getTransactionId(), trace.getEntryPoint());
+                if (activeTrace.isSampled()) {
+                    ActiveTraceInfo activeTraceInfo = new ActiveTraceInfo(activeTrace.getId(), startTime, activeTrace.getBindThread(), true, activeTrace.getTransactionId(), activeTrace.getEntryPoint());
                     collectData.add(activeTraceInfo);
                 } else {
                     // clear Trace reference
-                    ActiveTraceInfo activeTraceInfo = new ActiveTraceInfo(trace.getId(), startTime, trace.getBindThread());
+                    ActiveTraceInfo activeTraceInfo = new ActiveTraceInfo(activeTrace.getId(), startTime, activeTrace.getBindThread());
                     collectData.add(activeTraceInfo);
                 }
             }
@@ -74,4 +188,78 @@ public class ActiveTraceRepository implements ActiveTraceLocator {
         return collectData;
     }
 
+    /**
+     * Counts started active traces by elapsed time.
+     * counts[i] is increased by the traces with elapsed time up to elapsedLimits[i] and above elapsedLimits[i - 1],
+     * counts[elapsedLimits.length] by the rest. Elapsed time is measured from the start of the bucket, i.e. up to {@link #BUCKET_MILLIS} long.
+     *
+     * @param elapsedLimits ascending
+     */
+    @Override
+    public void countByElapsedTime(long currentTime, int[] elapsedLimits, int[] counts) {
+        if (elapsedLimits == null) {
+            throw new NullPointerException("elapsedLimits must not be null");
+        }
+        if (counts == null) {
+            throw new NullPointerException("counts must not be null");
+        }
+        if (counts.length <= elapsedLimits.length) {
+            throw new IllegalArgumentException("counts.length must be greater than elapsedLimits.length");
+        }
+        expungeClearedSlots();
+        long counted = 0;
+        for (int index = 0; index < BUCKET_COUNT; index++) {
+            final StartTimeBucket bucket = buckets.get(index);
+            if (bucket == null) {
+                continue;
+            }
+            final int count = bucket.count.get();
+            if (count <= 0) {
+                continue;
+            }
+            final long elapsed = currentTime - bucket.epoch * BUCKET_MILLIS;
+            int limit = 0;
+            while (limit < elapsedLimits.length && elapsed > elapsedLimits[limit]) {
+                limit++;
+            }
+            if (limit < elapsedLimits.length) {
+                counts[limit] += count;
+                counted += count;
+            }
+        }
+        final long rest = activeTraceCount.sum() - counted;
+        if (rest > 0) {
+            counts[elapsedLimits.length] += (int) rest;
+        }
+    }
+
+    /**
+     * @return number of traces not tracked because their slots were taken
+     */
+    public long getOverflowCount() {
+        return overflowCount.get();
+    }
+
+    private static final class ActiveTraceSlot extends WeakReference<Trace> {
+        private final long id;
+        private final int index;
+        // kept strongly so that the count can be released after the trace is cleared
+        private final StartTimeBucket bucket;
+
+        private ActiveTraceSlot(Trace trace, long id, int index, StartTimeBucket bucket, ReferenceQueue<Trace> clearedSlots) {
+            super(trace, clearedSlots);
+            this.id = id;
+            this.index = index;
+            this.bucket = bucket;
+        }
+    }
+
+    private static final class StartTimeBucket {
+        private final long epoch;
+        private final AtomicInteger count = new AtomicInteger();
+
+        private StartTimeBucket(long epoch) {
+            this.epoch = epoch;
+        }
+    }
 }
@@ -8,6 +8,11 @@ public class AsyncStorage implements Storage {
         this.storage = storage;
     }
     
+    @Override
+    public SpanEvent newSpanEvent(Span span) {
+        return storage.newSpanEvent(span);
+    }
+
     @Override
     public void store(SpanEvent spanEvent) {
         storage.store(spanEvent);
@@ -78,6 +78,11 @@ public class AsyncTrace implements Trace {
         return trace.canSampled();
     }
 
+    @Override
+    public boolean isSamplingDeferred() {
+        return trace.isSamplingDeferred();
+    }
+
     @Override
     public boolean isRoot() {
         return trace.isRoot();
@@ -9,4 +9,9 @@ public interface AsyncTraceId extends TraceId {
     TraceId getParentTraceId();
 
     short nextAsyncSequence();
+
+    /**
+     * @return storage factory for the async traces of a deferred trace, null if the sampling of the trace is decided
+     */
+    StorageFactory getDeferredStorageFactory();
 }
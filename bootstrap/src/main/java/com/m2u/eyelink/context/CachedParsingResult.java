@@ -0,0 +1,56 @@
+package com.m2u.eyelink.context;
+
+/**
+ * Finished normalization of an original sql. Shared by all executions of the sql, so it is immutable.
+ */
+public final class CachedParsingResult implements ParsingResult {
+
+    private final String sql;
+    private final String output;
+    private final int id;
+
+    public CachedParsingResult(String sql, String output, int id) {
+        if (sql == null) {
+            throw new NullPointerException("sql must not be null");
+        }
+        if (id == ID_NOT_EXIST) {
+            throw new IllegalArgumentException("id must exist");
+        }
+        this.sql = sql;
+        this.output = output;
+        this.id = id;
+    }
+
+    @Override
+    public String getSql() {
+        return sql;
+    }
+
+    @Override
+    public String getOutput() {
+        if (this.output == null) {
+            return "";
+        }
+        return output;
+    }
+
+    @Override
+    public int getId() {
+        return id;
+    }
+
+    // weight in chars. the original sql is counted by the cache
+    int weight() {
+        return sql.length() + (output == null ? 0 : output.length());
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("CachedParsingResult{");
+        sb.append("sql='").append(sql).append('\'');
+        sb.append(", output=").append(output);
+        sb.append(", id=").append(id);
+        sb.append('}');
+        return sb.toString();
+    }
+}
@@ -5,8 +5,20 @@ import java.util.Arrays;
 public class CallStack {
     private static final int STACK_SIZE = 8;
     private static final int DEFAULT_INDEX = 0;
+    // arrays larger than this are not kept for the next trace
+    private static final int MAX_POOLED_STACK_SIZE = 1024;
 
-    private SpanEvent[] stack = new SpanEvent[STACK_SIZE];
+    private static final SpanEvent[] EMPTY_STACK = new SpanEvent[0];
+
+    // frame array of the last released call stack of this thread
+    private static final ThreadLocal<SpanEvent[]> STACK_POOL = new ThreadLocal<SpanEvent[]>();
+
+    /**
+     * returned by pop() and peek() for frames beyond maxDepth. shared by all call stacks, never record into it.
+     */
+    static final SpanEvent OVERFLOW_FRAME = new SpanEvent(new Span());
+
+    private SpanEvent[] stack;
 
     private final Span span;
     private final int maxDepth;
@@ -15,30 +27,74 @@ public class CallStack {
     private short sequence;
     private int latestStackIndex = 0;
 
+    // metrics
+    private int maxOverflowDepth = 0;
+    private int droppedFrameCount = 0;
+
     public CallStack(Span span) {
         this(span, -1);
     }
-    
+
     public CallStack(Span span, int maxDepth) {
         this.span = span;
         this.maxDepth = maxDepth;
+        this.stack = borrowStack();
+    }
+
+    private static SpanEvent[] borrowStack() {
+        final SpanEvent[] pooled = STACK_POOL.get();
+        if (pooled == null) {
+            return new SpanEvent[STACK_SIZE];
+        }
+        // async traces on the same thread must not share it
+        STACK_POOL.set(null);
+        return pooled;
     }
-    
+
+    /**
+     * returns the frame array to the pool of the current thread. the call stack is empty afterwards.
+     */
+    public void release() {
+        final SpanEvent[] stack = this.stack;
+        if (stack == EMPTY_STACK) {
+            return;
+        }
+        final int size = this.index;
+        this.stack = EMPTY_STACK;
+        this.index = DEFAULT_INDEX;
+        this.overflowIndex = 0;
+
+        if (stack.length > MAX_POOLED_STACK_SIZE) {
+            return;
+        }
+        // popped frames are already cleared
+        Arrays.fill(stack, 0, size, null);
+        final SpanEvent[] pooled = STACK_POOL.get();
+        // keep the larger one so that deep traces do not extend again
+        if (pooled == null || pooled.length < stack.length) {
+            STACK_POOL.set(stack);
+        }
+    }
+
     public Span getSpan() {
         return span;
     }
-    
+
     public int getIndex() {
         if(isOverflow()) {
             return index + overflowIndex;
         }
-        
+
         return index;
     }
 
     public int push(final SpanEvent spanEvent) {
         if (isOverflow()) {
             overflowIndex++;
+            droppedFrameCount++;
+            if (overflowIndex > maxOverflowDepth) {
+                maxOverflowDepth = overflowIndex;
+            }
             return index + overflowIndex;
         }
 
@@ -56,19 +112,21 @@ public class CallStack {
     private void checkExtend(final int size) {
         final SpanEvent[] originalStack = this.stack;
         if (size >= originalStack.length) {
-            final int copyStackSize = originalStack.length << 1;
-            final SpanEvent[] copyStack = new SpanEvent[copyStackSize];
-            System.arraycopy(originalStack, 0, copyStack, 0, originalStack.length);
-            this.stack = copyStack;
+            int copyStackSize = Math.max(originalStack.length << 1, STACK_SIZE);
+            // never more than maxDepth frames plus the one that starts the overflow
+            if (maxDepth != -1) {
+                copyStackSize = Math.max(Math.min(copyStackSize, maxDepth + 2), size + 1);
+            }
+            this.stack = Arrays.copyOf(originalStack, copyStackSize);
         }
     }
 
     public SpanEvent pop() {
         if(isOverflow() && overflowIndex > 0) {
             overflowIndex--;
-            return new SpanEvent(span);
+            return OVERFLOW_FRAME;
         }
-        
+
         final SpanEvent spanEvent = peek();
         if (spanEvent != null) {
             stack[index - 1] = null;
@@ -82,9 +140,9 @@ public class CallStack {
         if (index == DEFAULT_INDEX) {
             return null;
         }
-        
+
         if(isOverflow() && overflowIndex > 0) {
-            return new SpanEvent(span);
+            return OVERFLOW_FRAME;
         }
 
         return stack[index - 1];
@@ -97,15 +155,28 @@ public class CallStack {
     public SpanEvent[] copyStackFrame() {
         // without synchronization arraycopy, last index is null reference
         final SpanEvent[] currentStack = this.stack;
-        final SpanEvent[] copyStack = new SpanEvent[currentStack.length];
-        System.arraycopy(currentStack, 0, copyStack, 0, currentStack.length);
-        return copyStack;
+        final int size = Math.min(this.index, currentStack.length);
+        return Arrays.copyOf(currentStack, size);
     }
 
     public int getMaxDepth() {
         return maxDepth;
     }
 
+    /**
+     * @return the deepest the call stack went beyond maxDepth
+     */
+    public int getMaxOverflowDepth() {
+        return maxOverflowDepth;
+    }
+
+    /**
+     * @return number of frames not recorded because the call stack was beyond maxDepth
+     */
+    public int getDroppedFrameCount() {
+        return droppedFrameCount;
+    }
+
     boolean isOverflow() {
         return maxDepth != -1 && maxDepth < index;
     }
@@ -120,4 +191,4 @@ public class CallStack {
         builder.append("}");
         return builder.toString();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,53 @@
+package com.m2u.eyelink.context;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Agent wide totals of the call stack overflows recorded on each span as {@link com.m2u.eyelink.trace.AnnotationKey#CALL_STACK_DROPPED_FRAMES}
+ * and {@link com.m2u.eyelink.trace.AnnotationKey#CALL_STACK_OVERFLOW_DEPTH}. Updated only when a trace that overflowed is closed.
+ */
+public class CallStackOverflowCounter {
+
+    private final LongAdder overflowTraceCount = new LongAdder();
+    private final LongAdder droppedFrameCount = new LongAdder();
+    // since the last getAndResetMaxOverflowDepth()
+    private final AtomicInteger maxOverflowDepth = new AtomicInteger();
+
+    public void record(int droppedFrameCount, int overflowDepth) {
+        if (droppedFrameCount <= 0) {
+            return;
+        }
+        this.overflowTraceCount.increment();
+        this.droppedFrameCount.add(droppedFrameCount);
+        while (true) {
+            final int current = maxOverflowDepth.get();
+            if (current >= overflowDepth || maxOverflowDepth.compareAndSet(current, overflowDepth)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return number of traces that went beyond the max call stack depth
+     */
+    public long getOverflowTraceCount() {
+        return overflowTraceCount.sum();
+    }
+
+    public long getDroppedFrameCount() {
+        return droppedFrameCount.sum();
+    }
+
+    /**
+     * @return the deepest overflow since the last call
+     */
+    public int getAndResetMaxOverflowDepth() {
+        return maxOverflowDepth.getAndSet(0);
+    }
+
+    @Override
+    public String toString() {
+        return "CallStackOverflowCounter{overflowTraceCount=" + getOverflowTraceCount() + ", droppedFrameCount=" + getDroppedFrameCount() + '}';
+    }
+}
@@ -10,11 +10,19 @@ public class DefaultAsyncTraceId implements AsyncTraceId {
     private final TraceId traceId;
     private final int asyncId;
     private final long startTime;
+    private final StorageFactory deferredStorageFactory;
 
     @SuppressWarnings("unused")
     private volatile int asyncSequence = 0;
 
     public DefaultAsyncTraceId(final TraceId traceId, final int asyncId, final long startTime) {
+        this(traceId, asyncId, startTime, null);
+    }
+
+    /**
+     * @param deferredStorageFactory storage factory for the async traces of a deferred trace. null if not deferred
+     */
+    public DefaultAsyncTraceId(final TraceId traceId, final int asyncId, final long startTime, final StorageFactory deferredStorageFactory) {
         if (traceId == null) {
             throw new IllegalArgumentException("traceId must not be null.");
         }
@@ -22,6 +30,7 @@ public class DefaultAsyncTraceId implements AsyncTraceId {
         this.traceId = traceId;
         this.asyncId = asyncId;
         this.startTime = startTime;
+        this.deferredStorageFactory = deferredStorageFactory;
     }
 
     public int getAsyncId() {
@@ -87,6 +96,11 @@ public class DefaultAsyncTraceId implements AsyncTraceId {
         return traceId;
     }
 
+    @Override
+    public StorageFactory getDeferredStorageFactory() {
+        return deferredStorageFactory;
+    }
+
     @Override
     public String toString() {
         final StringBuilder sb = new StringBuilder("{");
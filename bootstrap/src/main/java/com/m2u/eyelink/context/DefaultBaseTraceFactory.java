@@ -1,17 +1,39 @@
 package com.m2u.eyelink.context;
 
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.m2u.eyelink.agent.profiler.context.storage.TailSamplingStorageFactory;
 import com.m2u.eyelink.annotations.*;
 
 public class DefaultBaseTraceFactory implements BaseTraceFactory {
 
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
     private final TraceContext traceContext;
 
     private final StorageFactory storageFactory;
     private final Sampler sampler;
+    // protects this node from callers that sample everything. continued traces it rejects are not traced here.
+    private final Sampler continuationSampler;
+    private final AtomicLong continuationDowngradeCount = new AtomicLong();
+    // records the transactions the sampler rejected and keeps only the slow or failed ones. null if disabled
+    private final TailSamplingStorageFactory tailStorageFactory;
 
     private final IdGenerator idGenerator;
 
     public DefaultBaseTraceFactory(TraceContext traceContext, StorageFactory storageFactory, Sampler sampler, IdGenerator idGenerator) {
+        this(traceContext, storageFactory, sampler, new TrueSampler(), idGenerator);
+    }
+
+    public DefaultBaseTraceFactory(TraceContext traceContext, StorageFactory storageFactory, Sampler sampler, Sampler continuationSampler, IdGenerator idGenerator) {
+        this(traceContext, storageFactory, sampler, continuationSampler, null, idGenerator);
+    }
+
+    public DefaultBaseTraceFactory(TraceContext traceContext, StorageFactory storageFactory, Sampler sampler, Sampler continuationSampler,
+                                   TailSamplingStorageFactory tailStorageFactory, IdGenerator idGenerator) {
         if (traceContext == null) {
             throw new NullPointerException("traceContext must not be null");
         }
@@ -21,12 +43,17 @@ public class DefaultBaseTraceFactory implements BaseTraceFactory {
         if (sampler == null) {
             throw new NullPointerException("sampler must not be null");
         }
+        if (continuationSampler == null) {
+            throw new NullPointerException("continuationSampler must not be null");
+        }
         if (idGenerator == null) {
             throw new NullPointerException("idGenerator must not be null");
         }
         this.traceContext = traceContext;
         this.storageFactory = storageFactory;
         this.sampler = sampler;
+        this.continuationSampler = continuationSampler;
+        this.tailStorageFactory = tailStorageFactory;
         this.idGenerator = idGenerator;
     }
 
@@ -37,6 +64,9 @@ public class DefaultBaseTraceFactory implements BaseTraceFactory {
         // TODO need to modify how to bind a datasender
         // always set true because the decision of sampling has been  made on previous nodes
         // TODO need to consider as a target to sample in case Trace object has a sampling flag (true) marked on previous node.
+        if (!continuationSampler.isSampling()) {
+            return newDowngradedTrace(traceId);
+        }
         final boolean sampling = true;
         final Storage storage = storageFactory.createStorage();
         final long localTransactionId = this.idGenerator.nextContinuedTransactionId();
@@ -64,11 +94,22 @@ public class DefaultBaseTraceFactory implements BaseTraceFactory {
             final Trace trace = new DefaultTrace(traceContext, storage, traceId, localTransactionId, sampling);
 
             return trace;
+        } else if (tailStorageFactory != null) {
+            return newTailTrace();
         } else {
             return newDisableTrace();
         }
     }
 
+    // recorded like a sampled trace, sent only if the tail storage keeps it. counted when the tail storage decides
+    private Trace newTailTrace() {
+        final DeferredStorage storage = tailStorageFactory.createStorage();
+
+        final long localTransactionId = idGenerator.nextTailTransactionId();
+        final TraceId traceId = new DefaultTraceId(traceContext.getAgentId(), traceContext.getAgentStartTime(), localTransactionId);
+        return new DefaultTrace(traceContext, storage, traceId, localTransactionId, true, storage.getAsyncStorageFactory());
+    }
+
 
 
     // internal async trace.
@@ -77,9 +118,16 @@ public class DefaultBaseTraceFactory implements BaseTraceFactory {
 
         final TraceId parentTraceId = traceId.getParentTraceId();
         final boolean sampling = true;
-        final Storage storage = storageFactory.createStorage();
+        // sent or dropped together with a deferred parent
+        final StorageFactory deferredStorageFactory = traceId.getDeferredStorageFactory();
+        final Storage storage;
+        if (deferredStorageFactory != null) {
+            storage = deferredStorageFactory.createStorage();
+        } else {
+            storage = storageFactory.createStorage();
+        }
         final Storage asyncStorage = new AsyncStorage(storage);
-        final Trace trace = new DefaultTrace(traceContext, asyncStorage, parentTraceId, IdGenerator.UNTRACKED_ID, sampling);
+        final Trace trace = new DefaultTrace(traceContext, asyncStorage, parentTraceId, IdGenerator.UNTRACKED_ID, sampling, deferredStorageFactory);
 
         final AsyncTrace asyncTrace = new AsyncTrace(trace, asyncId, traceId.nextAsyncSequence(), startTime);
 
@@ -90,6 +138,9 @@ public class DefaultBaseTraceFactory implements BaseTraceFactory {
     @InterfaceAudience.LimitedPrivate("vert.x")
     @Override
     public Trace continueAsyncTraceObject(final TraceId traceId) {
+        if (!continuationSampler.isSampling()) {
+            return newDowngradedTrace(traceId);
+        }
 
         final boolean sampling = true;
 
@@ -132,6 +183,24 @@ public class DefaultBaseTraceFactory implements BaseTraceFactory {
         return disableTrace;
     }
 
+    // keeps the traceId of the previous node, counted as an unsampled continuation
+    private Trace newDowngradedTrace(TraceId traceId) {
+        final long downgradeCount = continuationDowngradeCount.incrementAndGet();
+        // 1, 2, 4, 8, ...
+        if ((downgradeCount & (downgradeCount - 1)) == 0) {
+            logger.warn("continued trace rate exceeded. {} continued traces not traced so far. {}", downgradeCount, continuationSampler);
+        }
+        final long nextContinuedDisabledId = this.idGenerator.nextContinuedDisabledId();
+        return new DisableTrace(nextContinuedDisabledId, traceId);
+    }
+
+    /**
+     * @return number of continued traces not traced because of the continuation sampler
+     */
+    public long getContinuationDowngradeCount() {
+        return continuationDowngradeCount.get();
+    }
+
     @Override
     public Trace disableSampling() {
         final long nextContinuedDisabledId = this.idGenerator.nextContinuedDisabledId();
@@ -11,12 +11,18 @@ public class DefaultCachingSqlNormalizer implements CachingSqlNormalizer {
 
     private static final DefaultParsingResult EMPTY_OBJECT = new DefaultParsingResult("");
 
+    // chars of original sql cached per entry of sqlCache
+    private static final int ORIGINAL_SQL_CACHE_WEIGHT_PER_ENTRY = 1024;
+
     private final SimpleCache<String> sqlCache;
+    // skips the parser for sql already normalized. the sql id stays valid after sqlCache evicts it
+    private final OriginalSqlCache originalSqlCache;
     private final SqlParser sqlParser;
 
     public DefaultCachingSqlNormalizer(int cacheSize) {
         this.sqlCache = new SimpleCache<String>(cacheSize);
-        this.sqlParser = new DefaultSqlParser();
+        this.originalSqlCache = new OriginalSqlCache((long) cacheSize * ORIGINAL_SQL_CACHE_WEIGHT_PER_ENTRY);
+        this.sqlParser = new TokenizingSqlParser();
     }
 
     @Override
@@ -24,6 +30,10 @@ public class DefaultCachingSqlNormalizer implements CachingSqlNormalizer {
         if (sql == null) {
             return EMPTY_OBJECT;
         }
+        final CachedParsingResult cachedResult = originalSqlCache.get(sql);
+        if (cachedResult != null) {
+            return cachedResult;
+        }
         return new DefaultParsingResult(sql);
     }
 
@@ -63,11 +73,20 @@ public class DefaultCachingSqlNormalizer implements CachingSqlNormalizer {
             }
         }
 
-        parsingResultInternal.setSql(normalizedSql.getNormalizedSql());
-        parsingResultInternal.setOutput(normalizedSql.getParseParameter());
+        final String sql = normalizedSql.getNormalizedSql();
+        final String output = normalizedSql.getParseParameter();
+        parsingResultInternal.setSql(sql);
+        parsingResultInternal.setOutput(output);
+
+        final CachedParsingResult cachedResult = new CachedParsingResult(sql, output, cachingResult.getId());
+        this.originalSqlCache.put(originalSql, cachedResult);
 
         return cachingResult.isNewValue();
     }
 
+    public SimpleCache<String> getSqlCache() {
+        return sqlCache;
+    }
+
 
 }
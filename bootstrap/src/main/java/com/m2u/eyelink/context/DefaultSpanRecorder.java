@@ -64,6 +64,21 @@ public class DefaultSpanRecorder extends AbstractRecorder implements SpanRecorde
         span.addAnnotation(annotation);
     }
 
+    @Override
+    void addAnnotation(int key, int value) {
+        span.addAnnotation(key, value);
+    }
+
+    @Override
+    void addAnnotation(int key, long value) {
+        span.addAnnotation(key, value);
+    }
+
+    @Override
+    void addAnnotation(int key, boolean value) {
+        span.addAnnotation(key, value);
+    }
+
     @Override
     public void recordServiceType(ServiceType serviceType) {
         span.setServiceType(serviceType.getCode());
@@ -6,6 +6,7 @@ import org.slf4j.LoggerFactory;
 import com.m2u.eyelink.config.ProfilerConfig;
 import com.m2u.eyelink.context.scope.DefaultTraceScopePool;
 import com.m2u.eyelink.exception.ELAgentException;
+import com.m2u.eyelink.trace.AnnotationKey;
 
 public final class DefaultTrace implements Trace {
 
@@ -21,9 +22,13 @@ public final class DefaultTrace implements Trace {
 
     private final TraceContext traceContext;
     private final Storage storage;
+    // not null if the trace is deferred. the async traces of this trace are stored through it
+    private final StorageFactory deferredStorageFactory;
 
     private final WrappedSpanEventRecorder spanEventRecorder;
     private final DefaultSpanRecorder spanRecorder;
+    // absorbs what interceptors record beyond the max call stack depth. created on the first overflow
+    private SpanEvent overflowSpanEvent;
 
     private boolean closed = false;
 
@@ -31,6 +36,14 @@ public final class DefaultTrace implements Trace {
     private final DefaultTraceScopePool scopePool = new DefaultTraceScopePool();
 
     public DefaultTrace(TraceContext traceContext, Storage storage, TraceId traceId, long localTransactionId, boolean sampling) {
+        this(traceContext, storage, traceId, localTransactionId, sampling, null);
+    }
+
+    /**
+     * @param deferredStorageFactory storage factory for the async traces of a deferred trace. null if the sampling is decided
+     */
+    public DefaultTrace(TraceContext traceContext, Storage storage, TraceId traceId, long localTransactionId, boolean sampling,
+                        StorageFactory deferredStorageFactory) {
         if (traceContext == null) {
             throw new NullPointerException("traceContext must not be null");
         }
@@ -46,6 +59,7 @@ public final class DefaultTrace implements Trace {
         this.traceId = traceId;
         this.localTransactionId = localTransactionId;
         this.sampling = sampling;
+        this.deferredStorageFactory = deferredStorageFactory;
 
         final Span span = createSpan();
         this.spanRecorder = new DefaultSpanRecorder(traceContext, span, this.traceId, sampling);
@@ -92,8 +106,16 @@ public final class DefaultTrace implements Trace {
 
     @Override
     public SpanEventRecorder traceBlockBegin(final int stackId) {
+        if (!this.closed && callStack.isOverflow()) {
+            // beyond the max depth. counted by the call stack, not recorded
+            callStack.push(CallStack.OVERFLOW_FRAME);
+            final SpanEvent overflowSpanEvent = getOverflowSpanEvent();
+            overflowSpanEvent.resetForRecycle();
+            overflowSpanEvent.setSpan(spanRecorder.getSpan());
+            return wrappedSpanEventRecorder(overflowSpanEvent);
+        }
         // Set properties for the case when stackFrame is not used as part of Span.
-        final SpanEvent spanEvent = new SpanEvent(spanRecorder.getSpan());
+        final SpanEvent spanEvent = storage.newSpanEvent(spanRecorder.getSpan());
         spanEvent.markStartTime();
         spanEvent.setStackId(stackId);
 
@@ -132,6 +154,9 @@ public final class DefaultTrace implements Trace {
             }
             return;
         }
+        if (spanEvent == CallStack.OVERFLOW_FRAME) {
+            return;
+        }
 
         if (spanEvent.getStackId() != stackId) {
             // stack dump will make debugging easy.
@@ -166,13 +191,34 @@ public final class DefaultTrace implements Trace {
             if (span.isTimeRecording()) {
                 span.markAfterTime();
             }
+            recordCallStackOverflow(span);
             logSpan(span);
         }
+        this.callStack.release();
 
         this.storage.close();
 
     }
 
+    private void recordCallStackOverflow(Span span) {
+        final int droppedFrameCount = callStack.getDroppedFrameCount();
+        if (droppedFrameCount == 0) {
+            return;
+        }
+        span.addAnnotation(AnnotationKey.CALL_STACK_DROPPED_FRAMES.getCode(), droppedFrameCount);
+        span.addAnnotation(AnnotationKey.CALL_STACK_OVERFLOW_DEPTH.getCode(), callStack.getMaxOverflowDepth());
+        traceContext.getCallStackOverflowCounter().record(droppedFrameCount, callStack.getMaxOverflowDepth());
+    }
+
+    private SpanEvent getOverflowSpanEvent() {
+        SpanEvent overflowSpanEvent = this.overflowSpanEvent;
+        if (overflowSpanEvent == null) {
+            overflowSpanEvent = new SpanEvent(spanRecorder.getSpan());
+            this.overflowSpanEvent = overflowSpanEvent;
+        }
+        return overflowSpanEvent;
+    }
+
     @Override
     public void flush() {
         this.storage.flush();
@@ -220,6 +266,11 @@ public final class DefaultTrace implements Trace {
         return this.sampling;
     }
 
+    @Override
+    public boolean isSamplingDeferred() {
+        return this.deferredStorageFactory != null;
+    }
+
     public boolean isRoot() {
         return getTraceId().isRoot();
     }
@@ -258,7 +309,7 @@ public final class DefaultTrace implements Trace {
     @Override
     public AsyncTraceId getAsyncTraceId(boolean closeable) {
         // ignored closeable.
-        return new DefaultAsyncTraceId(traceId, traceContext.getAsyncId(), spanRecorder.getSpan().getStartTime());
+        return new DefaultAsyncTraceId(traceId, traceContext.getAsyncId(), spanRecorder.getSpan().getStartTime(), deferredStorageFactory);
     }
 
     @Override
@@ -269,6 +320,9 @@ public final class DefaultTrace implements Trace {
     @Override
     public SpanEventRecorder currentSpanEventRecorder() {
         SpanEvent spanEvent = callStack.peek();
+        if (spanEvent == CallStack.OVERFLOW_FRAME) {
+            return wrappedSpanEventRecorder(getOverflowSpanEvent());
+        }
         if (spanEvent == null) {
             if (isWarn) {
             	ELAgentException exception = new ELAgentException("call stack is empty");
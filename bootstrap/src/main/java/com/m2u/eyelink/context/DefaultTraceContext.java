@@ -11,6 +11,7 @@ import com.m2u.eyelink.context.monitor.DisabledPluginMonitorContext;
 import com.m2u.eyelink.plugin.monitor.PluginMonitorContext;
 import com.m2u.eyelink.sender.EnhancedDataSender;
 import com.m2u.eyelink.agent.profiler.context.TransactionCounter;
+import com.m2u.eyelink.agent.profiler.context.storage.TailSamplingStorageFactory;
 import com.m2u.eyelink.annotations.*;
 
 public class DefaultTraceContext implements TraceContext {
@@ -23,27 +24,38 @@ public class DefaultTraceContext implements TraceContext {
 
 	private final TraceFactory traceFactory;
 
+	private final DefaultBaseTraceFactory baseTraceFactory;
+
+	private final StorageFactory storageFactory;
+
 	private AgentInformation agentInformation;
 
 	private EnhancedDataSender priorityDataSender;
 
-	private final CachingSqlNormalizer cachingSqlNormalizer;
+	private final DefaultCachingSqlNormalizer cachingSqlNormalizer;
 
 	private final SimpleCache<String> apiCache = new SimpleCache<String>();
 	private final SimpleCache<String> stringCache = new SimpleCache<String>();
+	private volatile ExceptionMetaDataCache exceptionMetaDataCache = new ExceptionMetaDataCache(this);
 
 	private ProfilerConfig profilerConfig;
 
 	private final ServerMetaDataHolder serverMetaDataHolder;
 
+	private final Sampler sampler;
+
 	private final AtomicInteger asyncId = new AtomicInteger();
 
 	private final PluginMonitorContext pluginMonitorContext;
 
 	private final IdGenerator idGenerator = new IdGenerator();
 
-	private final TransactionCounter transactionCounter = new DefaultTransactionCounter(
-			this.idGenerator);
+	private final TransactionCounter transactionCounter;
+
+	private final CallStackOverflowCounter callStackOverflowCounter = new CallStackOverflowCounter();
+
+	// null if tail sampling is disabled
+	private final TailSamplingStorageFactory tailStorageFactory;
 
 	// for test
 	public DefaultTraceContext(final AgentInformation agentInformation) {
@@ -70,6 +82,49 @@ public class DefaultTraceContext implements TraceContext {
 			StorageFactory storageFactory, Sampler sampler,
 			ServerMetaDataHolder serverMetaDataHolder,
 			final boolean traceActiveThread, final boolean traceDataSource) {
+		this(sqlCacheSize, agentInformation, storageFactory, sampler,
+				new TrueSampler(), serverMetaDataHolder, traceActiveThread,
+				traceDataSource);
+	}
+
+	/**
+	 * @param continuationSampler decides whether a trace continued from the previous node is traced here
+	 */
+	public DefaultTraceContext(final int sqlCacheSize,
+			final AgentInformation agentInformation,
+			StorageFactory storageFactory, Sampler sampler,
+			Sampler continuationSampler,
+			ServerMetaDataHolder serverMetaDataHolder,
+			final boolean traceActiveThread, final boolean traceDataSource) {
+		this(sqlCacheSize, agentInformation, storageFactory, sampler,
+				continuationSampler, null, serverMetaDataHolder,
+				traceActiveThread, traceDataSource);
+	}
+
+	/**
+	 * @param tailStorageFactory records the transactions the sampler rejected. null to disable tail sampling
+	 */
+	public DefaultTraceContext(final int sqlCacheSize,
+			final AgentInformation agentInformation,
+			StorageFactory storageFactory, Sampler sampler,
+			Sampler continuationSampler, TailSamplingStorageFactory tailStorageFactory,
+			ServerMetaDataHolder serverMetaDataHolder,
+			final boolean traceActiveThread, final boolean traceDataSource) {
+		this(sqlCacheSize, agentInformation, storageFactory, sampler,
+				continuationSampler, tailStorageFactory, serverMetaDataHolder,
+				traceActiveThread, traceDataSource, new ThreadLocalBinder<Trace>());
+	}
+
+	/**
+	 * @param traceBinder binds the current trace to its thread
+	 */
+	public DefaultTraceContext(final int sqlCacheSize,
+			final AgentInformation agentInformation,
+			StorageFactory storageFactory, Sampler sampler,
+			Sampler continuationSampler, TailSamplingStorageFactory tailStorageFactory,
+			ServerMetaDataHolder serverMetaDataHolder,
+			final boolean traceActiveThread, final boolean traceDataSource,
+			Binder<Trace> traceBinder) {
 		if (agentInformation == null) {
 			throw new NullPointerException("agentInformation must not be null");
 		}
@@ -79,13 +134,24 @@ public class DefaultTraceContext implements TraceContext {
 		if (sampler == null) {
 			throw new NullPointerException("sampler must not be null");
 		}
+		if (continuationSampler == null) {
+			throw new NullPointerException("continuationSampler must not be null");
+		}
 		this.agentInformation = agentInformation;
+		this.sampler = sampler;
+		this.storageFactory = storageFactory;
+		this.tailStorageFactory = tailStorageFactory;
+		this.transactionCounter = new DefaultTransactionCounter(
+				this.idGenerator, tailStorageFactory);
 
 		this.cachingSqlNormalizer = new DefaultCachingSqlNormalizer(
 				sqlCacheSize);
 
-		this.traceFactory = createTraceFactory(storageFactory, sampler,
-				traceActiveThread);
+		this.baseTraceFactory = new DefaultBaseTraceFactory(this,
+				storageFactory, sampler, continuationSampler,
+				tailStorageFactory, this.idGenerator);
+		this.traceFactory = createTraceFactory(this.baseTraceFactory,
+				traceBinder, traceActiveThread);
 
 		this.serverMetaDataHolder = serverMetaDataHolder;
 
@@ -96,11 +162,11 @@ public class DefaultTraceContext implements TraceContext {
 		}
 	}
 
-	private TraceFactory createTraceFactory(StorageFactory storageFactory,
-			Sampler sampler, boolean recordActiveThread) {
+	private TraceFactory createTraceFactory(
+			DefaultBaseTraceFactory defaultBaseTraceFactory,
+			Binder<Trace> traceBinder, boolean recordActiveThread) {
 		// TODO extract TraceFactory builder?
-		BaseTraceFactory baseTraceFactory = new DefaultBaseTraceFactory(this,
-				storageFactory, sampler, this.idGenerator);
+		BaseTraceFactory baseTraceFactory = defaultBaseTraceFactory;
 		Logger baseTraceFactoryLogger = LoggerFactory
 				.getLogger(DefaultBaseTraceFactory.class);
 		if (baseTraceFactoryLogger.isDebugEnabled()) {
@@ -108,7 +174,7 @@ public class DefaultTraceContext implements TraceContext {
 		}
 
 		TraceFactory traceFactory = new ThreadLocalTraceFactory(
-				baseTraceFactory);
+				baseTraceFactory, traceBinder);
 		if (recordActiveThread) {
 			traceFactory = ActiveTraceFactory.wrap(traceFactory);
 		}
@@ -150,6 +216,10 @@ public class DefaultTraceContext implements TraceContext {
 			throw new NullPointerException("profilerConfig must not be null");
 		}
 		this.profilerConfig = profilerConfig;
+		final long exceptionMessageDedupWindow = profilerConfig.getExceptionMessageDedupWindow();
+		if (exceptionMessageDedupWindow > 0) {
+			this.exceptionMetaDataCache = new ExceptionMetaDataCache(this, exceptionMessageDedupWindow);
+		}
 	}
 
 	@Override
@@ -266,6 +336,11 @@ public class DefaultTraceContext implements TraceContext {
 		return result.getId();
 	}
 
+	@Override
+	public ExceptionMetaDataCache getExceptionMetaDataCache() {
+		return exceptionMetaDataCache;
+	}
+
 	@Override
 	public TraceId createTraceId(final String transactionId,
 			final long parentSpanID, final long spanID, final short flags) {
@@ -345,4 +420,37 @@ public class DefaultTraceContext implements TraceContext {
 		return this.transactionCounter;
 	}
 
+	public DefaultBaseTraceFactory getBaseTraceFactory() {
+		return this.baseTraceFactory;
+	}
+
+	@Override
+	public CallStackOverflowCounter getCallStackOverflowCounter() {
+		return this.callStackOverflowCounter;
+	}
+
+	public StorageFactory getStorageFactory() {
+		return this.storageFactory;
+	}
+
+	public TailSamplingStorageFactory getTailSamplingStorageFactory() {
+		return this.tailStorageFactory;
+	}
+
+	public Sampler getSampler() {
+		return this.sampler;
+	}
+
+	public SimpleCache<String> getApiCache() {
+		return this.apiCache;
+	}
+
+	public SimpleCache<String> getStringCache() {
+		return this.stringCache;
+	}
+
+	public SimpleCache<String> getSqlCache() {
+		return this.cachingSqlNormalizer.getSqlCache();
+	}
+
 }
@@ -1,29 +1,45 @@
 package com.m2u.eyelink.context;
 
 import com.m2u.eyelink.agent.profiler.context.TransactionCounter;
+import com.m2u.eyelink.agent.profiler.context.storage.TailSamplingStorageFactory;
 
 public class DefaultTransactionCounter implements TransactionCounter {
     private final IdGenerator idGenerator;
+    // null if tail sampling is disabled
+    private final TailSamplingStorageFactory tailStorageFactory;
 
     public DefaultTransactionCounter(IdGenerator idGenerator) {
+        this(idGenerator, null);
+    }
+
+    /**
+     * @param tailStorageFactory a tail sampled transaction counts as sampled once it is sent and as unsampled once it is dropped
+     */
+    public DefaultTransactionCounter(IdGenerator idGenerator, TailSamplingStorageFactory tailStorageFactory) {
         if (idGenerator == null) {
             throw new NullPointerException("idGenerator cannot be null");
         }
         this.idGenerator = idGenerator;
+        this.tailStorageFactory = tailStorageFactory;
     }
     
     @Override
     public long getTransactionCount(SamplingType samplingType) {
-        // overflow improbable
         switch (samplingType) {
         case SAMPLED_NEW:
-            return idGenerator.currentTransactionId() - IdGenerator.INITIAL_TRANSACTION_ID;
+            if (tailStorageFactory != null) {
+                return idGenerator.getTransactionCount() + tailStorageFactory.getEmittedCount();
+            }
+            return idGenerator.getTransactionCount();
         case SAMPLED_CONTINUATION:
-            return Math.abs(idGenerator.currentContinuedTransactionId() - IdGenerator.INITIAL_CONTINUED_TRANSACTION_ID) / IdGenerator.DECREMENT_CYCLE;
+            return idGenerator.getContinuedTransactionCount();
         case UNSAMPLED_NEW:
-            return Math.abs(idGenerator.currentDisabledId() - IdGenerator.INITIAL_DISABLED_ID) / IdGenerator.DECREMENT_CYCLE;
+            if (tailStorageFactory != null) {
+                return idGenerator.getDisabledCount() + tailStorageFactory.getDiscardedCount() + tailStorageFactory.getOverflowCount();
+            }
+            return idGenerator.getDisabledCount();
         case UNSAMPLED_CONTINUATION:
-            return Math.abs(idGenerator.currentContinuedDisabledId() - IdGenerator.INITIAL_CONTINUED_DISABLED_ID) / IdGenerator.DECREMENT_CYCLE;
+            return idGenerator.getContinuedDisabledCount();
         default:
             return 0L;
         }
@@ -0,0 +1,12 @@
+package com.m2u.eyelink.context;
+
+/**
+ * Storage of a trace whose sampling is decided when its span is stored.
+ */
+public interface DeferredStorage extends Storage {
+
+    /**
+     * @return storage factory for the async traces of the trace. their data is sent or dropped together with the trace
+     */
+    StorageFactory getAsyncStorageFactory();
+}
@@ -8,12 +8,19 @@ public class DisableTrace implements Trace {
     public static final long DISABLE_TRACE_OBJECT_ID = -1;
 
     private final long id;
+    // the id received from the previous node when a continued trace is not sampled here. null otherwise
+    private final TraceId traceId;
     private final long startTime;
     private final Thread bindThread;
     private final DefaultTraceScopePool scopePool = new DefaultTraceScopePool();
     
     public DisableTrace(long id) {
+        this(id, null);
+    }
+
+    public DisableTrace(long id, TraceId traceId) {
         this.id = id;
+        this.traceId = traceId;
         this.startTime = System.currentTimeMillis();
         this.bindThread = Thread.currentThread();
     }
@@ -55,6 +62,9 @@ public class DisableTrace implements Trace {
 
     @Override
     public TraceId getTraceId() {
+        if (traceId != null) {
+            return traceId;
+        }
         throw new UnsupportedOperationException(UNSUPPORTED_OPERATION);
     }
 
@@ -64,6 +74,11 @@ public class DisableTrace implements Trace {
         return false;
     }
 
+    @Override
+    public boolean isSamplingDeferred() {
+        return false;
+    }
+
     @Override
     public boolean isRoot() {
         return false;
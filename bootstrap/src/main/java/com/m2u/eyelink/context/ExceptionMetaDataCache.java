@@ -0,0 +1,108 @@
+package com.m2u.eyelink.context;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import com.m2u.eyelink.util.StringUtils;
+
+/**
+ * Exception class ids and abbreviated messages kept per exception class, so that recording a repeated exception
+ * costs a {@link ClassValue} lookup and a string compare instead of a string cache lookup and an abbreviation.
+ * The entry is attached to the class and goes away with it, so generated or proxy exception classes do not leak.
+ * <p>
+ * With a message dedup window, a message that repeats for the same class within the window is recorded once
+ * and later exceptions only record the class id.
+ */
+public class ExceptionMetaDataCache {
+
+    static final int MAX_MESSAGE_SIZE = 256;
+
+    private final TraceContext traceContext;
+    private final long messageDedupWindow;
+
+    private final ClassValue<ExceptionClassMetaData> cache = new ClassValue<ExceptionClassMetaData>() {
+        @Override
+        protected ExceptionClassMetaData computeValue(Class<?> type) {
+            return new ExceptionClassMetaData(traceContext.cacheString(type.getName()));
+        }
+    };
+
+    private final LongAdder dedupCount = new LongAdder();
+
+    public ExceptionMetaDataCache(TraceContext traceContext) {
+        this(traceContext, 0);
+    }
+
+    /**
+     * @param messageDedupWindow millis. 0 to record every message
+     */
+    public ExceptionMetaDataCache(TraceContext traceContext, long messageDedupWindow) {
+        if (traceContext == null) {
+            throw new NullPointerException("traceContext must not be null");
+        }
+        if (messageDedupWindow < 0) {
+            throw new IllegalArgumentException("Invalid messageDedupWindow " + messageDedupWindow);
+        }
+        this.traceContext = traceContext;
+        this.messageDedupWindow = messageDedupWindow;
+    }
+
+    public int getExceptionClassId(Class<?> exceptionClass) {
+        return cache.get(exceptionClass).classId;
+    }
+
+    /**
+     * @return abbreviated message to record, null if there is none or it is deduplicated
+     */
+    public String getExceptionMessage(Class<?> exceptionClass, String message) {
+        if (message == null) {
+            return null;
+        }
+        final ExceptionClassMetaData metaData = cache.get(exceptionClass);
+        final LastMessage last = metaData.lastMessage;
+        if (last != null && (last.message == message || last.message.equals(message))) {
+            if (messageDedupWindow == 0) {
+                return last.abbreviatedMessage;
+            }
+            final long currentTime = System.currentTimeMillis();
+            if (currentTime - last.recordTime < messageDedupWindow) {
+                dedupCount.increment();
+                return null;
+            }
+            metaData.lastMessage = new LastMessage(message, last.abbreviatedMessage, currentTime);
+            return last.abbreviatedMessage;
+        }
+        final String abbreviatedMessage = StringUtils.abbreviate(message, MAX_MESSAGE_SIZE);
+        final long recordTime = messageDedupWindow == 0 ? 0 : System.currentTimeMillis();
+        metaData.lastMessage = new LastMessage(message, abbreviatedMessage, recordTime);
+        return abbreviatedMessage;
+    }
+
+    /**
+     * @return number of messages not recorded because they repeated within the dedup window
+     */
+    public long getDedupCount() {
+        return dedupCount.sum();
+    }
+
+    private static final class ExceptionClassMetaData {
+        private final int classId;
+        // racy by design. a lost update only costs another abbreviation
+        private volatile LastMessage lastMessage;
+
+        private ExceptionClassMetaData(int classId) {
+            this.classId = classId;
+        }
+    }
+
+    private static final class LastMessage {
+        private final String message;
+        private final String abbreviatedMessage;
+        private final long recordTime;
+
+        private LastMessage(String message, String abbreviatedMessage, long recordTime) {
+            this.message = message;
+            this.abbreviatedMessage = abbreviatedMessage;
+            this.recordTime = recordTime;
+        }
+    }
+}
@@ -9,6 +9,7 @@ import com.m2u.eyelink.util.ClassUtils;
 public enum HandshakePropertyType {
     SUPPORT_SERVER("supportServer", Boolean.class, false),
     SUPPORT_COMMAND_LIST("supportCommandList", List.class, false),
+    SUPPORT_REQUEST_BATCH("supportRequestBatch", Boolean.class, false),
 
     HOSTNAME("hostName", String.class),
     IP("ip", String.class),
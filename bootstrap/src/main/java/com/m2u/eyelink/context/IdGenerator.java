@@ -1,6 +1,7 @@
 package com.m2u.eyelink.context;
 
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 public class IdGenerator {
 	   // TODO might be a good idea to refactor these into SamplingType
@@ -20,46 +21,128 @@ public class IdGenerator {
     public static final int DECREMENT_CYCLE = 3;
     public static final int NEGATIVE_DECREMENT_CYCLE = DECREMENT_CYCLE * -1;
 
+    public static final int DEFAULT_BLOCK_SIZE = 64;
+
     // Unique id for tracing a internal stacktrace and calculating a slow time of activethreadcount
     // moved here in order to make codes simpler for now
     // id generator for sampled new traces
-    private final AtomicLong transactionId = new AtomicLong(INITIAL_TRANSACTION_ID);
+    private final IdSequence transactionId;
+    // id generator for new traces the sampler rejected but tail sampling records. shares the ids of sampled new traces
+    private final IdSequence tailTransactionId;
     // id generator for sampled continued traces
-    private final AtomicLong continuedTransactionId = new AtomicLong(INITIAL_CONTINUED_TRANSACTION_ID);
+    private final IdSequence continuedTransactionId;
     // id generator for unsampled new traces
-    private final AtomicLong disabledId = new AtomicLong(INITIAL_DISABLED_ID);
+    private final IdSequence disabledId;
     // id generator for unsampled continued traces
-    private final AtomicLong continuedDisabledId = new AtomicLong(INITIAL_CONTINUED_DISABLED_ID);
+    private final IdSequence continuedDisabledId;
+
+    public IdGenerator() {
+        this(DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * @param blockSize ids a thread takes from a shared sequence at once. 1 hands out ids strictly in order
+     */
+    public IdGenerator(int blockSize) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Invalid blockSize " + blockSize);
+        }
+        this.transactionId = new IdSequence(INITIAL_TRANSACTION_ID, 1, blockSize);
+        this.tailTransactionId = new IdSequence(this.transactionId.nextBlock, 1, blockSize);
+        this.continuedTransactionId = new IdSequence(INITIAL_CONTINUED_TRANSACTION_ID, NEGATIVE_DECREMENT_CYCLE, blockSize);
+        this.disabledId = new IdSequence(INITIAL_DISABLED_ID, NEGATIVE_DECREMENT_CYCLE, blockSize);
+        this.continuedDisabledId = new IdSequence(INITIAL_CONTINUED_DISABLED_ID, NEGATIVE_DECREMENT_CYCLE, blockSize);
+    }
 
     public long nextTransactionId() {
-        return this.transactionId.getAndIncrement();
+        return this.transactionId.next();
+    }
+
+    public long nextTailTransactionId() {
+        return this.tailTransactionId.next();
     }
 
     public long nextContinuedTransactionId() {
-        return this.continuedTransactionId.getAndAdd(NEGATIVE_DECREMENT_CYCLE);
+        return this.continuedTransactionId.next();
     }
 
     public long nextDisabledId() {
-        return this.disabledId.getAndAdd(NEGATIVE_DECREMENT_CYCLE);
+        return this.disabledId.next();
     }
 
     public long nextContinuedDisabledId() {
-        return this.continuedDisabledId.getAndAdd(NEGATIVE_DECREMENT_CYCLE);
+        return this.continuedDisabledId.next();
+    }
+
+    public long getTransactionCount() {
+        return this.transactionId.count();
     }
 
-    public long currentTransactionId() {
-        return this.transactionId.get();
+    public long getTailTransactionCount() {
+        return this.tailTransactionId.count();
     }
 
-    public long currentContinuedTransactionId() {
-        return this.continuedTransactionId.get();
+    public long getContinuedTransactionCount() {
+        return this.continuedTransactionId.count();
     }
 
-    public long currentDisabledId() {
-        return this.disabledId.get();
+    public long getDisabledCount() {
+        return this.disabledId.count();
+    }
+
+    public long getContinuedDisabledCount() {
+        return this.continuedDisabledId.count();
+    }
+
+    /**
+     * Ids of one sequence are unique but no longer in issue order across threads:
+     * each thread reserves blockSize ids with a single update of the shared counter and hands them out locally.
+     * Issued ids are counted on striped counters, unused ids of a block are simply skipped.
+     */
+    private static class IdSequence {
+        private final long step;
+        private final int blockSize;
+        private final AtomicLong nextBlock;
+        private final LongAdder count = new LongAdder();
+
+        private final ThreadLocal<IdBlock> localBlock = new ThreadLocal<IdBlock>() {
+            @Override
+            protected IdBlock initialValue() {
+                return new IdBlock();
+            }
+        };
+
+        private IdSequence(long initialId, long step, int blockSize) {
+            this(new AtomicLong(initialId), step, blockSize);
+        }
+
+        // counted on its own, ids taken from the blocks of another sequence
+        private IdSequence(AtomicLong nextBlock, long step, int blockSize) {
+            this.step = step;
+            this.blockSize = blockSize;
+            this.nextBlock = nextBlock;
+        }
+
+        private long next() {
+            final IdBlock block = localBlock.get();
+            if (block.remaining == 0) {
+                block.next = nextBlock.getAndAdd(step * blockSize);
+                block.remaining = blockSize;
+            }
+            final long id = block.next;
+            block.next += step;
+            block.remaining--;
+            count.increment();
+            return id;
+        }
+
+        private long count() {
+            return count.sum();
+        }
     }
 
-    public long currentContinuedDisabledId() {
-        return this.continuedDisabledId.get();
+    private static class IdBlock {
+        private long next;
+        private int remaining;
     }
 }
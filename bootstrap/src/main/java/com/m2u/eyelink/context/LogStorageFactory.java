@@ -15,6 +15,11 @@ public class LogStorageFactory implements StorageFactory {
 
     public static class LogStorage implements Storage {
         private final Logger logger = LoggerFactory.getLogger(this.getClass());
+        @Override
+        public SpanEvent newSpanEvent(Span span) {
+            return new SpanEvent(span);
+        }
+
         @Override
         public void store(SpanEvent spanEvent) {
             logger.debug("log spanEvent:{}", spanEvent);
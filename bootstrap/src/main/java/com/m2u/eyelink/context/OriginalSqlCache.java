@@ -0,0 +1,169 @@
+package com.m2u.eyelink.context;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Finished normalization results keyed by the original sql.
+ * <ul>
+ *     <li>identity : prepared statements pass the same String instance on every execution.
+ *     A small direct-mapped table on the identity hash finds those without hashing or comparing the sql.
+ *     A slot is only written while it is empty or holds an evicted entry, so colliding statements and sql built per call
+ *     do not write to the shared table on every hit.</li>
+ *     <li>weighted : the map is bounded by the chars of the original sql, normalized sql and output it holds,
+ *     so a few huge statements cannot keep a lot of memory. A statement heavier than 1/64 of it is not cached at all.
+ *     Eviction uses the probation and protected queues of {@link SimpleCache}, by weight instead of count.</li>
+ * </ul>
+ * A result stays valid after its entry is evicted, because sql ids are never reused.
+ */
+public class OriginalSqlCache {
+
+    private static final int IDENTITY_TABLE_SIZE = 256;
+    private static final int MAX_ENTRY_WEIGHT_RATIO = 64;
+    private static final int PROTECTED_PERCENT = 80;
+
+    private final AtomicReferenceArray<Entry> identityTable = new AtomicReferenceArray<Entry>(IDENTITY_TABLE_SIZE);
+    private final ConcurrentMap<String, Entry> cache = new ConcurrentHashMap<String, Entry>();
+    private final long maxWeight;
+    private final long maxProtectedWeight;
+    private final long maxEntryWeight;
+
+    // guarded by this
+    private final ArrayDeque<Entry> probation = new ArrayDeque<Entry>();
+    private final ArrayDeque<Entry> protectedQueue = new ArrayDeque<Entry>();
+    private long weight;
+    private long protectedWeight;
+    private int size;
+
+    /**
+     * @param maxWeight max chars held by the cache
+     */
+    public OriginalSqlCache(long maxWeight) {
+        if (maxWeight <= 0) {
+            throw new IllegalArgumentException("Invalid maxWeight " + maxWeight);
+        }
+        this.maxWeight = maxWeight;
+        this.maxProtectedWeight = maxWeight * PROTECTED_PERCENT / 100;
+        this.maxEntryWeight = Math.max(maxWeight / MAX_ENTRY_WEIGHT_RATIO, 1);
+    }
+
+    public CachedParsingResult get(String originalSql) {
+        final int index = identityIndex(originalSql);
+        final Entry identityEntry = identityTable.get(index);
+        if (identityEntry != null && identityEntry.originalSql == originalSql) {
+            return identityEntry.result;
+        }
+        final Entry entry = cache.get(originalSql);
+        if (entry == null) {
+            return null;
+        }
+        // avoid writing to a shared entry on every hit
+        if (!entry.referenced) {
+            entry.referenced = true;
+        }
+        installIdentity(index, identityEntry, entry);
+        return entry.result;
+    }
+
+    public void put(String originalSql, CachedParsingResult result) {
+        final long entryWeight = originalSql.length() + result.weight();
+        if (entryWeight > maxEntryWeight) {
+            return;
+        }
+        final Entry entry = new Entry(originalSql, result, entryWeight);
+        if (cache.putIfAbsent(originalSql, entry) != null) {
+            return;
+        }
+        admit(entry);
+        final int index = identityIndex(originalSql);
+        installIdentity(index, identityTable.get(index), entry);
+    }
+
+    private void installIdentity(int index, Entry current, Entry entry) {
+        if (current == null || current.evicted) {
+            identityTable.compareAndSet(index, current, entry);
+        }
+    }
+
+    private synchronized void admit(Entry entry) {
+        probation.addLast(entry);
+        weight += entry.weight;
+        size++;
+        while (weight > maxWeight) {
+            if (!evict()) {
+                break;
+            }
+        }
+    }
+
+    private boolean evict() {
+        Entry entry;
+        while ((entry = probation.pollFirst()) != null) {
+            if (entry.referenced) {
+                entry.referenced = false;
+                promote(entry);
+                continue;
+            }
+            remove(entry);
+            return true;
+        }
+        // every protected entry is looked at twice at most
+        int chance = protectedQueue.size();
+        while ((entry = protectedQueue.pollFirst()) != null) {
+            protectedWeight -= entry.weight;
+            if (entry.referenced && chance-- > 0) {
+                entry.referenced = false;
+                protectedQueue.addLast(entry);
+                protectedWeight += entry.weight;
+                continue;
+            }
+            remove(entry);
+            return true;
+        }
+        return false;
+    }
+
+    private void promote(Entry entry) {
+        protectedQueue.addLast(entry);
+        protectedWeight += entry.weight;
+        while (protectedWeight > maxProtectedWeight) {
+            // the least recently promoted goes back on probation
+            final Entry demoted = protectedQueue.pollFirst();
+            protectedWeight -= demoted.weight;
+            probation.addLast(demoted);
+        }
+    }
+
+    private void remove(Entry entry) {
+        cache.remove(entry.originalSql, entry);
+        entry.evicted = true;
+        weight -= entry.weight;
+        size--;
+    }
+
+    public synchronized long size() {
+        return size;
+    }
+
+    private int identityIndex(String originalSql) {
+        return System.identityHashCode(originalSql) & (IDENTITY_TABLE_SIZE - 1);
+    }
+
+    private static final class Entry {
+        private final String originalSql;
+        private final CachedParsingResult result;
+        private final long weight;
+        // hit since admission or since the last eviction pass
+        private volatile boolean referenced;
+        // its identity slot may be taken by another entry
+        private volatile boolean evicted;
+
+        private Entry(String originalSql, CachedParsingResult result, long weight) {
+            this.originalSql = originalSql;
+            this.result = result;
+            this.weight = weight;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.m2u.eyelink.context;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.m2u.eyelink.context.thrift.TAnnotation;
+
+/**
+ * Annotations with int, long or boolean values kept in parallel arrays instead of {@link Annotation} objects.
+ * They become {@link TAnnotation}s in {@link #flushTo(List)} when the owner is written, usually on the sender thread.
+ * The arrays are kept by {@link #clear()}, so a recycled span event records them without allocation.
+ * <p>
+ * Not thread safe. Recorded by the trace thread only.
+ */
+public final class PrimitiveAnnotations {
+
+    private static final byte INT = 0;
+    private static final byte LONG = 1;
+    private static final byte BOOLEAN = 2;
+
+    private static final int INITIAL_SIZE = 4;
+
+    private int[] keys;
+    private long[] values;
+    private byte[] types;
+    // number of object annotations recorded before each one, to keep the recording order
+    private int[] positions;
+    private int size;
+
+    public void addInt(int key, int value, int position) {
+        add(key, value, INT, position);
+    }
+
+    public void addLong(int key, long value, int position) {
+        add(key, value, LONG, position);
+    }
+
+    public void addBoolean(int key, boolean value, int position) {
+        add(key, value ? 1 : 0, BOOLEAN, position);
+    }
+
+    private void add(int key, long value, byte type, int position) {
+        if (keys == null) {
+            keys = new int[INITIAL_SIZE];
+            values = new long[INITIAL_SIZE];
+            types = new byte[INITIAL_SIZE];
+            positions = new int[INITIAL_SIZE];
+        } else if (size == keys.length) {
+            final int newSize = size << 1;
+            keys = Arrays.copyOf(keys, newSize);
+            values = Arrays.copyOf(values, newSize);
+            types = Arrays.copyOf(types, newSize);
+            positions = Arrays.copyOf(positions, newSize);
+        }
+        keys[size] = key;
+        values[size] = value;
+        types[size] = type;
+        positions[size] = position;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Merges the pending annotations into annotations in recording order and clears them.
+     *
+     * @param annotations object annotations of the owner, may be null
+     * @return the merged list, annotations itself if nothing is pending
+     */
+    public List<TAnnotation> flushTo(List<TAnnotation> annotations) {
+        final List<TAnnotation> merged = mergeTo(annotations, 0, size);
+        size = 0;
+        return merged;
+    }
+
+    /**
+     * Merges the annotations from index from to index to (exclusive) into annotations in recording order. Keeps them pending.
+     *
+     * @param annotations object annotations of the owner, may be null
+     * @return the merged list, annotations itself if the range is empty
+     */
+    List<TAnnotation> mergeTo(List<TAnnotation> annotations, int from, int to) {
+        if (from == to) {
+            return annotations;
+        }
+        final int objectSize = annotations == null ? 0 : annotations.size();
+        final List<TAnnotation> merged = new ArrayList<TAnnotation>(objectSize + to - from);
+        int pending = from;
+        for (int i = 0; i < objectSize; i++) {
+            while (pending < to && positions[pending] <= i) {
+                merged.add(newAnnotation(pending++));
+            }
+            merged.add(annotations.get(i));
+        }
+        while (pending < to) {
+            merged.add(newAnnotation(pending++));
+        }
+        return merged;
+    }
+
+    /**
+     * Appends the pending annotations to target, keeping their positions.
+     */
+    void appendTo(PrimitiveAnnotations target) {
+        for (int i = 0; i < size; i++) {
+            target.add(keys[i], values[i], types[i], positions[i]);
+        }
+    }
+
+    private TAnnotation newAnnotation(int index) {
+        final TAnnotation annotation = new TAnnotation(keys[index]);
+        final long value = values[index];
+        switch (types[index]) {
+            case INT:
+                annotation.setValue(TAnnotationValue.intValue((int) value));
+                break;
+            case LONG:
+                annotation.setValue(TAnnotationValue.longValue(value));
+                break;
+            case BOOLEAN:
+                annotation.setValue(TAnnotationValue.boolValue(value != 0));
+                break;
+            default:
+                throw new IllegalStateException("unknown type " + types[index]);
+        }
+        return annotation;
+    }
+}
@@ -1,17 +1,40 @@
 package com.m2u.eyelink.context;
 
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
 import com.m2u.eyelink.util.BytesUtils;
 
+/**
+ * Interns values to ids in a bounded table. A hit is a lock-free map read that returns the cached {@link Result} itself.
+ * <p>
+ * New values enter a probation queue. A value hit again while on probation is promoted to the protected queue,
+ * which holds up to {@link #PROTECTED_PERCENT} percent of the capacity. Eviction takes probation values first, oldest first,
+ * so a burst of one-off values only replaces other one-off values and frequently used values keep their ids.
+ * Protected values get a second chance if they were hit since the last eviction pass.
+ * An evicted value gets a new id on its next put and its metadata is sent again.
+ */
 public class SimpleCache<T> {
-	   // zero means not exist.
+
+    private static final int PROTECTED_PERCENT = 80;
+
+    // zero means not exist.
     private final AtomicInteger idGen;
-    private final ConcurrentMap<T, Result> cache;
+    private final ConcurrentMap<T, Entry<T>> cache;
+    private final int maxCacheSize;
+    private final int maxProtectedSize;
 
+    // guarded by this
+    private final ArrayDeque<Entry<T>> probation = new ArrayDeque<Entry<T>>();
+    private final ArrayDeque<Entry<T>> protectedQueue = new ArrayDeque<Entry<T>>();
+    private int size;
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
 
     public SimpleCache() {
         this(1024, 1);
@@ -22,34 +45,114 @@ public class SimpleCache<T> {
     }
 
     public SimpleCache(int cacheSize, int startValue) {
-        idGen = new AtomicInteger(startValue);
-        cache = createCache(cacheSize);
-    }
-
-    private ConcurrentMap<T, Result> createCache(int maxCacheSize) {
-        final CacheBuilder<Object, Object> cacheBuilder = CacheBuilder.newBuilder();
-        cacheBuilder.concurrencyLevel(64);
-        cacheBuilder.initialCapacity(maxCacheSize);
-        cacheBuilder.maximumSize(maxCacheSize);
-        Cache<T, Result> localCache = cacheBuilder.build();
-        ConcurrentMap<T, Result> cache = localCache.asMap();
-        return cache;
+        if (cacheSize <= 0) {
+            throw new IllegalArgumentException("Invalid cacheSize " + cacheSize);
+        }
+        this.idGen = new AtomicInteger(startValue);
+        this.cache = new ConcurrentHashMap<T, Entry<T>>(cacheSize);
+        this.maxCacheSize = cacheSize;
+        this.maxProtectedSize = (int) ((long) cacheSize * PROTECTED_PERCENT / 100);
     }
 
     public Result put(T value) {
-        final Result find = this.cache.get(value);
+        final Entry<T> find = this.cache.get(value);
         if (find != null) {
+            hitCount.increment();
+            // avoid writing to a shared entry on every hit
+            if (!find.referenced) {
+                find.referenced = true;
+            }
             return find;
         }
-        
+
+        missCount.increment();
         // Use negative values too to reduce data size
         final int newId = BytesUtils.zigzagToInt(idGen.getAndIncrement());
-        final Result result = new Result(false, newId);
-        final Result before = this.cache.putIfAbsent(value, result);
+        final Entry<T> entry = new Entry<T>(value, newId);
+        final Entry<T> before = this.cache.putIfAbsent(value, entry);
         if (before != null) {
             return before;
         }
+        admit(entry);
         return new Result(true, newId);
     }
 
+    private synchronized void admit(Entry<T> entry) {
+        probation.addLast(entry);
+        size++;
+        while (size > maxCacheSize) {
+            if (!evict()) {
+                break;
+            }
+        }
+    }
+
+    private boolean evict() {
+        Entry<T> entry;
+        while ((entry = probation.pollFirst()) != null) {
+            if (entry.referenced) {
+                entry.referenced = false;
+                promote(entry);
+                continue;
+            }
+            remove(entry);
+            return true;
+        }
+        // every protected entry is looked at twice at most
+        int chance = protectedQueue.size();
+        while ((entry = protectedQueue.pollFirst()) != null) {
+            if (entry.referenced && chance-- > 0) {
+                entry.referenced = false;
+                protectedQueue.addLast(entry);
+                continue;
+            }
+            remove(entry);
+            return true;
+        }
+        return false;
+    }
+
+    private void promote(Entry<T> entry) {
+        protectedQueue.addLast(entry);
+        while (protectedQueue.size() > maxProtectedSize) {
+            // the least recently promoted goes back on probation
+            probation.addLast(protectedQueue.pollFirst());
+        }
+    }
+
+    private void remove(Entry<T> entry) {
+        cache.remove(entry.key, entry);
+        size--;
+        evictionCount.increment();
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * @return number of values removed to stay within the cache size. each one is a metadata re-send if the value comes back
+     */
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    private static final class Entry<T> extends Result {
+        private final T key;
+        // hit since admission or since the last eviction pass
+        private volatile boolean referenced;
+
+        private Entry(T key, int id) {
+            super(false, id);
+            this.key = key;
+        }
+    }
 }
@@ -20,12 +20,24 @@ import org.apache.thrift.scheme.SchemeFactory;
 import org.apache.thrift.scheme.StandardScheme;
 import org.apache.thrift.scheme.TupleScheme;
 
+import com.m2u.eyelink.context.clock.SpanClock;
 import com.m2u.eyelink.context.thrift.TSpan;
+import com.m2u.eyelink.sender.DeferredAssembly;
 import com.m2u.eyelink.util.TransactionIdUtils;
 
-public class Span extends TSpan implements FrameAttachment {
+public class Span extends TSpan implements FrameAttachment, DeferredAssembly {
+    static final long NANOS_PER_MILLI = 1000 * 1000;
+
     private boolean timeRecording = true;
     private Object frameObject;
+    private PrimitiveAnnotations primitiveAnnotations;
+    // span events not yet turned into the span event list. see assemble()
+    private SpanEventRecords spanEventRecords;
+
+    // monotonic origin set by markBeforeTime() with nano timing
+    private boolean nanoMarked = false;
+    private long markNanos;
+    private long markTime;
     
     public Span() {
     }
@@ -55,11 +67,27 @@ public class Span extends TSpan implements FrameAttachment {
     }
 
     public void markBeforeTime() {
-        this.setStartTime(System.currentTimeMillis());
+        final long startTime = SpanClock.currentTimeMillis();
+        this.setStartTime(startTime);
+        if (SpanClock.isNanoTiming()) {
+            this.markNanos = System.nanoTime();
+            this.markTime = startTime;
+            this.nanoMarked = true;
+        }
     }
 
     public void markAfterTime() {
-        final int after = (int)(System.currentTimeMillis() - this.getStartTime());
+        final int after;
+        if (nanoMarked) {
+            final long elapsedNanos = toElapsedNanos(System.nanoTime());
+            after = (int) (elapsedNanos / NANOS_PER_MILLI);
+            final int elapsedMicros = toElapsedMicros(elapsedNanos);
+            if (elapsedMicros != -1) {
+                this.setElapsedMicros(elapsedMicros);
+            }
+        } else {
+            after = (int)(SpanClock.currentTimeMillis() - this.getStartTime());
+        }
 
         // TODO  have to change int to long
         if (after != 0) {
@@ -71,11 +99,95 @@ public class Span extends TSpan implements FrameAttachment {
         return this.getStartTime() + this.getElapsed();
     }
 
+    boolean isNanoMarked() {
+        return nanoMarked;
+    }
+
+    /**
+     * @return nanoseconds from startTime to nanoTime. startTime may have been replaced by recordStartTime() after the mark.
+     */
+    long toElapsedNanos(long nanoTime) {
+        return (markTime - this.getStartTime()) * NANOS_PER_MILLI + (nanoTime - markNanos);
+    }
+
+    /**
+     * @return -1 if out of the range of the elapsedMicros field
+     */
+    static int toElapsedMicros(long elapsedNanos) {
+        final long micros = elapsedNanos / 1000;
+        if (micros < 0 || micros > Integer.MAX_VALUE) {
+            return -1;
+        }
+        return (int) micros;
+    }
+
 
     public void addAnnotation(Annotation annotation) {
         this.addToAnnotations(annotation);
     }
 
+    public void addAnnotation(int key, int value) {
+        getPrimitiveAnnotations().addInt(key, value, getAnnotationsSize());
+    }
+
+    public void addAnnotation(int key, long value) {
+        getPrimitiveAnnotations().addLong(key, value, getAnnotationsSize());
+    }
+
+    public void addAnnotation(int key, boolean value) {
+        getPrimitiveAnnotations().addBoolean(key, value, getAnnotationsSize());
+    }
+
+    private PrimitiveAnnotations getPrimitiveAnnotations() {
+        if (primitiveAnnotations == null) {
+            primitiveAnnotations = new PrimitiveAnnotations();
+        }
+        return primitiveAnnotations;
+    }
+
+    /**
+     * @return number of primitive annotations not in getAnnotations() until the span is written
+     */
+    public int getPendingAnnotationSize() {
+        return primitiveAnnotations == null ? 0 : primitiveAnnotations.size();
+    }
+
+    /**
+     * moves the primitive annotations into getAnnotations()
+     */
+    public void flushAnnotations() {
+        if (primitiveAnnotations != null && primitiveAnnotations.size() > 0) {
+            this.setAnnotations(primitiveAnnotations.flushTo(this.getAnnotations()));
+        }
+    }
+
+    /**
+     * Sets the span events recorded after the last chunk. They become the span event list in {@link #assemble()}.
+     */
+    public void setSpanEventRecords(SpanEventRecords spanEventRecords) {
+        this.spanEventRecords = spanEventRecords;
+    }
+
+    @Override
+    public void assemble() {
+        final SpanEventRecords spanEventRecords = this.spanEventRecords;
+        if (spanEventRecords == null) {
+            return;
+        }
+        this.spanEventRecords = null;
+        final List<TSpanEvent> spanEventList = new ArrayList<TSpanEvent>(spanEventRecords.size());
+        spanEventRecords.toSpanEventList(spanEventList);
+        spanEventRecords.recycle();
+        setSpanEventList(spanEventList);
+    }
+
+    @Override
+    public void write(org.apache.thrift.protocol.TProtocol oprot) throws org.apache.thrift.TException {
+        assemble();
+        flushAnnotations();
+        super.write(oprot);
+    }
+
     public void setExceptionInfo(int exceptionClassId, String exceptionMessage) {
         final TIntStringValue exceptionInfo = new TIntStringValue(exceptionClassId);
         if (exceptionMessage != null && !exceptionMessage.isEmpty()) {
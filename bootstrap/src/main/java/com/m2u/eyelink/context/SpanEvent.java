@@ -1,17 +1,44 @@
 package com.m2u.eyelink.context;
 
-public class SpanEvent extends TSpanEvent implements FrameAttachment {
+import com.m2u.eyelink.context.clock.SpanClock;
+import com.m2u.eyelink.context.recycle.Recyclable;
+import com.m2u.eyelink.context.recycle.Recycler;
 
-    private final Span span;
+public class SpanEvent extends TSpanEvent implements FrameAttachment, Recyclable {
+
+    // null if not pooled
+    private final Recycler.Handle<SpanEvent> handle;
+    private Span span;
     private int stackId;
     private boolean timeRecording = true;
     private Object frameObject;
+    // kept for reuse when recycled
+    private PrimitiveAnnotations primitiveAnnotations;
+
+    // nano timing only
+    private boolean nanoMarked = false;
+    private long startNanos;
 
     public SpanEvent(Span span) {
         if (span == null) {
             throw new NullPointerException("span must not be null");
         }
         this.span = span;
+        this.handle = null;
+    }
+
+    SpanEvent(Recycler.Handle<SpanEvent> handle) {
+        if (handle == null) {
+            throw new NullPointerException("handle must not be null");
+        }
+        this.handle = handle;
+    }
+
+    void setSpan(Span span) {
+        if (span == null) {
+            throw new NullPointerException("span must not be null");
+        }
+        this.span = span;
     }
 
     public Span getSpan() {
@@ -22,10 +49,51 @@ public class SpanEvent extends TSpanEvent implements FrameAttachment {
         this.addToAnnotations(annotation);
     }
 
-    private void addToAnnotations(Annotation annotation) {
-		// TODO Auto-generated method stub
-		
-	}
+    public void addAnnotation(int key, int value) {
+        getPrimitiveAnnotations().addInt(key, value, getAnnotationsSize());
+    }
+
+    public void addAnnotation(int key, long value) {
+        getPrimitiveAnnotations().addLong(key, value, getAnnotationsSize());
+    }
+
+    public void addAnnotation(int key, boolean value) {
+        getPrimitiveAnnotations().addBoolean(key, value, getAnnotationsSize());
+    }
+
+    private PrimitiveAnnotations getPrimitiveAnnotations() {
+        if (primitiveAnnotations == null) {
+            primitiveAnnotations = new PrimitiveAnnotations();
+        }
+        return primitiveAnnotations;
+    }
+
+    /**
+     * @return number of primitive annotations not in getAnnotations() until the span event is written
+     */
+    public int getPendingAnnotationSize() {
+        return primitiveAnnotations == null ? 0 : primitiveAnnotations.size();
+    }
+
+    // null if none were recorded
+    PrimitiveAnnotations getPendingAnnotations() {
+        return primitiveAnnotations;
+    }
+
+    /**
+     * moves the primitive annotations into getAnnotations()
+     */
+    public void flushAnnotations() {
+        if (primitiveAnnotations != null && primitiveAnnotations.size() > 0) {
+            this.setAnnotations(primitiveAnnotations.flushTo(this.getAnnotations()));
+        }
+    }
+
+    @Override
+    public void write(org.apache.thrift.protocol.TProtocol oprot) throws org.apache.thrift.TException {
+        flushAnnotations();
+        super.write(oprot);
+    }
 
 	public void setExceptionInfo(int exceptionClassId, String exceptionMessage) {
         final TIntStringValue exceptionInfo = new TIntStringValue(exceptionClassId);
@@ -38,8 +106,16 @@ public class SpanEvent extends TSpanEvent implements FrameAttachment {
 
     public void markStartTime() {
 //        spanEvent.setStartElapsed((int) (startTime - parentSpanStartTime));
-        final int startElapsed = (int)(System.currentTimeMillis() - span.getStartTime());
-        
+        final int startElapsed;
+        if (span.isNanoMarked()) {
+            final long nanoTime = System.nanoTime();
+            this.startNanos = nanoTime;
+            this.nanoMarked = true;
+            startElapsed = (int) (span.toElapsedNanos(nanoTime) / Span.NANOS_PER_MILLI);
+        } else {
+            startElapsed = (int)(SpanClock.currentTimeMillis() - span.getStartTime());
+        }
+
         // If startElapsed is 0, logic without mark is useless. Don't do that.
         // The first SpanEvent of a Span could result in 0. Not likely afterwards.
         this.setStartElapsed(startElapsed);
@@ -51,7 +127,17 @@ public class SpanEvent extends TSpanEvent implements FrameAttachment {
     }
 
 	public void markAfterTime() {
-        final int endElapsed = (int)(System.currentTimeMillis() - getStartTime());
+        final int endElapsed;
+        if (nanoMarked) {
+            final long elapsedNanos = System.nanoTime() - startNanos;
+            endElapsed = (int) (elapsedNanos / Span.NANOS_PER_MILLI);
+            final int elapsedMicros = Span.toElapsedMicros(elapsedNanos);
+            if (elapsedMicros != -1) {
+                this.setElapsedMicros(elapsedMicros);
+            }
+        } else {
+            endElapsed = (int)(SpanClock.currentTimeMillis() - getStartTime());
+        }
         if (endElapsed != 0) {
             this.setEndElapsed(endElapsed);
         }
@@ -97,6 +183,30 @@ public class SpanEvent extends TSpanEvent implements FrameAttachment {
         return delete;
     }
 
+    @Override
+    public void recycle() {
+        if (handle != null) {
+            handle.recycle();
+        }
+    }
+
+    public boolean isRecycled() {
+        return handle != null && handle.isRecycled();
+    }
+
+    void resetForRecycle() {
+        clear();
+        if (primitiveAnnotations != null) {
+            primitiveAnnotations.clear();
+        }
+        this.span = null;
+        this.stackId = 0;
+        this.timeRecording = true;
+        this.frameObject = null;
+        this.nanoMarked = false;
+        this.startNanos = 0;
+    }
+
 	public void setSequence(short s) {
 		// TODO Auto-generated method stub
 		
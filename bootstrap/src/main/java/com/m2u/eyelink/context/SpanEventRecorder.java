@@ -34,6 +34,10 @@ public interface SpanEventRecorder extends FrameAttachment  {
 
     void recordAttribute(AnnotationKey key, int value);
 
+    void recordAttribute(AnnotationKey key, long value);
+
+    void recordAttribute(AnnotationKey key, boolean value);
+
     void recordAttribute(AnnotationKey key, Object value);
 
     void recordServiceType(ServiceType serviceType);
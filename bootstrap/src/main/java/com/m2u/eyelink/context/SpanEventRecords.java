@@ -0,0 +1,294 @@
+package com.m2u.eyelink.context;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.m2u.eyelink.context.recycle.Recyclable;
+import com.m2u.eyelink.context.recycle.Recycler;
+import com.m2u.eyelink.context.thrift.TAnnotation;
+
+/**
+ * Finished SpanEvents of one span kept as primitive records in parallel arrays.
+ * The trace thread copies a SpanEvent in with {@link #add(SpanEvent)} and recycles it right away, so only the events
+ * on the call stack stay alive as objects. {@link #toSpanEventList(List)} builds the TSpanEvents later, on the sender thread.
+ * Object values such as annotation lists and strings are referenced, not copied.
+ * <p>
+ * Not thread safe. Owned by the trace thread until it is handed to the sender with the span or chunk.
+ */
+public final class SpanEventRecords implements Recyclable {
+
+    private static final int INITIAL_SIZE = 16;
+
+    // fields set on the recorded event
+    private static final int SPAN_ID = 1;
+    private static final int SEQUENCE = 1 << 1;
+    private static final int START_ELAPSED = 1 << 2;
+    private static final int END_ELAPSED = 1 << 3;
+    private static final int SERVICE_TYPE = 1 << 4;
+    private static final int DEPTH = 1 << 5;
+    private static final int NEXT_SPAN_ID = 1 << 6;
+    private static final int API_ID = 1 << 7;
+    private static final int ASYNC_ID = 1 << 8;
+    private static final int NEXT_ASYNC_ID = 1 << 9;
+    private static final int ASYNC_SEQUENCE = 1 << 10;
+    private static final int ELAPSED_MICROS = 1 << 11;
+
+    // null if not pooled
+    private final Recycler.Handle<SpanEventRecords> handle;
+
+    private Span span;
+    private int size;
+
+    private int[] fieldFlags;
+    private long[] spanIds;
+    private short[] sequences;
+    private int[] startElapseds;
+    private int[] endElapseds;
+    private short[] serviceTypes;
+    private int[] depths;
+    private long[] nextSpanIds;
+    private int[] apiIds;
+    private int[] asyncIds;
+    private int[] nextAsyncIds;
+    private short[] asyncSequences;
+    private int[] elapsedMicros;
+    private String[] rpcs;
+    private String[] endPoints;
+    private String[] destinationIds;
+    private TIntStringValue[] exceptionInfos;
+    private Object[] annotations;
+    // primitive annotations of all events. those of event i end at annotationEnds[i]
+    private final PrimitiveAnnotations primitiveAnnotations = new PrimitiveAnnotations();
+    private int[] annotationEnds;
+
+    public SpanEventRecords() {
+        this.handle = null;
+        allocate(INITIAL_SIZE);
+    }
+
+    SpanEventRecords(Recycler.Handle<SpanEventRecords> handle) {
+        if (handle == null) {
+            throw new NullPointerException("handle must not be null");
+        }
+        this.handle = handle;
+        allocate(INITIAL_SIZE);
+    }
+
+    private void allocate(int capacity) {
+        fieldFlags = new int[capacity];
+        spanIds = new long[capacity];
+        sequences = new short[capacity];
+        startElapseds = new int[capacity];
+        endElapseds = new int[capacity];
+        serviceTypes = new short[capacity];
+        depths = new int[capacity];
+        nextSpanIds = new long[capacity];
+        apiIds = new int[capacity];
+        asyncIds = new int[capacity];
+        nextAsyncIds = new int[capacity];
+        asyncSequences = new short[capacity];
+        elapsedMicros = new int[capacity];
+        rpcs = new String[capacity];
+        endPoints = new String[capacity];
+        destinationIds = new String[capacity];
+        exceptionInfos = new TIntStringValue[capacity];
+        annotations = new Object[capacity];
+        annotationEnds = new int[capacity];
+    }
+
+    private void grow() {
+        final int capacity = fieldFlags.length << 1;
+        fieldFlags = Arrays.copyOf(fieldFlags, capacity);
+        spanIds = Arrays.copyOf(spanIds, capacity);
+        sequences = Arrays.copyOf(sequences, capacity);
+        startElapseds = Arrays.copyOf(startElapseds, capacity);
+        endElapseds = Arrays.copyOf(endElapseds, capacity);
+        serviceTypes = Arrays.copyOf(serviceTypes, capacity);
+        depths = Arrays.copyOf(depths, capacity);
+        nextSpanIds = Arrays.copyOf(nextSpanIds, capacity);
+        apiIds = Arrays.copyOf(apiIds, capacity);
+        asyncIds = Arrays.copyOf(asyncIds, capacity);
+        nextAsyncIds = Arrays.copyOf(nextAsyncIds, capacity);
+        asyncSequences = Arrays.copyOf(asyncSequences, capacity);
+        elapsedMicros = Arrays.copyOf(elapsedMicros, capacity);
+        rpcs = Arrays.copyOf(rpcs, capacity);
+        endPoints = Arrays.copyOf(endPoints, capacity);
+        destinationIds = Arrays.copyOf(destinationIds, capacity);
+        exceptionInfos = Arrays.copyOf(exceptionInfos, capacity);
+        annotations = Arrays.copyOf(annotations, capacity);
+        annotationEnds = Arrays.copyOf(annotationEnds, capacity);
+    }
+
+    /**
+     * Copies a finished SpanEvent. The SpanEvent may be recycled afterwards.
+     */
+    public void add(SpanEvent spanEvent) {
+        if (spanEvent == null) {
+            throw new NullPointerException("spanEvent must not be null");
+        }
+        if (size == fieldFlags.length) {
+            grow();
+        }
+        if (size == 0) {
+            this.span = spanEvent.getSpan();
+        }
+        final int index = size;
+        int flags = 0;
+        if (spanEvent.isSetSpanId()) {
+            flags |= SPAN_ID;
+            spanIds[index] = spanEvent.getSpanId();
+        }
+        if (spanEvent.isSetSequence()) {
+            flags |= SEQUENCE;
+            sequences[index] = spanEvent.getSequence();
+        }
+        if (spanEvent.isSetStartElapsed()) {
+            flags |= START_ELAPSED;
+            startElapseds[index] = spanEvent.getStartElapsed();
+        }
+        if (spanEvent.isSetEndElapsed()) {
+            flags |= END_ELAPSED;
+            endElapseds[index] = spanEvent.getEndElapsed();
+        }
+        if (spanEvent.isSetServiceType()) {
+            flags |= SERVICE_TYPE;
+            serviceTypes[index] = spanEvent.getServiceType();
+        }
+        if (spanEvent.isSetDepth()) {
+            flags |= DEPTH;
+            depths[index] = spanEvent.getDepth();
+        }
+        if (spanEvent.isSetNextSpanId()) {
+            flags |= NEXT_SPAN_ID;
+            nextSpanIds[index] = spanEvent.getNextSpanId();
+        }
+        if (spanEvent.isSetApiId()) {
+            flags |= API_ID;
+            apiIds[index] = spanEvent.getApiId();
+        }
+        if (spanEvent.isSetAsyncId()) {
+            flags |= ASYNC_ID;
+            asyncIds[index] = spanEvent.getAsyncId();
+        }
+        if (spanEvent.isSetNextAsyncId()) {
+            flags |= NEXT_ASYNC_ID;
+            nextAsyncIds[index] = spanEvent.getNextAsyncId();
+        }
+        if (spanEvent.isSetAsyncSequence()) {
+            flags |= ASYNC_SEQUENCE;
+            asyncSequences[index] = spanEvent.getAsyncSequence();
+        }
+        if (spanEvent.isSetElapsedMicros()) {
+            flags |= ELAPSED_MICROS;
+            elapsedMicros[index] = spanEvent.getElapsedMicros();
+        }
+        fieldFlags[index] = flags;
+        rpcs[index] = spanEvent.getRpc();
+        endPoints[index] = spanEvent.getEndPoint();
+        destinationIds[index] = spanEvent.getDestinationId();
+        exceptionInfos[index] = spanEvent.getExceptionInfo();
+        annotations[index] = spanEvent.getAnnotations();
+
+        final PrimitiveAnnotations pending = spanEvent.getPendingAnnotations();
+        if (pending != null) {
+            pending.appendTo(primitiveAnnotations);
+        }
+        annotationEnds[index] = primitiveAnnotations.size();
+        size++;
+    }
+
+    /**
+     * @return the span of the recorded events, null if empty
+     */
+    public Span getSpan() {
+        return span;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Builds a TSpanEvent for each record and adds it to spanEventList, in recording order.
+     */
+    @SuppressWarnings("unchecked")
+    public void toSpanEventList(List<TSpanEvent> spanEventList) {
+        if (spanEventList == null) {
+            throw new NullPointerException("spanEventList must not be null");
+        }
+        int annotationStart = 0;
+        for (int i = 0; i < size; i++) {
+            final TSpanEvent spanEvent = new TSpanEvent();
+            final int flags = fieldFlags[i];
+            if ((flags & SPAN_ID) != 0) {
+                spanEvent.setSpanId(spanIds[i]);
+            }
+            if ((flags & SEQUENCE) != 0) {
+                spanEvent.setSequence(sequences[i]);
+            }
+            if ((flags & START_ELAPSED) != 0) {
+                spanEvent.setStartElapsed(startElapseds[i]);
+            }
+            if ((flags & END_ELAPSED) != 0) {
+                spanEvent.setEndElapsed(endElapseds[i]);
+            }
+            if ((flags & SERVICE_TYPE) != 0) {
+                spanEvent.setServiceType(serviceTypes[i]);
+            }
+            if ((flags & DEPTH) != 0) {
+                spanEvent.setDepth(depths[i]);
+            }
+            if ((flags & NEXT_SPAN_ID) != 0) {
+                spanEvent.setNextSpanId(nextSpanIds[i]);
+            }
+            if ((flags & API_ID) != 0) {
+                spanEvent.setApiId(apiIds[i]);
+            }
+            if ((flags & ASYNC_ID) != 0) {
+                spanEvent.setAsyncId(asyncIds[i]);
+            }
+            if ((flags & NEXT_ASYNC_ID) != 0) {
+                spanEvent.setNextAsyncId(nextAsyncIds[i]);
+            }
+            if ((flags & ASYNC_SEQUENCE) != 0) {
+                spanEvent.setAsyncSequence(asyncSequences[i]);
+            }
+            if ((flags & ELAPSED_MICROS) != 0) {
+                spanEvent.setElapsedMicros(elapsedMicros[i]);
+            }
+            spanEvent.setRpc(rpcs[i]);
+            spanEvent.setEndPoint(endPoints[i]);
+            spanEvent.setDestinationId(destinationIds[i]);
+            spanEvent.setExceptionInfo(exceptionInfos[i]);
+
+            final int annotationEnd = annotationEnds[i];
+            spanEvent.setAnnotations(primitiveAnnotations.mergeTo((List<TAnnotation>) annotations[i], annotationStart, annotationEnd));
+            annotationStart = annotationEnd;
+
+            spanEventList.add(spanEvent);
+        }
+    }
+
+    @Override
+    public void recycle() {
+        if (handle != null) {
+            handle.recycle();
+        }
+    }
+
+    void resetForRecycle() {
+        // release the referenced values
+        Arrays.fill(rpcs, 0, size, null);
+        Arrays.fill(endPoints, 0, size, null);
+        Arrays.fill(destinationIds, 0, size, null);
+        Arrays.fill(exceptionInfos, 0, size, null);
+        Arrays.fill(annotations, 0, size, null);
+        primitiveAnnotations.clear();
+        this.span = null;
+        this.size = 0;
+    }
+}
@@ -0,0 +1,23 @@
+package com.m2u.eyelink.context;
+
+import com.m2u.eyelink.context.recycle.Recycler;
+
+public class SpanEventRecordsRecycler extends Recycler<SpanEventRecords> {
+
+    public SpanEventRecordsRecycler() {
+    }
+
+    public SpanEventRecordsRecycler(int maxCapacityPerThread) {
+        super(maxCapacityPerThread);
+    }
+
+    @Override
+    protected SpanEventRecords newObject(Handle<SpanEventRecords> handle) {
+        return new SpanEventRecords(handle);
+    }
+
+    @Override
+    protected void resetObject(SpanEventRecords spanEventRecords) {
+        spanEventRecords.resetForRecycle();
+    }
+}
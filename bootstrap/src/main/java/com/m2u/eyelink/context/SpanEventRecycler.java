@@ -0,0 +1,29 @@
+package com.m2u.eyelink.context;
+
+import com.m2u.eyelink.context.recycle.Recycler;
+
+public class SpanEventRecycler extends Recycler<SpanEvent> {
+
+    public SpanEventRecycler() {
+    }
+
+    public SpanEventRecycler(int maxCapacityPerThread) {
+        super(maxCapacityPerThread);
+    }
+
+    public SpanEvent get(Span span) {
+        final SpanEvent spanEvent = get();
+        spanEvent.setSpan(span);
+        return spanEvent;
+    }
+
+    @Override
+    protected SpanEvent newObject(Handle<SpanEvent> handle) {
+        return new SpanEvent(handle);
+    }
+
+    @Override
+    protected void resetObject(SpanEvent spanEvent) {
+        spanEvent.resetForRecycle();
+    }
+}
@@ -35,6 +35,10 @@ public interface SpanRecorder extends FrameAttachment {
 
     void recordAttribute(AnnotationKey key, int value);
 
+    void recordAttribute(AnnotationKey key, long value);
+
+    void recordAttribute(AnnotationKey key, boolean value);
+
     void recordAttribute(AnnotationKey key, Object value);
 
     void recordServiceType(ServiceType serviceType);
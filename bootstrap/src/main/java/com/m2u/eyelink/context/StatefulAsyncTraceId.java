@@ -83,6 +83,11 @@ public class StatefulAsyncTraceId implements AsyncTraceId, AsyncStateSupport {
         return this.traceId.getParentTraceId();
     }
 
+    @Override
+    public StorageFactory getDeferredStorageFactory() {
+        return this.traceId.getDeferredStorageFactory();
+    }
+
     @Override
     public AsyncState getAsyncState() {
         return asyncState;
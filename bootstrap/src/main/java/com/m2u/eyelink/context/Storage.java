@@ -2,6 +2,14 @@ package com.m2u.eyelink.context;
 
 public interface Storage {
 
+    /**
+     * Creates a SpanEvent that is going to be stored here.
+     * A storage whose SpanEvents are recycled after sending hands out pooled instances.
+     *
+     * @param span
+     */
+    SpanEvent newSpanEvent(Span span);
+
     /**
      *
      * @param spanEvent
@@ -41,6 +41,7 @@ public class TSpanEvent implements org.apache.thrift.TBase<TSpanEvent, TSpanEven
   private static final org.apache.thrift.protocol.TField ASYNC_ID_FIELD_DESC = new org.apache.thrift.protocol.TField("asyncId", org.apache.thrift.protocol.TType.I32, (short)30);
   private static final org.apache.thrift.protocol.TField NEXT_ASYNC_ID_FIELD_DESC = new org.apache.thrift.protocol.TField("nextAsyncId", org.apache.thrift.protocol.TType.I32, (short)31);
   private static final org.apache.thrift.protocol.TField ASYNC_SEQUENCE_FIELD_DESC = new org.apache.thrift.protocol.TField("asyncSequence", org.apache.thrift.protocol.TType.I16, (short)32);
+  private static final org.apache.thrift.protocol.TField ELAPSED_MICROS_FIELD_DESC = new org.apache.thrift.protocol.TField("elapsedMicros", org.apache.thrift.protocol.TType.I32, (short)40);
 
   private static final Map<Class<? extends IScheme>, SchemeFactory> schemes = new HashMap<Class<? extends IScheme>, SchemeFactory>();
   static {
@@ -64,6 +65,7 @@ public class TSpanEvent implements org.apache.thrift.TBase<TSpanEvent, TSpanEven
   private int asyncId; // optional
   private int nextAsyncId; // optional
   private short asyncSequence; // optional
+  private int elapsedMicros; // optional
 
   /** The set of fields this struct contains, along with convenience methods for finding and manipulating them. */
   public enum _Fields implements org.apache.thrift.TFieldIdEnum {
@@ -82,7 +84,8 @@ public class TSpanEvent implements org.apache.thrift.TBase<TSpanEvent, TSpanEven
     EXCEPTION_INFO((short)26, "exceptionInfo"),
     ASYNC_ID((short)30, "asyncId"),
     NEXT_ASYNC_ID((short)31, "nextAsyncId"),
-    ASYNC_SEQUENCE((short)32, "asyncSequence");
+    ASYNC_SEQUENCE((short)32, "asyncSequence"),
+    ELAPSED_MICROS((short)40, "elapsedMicros");
 
     private static final Map<String, _Fields> byName = new HashMap<String, _Fields>();
 
@@ -129,6 +132,8 @@ public class TSpanEvent implements org.apache.thrift.TBase<TSpanEvent, TSpanEven
           return NEXT_ASYNC_ID;
         case 32: // ASYNC_SEQUENCE
           return ASYNC_SEQUENCE;
+        case 40: // ELAPSED_MICROS
+          return ELAPSED_MICROS;
         default:
           return null;
       }
@@ -180,8 +185,9 @@ public class TSpanEvent implements org.apache.thrift.TBase<TSpanEvent, TSpanEven
   private static final int __ASYNCID_ISSET_ID = 8;
   private static final int __NEXTASYNCID_ISSET_ID = 9;
   private static final int __ASYNCSEQUENCE_ISSET_ID = 10;
+  private static final int __ELAPSEDMICROS_ISSET_ID = 11;
   private short __isset_bitfield = 0;
-  private static final _Fields optionals[] = {_Fields.SPAN_ID,_Fields.END_ELAPSED,_Fields.RPC,_Fields.END_POINT,_Fields.ANNOTATIONS,_Fields.DEPTH,_Fields.NEXT_SPAN_ID,_Fields.DESTINATION_ID,_Fields.API_ID,_Fields.EXCEPTION_INFO,_Fields.ASYNC_ID,_Fields.NEXT_ASYNC_ID,_Fields.ASYNC_SEQUENCE};
+  private static final _Fields optionals[] = {_Fields.SPAN_ID,_Fields.END_ELAPSED,_Fields.RPC,_Fields.END_POINT,_Fields.ANNOTATIONS,_Fields.DEPTH,_Fields.NEXT_SPAN_ID,_Fields.DESTINATION_ID,_Fields.API_ID,_Fields.EXCEPTION_INFO,_Fields.ASYNC_ID,_Fields.NEXT_ASYNC_ID,_Fields.ASYNC_SEQUENCE,_Fields.ELAPSED_MICROS};
   public static final Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> metaDataMap;
   static {
     Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> tmpMap = new EnumMap<_Fields, org.apache.thrift.meta_data.FieldMetaData>(_Fields.class);
@@ -218,6 +224,8 @@ public class TSpanEvent implements org.apache.thrift.TBase<TSpanEvent, TSpanEven
         new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.I32)));
     tmpMap.put(_Fields.ASYNC_SEQUENCE, new org.apache.thrift.meta_data.FieldMetaData("asyncSequence", org.apache.thrift.TFieldRequirementType.OPTIONAL, 
         new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.I16)));
+    tmpMap.put(_Fields.ELAPSED_MICROS, new org.apache.thrift.meta_data.FieldMetaData("elapsedMicros", org.apache.thrift.TFieldRequirementType.OPTIONAL, 
+        new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.I32)));
     metaDataMap = Collections.unmodifiableMap(tmpMap);
     org.apache.thrift.meta_data.FieldMetaData.addStructMetaDataMap(TSpanEvent.class, metaDataMap);
   }
@@ -280,6 +288,7 @@ public class TSpanEvent implements org.apache.thrift.TBase<TSpanEvent, TSpanEven
     this.asyncId = other.asyncId;
     this.nextAsyncId = other.nextAsyncId;
     this.asyncSequence = other.asyncSequence;
+    this.elapsedMicros = other.elapsedMicros;
   }
 
   public TSpanEvent deepCopy() {
@@ -315,6 +324,8 @@ public class TSpanEvent implements org.apache.thrift.TBase<TSpanEvent, TSpanEven
     this.nextAsyncId = 0;
     setAsyncSequenceIsSet(false);
     this.asyncSequence = 0;
+    setElapsedMicrosIsSet(false);
+    this.elapsedMicros = 0;
   }
 
   public long getSpanId() {
@@ -689,6 +700,28 @@ public class TSpanEvent implements org.apache.thrift.TBase<TSpanEvent, TSpanEven
     __isset_bitfield = EncodingUtils.setBit(__isset_bitfield, __ASYNCSEQUENCE_ISSET_ID, value);
   }
 
+  public int getElapsedMicros() {
+    return this.elapsedMicros;
+  }
+
+  public void setElapsedMicros(int elapsedMicros) {
+    this.elapsedMicros = elapsedMicros;
+    setElapsedMicrosIsSet(true);
+  }
+
+  public void unsetElapsedMicros() {
+    __isset_bitfield = EncodingUtils.clearBit(__isset_bitfield, __ELAPSEDMICROS_ISSET_ID);
+  }
+
+  /** Returns true if field elapsedMicros is set (has been assigned a value) and false otherwise */
+  public boolean isSetElapsedMicros() {
+    return EncodingUtils.testBit(__isset_bitfield, __ELAPSEDMICROS_ISSET_ID);
+  }
+
+  public void setElapsedMicrosIsSet(boolean value) {
+    __isset_bitfield = EncodingUtils.setBit(__isset_bitfield, __ELAPSEDMICROS_ISSET_ID, value);
+  }
+
   public void setFieldValue(_Fields field, Object value) {
     switch (field) {
     case SPAN_ID:
@@ -819,6 +852,14 @@ public class TSpanEvent implements org.apache.thrift.TBase<TSpanEvent, TSpanEven
       }
       break;
 
+    case ELAPSED_MICROS:
+      if (value == null) {
+        unsetElapsedMicros();
+      } else {
+        setElapsedMicros((Integer)value);
+      }
+      break;
+
     }
   }
 
@@ -872,6 +913,9 @@ public class TSpanEvent implements org.apache.thrift.TBase<TSpanEvent, TSpanEven
     case ASYNC_SEQUENCE:
       return Short.valueOf(getAsyncSequence());
 
+    case ELAPSED_MICROS:
+      return Integer.valueOf(getElapsedMicros());
+
     }
     throw new IllegalStateException();
   }
@@ -915,6 +959,8 @@ public class TSpanEvent implements org.apache.thrift.TBase<TSpanEvent, TSpanEven
       return isSetNextAsyncId();
     case ASYNC_SEQUENCE:
       return isSetAsyncSequence();
+    case ELAPSED_MICROS:
+      return isSetElapsedMicros();
     }
     throw new IllegalStateException();
   }
@@ -1076,6 +1122,15 @@ public class TSpanEvent implements org.apache.thrift.TBase<TSpanEvent, TSpanEven
         return false;
     }
 
+    boolean this_present_elapsedMicros = true && this.isSetElapsedMicros();
+    boolean that_present_elapsedMicros = true && that.isSetElapsedMicros();
+    if (this_present_elapsedMicros || that_present_elapsedMicros) {
+      if (!(this_present_elapsedMicros && that_present_elapsedMicros))
+        return false;
+      if (this.elapsedMicros != that.elapsedMicros)
+        return false;
+    }
+
     return true;
   }
 
@@ -1163,6 +1218,11 @@ public class TSpanEvent implements org.apache.thrift.TBase<TSpanEvent, TSpanEven
     if (present_asyncSequence)
       list.add(asyncSequence);
 
+    boolean present_elapsedMicros = true && (isSetElapsedMicros());
+    list.add(present_elapsedMicros);
+    if (present_elapsedMicros)
+      list.add(elapsedMicros);
+
     return list.hashCode();
   }
 
@@ -1334,6 +1394,16 @@ public class TSpanEvent implements org.apache.thrift.TBase<TSpanEvent, TSpanEven
         return lastComparison;
       }
     }
+    lastComparison = Boolean.valueOf(isSetElapsedMicros()).compareTo(other.isSetElapsedMicros());
+    if (lastComparison != 0) {
+      return lastComparison;
+    }
+    if (isSetElapsedMicros()) {
+      lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.elapsedMicros, other.elapsedMicros);
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+    }
     return 0;
   }
 
@@ -1463,6 +1533,12 @@ public class TSpanEvent implements org.apache.thrift.TBase<TSpanEvent, TSpanEven
       sb.append(this.asyncSequence);
       first = false;
     }
+    if (isSetElapsedMicros()) {
+      if (!first) sb.append(", ");
+      sb.append("elapsedMicros:");
+      sb.append(this.elapsedMicros);
+      first = false;
+    }
     sb.append(")");
     return sb.toString();
   }
@@ -1651,6 +1727,14 @@ public class TSpanEvent implements org.apache.thrift.TBase<TSpanEvent, TSpanEven
               org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
             }
             break;
+          case 40: // ELAPSED_MICROS
+            if (schemeField.type == org.apache.thrift.protocol.TType.I32) {
+              struct.elapsedMicros = iprot.readI32();
+              struct.setElapsedMicrosIsSet(true);
+            } else { 
+              org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+            }
+            break;
           default:
             org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
         }
@@ -1755,6 +1839,11 @@ public class TSpanEvent implements org.apache.thrift.TBase<TSpanEvent, TSpanEven
         oprot.writeI16(struct.asyncSequence);
         oprot.writeFieldEnd();
       }
+      if (struct.isSetElapsedMicros()) {
+        oprot.writeFieldBegin(ELAPSED_MICROS_FIELD_DESC);
+        oprot.writeI32(struct.elapsedMicros);
+        oprot.writeFieldEnd();
+      }
       oprot.writeFieldStop();
       oprot.writeStructEnd();
     }
@@ -1821,7 +1910,10 @@ public class TSpanEvent implements org.apache.thrift.TBase<TSpanEvent, TSpanEven
       if (struct.isSetAsyncSequence()) {
         optionals.set(15);
       }
-      oprot.writeBitSet(optionals, 16);
+      if (struct.isSetElapsedMicros()) {
+        optionals.set(16);
+      }
+      oprot.writeBitSet(optionals, 17);
       if (struct.isSetSpanId()) {
         oprot.writeI64(struct.spanId);
       }
@@ -1876,12 +1968,15 @@ public class TSpanEvent implements org.apache.thrift.TBase<TSpanEvent, TSpanEven
       if (struct.isSetAsyncSequence()) {
         oprot.writeI16(struct.asyncSequence);
       }
+      if (struct.isSetElapsedMicros()) {
+        oprot.writeI32(struct.elapsedMicros);
+      }
     }
 
     @Override
     public void read(org.apache.thrift.protocol.TProtocol prot, TSpanEvent struct) throws org.apache.thrift.TException {
       TTupleProtocol iprot = (TTupleProtocol) prot;
-      BitSet incoming = iprot.readBitSet(16);
+      BitSet incoming = iprot.readBitSet(17);
       if (incoming.get(0)) {
         struct.spanId = iprot.readI64();
         struct.setSpanIdIsSet(true);
@@ -1957,6 +2052,10 @@ public class TSpanEvent implements org.apache.thrift.TBase<TSpanEvent, TSpanEven
         struct.asyncSequence = iprot.readI16();
         struct.setAsyncSequenceIsSet(true);
       }
+      if (incoming.get(16)) {
+        struct.elapsedMicros = iprot.readI32();
+        struct.setElapsedMicrosIsSet(true);
+      }
     }
   }
 
@@ -0,0 +1,244 @@
+package com.m2u.eyelink.context;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Binds values to threads through an open addressed table hashed by thread id, so that get() is usually one array read instead of a ThreadLocal hash lookup.
+ * A thread takes a slot on its first set() and keeps it for its lifetime. Only the owner thread touches the value of a slot.
+ * Thread ids are never reused, so slots are not indexed by the id itself: a slot whose thread was collected or terminated is freed and taken by a later thread.
+ * Slots of collected threads are expunged on get/set/remove. Slots of terminated threads are swept while new threads take slots,
+ * and every remove() of a thread with a slot checks the next {@link #SWEEP_STEP} slots, so the value of a thread that died while bound is not held for long.
+ * A thread that finds no free slot within {@link #MAX_PROBE} positions, even after a sweep, falls back to a ThreadLocal.
+ */
+public class ThreadIdBinder<T> implements Binder<T> {
+
+    public static final int DEFAULT_CAPACITY = 1024 * 8;
+
+    // positions probed from the home index of a thread
+    static final int MAX_PROBE = 16;
+
+    // sweep terminated threads every n slots taken
+    private static final int SWEEP_INTERVAL = 64;
+
+    // slots checked for a terminated thread on each remove()
+    static final int SWEEP_STEP = 4;
+
+    private final AtomicReferenceArray<Slot<T>> slots;
+    private final int mask;
+    // 1 + the largest distance from its home index any slot was ever taken at. lookups probe no further
+    private final AtomicInteger probeLimit = new AtomicInteger(1);
+    // slots whose thread was collected
+    private final ReferenceQueue<Thread> collectedThreads = new ReferenceQueue<Thread>();
+    private final ThreadLocal<T> fallback = new NamedThreadLocal<T>("ThreadIdBinder");
+    private final AtomicInteger slotCreateCount = new AtomicInteger();
+    // a thread with a slot only looks into the fallback once some thread had to use it
+    private volatile boolean fallbackUsed = false;
+
+    public ThreadIdBinder() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public ThreadIdBinder(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Invalid capacity " + capacity);
+        }
+        final int tableSize = tableSize(capacity);
+        this.slots = new AtomicReferenceArray<Slot<T>>(tableSize);
+        this.mask = tableSize - 1;
+    }
+
+    private static int tableSize(int capacity) {
+        if (capacity > (1 << 30)) {
+            throw new IllegalArgumentException("Invalid capacity " + capacity);
+        }
+        int size = 1;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        return size;
+    }
+
+    @Override
+    public T get() {
+        expungeCollectedSlots();
+        final Slot<T> slot = findSlot(Thread.currentThread());
+        if (slot != null) {
+            return slot.value;
+        }
+        if (!fallbackUsed) {
+            return null;
+        }
+        return fallback.get();
+    }
+
+    @Override
+    public void set(T value) {
+        expungeCollectedSlots();
+        final Thread thread = Thread.currentThread();
+        final Slot<T> slot = findSlot(thread);
+        if (slot != null) {
+            slot.value = value;
+            return;
+        }
+        if (fallbackUsed && fallback.get() != null) {
+            // bound through the fallback before, keep it there
+            fallback.set(value);
+            return;
+        }
+        if (takeSlot(thread, value)) {
+            return;
+        }
+        // every slot in reach may belong to a terminated thread
+        sweep();
+        if (takeSlot(thread, value)) {
+            return;
+        }
+        if (!fallbackUsed) {
+            fallbackUsed = true;
+        }
+        fallback.set(value);
+    }
+
+    @Override
+    public T remove() {
+        expungeCollectedSlots();
+        final Slot<T> slot = findSlot(Thread.currentThread());
+        if (slot != null) {
+            final T value = slot.value;
+            slot.value = null;
+            sweepStep(slot);
+            return value;
+        }
+        if (!fallbackUsed) {
+            return null;
+        }
+        final T value = fallback.get();
+        fallback.remove();
+        return value;
+    }
+
+    private int homeIndex(Thread thread) {
+        // ids are sequential, so consecutive threads land on consecutive slots
+        return (int) thread.getId() & mask;
+    }
+
+    private Slot<T> findSlot(Thread thread) {
+        final int home = homeIndex(thread);
+        final int probeLimit = this.probeLimit.get();
+        // freed slots leave holes, so probing does not stop at an empty slot
+        for (int i = 0; i < probeLimit; i++) {
+            final Slot<T> slot = slots.get((home + i) & mask);
+            if (slot != null && slot.get() == thread) {
+                return slot;
+            }
+        }
+        return null;
+    }
+
+    private boolean takeSlot(Thread thread, T value) {
+        final int home = homeIndex(thread);
+        final int probe = Math.min(MAX_PROBE, slots.length());
+        for (int i = 0; i < probe; i++) {
+            final int index = (home + i) & mask;
+            if (slots.get(index) != null) {
+                continue;
+            }
+            final Slot<T> newSlot = new Slot<T>(thread, index, collectedThreads);
+            newSlot.value = value;
+            if (slots.compareAndSet(index, null, newSlot)) {
+                raiseProbeLimit(i + 1);
+                afterSlotCreate();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void raiseProbeLimit(int limit) {
+        while (true) {
+            final int current = probeLimit.get();
+            if (current >= limit || probeLimit.compareAndSet(current, limit)) {
+                return;
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void expungeCollectedSlots() {
+        Reference<? extends Thread> reference;
+        while ((reference = collectedThreads.poll()) != null) {
+            final Slot<T> slot = (Slot<T>) reference;
+            slot.value = null;
+            slots.compareAndSet(slot.index, slot, null);
+        }
+    }
+
+    private void afterSlotCreate() {
+        if (slotCreateCount.incrementAndGet() % SWEEP_INTERVAL == 0) {
+            sweep();
+        }
+    }
+
+    // the owner of a slot is gone, nobody else reads or writes the slot
+    void sweep() {
+        final int length = slots.length();
+        for (int index = 0; index < length; index++) {
+            sweepSlot(index);
+        }
+    }
+
+    // each owner walks the table from its own slot with a cursor of its own, so no counter is shared
+    private void sweepStep(Slot<T> owner) {
+        int index = owner.sweepIndex;
+        for (int i = 0; i < SWEEP_STEP; i++) {
+            index = (index + 1) & mask;
+            sweepSlot(index);
+        }
+        owner.sweepIndex = index;
+    }
+
+    private void sweepSlot(int index) {
+        final Slot<T> slot = slots.get(index);
+        if (slot == null) {
+            return;
+        }
+        final Thread thread = slot.get();
+        if (thread == null || !thread.isAlive()) {
+            slot.value = null;
+            slots.compareAndSet(index, slot, null);
+        }
+    }
+
+    int getSlotCount() {
+        int count = 0;
+        final int length = slots.length();
+        for (int index = 0; index < length; index++) {
+            if (slots.get(index) != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    boolean isFallbackUsed() {
+        return fallbackUsed;
+    }
+
+    private static final class Slot<T> extends WeakReference<Thread> {
+        private final int index;
+        // accessed by the owner thread only, until the owner is gone
+        private T value;
+        // last slot checked by the owner's sweepStep(). owner thread only
+        private int sweepIndex;
+
+        private Slot(Thread thread, int index, ReferenceQueue<Thread> collectedThreads) {
+            super(thread, collectedThreads);
+            this.index = index;
+            this.sweepIndex = index;
+        }
+    }
+}
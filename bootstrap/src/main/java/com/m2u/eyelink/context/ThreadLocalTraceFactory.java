@@ -10,15 +10,23 @@ public class ThreadLocalTraceFactory implements TraceFactory {
 
     private final Logger logger = LoggerFactory.getLogger(this.getClass());
 
-    private final Binder<Trace> threadLocalBinder = new ThreadLocalBinder<Trace>();
+    private final Binder<Trace> threadLocalBinder;
 
     private final BaseTraceFactory baseTraceFactory;
 
     public ThreadLocalTraceFactory(BaseTraceFactory baseTraceFactory) {
+        this(baseTraceFactory, new ThreadLocalBinder<Trace>());
+    }
+
+    public ThreadLocalTraceFactory(BaseTraceFactory baseTraceFactory, Binder<Trace> threadLocalBinder) {
         if (baseTraceFactory == null) {
             throw new NullPointerException("baseTraceFactory must not be null");
         }
+        if (threadLocalBinder == null) {
+            throw new NullPointerException("threadLocalBinder must not be null");
+        }
         this.baseTraceFactory = baseTraceFactory;
+        this.threadLocalBinder = threadLocalBinder;
     }
 
 
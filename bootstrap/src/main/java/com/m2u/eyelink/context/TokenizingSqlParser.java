@@ -0,0 +1,289 @@
+package com.m2u.eyelink.context;
+
+import com.m2u.eyelink.util.NormalizedSql;
+
+/**
+ * Normalizes sql the same way as {@link DefaultSqlParser} in a single table-driven pass over a char[].
+ * The pass only records where literals are. The normalized sql is then assembled from bulk copies of the text between them,
+ * and the parameter output from bulk copies of the literals.
+ * Comments are skipped as a whole instead of being copied char by char.
+ */
+public class TokenizingSqlParser extends DefaultSqlParser {
+
+    private static final NormalizedSql NULL_OBJECT = new DefaultNormalizedSql("", "");
+
+    // char classes. a number literal may start after OTHER but not after WORD
+    private static final byte OTHER = 0;
+    private static final byte WORD = 1;
+    private static final byte DIGIT = 2;
+    private static final byte SLASH = 3;
+    private static final byte DASH = 4;
+    private static final byte QUOTE = 5;
+
+    private static final byte[] CHAR_CLASS = new byte[128];
+
+    static {
+        for (char ch = 'a'; ch <= 'z'; ch++) {
+            CHAR_CLASS[ch] = WORD;
+        }
+        for (char ch = 'A'; ch <= 'Z'; ch++) {
+            CHAR_CLASS[ch] = WORD;
+        }
+        CHAR_CLASS['.'] = WORD;
+        CHAR_CLASS['_'] = WORD;
+        // assignment operator
+        CHAR_CLASS['@'] = WORD;
+        // oracle bind variable
+        CHAR_CLASS[':'] = WORD;
+        for (char ch = '0'; ch <= '9'; ch++) {
+            CHAR_CLASS[ch] = DIGIT;
+        }
+        CHAR_CLASS['/'] = SLASH;
+        CHAR_CLASS['-'] = DASH;
+        CHAR_CLASS['\''] = QUOTE;
+    }
+
+    public TokenizingSqlParser() {
+    }
+
+    @Override
+    public NormalizedSql normalizedSql(final String sql) {
+        if (sql == null) {
+            return NULL_OBJECT;
+        }
+
+        final char[] chars = sql.toCharArray();
+        final int length = chars.length;
+        final Literals literals = new Literals();
+        boolean numberTokenStartEnable = true;
+        int i = 0;
+        while (i < length) {
+            final char ch = chars[i];
+            final byte charClass = ch < CHAR_CLASS.length ? CHAR_CLASS[ch] : OTHER;
+            switch (charClass) {
+                case WORD:
+                    numberTokenStartEnable = false;
+                    i++;
+                    break;
+                case DIGIT:
+                    if (numberTokenStartEnable) {
+                        final int end = scanNumber(chars, i + 1);
+                        literals.add(Literals.NUMBER, i, end);
+                        i = end;
+                    } else {
+                        i++;
+                    }
+                    break;
+                case SLASH:
+                    if (lookAhead1(chars, i) == '*') {
+                        i = skipBlockComment(chars, i + 2);
+                    } else if (lookAhead1(chars, i) == '/') {
+                        i = skipLine(chars, i + 2);
+                    } else {
+                        numberTokenStartEnable = true;
+                        i++;
+                    }
+                    break;
+                case DASH:
+                    if (lookAhead1(chars, i) == '-') {
+                        i = skipLine(chars, i + 2);
+                    } else {
+                        numberTokenStartEnable = true;
+                        i++;
+                    }
+                    break;
+                case QUOTE:
+                    if (lookAhead1(chars, i) == '\'') {
+                        // empty symbol. DefaultSqlParser also drops the char right after it
+                        if (i + 2 < length) {
+                            literals.add(Literals.DROP, i + 2, i + 3);
+                        }
+                        i += 3;
+                    } else {
+                        final int end = scanSymbol(chars, i + 1);
+                        if (end < length) {
+                            literals.add(Literals.SYMBOL, i, end + 1);
+                            i = end + 1;
+                        } else {
+                            literals.add(Literals.OPEN_SYMBOL, i, length);
+                            i = length;
+                        }
+                    }
+                    break;
+                default:
+                    numberTokenStartEnable = true;
+                    i++;
+                    break;
+            }
+        }
+
+        if (!literals.hasParameter()) {
+            // Reuse if not modified.
+            return new DefaultNormalizedSql(sql, "");
+        }
+        // the output is recorded with every execution, so it is built right away
+        return new DefaultNormalizedSql(normalize(chars, literals), buildOutput(chars, literals));
+    }
+
+    private static int lookAhead1(char[] chars, int index) {
+        index++;
+        if (index < chars.length) {
+            return chars[index];
+        }
+        return -1;
+    }
+
+    private static int scanNumber(char[] chars, int index) {
+        final int length = chars.length;
+        for (; index < length; index++) {
+            final char ch = chars[index];
+            if (!(ch >= '0' && ch <= '9' || ch == '.' || ch == 'E' || ch == 'e')) {
+                break;
+            }
+        }
+        return index;
+    }
+
+    // index of the closing quote, chars.length if not closed
+    private static int scanSymbol(char[] chars, int index) {
+        final int length = chars.length;
+        for (; index < length; index++) {
+            if (chars[index] == '\'') {
+                // a consecutive ' is the same as \'
+                if (lookAhead1(chars, index) == '\'') {
+                    index++;
+                    continue;
+                }
+                return index;
+            }
+        }
+        return length;
+    }
+
+    private static int skipBlockComment(char[] chars, int index) {
+        final int length = chars.length;
+        for (; index < length; index++) {
+            if (chars[index] == '*' && lookAhead1(chars, index) == '/') {
+                return index + 2;
+            }
+        }
+        return length;
+    }
+
+    private static int skipLine(char[] chars, int index) {
+        final int length = chars.length;
+        for (; index < length; index++) {
+            if (chars[index] == '\n') {
+                return index + 1;
+            }
+        }
+        return length;
+    }
+
+    private static String normalize(char[] chars, Literals literals) {
+        final StringBuilder normalized = new StringBuilder(chars.length + 32);
+        int replaceIndex = 0;
+        int position = 0;
+        for (int i = 0; i < literals.size; i++) {
+            final int start = literals.starts[i];
+            normalized.append(chars, position, start - position);
+            switch (literals.types[i]) {
+                case Literals.NUMBER:
+                    normalized.append(replaceIndex++);
+                    normalized.append(NUMBER_REPLACE);
+                    break;
+                case Literals.SYMBOL:
+                    normalized.append('\'');
+                    normalized.append(replaceIndex++);
+                    normalized.append(SYMBOL_REPLACE);
+                    normalized.append('\'');
+                    break;
+                case Literals.OPEN_SYMBOL:
+                    normalized.append('\'');
+                    break;
+                default:
+                    break;
+            }
+            position = literals.ends[i];
+        }
+        normalized.append(chars, position, chars.length - position);
+        return normalized.toString();
+    }
+
+    private static String buildOutput(char[] chars, Literals literals) {
+        final StringBuilder output = new StringBuilder(32);
+        for (int i = 0; i < literals.size; i++) {
+            final byte type = literals.types[i];
+            if (type == Literals.DROP) {
+                continue;
+            }
+            if (output.length() > 0) {
+                output.append(SEPARATOR);
+            }
+            final int start = literals.starts[i];
+            final int end = literals.ends[i];
+            if (type == Literals.NUMBER) {
+                output.append(chars, start, end - start);
+            } else {
+                // without quotes. the closing one is missing for an open symbol
+                final int symbolEnd = type == Literals.SYMBOL ? end - 1 : end;
+                int position = start + 1;
+                for (int index = position; index < symbolEnd; index++) {
+                    if (chars[index] == SEPARATOR) {
+                        // escaped by doubling
+                        output.append(chars, position, index + 1 - position);
+                        output.append(SEPARATOR);
+                        position = index + 1;
+                    }
+                }
+                output.append(chars, position, symbolEnd - position);
+            }
+        }
+        if (output.length() == 0) {
+            return "";
+        }
+        return output.toString();
+    }
+
+    // literal positions in the order found
+    private static final class Literals {
+        static final byte NUMBER = 0;
+        static final byte SYMBOL = 1;
+        // symbol without the closing quote. runs to the end of the sql
+        static final byte OPEN_SYMBOL = 2;
+        // char removed without a parameter
+        static final byte DROP = 3;
+
+        private static final int INITIAL_SIZE = 8;
+
+        private int[] starts;
+        private int[] ends;
+        private byte[] types;
+        private int size;
+        private boolean parameter;
+
+        private void add(byte type, int start, int end) {
+            if (starts == null) {
+                starts = new int[INITIAL_SIZE];
+                ends = new int[INITIAL_SIZE];
+                types = new byte[INITIAL_SIZE];
+            } else if (size == starts.length) {
+                final int newSize = size << 1;
+                starts = java.util.Arrays.copyOf(starts, newSize);
+                ends = java.util.Arrays.copyOf(ends, newSize);
+                types = java.util.Arrays.copyOf(types, newSize);
+            }
+            starts[size] = start;
+            ends[size] = end;
+            types[size] = type;
+            size++;
+            if (type != DROP) {
+                parameter = true;
+            }
+        }
+
+        private boolean hasParameter() {
+            return parameter;
+        }
+    }
+}
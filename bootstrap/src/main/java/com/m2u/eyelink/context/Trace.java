@@ -26,6 +26,12 @@ public interface Trace extends StackOperation {
 
     boolean canSampled();
 
+    /**
+     * A deferred trace is recorded like a sampled one, but whether it is sent is decided when it ends.
+     * Callees must be told it is not sampled, as if {@link #canSampled()} were false, so that they make their own sampling decision.
+     */
+    boolean isSamplingDeferred();
+
     boolean isRoot();
 
     boolean isAsync();
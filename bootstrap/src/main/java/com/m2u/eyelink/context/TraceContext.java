@@ -52,6 +52,10 @@ public interface TraceContext {
 
     int cacheString(String value);
 
+    ExceptionMetaDataCache getExceptionMetaDataCache();
+
+    CallStackOverflowCounter getCallStackOverflowCounter();
+
     // TODO extract jdbc related methods
     ParsingResult parseSql(String sql);
 
@@ -121,10 +121,26 @@ public class WrappedSpanEventRecorder extends AbstractRecorder implements SpanEv
         spanEvent.setApiId(apiId);
     }
 
+    @Override
     void addAnnotation(Annotation annotation) {
         spanEvent.addAnnotation(annotation);
     }
 
+    @Override
+    void addAnnotation(int key, int value) {
+        spanEvent.addAnnotation(key, value);
+    }
+
+    @Override
+    void addAnnotation(int key, long value) {
+        spanEvent.addAnnotation(key, value);
+    }
+
+    @Override
+    void addAnnotation(int key, boolean value) {
+        spanEvent.addAnnotation(key, value);
+    }
+
     @Override
     public void recordServiceType(ServiceType serviceType) {
         spanEvent.setServiceType(serviceType.getCode());
@@ -0,0 +1,10 @@
+package com.m2u.eyelink.context.clock;
+
+/**
+ * Source of wall-clock time in milliseconds.
+ */
+public interface Clock {
+
+    long getTime();
+
+}
@@ -0,0 +1,79 @@
+package com.m2u.eyelink.context.clock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.m2u.eyelink.util.ELAgentThreadFactory;
+
+/**
+ * Wall clock refreshed by a background thread every tickMillis.
+ * A read is a volatile load instead of a call to {@link System#currentTimeMillis()}, at the cost of lagging behind by up to one tick.
+ */
+public class CoarseClock implements Clock {
+
+    private static final String THREAD_NAME = "ELAgent-CoarseClock";
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private final long tickMillis;
+    private volatile long time = System.currentTimeMillis();
+
+    private Thread updater;
+    private volatile boolean running = false;
+
+    public CoarseClock(long tickMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("tickMillis");
+        }
+        this.tickMillis = tickMillis;
+    }
+
+    public synchronized void start() {
+        if (updater != null) {
+            throw new IllegalStateException("already started");
+        }
+        this.running = true;
+        this.updater = new ELAgentThreadFactory(THREAD_NAME, true).newThread(new Updater());
+        this.updater.start();
+        logger.info("CoarseClock started. tickMillis={}", tickMillis);
+    }
+
+    public synchronized void stop() {
+        if (updater == null) {
+            return;
+        }
+        this.running = false;
+        this.updater.interrupt();
+        try {
+            this.updater.join(tickMillis + 1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        this.updater = null;
+        logger.info("CoarseClock stopped.");
+    }
+
+    @Override
+    public long getTime() {
+        return time;
+    }
+
+    private class Updater implements Runnable {
+        @Override
+        public void run() {
+            while (running) {
+                time = System.currentTimeMillis();
+                try {
+                    Thread.sleep(tickMillis);
+                } catch (InterruptedException e) {
+                    break;
+                }
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "CoarseClock{tickMillis=" + tickMillis + '}';
+    }
+}
@@ -0,0 +1,41 @@
+package com.m2u.eyelink.context.clock;
+
+/**
+ * Timing used by {@link com.m2u.eyelink.context.Span} and {@link com.m2u.eyelink.context.SpanEvent} marks.
+ * <ul>
+ *     <li>clock : wall clock for span start times. {@link SystemClock} by default, {@link CoarseClock} for cheaper reads.</li>
+ *     <li>nanoTiming : elapsed times are measured with {@link System#nanoTime()} relative to the span start
+ *     and the sub-millisecond value is recorded in the optional elapsedMicros field of the span and span event.</li>
+ * </ul>
+ */
+public final class SpanClock {
+
+    private static volatile Clock clock = SystemClock.INSTANCE;
+    private static volatile boolean nanoTiming = false;
+
+    private SpanClock() {
+    }
+
+    public static long currentTimeMillis() {
+        return clock.getTime();
+    }
+
+    public static Clock getClock() {
+        return clock;
+    }
+
+    public static void setClock(Clock clock) {
+        if (clock == null) {
+            throw new NullPointerException("clock must not be null");
+        }
+        SpanClock.clock = clock;
+    }
+
+    public static boolean isNanoTiming() {
+        return nanoTiming;
+    }
+
+    public static void setNanoTiming(boolean nanoTiming) {
+        SpanClock.nanoTiming = nanoTiming;
+    }
+}
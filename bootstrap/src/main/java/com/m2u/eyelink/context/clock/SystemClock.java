@@ -0,0 +1,19 @@
+package com.m2u.eyelink.context.clock;
+
+public final class SystemClock implements Clock {
+
+    public static final Clock INSTANCE = new SystemClock();
+
+    private SystemClock() {
+    }
+
+    @Override
+    public long getTime() {
+        return System.currentTimeMillis();
+    }
+
+    @Override
+    public String toString() {
+        return "SystemClock";
+    }
+}
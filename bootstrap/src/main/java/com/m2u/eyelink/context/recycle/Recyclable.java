@@ -0,0 +1,15 @@
+package com.m2u.eyelink.context.recycle;
+
+/**
+ * Object that can be returned to its pool once it is no longer referenced, e.g. after the data sender has serialized it.
+ */
+public interface Recyclable {
+
+    /**
+     * Returns this object to its pool. The caller must not touch the object afterwards.
+     * Objects that were not obtained from a pool ignore this call.
+     * @throws IllegalStateException if the object was already recycled
+     */
+    void recycle();
+
+}
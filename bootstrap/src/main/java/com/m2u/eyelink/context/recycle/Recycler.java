@@ -0,0 +1,186 @@
+package com.m2u.eyelink.context.recycle;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-thread object pool.
+ * get() pops from the pool of the calling thread. An object recycled by another thread (typically the data sender)
+ * is pushed to a lock-free return list of the thread that created it and moved to that thread's pool on its next get().
+ * Neither path allocates once the pool is warmed up.
+ */
+public abstract class Recycler<T> {
+
+    public static final int DEFAULT_MAX_CAPACITY_PER_THREAD = 1024;
+
+    private static final int IN_USE = 0;
+    private static final int RECYCLED = 1;
+
+    private final int maxCapacityPerThread;
+
+    private final LongAdder createdCount = new LongAdder();
+    private final LongAdder reusedCount = new LongAdder();
+    private final LongAdder recycledCount = new LongAdder();
+    private final LongAdder droppedCount = new LongAdder();
+
+    private final ThreadLocal<Stack<T>> threadLocalStack = new ThreadLocal<Stack<T>>() {
+        @Override
+        protected Stack<T> initialValue() {
+            return new Stack<T>(Recycler.this, Thread.currentThread(), maxCapacityPerThread);
+        }
+    };
+
+    protected Recycler() {
+        this(DEFAULT_MAX_CAPACITY_PER_THREAD);
+    }
+
+    protected Recycler(int maxCapacityPerThread) {
+        if (maxCapacityPerThread <= 0) {
+            throw new IllegalArgumentException("maxCapacityPerThread");
+        }
+        this.maxCapacityPerThread = maxCapacityPerThread;
+    }
+
+    public final T get() {
+        final Stack<T> stack = threadLocalStack.get();
+        Handle<T> handle = stack.pop();
+        if (handle == null) {
+            handle = new Handle<T>(stack);
+            handle.value = newObject(handle);
+            createdCount.increment();
+        } else {
+            handle.state = IN_USE;
+            reusedCount.increment();
+        }
+        return handle.value;
+    }
+
+    /**
+     * Creates a new pooled object. The object must keep the handle and call {@link Handle#recycle()} from its recycle().
+     */
+    protected abstract T newObject(Handle<T> handle);
+
+    /**
+     * Clears the state of an object on its way back to the pool.
+     */
+    protected abstract void resetObject(T object);
+
+    public long getCreatedCount() {
+        return createdCount.sum();
+    }
+
+    public long getReusedCount() {
+        return reusedCount.sum();
+    }
+
+    public long getRecycledCount() {
+        return recycledCount.sum();
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.sum();
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "{maxCapacityPerThread=" + maxCapacityPerThread
+                + ", created=" + getCreatedCount()
+                + ", reused=" + getReusedCount()
+                + ", recycled=" + getRecycledCount()
+                + ", dropped=" + getDroppedCount() + '}';
+    }
+
+    public static final class Handle<T> {
+
+        @SuppressWarnings("rawtypes")
+        private static final AtomicIntegerFieldUpdater<Handle> STATE_UPDATER = AtomicIntegerFieldUpdater.newUpdater(Handle.class, "state");
+
+        private final Stack<T> stack;
+        private T value;
+        private volatile int state = IN_USE;
+        // link of the return list. guarded by the return list CAS.
+        private Handle<T> next;
+
+        private Handle(Stack<T> stack) {
+            this.stack = stack;
+        }
+
+        public void recycle() {
+            // guards against double release. a second recycle() would hand the same object to two owners.
+            if (!STATE_UPDATER.compareAndSet(this, IN_USE, RECYCLED)) {
+                throw new IllegalStateException(value.getClass().getSimpleName() + " recycled already.");
+            }
+            final Recycler<T> recycler = stack.recycler;
+            recycler.resetObject(value);
+            recycler.recycledCount.increment();
+            stack.push(this);
+        }
+
+        public boolean isRecycled() {
+            return state == RECYCLED;
+        }
+    }
+
+    private static final class Stack<T> {
+
+        private final Recycler<T> recycler;
+        private final Thread owner;
+        private final Handle<T>[] elements;
+        // owner thread only
+        private int size;
+        // handles recycled by other threads. lock-free LIFO linked through Handle.next, taken as a whole by the owner.
+        private final AtomicReference<Handle<T>> returned = new AtomicReference<Handle<T>>();
+
+        @SuppressWarnings("unchecked")
+        private Stack(Recycler<T> recycler, Thread owner, int maxCapacity) {
+            this.recycler = recycler;
+            this.owner = owner;
+            this.elements = new Handle[maxCapacity];
+        }
+
+        private void push(Handle<T> handle) {
+            if (Thread.currentThread() == owner) {
+                pushLocal(handle);
+                return;
+            }
+            Handle<T> head;
+            do {
+                head = returned.get();
+                handle.next = head;
+            } while (!returned.compareAndSet(head, handle));
+        }
+
+        private void pushLocal(Handle<T> handle) {
+            if (size < elements.length) {
+                elements[size++] = handle;
+            } else {
+                // left to GC
+                recycler.droppedCount.increment();
+            }
+        }
+
+        private Handle<T> pop() {
+            if (size == 0 && !transfer()) {
+                return null;
+            }
+            final Handle<T> handle = elements[--size];
+            elements[size] = null;
+            return handle;
+        }
+
+        private boolean transfer() {
+            if (returned.get() == null) {
+                return false;
+            }
+            Handle<T> handle = returned.getAndSet(null);
+            while (handle != null) {
+                final Handle<T> next = handle.next;
+                handle.next = null;
+                pushLocal(handle);
+                handle = next;
+            }
+            return size > 0;
+        }
+    }
+}
@@ -62,6 +62,10 @@ public class HeaderTBaseDeserializer {
                 Header header = readHeader();
                 final int validate = validate(header);
                 if (validate == HeaderUtils.OK) {
+                    if (locator.isChunkHeader(header.getType())) {
+                        // packed datagram. the messages follow the chunk header.
+                        continue;
+                    }
                     TBase<?, ?> base = locator.tBaseLookup(header.getType());
                     base.read(protocol);
                     tBaseList.add(base);
@@ -49,6 +49,16 @@ public class HeaderTBaseSerializer {
         return baos.toByteArray();
     }
     
+    /**
+     * Starts a new chunk. Messages appended with {@link #continueSerialize(TBase)} follow the chunk header
+     * and are split again by {@link HeaderTBaseDeserializer#deserializeList(byte[])}.
+     */
+    public void beginChunk() throws TException {
+        baos.reset();
+        protocol.reset();
+        writeHeader(locator.getChunkHeader());
+    }
+
     public void reset() {
         baos.reset();
     }
@@ -33,6 +33,8 @@ public class TAgentStat implements org.apache.thrift.TBase<TAgentStat, TAgentSta
   private static final org.apache.thrift.protocol.TField TRANSACTION_FIELD_DESC = new org.apache.thrift.protocol.TField("transaction", org.apache.thrift.protocol.TType.STRUCT, (short)30);
   private static final org.apache.thrift.protocol.TField ACTIVE_TRACE_FIELD_DESC = new org.apache.thrift.protocol.TField("activeTrace", org.apache.thrift.protocol.TType.STRUCT, (short)40);
   private static final org.apache.thrift.protocol.TField DATA_SOURCE_LIST_FIELD_DESC = new org.apache.thrift.protocol.TField("dataSourceList", org.apache.thrift.protocol.TType.STRUCT, (short)50);
+  private static final org.apache.thrift.protocol.TField SAMPLING_RATIO_FIELD_DESC = new org.apache.thrift.protocol.TField("samplingRatio", org.apache.thrift.protocol.TType.DOUBLE, (short)60);
+  private static final org.apache.thrift.protocol.TField METRICS_FIELD_DESC = new org.apache.thrift.protocol.TField("metrics", org.apache.thrift.protocol.TType.MAP, (short)70);
   private static final org.apache.thrift.protocol.TField METADATA_FIELD_DESC = new org.apache.thrift.protocol.TField("metadata", org.apache.thrift.protocol.TType.STRING, (short)200);
 
   private static final Map<Class<? extends IScheme>, SchemeFactory> schemes = new HashMap<Class<? extends IScheme>, SchemeFactory>();
@@ -50,6 +52,8 @@ public class TAgentStat implements org.apache.thrift.TBase<TAgentStat, TAgentSta
   private TTransaction transaction; // optional
   private TActiveTrace activeTrace; // optional
   private TDataSourceList dataSourceList; // optional
+  private double samplingRatio; // optional
+  private Map<String,Long> metrics; // optional
   private String metadata; // optional
 
   /** The set of fields this struct contains, along with convenience methods for finding and manipulating them. */
@@ -63,6 +67,8 @@ public class TAgentStat implements org.apache.thrift.TBase<TAgentStat, TAgentSta
     TRANSACTION((short)30, "transaction"),
     ACTIVE_TRACE((short)40, "activeTrace"),
     DATA_SOURCE_LIST((short)50, "dataSourceList"),
+    SAMPLING_RATIO((short)60, "samplingRatio"),
+    METRICS((short)70, "metrics"),
     METADATA((short)200, "metadata");
 
     private static final Map<String, _Fields> byName = new HashMap<String, _Fields>();
@@ -96,6 +102,10 @@ public class TAgentStat implements org.apache.thrift.TBase<TAgentStat, TAgentSta
           return ACTIVE_TRACE;
         case 50: // DATA_SOURCE_LIST
           return DATA_SOURCE_LIST;
+        case 60: // SAMPLING_RATIO
+          return SAMPLING_RATIO;
+        case 70: // METRICS
+          return METRICS;
         case 200: // METADATA
           return METADATA;
         default:
@@ -141,8 +151,9 @@ public class TAgentStat implements org.apache.thrift.TBase<TAgentStat, TAgentSta
   private static final int __STARTTIMESTAMP_ISSET_ID = 0;
   private static final int __TIMESTAMP_ISSET_ID = 1;
   private static final int __COLLECTINTERVAL_ISSET_ID = 2;
+  private static final int __SAMPLINGRATIO_ISSET_ID = 3;
   private byte __isset_bitfield = 0;
-  private static final _Fields optionals[] = {_Fields.AGENT_ID,_Fields.START_TIMESTAMP,_Fields.TIMESTAMP,_Fields.COLLECT_INTERVAL,_Fields.GC,_Fields.CPU_LOAD,_Fields.TRANSACTION,_Fields.ACTIVE_TRACE,_Fields.DATA_SOURCE_LIST,_Fields.METADATA};
+  private static final _Fields optionals[] = {_Fields.AGENT_ID,_Fields.START_TIMESTAMP,_Fields.TIMESTAMP,_Fields.COLLECT_INTERVAL,_Fields.GC,_Fields.CPU_LOAD,_Fields.TRANSACTION,_Fields.ACTIVE_TRACE,_Fields.DATA_SOURCE_LIST,_Fields.SAMPLING_RATIO,_Fields.METRICS,_Fields.METADATA};
   public static final Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> metaDataMap;
   static {
     Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> tmpMap = new EnumMap<_Fields, org.apache.thrift.meta_data.FieldMetaData>(_Fields.class);
@@ -164,6 +175,12 @@ public class TAgentStat implements org.apache.thrift.TBase<TAgentStat, TAgentSta
         new org.apache.thrift.meta_data.StructMetaData(org.apache.thrift.protocol.TType.STRUCT, TActiveTrace.class)));
     tmpMap.put(_Fields.DATA_SOURCE_LIST, new org.apache.thrift.meta_data.FieldMetaData("dataSourceList", org.apache.thrift.TFieldRequirementType.OPTIONAL, 
         new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.STRUCT        , "TDataSourceList")));
+    tmpMap.put(_Fields.SAMPLING_RATIO, new org.apache.thrift.meta_data.FieldMetaData("samplingRatio", org.apache.thrift.TFieldRequirementType.OPTIONAL, 
+        new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.DOUBLE)));
+    tmpMap.put(_Fields.METRICS, new org.apache.thrift.meta_data.FieldMetaData("metrics", org.apache.thrift.TFieldRequirementType.OPTIONAL, 
+        new org.apache.thrift.meta_data.MapMetaData(org.apache.thrift.protocol.TType.MAP, 
+            new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.STRING), 
+            new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.I64))));
     tmpMap.put(_Fields.METADATA, new org.apache.thrift.meta_data.FieldMetaData("metadata", org.apache.thrift.TFieldRequirementType.OPTIONAL, 
         new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.STRING)));
     metaDataMap = Collections.unmodifiableMap(tmpMap);
@@ -199,6 +216,11 @@ public class TAgentStat implements org.apache.thrift.TBase<TAgentStat, TAgentSta
     if (other.isSetDataSourceList()) {
       this.dataSourceList = other.dataSourceList;
     }
+    this.samplingRatio = other.samplingRatio;
+    if (other.isSetMetrics()) {
+      Map<String,Long> __this__metrics = new HashMap<String,Long>(other.metrics);
+      this.metrics = __this__metrics;
+    }
     if (other.isSetMetadata()) {
       this.metadata = other.metadata;
     }
@@ -222,6 +244,9 @@ public class TAgentStat implements org.apache.thrift.TBase<TAgentStat, TAgentSta
     this.transaction = null;
     this.activeTrace = null;
     this.dataSourceList = null;
+    setSamplingRatioIsSet(false);
+    this.samplingRatio = 0.0;
+    this.metrics = null;
     this.metadata = null;
   }
 
@@ -429,6 +454,62 @@ public class TAgentStat implements org.apache.thrift.TBase<TAgentStat, TAgentSta
     }
   }
 
+  public double getSamplingRatio() {
+    return this.samplingRatio;
+  }
+
+  public void setSamplingRatio(double samplingRatio) {
+    this.samplingRatio = samplingRatio;
+    setSamplingRatioIsSet(true);
+  }
+
+  public void unsetSamplingRatio() {
+    __isset_bitfield = EncodingUtils.clearBit(__isset_bitfield, __SAMPLINGRATIO_ISSET_ID);
+  }
+
+  /** Returns true if field samplingRatio is set (has been assigned a value) and false otherwise */
+  public boolean isSetSamplingRatio() {
+    return EncodingUtils.testBit(__isset_bitfield, __SAMPLINGRATIO_ISSET_ID);
+  }
+
+  public void setSamplingRatioIsSet(boolean value) {
+    __isset_bitfield = EncodingUtils.setBit(__isset_bitfield, __SAMPLINGRATIO_ISSET_ID, value);
+  }
+
+  public int getMetricsSize() {
+    return (this.metrics == null) ? 0 : this.metrics.size();
+  }
+
+  public void putToMetrics(String key, long val) {
+    if (this.metrics == null) {
+      this.metrics = new HashMap<String,Long>();
+    }
+    this.metrics.put(key, val);
+  }
+
+  public Map<String,Long> getMetrics() {
+    return this.metrics;
+  }
+
+  public void setMetrics(Map<String,Long> metrics) {
+    this.metrics = metrics;
+  }
+
+  public void unsetMetrics() {
+    this.metrics = null;
+  }
+
+  /** Returns true if field metrics is set (has been assigned a value) and false otherwise */
+  public boolean isSetMetrics() {
+    return this.metrics != null;
+  }
+
+  public void setMetricsIsSet(boolean value) {
+    if (!value) {
+      this.metrics = null;
+    }
+  }
+
   public String getMetadata() {
     return this.metadata;
   }
@@ -526,6 +607,22 @@ public class TAgentStat implements org.apache.thrift.TBase<TAgentStat, TAgentSta
       }
       break;
 
+    case SAMPLING_RATIO:
+      if (value == null) {
+        unsetSamplingRatio();
+      } else {
+        setSamplingRatio((Double)value);
+      }
+      break;
+
+    case METRICS:
+      if (value == null) {
+        unsetMetrics();
+      } else {
+        setMetrics((Map<String,Long>)value);
+      }
+      break;
+
     case METADATA:
       if (value == null) {
         unsetMetadata();
@@ -566,6 +663,12 @@ public class TAgentStat implements org.apache.thrift.TBase<TAgentStat, TAgentSta
     case DATA_SOURCE_LIST:
       return getDataSourceList();
 
+    case SAMPLING_RATIO:
+      return Double.valueOf(getSamplingRatio());
+
+    case METRICS:
+      return getMetrics();
+
     case METADATA:
       return getMetadata();
 
@@ -598,6 +701,10 @@ public class TAgentStat implements org.apache.thrift.TBase<TAgentStat, TAgentSta
       return isSetActiveTrace();
     case DATA_SOURCE_LIST:
       return isSetDataSourceList();
+    case SAMPLING_RATIO:
+      return isSetSamplingRatio();
+    case METRICS:
+      return isSetMetrics();
     case METADATA:
       return isSetMetadata();
     }
@@ -698,6 +805,24 @@ public class TAgentStat implements org.apache.thrift.TBase<TAgentStat, TAgentSta
         return false;
     }
 
+    boolean this_present_samplingRatio = true && this.isSetSamplingRatio();
+    boolean that_present_samplingRatio = true && that.isSetSamplingRatio();
+    if (this_present_samplingRatio || that_present_samplingRatio) {
+      if (!(this_present_samplingRatio && that_present_samplingRatio))
+        return false;
+      if (this.samplingRatio != that.samplingRatio)
+        return false;
+    }
+
+    boolean this_present_metrics = true && this.isSetMetrics();
+    boolean that_present_metrics = true && that.isSetMetrics();
+    if (this_present_metrics || that_present_metrics) {
+      if (!(this_present_metrics && that_present_metrics))
+        return false;
+      if (!this.metrics.equals(that.metrics))
+        return false;
+    }
+
     boolean this_present_metadata = true && this.isSetMetadata();
     boolean that_present_metadata = true && that.isSetMetadata();
     if (this_present_metadata || that_present_metadata) {
@@ -759,6 +884,16 @@ public class TAgentStat implements org.apache.thrift.TBase<TAgentStat, TAgentSta
     if (present_dataSourceList)
       list.add(dataSourceList);
 
+    boolean present_samplingRatio = true && (isSetSamplingRatio());
+    list.add(present_samplingRatio);
+    if (present_samplingRatio)
+      list.add(samplingRatio);
+
+    boolean present_metrics = true && (isSetMetrics());
+    list.add(present_metrics);
+    if (present_metrics)
+      list.add(metrics);
+
     boolean present_metadata = true && (isSetMetadata());
     list.add(present_metadata);
     if (present_metadata)
@@ -865,6 +1000,26 @@ public class TAgentStat implements org.apache.thrift.TBase<TAgentStat, TAgentSta
         return lastComparison;
       }
     }
+    lastComparison = Boolean.valueOf(isSetSamplingRatio()).compareTo(other.isSetSamplingRatio());
+    if (lastComparison != 0) {
+      return lastComparison;
+    }
+    if (isSetSamplingRatio()) {
+      lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.samplingRatio, other.samplingRatio);
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+    }
+    lastComparison = Boolean.valueOf(isSetMetrics()).compareTo(other.isSetMetrics());
+    if (lastComparison != 0) {
+      return lastComparison;
+    }
+    if (isSetMetrics()) {
+      lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.metrics, other.metrics);
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+    }
     lastComparison = Boolean.valueOf(isSetMetadata()).compareTo(other.isSetMetadata());
     if (lastComparison != 0) {
       return lastComparison;
@@ -972,6 +1127,22 @@ public class TAgentStat implements org.apache.thrift.TBase<TAgentStat, TAgentSta
       }
       first = false;
     }
+    if (isSetSamplingRatio()) {
+      if (!first) sb.append(", ");
+      sb.append("samplingRatio:");
+      sb.append(this.samplingRatio);
+      first = false;
+    }
+    if (isSetMetrics()) {
+      if (!first) sb.append(", ");
+      sb.append("metrics:");
+      if (this.metrics == null) {
+        sb.append("null");
+      } else {
+        sb.append(this.metrics);
+      }
+      first = false;
+    }
     if (isSetMetadata()) {
       if (!first) sb.append(", ");
       sb.append("metadata:");
@@ -1116,6 +1287,34 @@ public class TAgentStat implements org.apache.thrift.TBase<TAgentStat, TAgentSta
               org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
             }
             break;
+          case 60: // SAMPLING_RATIO
+            if (schemeField.type == org.apache.thrift.protocol.TType.DOUBLE) {
+              struct.samplingRatio = iprot.readDouble();
+              struct.setSamplingRatioIsSet(true);
+            } else { 
+              org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+            }
+            break;
+          case 70: // METRICS
+            if (schemeField.type == org.apache.thrift.protocol.TType.MAP) {
+              {
+                org.apache.thrift.protocol.TMap _map0 = iprot.readMapBegin();
+                struct.metrics = new HashMap<String,Long>(2*_map0.size);
+                String _key1;
+                long _val2;
+                for (int _i3 = 0; _i3 < _map0.size; ++_i3)
+                {
+                  _key1 = iprot.readString();
+                  _val2 = iprot.readI64();
+                  struct.metrics.put(_key1, _val2);
+                }
+                iprot.readMapEnd();
+              }
+              struct.setMetricsIsSet(true);
+            } else { 
+              org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+            }
+            break;
           case 200: // METADATA
             if (schemeField.type == org.apache.thrift.protocol.TType.STRING) {
               struct.metadata = iprot.readString();
@@ -1194,6 +1393,26 @@ public class TAgentStat implements org.apache.thrift.TBase<TAgentStat, TAgentSta
           oprot.writeFieldEnd();
         }
       }
+      if (struct.isSetSamplingRatio()) {
+        oprot.writeFieldBegin(SAMPLING_RATIO_FIELD_DESC);
+        oprot.writeDouble(struct.samplingRatio);
+        oprot.writeFieldEnd();
+      }
+      if (struct.metrics != null) {
+        if (struct.isSetMetrics()) {
+          oprot.writeFieldBegin(METRICS_FIELD_DESC);
+          {
+            oprot.writeMapBegin(new org.apache.thrift.protocol.TMap(org.apache.thrift.protocol.TType.STRING, org.apache.thrift.protocol.TType.I64, struct.metrics.size()));
+            for (Map.Entry<String, Long> _iter4 : struct.metrics.entrySet())
+            {
+              oprot.writeString(_iter4.getKey());
+              oprot.writeI64(_iter4.getValue());
+            }
+            oprot.writeMapEnd();
+          }
+          oprot.writeFieldEnd();
+        }
+      }
       if (struct.metadata != null) {
         if (struct.isSetMetadata()) {
           oprot.writeFieldBegin(METADATA_FIELD_DESC);
@@ -1246,10 +1465,16 @@ public class TAgentStat implements org.apache.thrift.TBase<TAgentStat, TAgentSta
       if (struct.isSetDataSourceList()) {
         optionals.set(8);
       }
-      if (struct.isSetMetadata()) {
+      if (struct.isSetSamplingRatio()) {
         optionals.set(9);
       }
-      oprot.writeBitSet(optionals, 10);
+      if (struct.isSetMetrics()) {
+        optionals.set(10);
+      }
+      if (struct.isSetMetadata()) {
+        optionals.set(11);
+      }
+      oprot.writeBitSet(optionals, 12);
       if (struct.isSetAgentId()) {
         oprot.writeString(struct.agentId);
       }
@@ -1277,6 +1502,19 @@ public class TAgentStat implements org.apache.thrift.TBase<TAgentStat, TAgentSta
       if (struct.isSetDataSourceList()) {
         struct.dataSourceList.write(oprot);
       }
+      if (struct.isSetSamplingRatio()) {
+        oprot.writeDouble(struct.samplingRatio);
+      }
+      if (struct.isSetMetrics()) {
+        {
+          oprot.writeI32(struct.metrics.size());
+          for (Map.Entry<String, Long> _iter5 : struct.metrics.entrySet())
+          {
+            oprot.writeString(_iter5.getKey());
+            oprot.writeI64(_iter5.getValue());
+          }
+        }
+      }
       if (struct.isSetMetadata()) {
         oprot.writeString(struct.metadata);
       }
@@ -1285,7 +1523,7 @@ public class TAgentStat implements org.apache.thrift.TBase<TAgentStat, TAgentSta
     @Override
     public void read(org.apache.thrift.protocol.TProtocol prot, TAgentStat struct) throws org.apache.thrift.TException {
       TTupleProtocol iprot = (TTupleProtocol) prot;
-      BitSet incoming = iprot.readBitSet(10);
+      BitSet incoming = iprot.readBitSet(12);
       if (incoming.get(0)) {
         struct.agentId = iprot.readString();
         struct.setAgentIdIsSet(true);
@@ -1328,6 +1566,25 @@ public class TAgentStat implements org.apache.thrift.TBase<TAgentStat, TAgentSta
         struct.setDataSourceListIsSet(true);
       }
       if (incoming.get(9)) {
+        struct.samplingRatio = iprot.readDouble();
+        struct.setSamplingRatioIsSet(true);
+      }
+      if (incoming.get(10)) {
+        {
+          org.apache.thrift.protocol.TMap _map6 = new org.apache.thrift.protocol.TMap(org.apache.thrift.protocol.TType.STRING, org.apache.thrift.protocol.TType.I64, iprot.readI32());
+          struct.metrics = new HashMap<String,Long>(2*_map6.size);
+          String _key7;
+          long _val8;
+          for (int _i9 = 0; _i9 < _map6.size; ++_i9)
+          {
+            _key7 = iprot.readString();
+            _val8 = iprot.readI64();
+            struct.metrics.put(_key7, _val8);
+          }
+        }
+        struct.setMetricsIsSet(true);
+      }
+      if (incoming.get(11)) {
         struct.metadata = iprot.readString();
         struct.setMetadataIsSet(true);
       }
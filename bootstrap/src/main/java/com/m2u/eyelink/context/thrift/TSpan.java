@@ -52,6 +52,7 @@ public class TSpan implements org.apache.thrift.TBase<TSpan, TSpan._Fields>, jav
   private static final org.apache.thrift.protocol.TField EXCEPTION_INFO_FIELD_DESC = new org.apache.thrift.protocol.TField("exceptionInfo", org.apache.thrift.protocol.TType.STRUCT, (short)26);
   private static final org.apache.thrift.protocol.TField APPLICATION_SERVICE_TYPE_FIELD_DESC = new org.apache.thrift.protocol.TField("applicationServiceType", org.apache.thrift.protocol.TType.I16, (short)30);
   private static final org.apache.thrift.protocol.TField LOGGING_TRANSACTION_INFO_FIELD_DESC = new org.apache.thrift.protocol.TField("loggingTransactionInfo", org.apache.thrift.protocol.TType.BYTE, (short)31);
+  private static final org.apache.thrift.protocol.TField ELAPSED_MICROS_FIELD_DESC = new org.apache.thrift.protocol.TField("elapsedMicros", org.apache.thrift.protocol.TType.I32, (short)40);
 
   private static final Map<Class<? extends IScheme>, SchemeFactory> schemes = new HashMap<Class<? extends IScheme>, SchemeFactory>();
   static {
@@ -82,6 +83,7 @@ public class TSpan implements org.apache.thrift.TBase<TSpan, TSpan._Fields>, jav
   private TIntStringValue exceptionInfo; // optional
   private short applicationServiceType; // optional
   private byte loggingTransactionInfo; // optional
+  private int elapsedMicros; // optional
 
   /** The set of fields this struct contains, along with convenience methods for finding and manipulating them. */
   public enum _Fields implements org.apache.thrift.TFieldIdEnum {
@@ -107,7 +109,8 @@ public class TSpan implements org.apache.thrift.TBase<TSpan, TSpan._Fields>, jav
     API_ID((short)25, "apiId"),
     EXCEPTION_INFO((short)26, "exceptionInfo"),
     APPLICATION_SERVICE_TYPE((short)30, "applicationServiceType"),
-    LOGGING_TRANSACTION_INFO((short)31, "loggingTransactionInfo");
+    LOGGING_TRANSACTION_INFO((short)31, "loggingTransactionInfo"),
+    ELAPSED_MICROS((short)40, "elapsedMicros");
 
     private static final Map<String, _Fields> byName = new HashMap<String, _Fields>();
 
@@ -168,6 +171,8 @@ public class TSpan implements org.apache.thrift.TBase<TSpan, TSpan._Fields>, jav
           return APPLICATION_SERVICE_TYPE;
         case 31: // LOGGING_TRANSACTION_INFO
           return LOGGING_TRANSACTION_INFO;
+        case 40: // ELAPSED_MICROS
+          return ELAPSED_MICROS;
         default:
           return null;
       }
@@ -220,8 +225,9 @@ public class TSpan implements org.apache.thrift.TBase<TSpan, TSpan._Fields>, jav
   private static final int __APIID_ISSET_ID = 9;
   private static final int __APPLICATIONSERVICETYPE_ISSET_ID = 10;
   private static final int __LOGGINGTRANSACTIONINFO_ISSET_ID = 11;
+  private static final int __ELAPSEDMICROS_ISSET_ID = 12;
   private short __isset_bitfield = 0;
-  private static final _Fields optionals[] = {_Fields.PARENT_SPAN_ID,_Fields.ELAPSED,_Fields.RPC,_Fields.END_POINT,_Fields.REMOTE_ADDR,_Fields.ANNOTATIONS,_Fields.FLAG,_Fields.ERR,_Fields.SPAN_EVENT_LIST,_Fields.PARENT_APPLICATION_NAME,_Fields.PARENT_APPLICATION_TYPE,_Fields.ACCEPTOR_HOST,_Fields.API_ID,_Fields.EXCEPTION_INFO,_Fields.APPLICATION_SERVICE_TYPE,_Fields.LOGGING_TRANSACTION_INFO};
+  private static final _Fields optionals[] = {_Fields.PARENT_SPAN_ID,_Fields.ELAPSED,_Fields.RPC,_Fields.END_POINT,_Fields.REMOTE_ADDR,_Fields.ANNOTATIONS,_Fields.FLAG,_Fields.ERR,_Fields.SPAN_EVENT_LIST,_Fields.PARENT_APPLICATION_NAME,_Fields.PARENT_APPLICATION_TYPE,_Fields.ACCEPTOR_HOST,_Fields.API_ID,_Fields.EXCEPTION_INFO,_Fields.APPLICATION_SERVICE_TYPE,_Fields.LOGGING_TRANSACTION_INFO,_Fields.ELAPSED_MICROS};
   public static final Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> metaDataMap;
   static {
     Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> tmpMap = new EnumMap<_Fields, org.apache.thrift.meta_data.FieldMetaData>(_Fields.class);
@@ -273,6 +279,8 @@ public class TSpan implements org.apache.thrift.TBase<TSpan, TSpan._Fields>, jav
         new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.I16)));
     tmpMap.put(_Fields.LOGGING_TRANSACTION_INFO, new org.apache.thrift.meta_data.FieldMetaData("loggingTransactionInfo", org.apache.thrift.TFieldRequirementType.OPTIONAL, 
         new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.BYTE)));
+    tmpMap.put(_Fields.ELAPSED_MICROS, new org.apache.thrift.meta_data.FieldMetaData("elapsedMicros", org.apache.thrift.TFieldRequirementType.OPTIONAL, 
+        new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.I32)));
     metaDataMap = Collections.unmodifiableMap(tmpMap);
     org.apache.thrift.meta_data.FieldMetaData.addStructMetaDataMap(TSpan.class, metaDataMap);
   }
@@ -367,6 +375,7 @@ public class TSpan implements org.apache.thrift.TBase<TSpan, TSpan._Fields>, jav
     }
     this.applicationServiceType = other.applicationServiceType;
     this.loggingTransactionInfo = other.loggingTransactionInfo;
+    this.elapsedMicros = other.elapsedMicros;
   }
 
   public TSpan deepCopy() {
@@ -410,6 +419,8 @@ public class TSpan implements org.apache.thrift.TBase<TSpan, TSpan._Fields>, jav
     this.applicationServiceType = 0;
     setLoggingTransactionInfoIsSet(false);
     this.loggingTransactionInfo = 0;
+    setElapsedMicrosIsSet(false);
+    this.elapsedMicros = 0;
   }
 
   public String getAgentId() {
@@ -968,6 +979,28 @@ public class TSpan implements org.apache.thrift.TBase<TSpan, TSpan._Fields>, jav
     __isset_bitfield = EncodingUtils.setBit(__isset_bitfield, __LOGGINGTRANSACTIONINFO_ISSET_ID, value);
   }
 
+  public int getElapsedMicros() {
+    return this.elapsedMicros;
+  }
+
+  public void setElapsedMicros(int elapsedMicros) {
+    this.elapsedMicros = elapsedMicros;
+    setElapsedMicrosIsSet(true);
+  }
+
+  public void unsetElapsedMicros() {
+    __isset_bitfield = EncodingUtils.clearBit(__isset_bitfield, __ELAPSEDMICROS_ISSET_ID);
+  }
+
+  /** Returns true if field elapsedMicros is set (has been assigned a value) and false otherwise */
+  public boolean isSetElapsedMicros() {
+    return EncodingUtils.testBit(__isset_bitfield, __ELAPSEDMICROS_ISSET_ID);
+  }
+
+  public void setElapsedMicrosIsSet(boolean value) {
+    __isset_bitfield = EncodingUtils.setBit(__isset_bitfield, __ELAPSEDMICROS_ISSET_ID, value);
+  }
+
   public void setFieldValue(_Fields field, Object value) {
     switch (field) {
     case AGENT_ID:
@@ -1154,6 +1187,14 @@ public class TSpan implements org.apache.thrift.TBase<TSpan, TSpan._Fields>, jav
       }
       break;
 
+    case ELAPSED_MICROS:
+      if (value == null) {
+        unsetElapsedMicros();
+      } else {
+        setElapsedMicros((Integer)value);
+      }
+      break;
+
     }
   }
 
@@ -1228,6 +1269,9 @@ public class TSpan implements org.apache.thrift.TBase<TSpan, TSpan._Fields>, jav
     case LOGGING_TRANSACTION_INFO:
       return Byte.valueOf(getLoggingTransactionInfo());
 
+    case ELAPSED_MICROS:
+      return Integer.valueOf(getElapsedMicros());
+
     }
     throw new IllegalStateException();
   }
@@ -1285,6 +1329,8 @@ public class TSpan implements org.apache.thrift.TBase<TSpan, TSpan._Fields>, jav
       return isSetApplicationServiceType();
     case LOGGING_TRANSACTION_INFO:
       return isSetLoggingTransactionInfo();
+    case ELAPSED_MICROS:
+      return isSetElapsedMicros();
     }
     throw new IllegalStateException();
   }
@@ -1509,6 +1555,15 @@ public class TSpan implements org.apache.thrift.TBase<TSpan, TSpan._Fields>, jav
         return false;
     }
 
+    boolean this_present_elapsedMicros = true && this.isSetElapsedMicros();
+    boolean that_present_elapsedMicros = true && that.isSetElapsedMicros();
+    if (this_present_elapsedMicros || that_present_elapsedMicros) {
+      if (!(this_present_elapsedMicros && that_present_elapsedMicros))
+        return false;
+      if (this.elapsedMicros != that.elapsedMicros)
+        return false;
+    }
+
     return true;
   }
 
@@ -1631,6 +1686,11 @@ public class TSpan implements org.apache.thrift.TBase<TSpan, TSpan._Fields>, jav
     if (present_loggingTransactionInfo)
       list.add(loggingTransactionInfo);
 
+    boolean present_elapsedMicros = true && (isSetElapsedMicros());
+    list.add(present_elapsedMicros);
+    if (present_elapsedMicros)
+      list.add(elapsedMicros);
+
     return list.hashCode();
   }
 
@@ -1872,6 +1932,16 @@ public class TSpan implements org.apache.thrift.TBase<TSpan, TSpan._Fields>, jav
         return lastComparison;
       }
     }
+    lastComparison = Boolean.valueOf(isSetElapsedMicros()).compareTo(other.isSetElapsedMicros());
+    if (lastComparison != 0) {
+      return lastComparison;
+    }
+    if (isSetElapsedMicros()) {
+      lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.elapsedMicros, other.elapsedMicros);
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+    }
     return 0;
   }
 
@@ -2059,6 +2129,12 @@ public class TSpan implements org.apache.thrift.TBase<TSpan, TSpan._Fields>, jav
       sb.append(this.loggingTransactionInfo);
       first = false;
     }
+    if (isSetElapsedMicros()) {
+      if (!first) sb.append(", ");
+      sb.append("elapsedMicros:");
+      sb.append(this.elapsedMicros);
+      first = false;
+    }
     sb.append(")");
     return sb.toString();
   }
@@ -2314,6 +2390,14 @@ public class TSpan implements org.apache.thrift.TBase<TSpan, TSpan._Fields>, jav
               org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
             }
             break;
+          case 40: // ELAPSED_MICROS
+            if (schemeField.type == org.apache.thrift.protocol.TType.I32) {
+              struct.elapsedMicros = iprot.readI32();
+              struct.setElapsedMicrosIsSet(true);
+            } else { 
+              org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+            }
+            break;
           default:
             org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
         }
@@ -2464,6 +2548,11 @@ public class TSpan implements org.apache.thrift.TBase<TSpan, TSpan._Fields>, jav
         oprot.writeByte(struct.loggingTransactionInfo);
         oprot.writeFieldEnd();
       }
+      if (struct.isSetElapsedMicros()) {
+        oprot.writeFieldBegin(ELAPSED_MICROS_FIELD_DESC);
+        oprot.writeI32(struct.elapsedMicros);
+        oprot.writeFieldEnd();
+      }
       oprot.writeFieldStop();
       oprot.writeStructEnd();
     }
@@ -2551,7 +2640,10 @@ public class TSpan implements org.apache.thrift.TBase<TSpan, TSpan._Fields>, jav
       if (struct.isSetLoggingTransactionInfo()) {
         optionals.set(22);
       }
-      oprot.writeBitSet(optionals, 23);
+      if (struct.isSetElapsedMicros()) {
+        optionals.set(23);
+      }
+      oprot.writeBitSet(optionals, 24);
       if (struct.isSetAgentId()) {
         oprot.writeString(struct.agentId);
       }
@@ -2633,12 +2725,15 @@ public class TSpan implements org.apache.thrift.TBase<TSpan, TSpan._Fields>, jav
       if (struct.isSetLoggingTransactionInfo()) {
         oprot.writeByte(struct.loggingTransactionInfo);
       }
+      if (struct.isSetElapsedMicros()) {
+        oprot.writeI32(struct.elapsedMicros);
+      }
     }
 
     @Override
     public void read(org.apache.thrift.protocol.TProtocol prot, TSpan struct) throws org.apache.thrift.TException {
       TTupleProtocol iprot = (TTupleProtocol) prot;
-      BitSet incoming = iprot.readBitSet(23);
+      BitSet incoming = iprot.readBitSet(24);
       if (incoming.get(0)) {
         struct.agentId = iprot.readString();
         struct.setAgentIdIsSet(true);
@@ -2752,6 +2847,10 @@ public class TSpan implements org.apache.thrift.TBase<TSpan, TSpan._Fields>, jav
         struct.loggingTransactionInfo = iprot.readByte();
         struct.setLoggingTransactionInfoIsSet(true);
       }
+      if (incoming.get(23)) {
+        struct.elapsedMicros = iprot.readI32();
+        struct.setElapsedMicrosIsSet(true);
+      }
     }
   }
 
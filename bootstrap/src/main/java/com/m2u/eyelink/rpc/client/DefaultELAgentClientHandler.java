@@ -1,6 +1,7 @@
 package com.m2u.eyelink.rpc.client;
 
 import java.net.SocketAddress;
+import java.nio.ByteBuffer;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
@@ -37,6 +38,7 @@ import com.m2u.eyelink.rpc.SocketStateCode;
 import com.m2u.eyelink.rpc.StreamChannelStateChangeEventHandler;
 import com.m2u.eyelink.rpc.client.ConnectFuture.Result;
 import com.m2u.eyelink.rpc.common.SocketStateChangeResult;
+import com.m2u.eyelink.rpc.packet.ByteBufferSendPacket;
 import com.m2u.eyelink.rpc.packet.ClientClosePacket;
 import com.m2u.eyelink.rpc.packet.ControlHandshakeResponsePacket;
 import com.m2u.eyelink.rpc.packet.HandshakeResponseCode;
@@ -99,6 +101,7 @@ public class DefaultELAgentClientHandler extends SimpleChannelHandler implements
 
     private final ClusterOption localClusterOption;
     private ClusterOption remoteClusterOption = ClusterOption.DISABLE_CLUSTER_OPTION;
+    private volatile boolean supportRequestBatch = false;
     
     public DefaultELAgentClientHandler(ELAgentClientFactory clientFactory) {
         this(clientFactory, DEFAULT_PING_DELAY, DEFAULT_ENABLE_WORKER_PACKET_DELAY, DEFAULT_TIMEOUTMILLIS);
@@ -278,6 +281,21 @@ public class DefaultELAgentClientHandler extends SimpleChannelHandler implements
         return future ;
     }
 
+    @Override
+    public Future sendAsync(ByteBuffer payload) {
+        if (payload == null) {
+            throw new NullPointerException("payload");
+        }
+
+        ensureOpen();
+        ChannelFuture channelFuture = write0(new ByteBufferSendPacket(payload));
+        // no timeout task is scheduled, so the future completes on write completion only and the caller can safely reuse payload afterwards.
+        // timeoutMillis only bounds await().
+        final ChannelWriteCompleteListenableFuture future = new ChannelWriteCompleteListenableFuture(timeoutMillis);
+        channelFuture.addListener(future);
+        return future;
+    }
+
     @Override
     public void sendSync(byte[] bytes) {
         ChannelFuture write = send0(bytes);
@@ -449,6 +467,7 @@ public class DefaultELAgentClientHandler extends SimpleChannelHandler implements
                 logger.warn("{} handleHandshakePacket() failed. Error:Invalid Handshake Packet(code:{}).", objectUniqName, code);
                 return;
             }
+            supportRequestBatch = handshaker.isSupportRequestBatch();
 
             logger.info("{} handleHandshakePacket() completed. code:{}", channel, code);
         } else if (handshaker.isFinished()){
@@ -645,6 +664,11 @@ public class DefaultELAgentClientHandler extends SimpleChannelHandler implements
         return remoteClusterOption;
     }
 
+    @Override
+    public boolean isSupportRequestBatch() {
+        return supportRequestBatch;
+    }
+
     protected ELAgentClient getELAgentClient() {
         return elagentClient;
     }
@@ -1,6 +1,7 @@
 package com.m2u.eyelink.rpc.client;
 
 import java.net.SocketAddress;
+import java.nio.ByteBuffer;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
 
@@ -94,6 +95,15 @@ public class ELAgentClient implements ELAgentSocket {
         return pinpointClientHandler.sendAsync(bytes);
     }
 
+    /**
+     * Sends the remaining bytes of payload without copying them.
+     * The payload must not be modified until the returned future completes.
+     */
+    public Future sendAsync(ByteBuffer payload) {
+        ensureOpen();
+        return pinpointClientHandler.sendAsync(payload);
+    }
+
     @Override
     public void send(byte[] bytes) {
         ensureOpen();
@@ -147,6 +157,14 @@ public class ELAgentClient implements ELAgentSocket {
         return pinpointClientHandler.getRemoteClusterOption();
     }
 
+    public boolean isSupportRequestBatch() {
+        ELAgentClientHandler pinpointClientHandler = this.pinpointClientHandler;
+        if (pinpointClientHandler == null) {
+            return false;
+        }
+        return pinpointClientHandler.isSupportRequestBatch();
+    }
+
     public StreamChannelContext findStreamChannel(int streamChannelId) {
 
         ensureOpen();
@@ -1,6 +1,7 @@
 package com.m2u.eyelink.rpc.client;
 
 import java.net.SocketAddress;
+import java.nio.ByteBuffer;
 
 import com.m2u.eyelink.rpc.ClientStreamChannelContext;
 import com.m2u.eyelink.rpc.ClientStreamChannelMessageListener;
@@ -25,6 +26,8 @@ public interface ELAgentClientHandler {
 
 	    Future sendAsync(byte[] bytes);
 
+	    Future sendAsync(ByteBuffer payload);
+
 	    void close();
 
 	    void send(byte[] bytes);
@@ -51,4 +54,9 @@ public interface ELAgentClientHandler {
 	    ClusterOption getLocalClusterOption();
 	    ClusterOption getRemoteClusterOption();
 
+	    /**
+	     * @return true if the server said in the handshake that it accepts chunk requests
+	     */
+	    boolean isSupportRequestBatch();
+
 }
@@ -49,6 +49,7 @@ public class ELAgentClientHandshaker {
     private final Object lock = new Object();
     private final AtomicReference<HandshakeResponseCode> handshakeResult = new AtomicReference<HandshakeResponseCode>(null);
     private final AtomicReference<ClusterOption> clusterOption = new AtomicReference<ClusterOption>(null);
+    private volatile boolean supportRequestBatch = false;
     
     private String simpleName;
     
@@ -151,6 +152,8 @@ public class ELAgentClientHandshaker {
             ClusterOption clusterOption = getClusterOption(handshakeResponse);
             this.clusterOption.compareAndSet(null, clusterOption);
 
+            this.supportRequestBatch = MapUtils.getBoolean(handshakeResponse, ControlHandshakeResponsePacket.SUPPORT_REQUEST_BATCH, false);
+
             logger.info("{} handshakeComplete() completed. handshake-response:{}.", simpleClassNameAndHashCodeString(), handshakeResponse);
             return true;
         }
@@ -221,6 +224,10 @@ public class ELAgentClientHandshaker {
         return clusterOption.get();
     }
 
+    public boolean isSupportRequestBatch() {
+        return supportRequestBatch;
+    }
+
     public void handshakeAbort() {
         logger.info("{} handshakeAbort() started.", simpleClassNameAndHashCodeString());
 
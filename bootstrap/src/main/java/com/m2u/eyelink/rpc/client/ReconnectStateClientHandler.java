@@ -1,6 +1,7 @@
 package com.m2u.eyelink.rpc.client;
 
 import java.net.SocketAddress;
+import java.nio.ByteBuffer;
 
 import com.m2u.eyelink.rpc.ClientStreamChannelContext;
 import com.m2u.eyelink.rpc.ClientStreamChannelMessageListener;
@@ -52,6 +53,11 @@ public class ReconnectStateClientHandler implements ELAgentClientHandler {
         return reconnectFailureFuture();
     }
 
+    @Override
+    public Future sendAsync(ByteBuffer payload) {
+        return reconnectFailureFuture();
+    }
+
     private DefaultFuture<ResponseMessage> reconnectFailureFuture() {
         DefaultFuture<ResponseMessage> reconnect = new DefaultFuture<ResponseMessage>();
         reconnect.setFailure(newReconnectException());
@@ -130,5 +136,10 @@ public class ReconnectStateClientHandler implements ELAgentClientHandler {
         return null;
     }
 
+    @Override
+    public boolean isSupportRequestBatch() {
+        return false;
+    }
+
 
 }
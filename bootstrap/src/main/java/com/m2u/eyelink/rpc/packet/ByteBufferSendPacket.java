@@ -0,0 +1,49 @@
+package com.m2u.eyelink.rpc.packet;
+
+import java.nio.ByteBuffer;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+
+/**
+ * APPLICATION_SEND packet whose payload is a ByteBuffer. Encoded exactly like {@link SendPacket}, but the payload is not copied.
+ * The payload must not be modified until the write completes.
+ */
+public class ByteBufferSendPacket implements Packet {
+
+    private final ByteBuffer payload;
+
+    public ByteBufferSendPacket(ByteBuffer payload) {
+        if (payload == null) {
+            throw new NullPointerException("payload");
+        }
+        this.payload = payload;
+    }
+
+    @Override
+    public short getPacketType() {
+        return PacketType.APPLICATION_SEND;
+    }
+
+    @Override
+    public byte[] getPayload() {
+        final ByteBuffer duplicate = payload.duplicate();
+        final byte[] copy = new byte[duplicate.remaining()];
+        duplicate.get(copy);
+        return copy;
+    }
+
+    @Override
+    public ChannelBuffer toBuffer() {
+        ChannelBuffer header = ChannelBuffers.buffer(2 + 4);
+        header.writeShort(PacketType.APPLICATION_SEND);
+
+        return PayloadPacket.appendPayload(header, payload);
+    }
+
+    @Override
+    public String toString() {
+        return "ByteBufferSendPacket{payloadLength=" + payload.remaining() + '}';
+    }
+
+}
@@ -9,6 +9,9 @@ public class ControlHandshakeResponsePacket extends ControlPacket {
     public static final String SUB_CODE = "subCode";
 
     public static final String CLUSTER = "cluster";
+
+    // the server splits chunk requests and answers with one result per entry
+    public static final String SUPPORT_REQUEST_BATCH = "supportRequestBatch";
     
     public ControlHandshakeResponsePacket(byte[] payload) {
         super(payload);
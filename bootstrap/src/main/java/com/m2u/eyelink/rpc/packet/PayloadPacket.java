@@ -1,5 +1,7 @@
 package com.m2u.eyelink.rpc.packet;
 
+import java.nio.ByteBuffer;
+
 import org.jboss.netty.buffer.ChannelBuffer;
 import org.jboss.netty.buffer.ChannelBuffers;
 import org.slf4j.Logger;
@@ -42,4 +44,16 @@ public class PayloadPacket {
         }
     }
 
+    public static ChannelBuffer appendPayload(final ChannelBuffer header, final ByteBuffer payload) {
+        if (payload == null) {
+            header.writeInt(-1);
+            return header;
+        } else {
+            header.writeInt(payload.remaining());
+            // wraps without copy. direct buffers are written to the socket as they are.
+            ChannelBuffer payloadWrap = ChannelBuffers.wrappedBuffer(payload);
+            return ChannelBuffers.wrappedBuffer(true, header, payloadWrap);
+        }
+    }
+
 }
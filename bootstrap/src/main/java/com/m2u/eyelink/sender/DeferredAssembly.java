@@ -0,0 +1,14 @@
+package com.m2u.eyelink.sender;
+
+/**
+ * Message that is handed to a {@link DataSender} only partially built.
+ * The sender completes it on its own thread right before serialization, which keeps the work off the application thread.
+ */
+public interface DeferredAssembly {
+
+    /**
+     * Completes the message. Called once by the sender thread. Does nothing if the message is already complete.
+     */
+    void assemble();
+
+}
@@ -14,6 +14,9 @@ public class LoggingDataSender  implements EnhancedDataSender {
 
     @Override
     public boolean send(TBase<?, ?> data) {
+        if (data instanceof DeferredAssembly) {
+            ((DeferredAssembly) data).assemble();
+        }
         logger.info("send tBase:{}", data);
         return true;
     }
@@ -0,0 +1,86 @@
+package com.m2u.eyelink.thrift;
+
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+import org.apache.thrift.TBase;
+import org.apache.thrift.TException;
+
+import com.m2u.eyelink.context.thrift.BufferOverflowException;
+
+/**
+ * Serializes header + TBase straight into a caller supplied ByteBuffer (typically a direct buffer).
+ * No intermediate byte[] is created, so the same buffer can be handed to a DatagramChannel or wrapped by Netty.
+ * Not thread safe.
+ */
+public class HeaderTBaseByteBufferSerializer {
+
+    private final HeaderTBaseSerializer2 serializer;
+    private final ByteBufferWriter writer = new ByteBufferWriter();
+
+    public HeaderTBaseByteBufferSerializer() {
+        this(new HeaderTBaseSerializerFactory2());
+    }
+
+    public HeaderTBaseByteBufferSerializer(HeaderTBaseSerializerFactory2 serializerFactory) {
+        if (serializerFactory == null) {
+            throw new NullPointerException("serializerFactory must not be null");
+        }
+        this.serializer = serializerFactory.createSerializer();
+    }
+
+    /**
+     * Writes the message from the current position of byteBuffer and advances the position.
+     * If the message does not fit, the position is restored and {@link BufferOverflowException} is thrown.
+     * @return serialized size
+     */
+    public int serialize(TBase<?, ?> base, ByteBuffer byteBuffer) throws TException {
+        if (byteBuffer == null) {
+            throw new NullPointerException("byteBuffer must not be null");
+        }
+        final int start = byteBuffer.position();
+        writer.open(byteBuffer);
+        try {
+            serializer.serialize(base, writer);
+        } catch (BufferOverflowException e) {
+            byteBuffer.position(start);
+            throw e;
+        } finally {
+            writer.close();
+        }
+        return byteBuffer.position() - start;
+    }
+
+    private static final class ByteBufferWriter extends OutputStream {
+
+        private ByteBuffer byteBuffer;
+
+        private void open(ByteBuffer byteBuffer) {
+            this.byteBuffer = byteBuffer;
+        }
+
+        @Override
+        public void write(int b) {
+            checkWriteAvailable(1);
+            byteBuffer.put((byte) b);
+        }
+
+        @Override
+        public void write(byte[] byteArray, int offset, int length) {
+            checkWriteAvailable(length);
+            byteBuffer.put(byteArray, offset, length);
+        }
+
+        private void checkWriteAvailable(int size) {
+            if (byteBuffer.remaining() < size) {
+                throw new BufferOverflowException("write failed remaining-size:" + byteBuffer.remaining() + ", input-size:" + size + ".");
+            }
+        }
+
+        @Override
+        public void close() {
+            this.byteBuffer = null;
+        }
+    }
+
+}
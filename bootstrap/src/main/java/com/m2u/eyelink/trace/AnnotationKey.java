@@ -30,6 +30,8 @@ import static com.m2u.eyelink.trace.AnnotationKeyProperty.*;
  * <tr><td>-40</td><td>cached_args[N]</td></tr>
  * <tr><td>-50</td><td>Exception</td></tr>
  * <tr><td>-51</td><td>ExceptionClass</td></tr>
+ * <tr><td>-61</td><td>callstack dropped frames</td></tr>
+ * <tr><td>-62</td><td>callstack overflow depth</td></tr>
  * <tr><td>-100</td><td>Asynchronous Invocation</td></tr>
  * <tr><td>-9999</td><td>UNKNOWN</td></tr>
  * 
@@ -155,6 +157,8 @@ public interface AnnotationKey {
     AnnotationKey EXCEPTION = AnnotationKeyFactory.of(-50, "Exception", VIEW_IN_RECORD_SET);
     @Deprecated
     AnnotationKey EXCEPTION_CLASS = AnnotationKeyFactory.of(-51, "ExceptionClass");
+    AnnotationKey CALL_STACK_DROPPED_FRAMES = AnnotationKeyFactory.of(-61, "callstack dropped frames");
+    AnnotationKey CALL_STACK_OVERFLOW_DEPTH = AnnotationKeyFactory.of(-62, "callstack overflow depth");
     AnnotationKey UNKNOWN = AnnotationKeyFactory.of(-9999, "UNKNOWN");
 
     AnnotationKey ASYNC = AnnotationKeyFactory.of(-100, "Asynchronous Invocation", VIEW_IN_RECORD_SET);
@@ -0,0 +1,66 @@
+package com.m2u.eyelink.agent.profiler.context;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.m2u.eyelink.agent.profiler.context.ActiveTraceHistogramFactory.ActiveTraceHistogram;
+import com.m2u.eyelink.context.ActiveTraceInfo;
+import com.m2u.eyelink.context.ActiveTraceLocator;
+import com.m2u.eyelink.trace.BaseHistogramSchema;
+
+public class ActiveTraceHistogramFactoryTest {
+
+    private static class FixedActiveTraceLocator implements ActiveTraceLocator {
+        private int[] counts;
+
+        @Override
+        public List<ActiveTraceInfo> collect() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void countByElapsedTime(long currentTime, int[] elapsedLimits, int[] counts) {
+            Assert.assertEquals(elapsedLimits.length + 1, counts.length);
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += this.counts[i];
+            }
+        }
+    }
+
+    @Test
+    public void testUpdateHistogram() {
+        FixedActiveTraceLocator activeTraceLocator = new FixedActiveTraceLocator();
+        ActiveTraceHistogramFactory histogramFactory = new ActiveTraceHistogramFactory(activeTraceLocator);
+        ActiveTraceHistogram histogram = histogramFactory.newHistogram();
+        Assert.assertSame(BaseHistogramSchema.NORMAL_SCHEMA, histogram.getHistogramSchema());
+        Assert.assertEquals(4, histogram.getSlotsCount());
+
+        activeTraceLocator.counts = new int[] {1, 2, 3, 4};
+        histogramFactory.updateHistogram(histogram);
+        Assert.assertEquals(Arrays.asList(1, 2, 3, 4), histogram.getActiveTraceCounts());
+
+        // refilled, not added to the previous counts
+        activeTraceLocator.counts = new int[] {0, 5, 0, 1};
+        histogramFactory.updateHistogram(histogram);
+        Assert.assertEquals(5, histogram.getActiveTraceCount(1));
+        Assert.assertEquals(Arrays.asList(0, 5, 0, 1), histogram.getActiveTraceCounts());
+    }
+
+    @Test
+    public void testActiveTraceCountsNotShared() {
+        FixedActiveTraceLocator activeTraceLocator = new FixedActiveTraceLocator();
+        ActiveTraceHistogramFactory histogramFactory = new ActiveTraceHistogramFactory(activeTraceLocator);
+        ActiveTraceHistogram histogram = histogramFactory.newHistogram();
+        activeTraceLocator.counts = new int[] {1, 1, 1, 1};
+        histogramFactory.updateHistogram(histogram);
+        List<Integer> sent = histogram.getActiveTraceCounts();
+
+        // a list handed to a thrift message does not change with the next update
+        activeTraceLocator.counts = new int[] {2, 2, 2, 2};
+        histogramFactory.updateHistogram(histogram);
+        Assert.assertEquals(Arrays.asList(1, 1, 1, 1), sent);
+    }
+}
@@ -0,0 +1,216 @@
+package com.m2u.eyelink.agent.profiler.context.storage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.thrift.TBase;
+import org.apache.thrift.TException;
+import org.apache.thrift.TSerializer;
+import org.apache.thrift.protocol.TCompactProtocol;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.m2u.eyelink.agent.profiler.context.SpanChunk;
+import com.m2u.eyelink.agent.profiler.context.SpanChunkFactory;
+import com.m2u.eyelink.context.AgentInformation;
+import com.m2u.eyelink.context.Annotation;
+import com.m2u.eyelink.context.Span;
+import com.m2u.eyelink.context.SpanEvent;
+import com.m2u.eyelink.sender.DataSender;
+import com.m2u.eyelink.trace.AnnotationKey;
+import com.m2u.eyelink.trace.ServiceType;
+
+public class BufferedStorageTest {
+
+    private static final int BUFFER_SIZE = 20;
+    private static final int BUFFER_BYTES = 1000;
+
+    private final AgentInformation agentInformation = new AgentInformation("agentId", "applicationName", 1L, 1, "machineName", "127.0.0.1",
+            ServiceType.UNDEFINED, "1.8", "1.0");
+
+    // event count of each chunk sent
+    private final List<Integer> chunkSizes = new ArrayList<Integer>();
+    private final List<Span> spans = new ArrayList<Span>();
+
+    private final DataSender dataSender = new DataSender() {
+        @Override
+        public boolean send(TBase<?, ?> data) {
+            if (data instanceof SpanChunk) {
+                SpanChunk spanChunk = (SpanChunk) data;
+                spanChunk.assemble();
+                chunkSizes.add(spanChunk.getSpanEventListSize());
+            } else if (data instanceof Span) {
+                Span span = (Span) data;
+                span.assemble();
+                spans.add(span);
+            }
+            return true;
+        }
+
+        @Override
+        public void stop() {
+        }
+    };
+
+    private BufferedStorage newStorage(boolean deferAssembly, int bufferSize, int bufferBytes) {
+        SpanChunkFactory spanChunkFactory = new SpanChunkFactory(agentInformation, null, deferAssembly);
+        return new BufferedStorage(dataSender, spanChunkFactory, null, bufferSize, bufferBytes);
+    }
+
+    private SpanEvent newSpanEvent(BufferedStorage storage, Span span, int destinationLength) {
+        SpanEvent spanEvent = storage.newSpanEvent(span);
+        StringBuilder destinationId = new StringBuilder(destinationLength);
+        for (int i = 0; i < destinationLength; i++) {
+            destinationId.append('d');
+        }
+        spanEvent.setDestinationId(destinationId.toString());
+        return spanEvent;
+    }
+
+    private void assertFlushOnByteBudget(boolean deferAssembly) {
+        BufferedStorage storage = newStorage(deferAssembly, BUFFER_SIZE, BUFFER_BYTES);
+        Span span = new Span();
+        int eventBytes = 0;
+        for (int i = 0; i < 10; i++) {
+            SpanEvent spanEvent = newSpanEvent(storage, span, 200);
+            eventBytes = SpanEventSizeEstimator.estimate(spanEvent);
+            storage.store(spanEvent);
+        }
+        final int eventsPerChunk = BUFFER_BYTES / eventBytes;
+        Assert.assertTrue(eventsPerChunk > 1 && eventsPerChunk < 10);
+
+        // flushed before the event that would exceed the budget
+        Assert.assertFalse(chunkSizes.isEmpty());
+        for (int chunkSize : chunkSizes) {
+            Assert.assertEquals(eventsPerChunk, chunkSize);
+        }
+        int sent = chunkSizes.size() * eventsPerChunk;
+
+        storage.store(span);
+        Assert.assertEquals(1, spans.size());
+        Assert.assertEquals(10 - sent, spans.get(0).getSpanEventListSize());
+    }
+
+    @Test
+    public void testFlushOnByteBudget() {
+        assertFlushOnByteBudget(false);
+    }
+
+    @Test
+    public void testFlushOnByteBudgetRecorded() {
+        assertFlushOnByteBudget(true);
+    }
+
+    @Test
+    public void testOversizedEventSentAlone() {
+        BufferedStorage storage = newStorage(false, BUFFER_SIZE, BUFFER_BYTES);
+        Span span = new Span();
+        storage.store(newSpanEvent(storage, span, 10));
+        storage.store(newSpanEvent(storage, span, 10));
+
+        SpanEvent oversized = newSpanEvent(storage, span, BUFFER_BYTES * 2);
+        Assert.assertTrue(SpanEventSizeEstimator.estimate(oversized) > BUFFER_BYTES);
+        storage.store(oversized);
+
+        // the buffered events first, then the oversized event on its own
+        Assert.assertEquals(2, chunkSizes.size());
+        Assert.assertEquals(Integer.valueOf(2), chunkSizes.get(0));
+        Assert.assertEquals(Integer.valueOf(1), chunkSizes.get(1));
+    }
+
+    private void assertTinyEventsInOneChunk(boolean deferAssembly) {
+        BufferedStorage storage = newStorage(deferAssembly, BUFFER_SIZE, 100000);
+        Span span = new Span();
+        for (int i = 0; i < BUFFER_SIZE * 10; i++) {
+            storage.store(newSpanEvent(storage, span, 1));
+        }
+        // far below the byte budget. bufferSize does not cut the chunk
+        Assert.assertTrue(chunkSizes.isEmpty());
+
+        storage.flush();
+        Assert.assertEquals(1, chunkSizes.size());
+        Assert.assertEquals(Integer.valueOf(BUFFER_SIZE * 10), chunkSizes.get(0));
+    }
+
+    @Test
+    public void testTinyEventsInOneChunk() {
+        assertTinyEventsInOneChunk(false);
+    }
+
+    @Test
+    public void testTinyEventsInOneChunkRecorded() {
+        assertTinyEventsInOneChunk(true);
+    }
+
+    @Test
+    public void testByteBudgetEventCap() {
+        BufferedStorage storage = newStorage(false, BUFFER_SIZE, Integer.MAX_VALUE);
+        Span span = new Span();
+        for (int i = 0; i < BufferedStorage.BYTE_BUDGET_MAX_BUFFER_SIZE + 1; i++) {
+            storage.store(newSpanEvent(storage, span, 1));
+        }
+        Assert.assertEquals(1, chunkSizes.size());
+        Assert.assertEquals(Integer.valueOf(BufferedStorage.BYTE_BUDGET_MAX_BUFFER_SIZE), chunkSizes.get(0));
+    }
+
+    @Test
+    public void testFlushOnBufferSizeWithoutByteBudget() {
+        BufferedStorage storage = newStorage(false, 4, BufferedStorage.NO_BYTE_BUDGET);
+        Span span = new Span();
+        for (int i = 0; i < 10; i++) {
+            storage.store(newSpanEvent(storage, span, BUFFER_BYTES));
+        }
+        Assert.assertEquals(2, chunkSizes.size());
+        Assert.assertEquals(Integer.valueOf(4), chunkSizes.get(0));
+        Assert.assertEquals(Integer.valueOf(4), chunkSizes.get(1));
+
+        storage.flush();
+        Assert.assertEquals(3, chunkSizes.size());
+        Assert.assertEquals(Integer.valueOf(2), chunkSizes.get(2));
+    }
+
+    private SpanEvent newSqlSpanEvent(BufferedStorage storage, Span span, String sql, String bindValue) {
+        SpanEvent spanEvent = storage.newSpanEvent(span);
+        spanEvent.addAnnotation(new Annotation(AnnotationKey.SQL.getCode(), sql));
+        spanEvent.addAnnotation(new Annotation(AnnotationKey.SQL_BINDVALUE.getCode(), bindValue));
+        return spanEvent;
+    }
+
+    @Test
+    public void testMultibyteSqlNotUnderestimated() throws TException {
+        BufferedStorage storage = newStorage(false, BUFFER_SIZE, BUFFER_BYTES);
+        Span span = new Span();
+        StringBuilder sql = new StringBuilder("SELECT * FROM \uace0\uac1d WHERE \uc774\ub984 = ?");
+        while (sql.length() < 300) {
+            sql.append(" AND \uc8fc\uc18c = ?");
+        }
+        SpanEvent spanEvent = newSqlSpanEvent(storage, span, sql.toString(), "\ud64d\uae38\ub3d9, \uc11c\uc6b8");
+
+        byte[] serialized = new TSerializer(new TCompactProtocol.Factory()).serialize(spanEvent);
+        Assert.assertTrue(SpanEventSizeEstimator.estimate(spanEvent) >= serialized.length);
+    }
+
+    @Test
+    public void testFlushOnByteBudgetMultibyteSql() throws TException {
+        BufferedStorage storage = newStorage(false, BUFFER_SIZE, BUFFER_BYTES);
+        Span span = new Span();
+        final List<SpanEvent> spanEvents = new ArrayList<SpanEvent>();
+        for (int i = 0; i < 10; i++) {
+            SpanEvent spanEvent = newSqlSpanEvent(storage, span, "SELECT \uc774\ub984 FROM \uace0\uac1d WHERE id = ?", "\ud64d\uae38\ub3d9" + i);
+            spanEvents.add(spanEvent);
+            storage.store(spanEvent);
+        }
+        Assert.assertFalse(chunkSizes.isEmpty());
+
+        // the events of every chunk sent fit the budget once written as UTF-8
+        TSerializer serializer = new TSerializer(new TCompactProtocol.Factory());
+        int index = 0;
+        for (int chunkSize : chunkSizes) {
+            int chunkBytes = 0;
+            for (int i = 0; i < chunkSize; i++) {
+                chunkBytes += serializer.serialize(spanEvents.get(index++)).length;
+            }
+            Assert.assertTrue(chunkBytes <= BUFFER_BYTES);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.m2u.eyelink.agent.profiler.context.storage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.m2u.eyelink.context.Span;
+import com.m2u.eyelink.context.SpanEvent;
+import com.m2u.eyelink.context.Storage;
+import com.m2u.eyelink.context.StorageFactory;
+
+public class TailSamplingStorageTest {
+
+    private final List<Object> stored = new ArrayList<Object>();
+
+    private final StorageFactory storageFactory = new StorageFactory() {
+        @Override
+        public Storage createStorage() {
+            return new Storage() {
+                @Override
+                public SpanEvent newSpanEvent(Span span) {
+                    return new SpanEvent(span);
+                }
+
+                @Override
+                public void store(SpanEvent spanEvent) {
+                    stored.add(spanEvent);
+                }
+
+                @Override
+                public void store(Span span) {
+                    stored.add(span);
+                }
+
+                @Override
+                public void flush() {
+                }
+
+                @Override
+                public void close() {
+                }
+            };
+        }
+    };
+
+    @Test
+    public void testDiscardFastTrace() {
+        TailSamplingStorageFactory factory = new TailSamplingStorageFactory(storageFactory, 1000, 16, 1024 * 1024);
+        Storage storage = factory.createStorage();
+        Span span = new Span();
+        span.setElapsed(10);
+        storage.store(storage.newSpanEvent(span));
+        storage.store(span);
+        storage.close();
+
+        Assert.assertTrue(stored.isEmpty());
+        Assert.assertEquals(1, factory.getDiscardedCount());
+        Assert.assertEquals(0, factory.getBufferBytes());
+    }
+
+    @Test
+    public void testEmitSlowOrFailedTrace() {
+        TailSamplingStorageFactory factory = new TailSamplingStorageFactory(storageFactory, 1000, 16, 1024 * 1024);
+
+        Storage slow = factory.createStorage();
+        Span slowSpan = new Span();
+        slowSpan.setElapsed(1000);
+        slow.store(slow.newSpanEvent(slowSpan));
+        slow.store(slowSpan);
+        Assert.assertEquals(2, stored.size());
+
+        Storage failed = factory.createStorage();
+        Span failedSpan = new Span();
+        SpanEvent spanEvent = failed.newSpanEvent(failedSpan);
+        spanEvent.setExceptionInfo(1, "error");
+        failed.store(spanEvent);
+        failed.store(failedSpan);
+        Assert.assertEquals(4, stored.size());
+
+        Assert.assertEquals(2, factory.getEmittedCount());
+        Assert.assertEquals(0, factory.getBufferBytes());
+    }
+
+    @Test
+    public void testMaxEvents() {
+        TailSamplingStorageFactory factory = new TailSamplingStorageFactory(storageFactory, 0, 2, 1024 * 1024);
+        Storage storage = factory.createStorage();
+        Span span = new Span();
+        for (int i = 0; i < 3; i++) {
+            storage.store(storage.newSpanEvent(span));
+        }
+        storage.store(span);
+
+        Assert.assertTrue(stored.isEmpty());
+        Assert.assertEquals(1, factory.getOverflowCount());
+        Assert.assertEquals(0, factory.getBufferBytes());
+    }
+
+    @Test
+    public void testMaxBufferBytes() {
+        TailSamplingStorageFactory factory = new TailSamplingStorageFactory(storageFactory, 0, 16, 1);
+        Storage storage = factory.createStorage();
+        Span span = new Span();
+        storage.store(storage.newSpanEvent(span));
+        storage.store(span);
+
+        Assert.assertTrue(stored.isEmpty());
+        Assert.assertEquals(1, factory.getOverflowCount());
+    }
+}
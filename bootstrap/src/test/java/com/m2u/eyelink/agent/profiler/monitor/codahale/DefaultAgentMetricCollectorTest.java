@@ -0,0 +1,210 @@
+package com.m2u.eyelink.agent.profiler.monitor.codahale;
+
+import static org.mockito.Mockito.mock;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.codahale.metrics.MetricSet;
+import com.m2u.eyelink.agent.profiler.sampler.AdaptiveSampler;
+import com.m2u.eyelink.agent.profiler.sampler.FalseSampler;
+import com.m2u.eyelink.agent.profiler.sender.spill.SpillQueue;
+import com.m2u.eyelink.context.CallStackOverflowCounter;
+import com.m2u.eyelink.context.DefaultBaseTraceFactory;
+import com.m2u.eyelink.context.DefaultTraceId;
+import com.m2u.eyelink.context.ExceptionMetaDataCache;
+import com.m2u.eyelink.context.IdGenerator;
+import com.m2u.eyelink.context.SimpleCache;
+import com.m2u.eyelink.context.StorageFactory;
+import com.m2u.eyelink.context.TraceContext;
+import com.m2u.eyelink.context.TraceId;
+import com.m2u.eyelink.context.TrueSampler;
+import com.m2u.eyelink.context.recycle.Recycler;
+
+public class DefaultAgentMetricCollectorTest {
+
+    private static final int SEGMENT_SIZE = 1024;
+
+    private File directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = File.createTempFile("spill", "test");
+        directory.delete();
+    }
+
+    @After
+    public void tearDown() {
+        final File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void testSpillMetrics() throws Exception {
+        SpillQueue spillQueue = new SpillQueue(directory, SEGMENT_SIZE, SEGMENT_SIZE * 2);
+        AgentMetricCollector collector = new DefaultAgentMetricCollector(Collections.<MetricSet>singletonList(new SpillMetricSet(spillQueue)));
+
+        Map<String, Long> metrics = collector.collect();
+        Assert.assertEquals(5, metrics.size());
+        Assert.assertEquals(Long.valueOf(0), metrics.get(MetricMonitorValues.SPAN_SPILL_SPILLED_BYTES));
+        Assert.assertEquals(Long.valueOf(0), metrics.get(MetricMonitorValues.SPAN_SPILL_DISK_USAGE));
+
+        spillQueue.append(new byte[100], 0, 100);
+        spillQueue.append(new byte[100], 0, 100);
+        spillQueue.append(new byte[SEGMENT_SIZE], 0, SEGMENT_SIZE);
+        metrics = collector.collect();
+        Assert.assertEquals(Long.valueOf(200), metrics.get(MetricMonitorValues.SPAN_SPILL_SPILLED_BYTES));
+        Assert.assertEquals(Long.valueOf(SEGMENT_SIZE), metrics.get(MetricMonitorValues.SPAN_SPILL_DROPPED_BYTES));
+        Assert.assertEquals(Long.valueOf(SEGMENT_SIZE), metrics.get(MetricMonitorValues.SPAN_SPILL_DISK_USAGE));
+        Assert.assertTrue(metrics.get(MetricMonitorValues.SPAN_SPILL_PENDING_BYTES) >= 200);
+
+        // counts are per collection
+        spillQueue.poll();
+        metrics = collector.collect();
+        Assert.assertEquals(Long.valueOf(0), metrics.get(MetricMonitorValues.SPAN_SPILL_SPILLED_BYTES));
+        Assert.assertEquals(Long.valueOf(100), metrics.get(MetricMonitorValues.SPAN_SPILL_REPLAYED_BYTES));
+        spillQueue.close();
+    }
+
+    @Test
+    public void testCacheMetrics() {
+        SimpleCache<String> cache = new SimpleCache<String>(2);
+        AgentMetricCollector collector = new DefaultAgentMetricCollector(Collections.<MetricSet>singletonList(new CacheMetricSet(MetricMonitorValues.METADATA_CACHE_SQL, cache)));
+        Assert.assertEquals(4, collector.collect().size());
+
+        cache.put("a");
+        cache.put("a");
+        cache.put("b");
+        cache.put("c");
+        Map<String, Long> metrics = collector.collect();
+        Assert.assertEquals(Long.valueOf(1), metrics.get(MetricMonitorValues.METADATA_CACHE_SQL + MetricMonitorValues.CACHE_HIT));
+        Assert.assertEquals(Long.valueOf(3), metrics.get(MetricMonitorValues.METADATA_CACHE_SQL + MetricMonitorValues.CACHE_MISS));
+        Assert.assertEquals(Long.valueOf(1), metrics.get(MetricMonitorValues.METADATA_CACHE_SQL + MetricMonitorValues.CACHE_EVICTION));
+        Assert.assertEquals(Long.valueOf(2), metrics.get(MetricMonitorValues.METADATA_CACHE_SQL + MetricMonitorValues.CACHE_SIZE));
+
+        cache.put("a");
+        metrics = collector.collect();
+        Assert.assertEquals(Long.valueOf(1), metrics.get(MetricMonitorValues.METADATA_CACHE_SQL + MetricMonitorValues.CACHE_HIT));
+        Assert.assertEquals(Long.valueOf(0), metrics.get(MetricMonitorValues.METADATA_CACHE_SQL + MetricMonitorValues.CACHE_MISS));
+    }
+
+    @Test
+    public void testRecyclerMetrics() {
+        Recycler<Object> recycler = new Recycler<Object>(1) {
+            @Override
+            protected Object newObject(Handle<Object> handle) {
+                return handle;
+            }
+
+            @Override
+            protected void resetObject(Object object) {
+            }
+        };
+        final String name = MetricMonitorValues.RECYCLER_SPAN_EVENT;
+        AgentMetricCollector collector = new DefaultAgentMetricCollector(Collections.<MetricSet>singletonList(new RecyclerMetricSet(name, recycler)));
+        Assert.assertEquals(4, collector.collect().size());
+
+        Recycler.Handle<?> first = (Recycler.Handle<?>) recycler.get();
+        Recycler.Handle<?> second = (Recycler.Handle<?>) recycler.get();
+        first.recycle();
+        // over the capacity of the pool
+        second.recycle();
+        recycler.get();
+        Map<String, Long> metrics = collector.collect();
+        Assert.assertEquals(Long.valueOf(2), metrics.get(name + MetricMonitorValues.RECYCLER_CREATED));
+        Assert.assertEquals(Long.valueOf(1), metrics.get(name + MetricMonitorValues.RECYCLER_REUSED));
+        Assert.assertEquals(Long.valueOf(2), metrics.get(name + MetricMonitorValues.RECYCLER_RECYCLED));
+        Assert.assertEquals(Long.valueOf(1), metrics.get(name + MetricMonitorValues.RECYCLER_DROPPED));
+
+        metrics = collector.collect();
+        Assert.assertEquals(Long.valueOf(0), metrics.get(name + MetricMonitorValues.RECYCLER_CREATED));
+    }
+
+    @Test
+    public void testCallStackMetrics() {
+        CallStackOverflowCounter overflowCounter = new CallStackOverflowCounter();
+        AgentMetricCollector collector = new DefaultAgentMetricCollector(Collections.<MetricSet>singletonList(new CallStackMetricSet(overflowCounter)));
+        Assert.assertEquals(3, collector.collect().size());
+
+        overflowCounter.record(0, 0);
+        overflowCounter.record(10, 3);
+        overflowCounter.record(5, 7);
+        Map<String, Long> metrics = collector.collect();
+        Assert.assertEquals(Long.valueOf(2), metrics.get(MetricMonitorValues.CALL_STACK_OVERFLOW_TRACE));
+        Assert.assertEquals(Long.valueOf(15), metrics.get(MetricMonitorValues.CALL_STACK_DROPPED_FRAMES));
+        Assert.assertEquals(Long.valueOf(7), metrics.get(MetricMonitorValues.CALL_STACK_MAX_OVERFLOW_DEPTH));
+
+        // the depth is the deepest since the previous collection
+        overflowCounter.record(1, 2);
+        metrics = collector.collect();
+        Assert.assertEquals(Long.valueOf(1), metrics.get(MetricMonitorValues.CALL_STACK_OVERFLOW_TRACE));
+        Assert.assertEquals(Long.valueOf(2), metrics.get(MetricMonitorValues.CALL_STACK_MAX_OVERFLOW_DEPTH));
+        metrics = collector.collect();
+        Assert.assertEquals(Long.valueOf(0), metrics.get(MetricMonitorValues.CALL_STACK_MAX_OVERFLOW_DEPTH));
+    }
+
+    @Test
+    public void testAdaptiveSamplerMetrics() {
+        AdaptiveSampler sampler = new AdaptiveSampler(1);
+        AgentMetricCollector collector = new DefaultAgentMetricCollector(Collections.<MetricSet>singletonList(new AdaptiveSamplerMetricSet(sampler)));
+        Assert.assertEquals(2, collector.collect().size());
+
+        for (int i = 0; i < 10; i++) {
+            sampler.isSampling();
+        }
+        Map<String, Long> metrics = collector.collect();
+        final long sampled = metrics.get(MetricMonitorValues.SAMPLER_ADAPTIVE_SAMPLED);
+        final long rejected = metrics.get(MetricMonitorValues.SAMPLER_ADAPTIVE_REJECTED);
+        Assert.assertEquals(10, sampled + rejected);
+        Assert.assertTrue("sampled:" + sampled, sampled >= 1 && sampled < 10);
+
+        metrics = collector.collect();
+        Assert.assertEquals(Long.valueOf(0), metrics.get(MetricMonitorValues.SAMPLER_ADAPTIVE_SAMPLED));
+        Assert.assertEquals(Long.valueOf(0), metrics.get(MetricMonitorValues.SAMPLER_ADAPTIVE_REJECTED));
+    }
+
+    @Test
+    public void testContinuationMetrics() {
+        DefaultBaseTraceFactory traceFactory = new DefaultBaseTraceFactory(mock(TraceContext.class), mock(StorageFactory.class),
+                new TrueSampler(), new FalseSampler(), new IdGenerator());
+        AgentMetricCollector collector = new DefaultAgentMetricCollector(Collections.<MetricSet>singletonList(new ContinuationMetricSet(traceFactory)));
+        Assert.assertEquals(Long.valueOf(0), collector.collect().get(MetricMonitorValues.TRANSACTION_CONTINUATION_DOWNGRADED));
+
+        TraceId traceId = new DefaultTraceId("parentAgentId", 2L, 10L);
+        traceFactory.continueTraceObject(traceId);
+        traceFactory.continueAsyncTraceObject(traceId);
+        Assert.assertEquals(Long.valueOf(2), collector.collect().get(MetricMonitorValues.TRANSACTION_CONTINUATION_DOWNGRADED));
+        Assert.assertEquals(Long.valueOf(0), collector.collect().get(MetricMonitorValues.TRANSACTION_CONTINUATION_DOWNGRADED));
+    }
+
+    @Test
+    public void testExceptionMetrics() {
+        ExceptionMetaDataCache exceptionMetaDataCache = new ExceptionMetaDataCache(mock(TraceContext.class), 60 * 1000);
+        AgentMetricCollector collector = new DefaultAgentMetricCollector(Collections.<MetricSet>singletonList(new ExceptionMetricSet(exceptionMetaDataCache)));
+        Assert.assertEquals(Long.valueOf(0), collector.collect().get(MetricMonitorValues.EXCEPTION_MESSAGE_DEDUP));
+
+        exceptionMetaDataCache.getExceptionMessage(IllegalStateException.class, "timeout");
+        exceptionMetaDataCache.getExceptionMessage(IllegalStateException.class, "timeout");
+        exceptionMetaDataCache.getExceptionMessage(IllegalStateException.class, "timeout");
+        Assert.assertEquals(Long.valueOf(2), collector.collect().get(MetricMonitorValues.EXCEPTION_MESSAGE_DEDUP));
+        Assert.assertEquals(Long.valueOf(0), collector.collect().get(MetricMonitorValues.EXCEPTION_MESSAGE_DEDUP));
+    }
+
+    @Test
+    public void testEmpty() {
+        Assert.assertNull(AgentMetricCollector.EMPTY_AGENT_METRIC_COLLECTOR.collect());
+        Assert.assertTrue(new DefaultAgentMetricCollector(Collections.<MetricSet>emptyList()).collect().isEmpty());
+    }
+}
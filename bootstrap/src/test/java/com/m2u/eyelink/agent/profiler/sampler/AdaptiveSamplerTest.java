@@ -0,0 +1,56 @@
+package com.m2u.eyelink.agent.profiler.sampler;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AdaptiveSamplerTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    public void testLowTraffic() {
+        AdaptiveSampler sampler = new AdaptiveSampler(10, 1000, 0);
+        // 5 requests per second
+        for (long now = 0; now < 10 * SECOND; now += SECOND / 5) {
+            Assert.assertTrue(sampler.isSampling(now));
+        }
+        Assert.assertEquals(1.0, sampler.getSamplingRatio(), 0.0);
+    }
+
+    @Test
+    public void testHighTraffic() {
+        AdaptiveSampler sampler = new AdaptiveSampler(10, 1000, 0);
+        // 1000 requests per second
+        int sampled = 0;
+        for (long now = 0; now < 20 * SECOND; now += SECOND / 1000) {
+            if (sampler.isSampling(now)) {
+                sampled++;
+            }
+        }
+        // one second of burst at most
+        Assert.assertTrue("sampled:" + sampled, sampled <= 10 * 20 + 10);
+        Assert.assertTrue("sampled:" + sampled, sampled >= 10 * 20 / 2);
+        Assert.assertEquals(0.01, sampler.getSamplingRatio(), 0.001);
+        Assert.assertEquals(sampled, sampler.getSampledCount());
+        Assert.assertEquals(20 * 1000 - sampled, sampler.getRejectedCount());
+    }
+
+    @Test
+    public void testTrafficSpike() {
+        AdaptiveSampler sampler = new AdaptiveSampler(10, 1000, 0);
+        long now = 0;
+        for (; now < 5 * SECOND; now += SECOND / 5) {
+            sampler.isSampling(now);
+        }
+        // the ratio is still 1.0, the token bucket bounds the spike
+        int sampled = 0;
+        for (long end = now + SECOND; now < end; now += SECOND / 10000) {
+            if (sampler.isSampling(now)) {
+                sampled++;
+            }
+        }
+        Assert.assertTrue("sampled:" + sampled, sampled <= 10 * 2);
+    }
+}
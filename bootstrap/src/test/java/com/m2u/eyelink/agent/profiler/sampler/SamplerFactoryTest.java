@@ -0,0 +1,27 @@
+package com.m2u.eyelink.agent.profiler.sampler;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.m2u.eyelink.context.Sampler;
+
+public class SamplerFactoryTest {
+
+    private final SamplerFactory samplerFactory = new SamplerFactory();
+
+    @Test
+    public void testSamplerType() {
+        Assert.assertEquals(SamplerType.COUNTER, SamplerFactory.getSamplerType(null));
+        Assert.assertEquals(SamplerType.STRIPED, SamplerFactory.getSamplerType(" striped "));
+        Assert.assertEquals(SamplerType.ADAPTIVE, SamplerFactory.getSamplerType("ADAPTIVE"));
+    }
+
+    @Test
+    public void testUnknownSamplerType() {
+        Assert.assertEquals(SamplerType.COUNTER, SamplerFactory.getSamplerType("STRIPPED"));
+        Assert.assertEquals(SamplerType.COUNTER, SamplerFactory.getSamplerType(""));
+
+        Sampler sampler = samplerFactory.createSampler(true, 10, "STRIPPED", 0);
+        Assert.assertTrue(sampler instanceof SamplingRateSampler);
+    }
+}
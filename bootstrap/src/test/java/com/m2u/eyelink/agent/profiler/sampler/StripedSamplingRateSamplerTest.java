@@ -0,0 +1,54 @@
+package com.m2u.eyelink.agent.profiler.sampler;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class StripedSamplingRateSamplerTest {
+
+    @Test
+    public void testStripes() {
+        Assert.assertEquals(1, new StripedSamplingRateSampler(10, 1).getStripes());
+        Assert.assertEquals(4, new StripedSamplingRateSampler(10, 3).getStripes());
+        Assert.assertEquals(256, new StripedSamplingRateSampler(10, 1000).getStripes());
+    }
+
+    @Test
+    public void testSamplingRate() {
+        StripedSamplingRateSampler sampler = new StripedSamplingRateSampler(10, 8);
+        int sampled = 0;
+        for (int i = 0; i < 1000; i++) {
+            if (sampler.isSampling()) {
+                sampled++;
+            }
+        }
+        Assert.assertEquals(100, sampled);
+    }
+
+    @Test
+    public void testSamplingRateMultiThread() throws Exception {
+        final int threads = 8;
+        final int calls = 10000;
+        final StripedSamplingRateSampler sampler = new StripedSamplingRateSampler(100, threads);
+        final AtomicInteger sampled = new AtomicInteger();
+        final CountDownLatch latch = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < calls; j++) {
+                        if (sampler.isSampling()) {
+                            sampled.incrementAndGet();
+                        }
+                    }
+                    latch.countDown();
+                }
+            }).start();
+        }
+        latch.await();
+        // each stripe is off by at most one sample
+        Assert.assertTrue(Math.abs(sampled.get() - threads * calls / 100) <= sampler.getStripes());
+    }
+}
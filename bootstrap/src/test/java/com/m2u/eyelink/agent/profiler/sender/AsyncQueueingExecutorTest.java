@@ -0,0 +1,221 @@
+package com.m2u.eyelink.agent.profiler.sender;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.m2u.eyelink.agent.profiler.sender.queue.AsyncQueueFactory;
+
+public class AsyncQueueingExecutorTest {
+
+    private static class RecordingListener implements AsyncQueueingExecutorListener<Integer> {
+
+        private final List<List<Integer>> batches = new ArrayList<List<Integer>>();
+        private final CountDownLatch latch;
+        private AsyncQueueingExecutor<Integer> executor;
+        private int messageSize;
+
+        private RecordingListener(int messageCount) {
+            this.latch = new CountDownLatch(messageCount);
+        }
+
+        @Override
+        public void execute(Collection<Integer> messageList) {
+            // the drain collection is reused by the executor. toArray() returns its internal array
+            Object[] array = messageList.toArray();
+            List<Integer> batch = new ArrayList<Integer>(messageList.size());
+            for (int i = 0; i < messageList.size(); i++) {
+                batch.add((Integer) array[i]);
+            }
+            synchronized (batches) {
+                batches.add(batch);
+            }
+            for (int i = 0; i < batch.size(); i++) {
+                reportSize();
+                latch.countDown();
+            }
+        }
+
+        @Override
+        public void execute(Integer message) {
+            execute(Collections.singletonList(message));
+        }
+
+        private void reportSize() {
+            if (executor != null) {
+                executor.updateMessageSize(messageSize);
+            }
+        }
+
+        private List<List<Integer>> await() throws InterruptedException {
+            Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+            synchronized (batches) {
+                return new ArrayList<List<Integer>>(batches);
+            }
+        }
+    }
+
+    private AsyncQueueingExecutor<Integer> newExecutor(FlushPolicy flushPolicy, RecordingListener listener) {
+        AsyncQueueingExecutor<Integer> executor = new AsyncQueueingExecutor<Integer>(AsyncQueueFactory.DEFAULT_FACTORY.<Integer>createQueue(1024),
+                flushPolicy, "AsyncQueueingExecutorTest");
+        executor.setListener(listener);
+        return executor;
+    }
+
+    private void assertAllMessages(List<List<Integer>> batches, int messageCount) {
+        List<Integer> messages = new ArrayList<Integer>();
+        for (List<Integer> batch : batches) {
+            messages.addAll(batch);
+        }
+        Assert.assertEquals(messageCount, messages.size());
+        for (int i = 0; i < messageCount; i++) {
+            Assert.assertEquals(Integer.valueOf(i), messages.get(i));
+        }
+    }
+
+    @Test
+    public void testDrainSize() {
+        FlushPolicy flushPolicy = new FlushPolicy(100, 1000, 0);
+        // grows with the queue depth, not below the minimum
+        Assert.assertEquals(FlushPolicy.MIN_DRAIN_SIZE, flushPolicy.getDrainSize(0, 0));
+        Assert.assertEquals(50, flushPolicy.getDrainSize(50, 0));
+        Assert.assertEquals(100, flushPolicy.getDrainSize(500, 0));
+        // bounded by maxBatchBytes once the message size is known
+        Assert.assertEquals(20, flushPolicy.getDrainSize(500, 50));
+        Assert.assertEquals(1, flushPolicy.getDrainSize(500, 5000));
+
+        // a lingering batch fills toward maxBatchCount, bounded by maxBatchBytes
+        Assert.assertEquals(100, flushPolicy.getLingerSize(0));
+        Assert.assertEquals(20, flushPolicy.getLingerSize(50));
+
+        Assert.assertFalse(flushPolicy.isBatchFull(99, 999));
+        Assert.assertTrue(flushPolicy.isBatchFull(100, 0));
+        Assert.assertTrue(flushPolicy.isBatchFull(1, 1000));
+
+        Assert.assertFalse(FlushPolicy.DEFAULT_POLICY.isLinger());
+        Assert.assertFalse(FlushPolicy.DEFAULT_POLICY.isBatchFull(1, Long.MAX_VALUE));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidFlushPolicy() {
+        new FlushPolicy(0, 0, 0);
+    }
+
+    @Test
+    public void testLinger() throws Exception {
+        RecordingListener listener = new RecordingListener(3);
+        AsyncQueueingExecutor<Integer> executor = newExecutor(new FlushPolicy(10, 0, 1000), listener);
+        try {
+            executor.execute(0);
+            Thread.sleep(100);
+            executor.execute(1);
+            executor.execute(2);
+
+            // the first message waits for the others instead of being flushed alone
+            List<List<Integer>> batches = listener.await();
+            Assert.assertEquals(1, batches.size());
+            assertAllMessages(batches, 3);
+        } finally {
+            executor.stop();
+        }
+    }
+
+    @Test
+    public void testLingerFillsToMaxBatchCount() throws Exception {
+        final int messageCount = 30;
+        RecordingListener listener = new RecordingListener(messageCount);
+        AsyncQueueingExecutor<Integer> executor = newExecutor(new FlushPolicy(50, 0, 1000), listener);
+        try {
+            executor.execute(0);
+            Thread.sleep(100);
+            for (int i = 1; i < messageCount; i++) {
+                executor.execute(i);
+            }
+
+            // not cut at the drain size of the queue depth when lingering started
+            List<List<Integer>> batches = listener.await();
+            Assert.assertEquals(1, batches.size());
+            assertAllMessages(batches, messageCount);
+        } finally {
+            executor.stop();
+        }
+    }
+
+    @Test
+    public void testLingerFillsToMaxBatchBytes() throws Exception {
+        final int messageCount = 41;
+        RecordingListener listener = new RecordingListener(messageCount);
+        listener.messageSize = 100;
+        AsyncQueueingExecutor<Integer> executor = newExecutor(new FlushPolicy(50, 2000, 1000), listener);
+        listener.executor = executor;
+        try {
+            // the size is learned from the first message, flushed alone once the linger expires
+            executor.execute(0);
+            Thread.sleep(1500);
+            for (int i = 1; i < messageCount; i++) {
+                executor.execute(i);
+            }
+
+            List<List<Integer>> batches = listener.await();
+            Assert.assertEquals(3, batches.size());
+            Assert.assertEquals(1, batches.get(0).size());
+            Assert.assertEquals(20, batches.get(1).size());
+            Assert.assertEquals(20, batches.get(2).size());
+            assertAllMessages(batches, messageCount);
+        } finally {
+            executor.stop();
+        }
+    }
+
+    @Test
+    public void testMaxBatchCount() throws Exception {
+        final int messageCount = 55;
+        RecordingListener listener = new RecordingListener(messageCount);
+        AsyncQueueingExecutor<Integer> executor = newExecutor(new FlushPolicy(10, 0, 200), listener);
+        try {
+            for (int i = 0; i < messageCount; i++) {
+                executor.execute(i);
+            }
+
+            List<List<Integer>> batches = listener.await();
+            for (List<Integer> batch : batches) {
+                Assert.assertTrue(batch.size() <= 10);
+            }
+            assertAllMessages(batches, messageCount);
+        } finally {
+            executor.stop();
+        }
+    }
+
+    @Test
+    public void testMaxBatchBytes() throws Exception {
+        final int messageCount = 30;
+        RecordingListener listener = new RecordingListener(messageCount);
+        listener.messageSize = 100;
+        AsyncQueueingExecutor<Integer> executor = newExecutor(new FlushPolicy(10, 300, 200), listener);
+        listener.executor = executor;
+        try {
+            // the size is learned from the first flushed message
+            executor.execute(0);
+            Thread.sleep(500);
+            for (int i = 1; i < messageCount; i++) {
+                executor.execute(i);
+            }
+
+            List<List<Integer>> batches = listener.await();
+            Assert.assertEquals(Integer.valueOf(0), batches.get(0).get(0));
+            for (List<Integer> batch : batches) {
+                Assert.assertTrue(batch.size() <= 3);
+            }
+            assertAllMessages(batches, messageCount);
+        } finally {
+            executor.stop();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.m2u.eyelink.agent.profiler.sender;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RetryQueueTest {
+
+    @Test
+    public void testBackoff() {
+        RetryBackoff backoff = new RetryBackoff(1000, 5000);
+        Assert.assertEquals(1000, backoff.getMaxDelay(1));
+        Assert.assertEquals(2000, backoff.getMaxDelay(2));
+        Assert.assertEquals(4000, backoff.getMaxDelay(3));
+        Assert.assertEquals(5000, backoff.getMaxDelay(4));
+        Assert.assertEquals(5000, backoff.getMaxDelay(100));
+        for (int i = 0; i < 100; i++) {
+            long delay = backoff.getDelay(2);
+            Assert.assertTrue(delay >= 1000 && delay <= 2000);
+        }
+    }
+
+    @Test
+    public void testPollEligible() {
+        RetryQueue queue = new RetryQueue(16, 5, 16, new RetryBackoff(1000, 60000));
+        Assert.assertTrue(queue.add(new RetryMessage(3, 5, new byte[0], "A"), 0));
+        Assert.assertTrue(queue.add(new RetryMessage(1, 5, new byte[0], "A"), 0));
+
+        // the first retry backs off for at most 1 second, the third for at least 2 seconds
+        Assert.assertNull(queue.poll(0));
+        Assert.assertEquals(1, queue.poll(1000).getRetryCount());
+        Assert.assertNull(queue.poll(1000));
+        Assert.assertEquals(3, queue.poll(4000).getRetryCount());
+        Assert.assertEquals(RetryQueue.NO_RETRY, queue.getNextRetryTime());
+    }
+
+    @Test
+    public void testRetryBudgetPerType() {
+        RetryQueue queue = new RetryQueue(16, 5, 2, new RetryBackoff());
+        Assert.assertTrue(queue.add(new RetryMessage(1, 5, new byte[0], "TSqlMetaData")));
+        Assert.assertTrue(queue.add(new RetryMessage(1, 5, new byte[0], "TSqlMetaData")));
+        Assert.assertFalse(queue.add(new RetryMessage(1, 5, new byte[0], "TSqlMetaData")));
+        Assert.assertTrue(queue.add(new RetryMessage(1, 5, new byte[0], "TApiMetaData")));
+
+        queue.get();
+        Assert.assertEquals(2, queue.size());
+    }
+
+    @Test
+    public void testRetryBudgetOfType() {
+        Map<String, Integer> maxRetryPerTypes = new HashMap<String, Integer>();
+        maxRetryPerTypes.put("TSqlMetaData", 3);
+        RetryQueue queue = new RetryQueue(16, 5, 1, maxRetryPerTypes, new RetryBackoff());
+        Assert.assertTrue(queue.add(new RetryMessage(1, 5, new byte[0], "TSqlMetaData")));
+        Assert.assertTrue(queue.add(new RetryMessage(1, 5, new byte[0], "TSqlMetaData")));
+        Assert.assertTrue(queue.add(new RetryMessage(1, 5, new byte[0], "TSqlMetaData")));
+        Assert.assertFalse(queue.add(new RetryMessage(1, 5, new byte[0], "TSqlMetaData")));
+        // other types keep the default
+        Assert.assertTrue(queue.add(new RetryMessage(1, 5, new byte[0], "TApiMetaData")));
+        Assert.assertFalse(queue.add(new RetryMessage(1, 5, new byte[0], "TApiMetaData")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidRetryBudgetOfType() {
+        new RetryQueue(16, 5, 1, Collections.singletonMap("TSqlMetaData", 0), new RetryBackoff());
+    }
+
+    @Test
+    public void testFewerRetriesFirst() {
+        RetryQueue queue = new RetryQueue(4, 5, 4, new RetryBackoff());
+        Assert.assertTrue(queue.add(new RetryMessage(2, 5, new byte[0], "A")));
+        Assert.assertTrue(queue.add(new RetryMessage(2, 5, new byte[0], "A")));
+        // half full. only first retries from here on
+        Assert.assertFalse(queue.add(new RetryMessage(2, 5, new byte[0], "A")));
+        Assert.assertTrue(queue.add(new RetryMessage(1, 5, new byte[0], "A")));
+        Assert.assertTrue(queue.add(new RetryMessage(1, 5, new byte[0], "A")));
+        // full. evicts a message retried more often
+        Assert.assertTrue(queue.add(new RetryMessage(1, 5, new byte[0], "A")));
+        Assert.assertEquals(4, queue.size());
+
+        int firstRetries = 0;
+        RetryMessage retryMessage;
+        while ((retryMessage = queue.get()) != null) {
+            if (retryMessage.getRetryCount() == 1) {
+                firstRetries++;
+            }
+        }
+        Assert.assertEquals(3, firstRetries);
+    }
+}
@@ -0,0 +1,143 @@
+package com.m2u.eyelink.agent.profiler.sender;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.thrift.TBase;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import com.m2u.eyelink.context.TApiMetaData;
+import com.m2u.eyelink.context.TStringMetaData;
+import com.m2u.eyelink.context.thrift.HeaderTBaseDeserializer;
+import com.m2u.eyelink.context.thrift.HeaderTBaseDeserializerFactory;
+import com.m2u.eyelink.context.thrift.HeaderTBaseSerializer;
+import com.m2u.eyelink.context.thrift.HeaderTBaseSerializerFactory;
+import com.m2u.eyelink.context.thrift.TResult;
+import com.m2u.eyelink.rpc.ResponseMessage;
+import com.m2u.eyelink.rpc.client.ELAgentClient;
+import com.m2u.eyelink.sender.DefaultFuture;
+
+public class TcpDataSenderTest {
+
+    private final HeaderTBaseDeserializer deserializer = HeaderTBaseDeserializerFactory.DEFAULT_FACTORY.createDeserializer();
+
+    private final List<TBase<?, ?>> requests = Arrays.<TBase<?, ?>>asList(
+            new TApiMetaData("agentId", 1L, 1, "api"),
+            new TStringMetaData("agentId", 1L, 2, "string"),
+            new TApiMetaData("agentId", 1L, 3, "api2"));
+
+    private ELAgentClient client;
+    private TcpDataSender sender;
+
+    @Before
+    public void setUp() {
+        client = mock(ELAgentClient.class);
+        when(client.request(any(byte[].class))).thenReturn(new DefaultFuture<ResponseMessage>());
+        sender = new TcpDataSender(client, AsyncQueueingExecutorFactory.DEFAULT_FACTORY, 4);
+    }
+
+    @After
+    public void tearDown() {
+        sender.stop();
+    }
+
+    private List<Object> newRequestMarkers() {
+        List<Object> messageList = new ArrayList<Object>();
+        for (TBase<?, ?> request : requests) {
+            messageList.add(new AbstractDataSender.RequestMarker(request, 3));
+        }
+        return messageList;
+    }
+
+    @Test
+    public void batchEncoding() throws Exception {
+        when(client.isSupportRequestBatch()).thenReturn(true);
+
+        sender.sendPacketN(newRequestMarkers());
+
+        ArgumentCaptor<byte[]> packet = ArgumentCaptor.forClass(byte[].class);
+        verify(client, times(1)).request(packet.capture());
+        Assert.assertEquals(requests, deserializer.deserializeList(packet.getValue()));
+    }
+
+    @Test
+    public void noBatchWithoutCollectorSupport() throws Exception {
+        when(client.isSupportRequestBatch()).thenReturn(false);
+
+        sender.sendPacketN(newRequestMarkers());
+
+        ArgumentCaptor<byte[]> packet = ArgumentCaptor.forClass(byte[].class);
+        verify(client, times(3)).request(packet.capture());
+        for (int i = 0; i < requests.size(); i++) {
+            Assert.assertEquals(requests.get(i), deserializer.deserialize(packet.getAllValues().get(i)));
+        }
+    }
+
+    private RequestBatch newRequestBatch() throws Exception {
+        HeaderTBaseSerializer serializer = HeaderTBaseSerializerFactory.DEFAULT_FACTORY.createSerializer();
+        int[] offsets = new int[requests.size() + 1];
+        int[] maxRetryCounts = new int[requests.size()];
+        String[] descriptions = new String[requests.size()];
+        serializer.beginChunk();
+        byte[] packet = null;
+        for (int i = 0; i < requests.size(); i++) {
+            offsets[i] = serializer.getInterBufferSize();
+            packet = serializer.continueSerialize(requests.get(i));
+            maxRetryCounts[i] = 3;
+            descriptions[i] = requests.get(i).getClass().getSimpleName();
+        }
+        offsets[requests.size()] = serializer.getInterBufferSize();
+        return new RequestBatch(packet, offsets, maxRetryCounts, descriptions);
+    }
+
+    private List<TBase<?, ?>> newResponse(TResult... results) throws Exception {
+        HeaderTBaseSerializer serializer = HeaderTBaseSerializerFactory.DEFAULT_FACTORY.createSerializer();
+        byte[] response;
+        if (results.length == 1) {
+            response = serializer.serialize(results[0]);
+        } else {
+            serializer.beginChunk();
+            response = null;
+            for (TResult result : results) {
+                response = serializer.continueSerialize(result);
+            }
+        }
+        return deserializer.deserializeList(response);
+    }
+
+    @Test
+    public void aggregateResponseDemultiplexing() throws Exception {
+        RequestBatch requestBatch = newRequestBatch();
+        Assert.assertEquals(3, requestBatch.size());
+        for (int i = 0; i < requests.size(); i++) {
+            Assert.assertEquals(requests.get(i), deserializer.deserialize(requestBatch.getEntry(i)));
+        }
+
+        int[] failedEntries = requestBatch.getFailedEntries(newResponse(new TResult(true), new TResult(false), new TResult(true)));
+        Assert.assertArrayEquals(new int[] {1}, failedEntries);
+
+        failedEntries = requestBatch.getFailedEntries(newResponse(new TResult(true), new TResult(true), new TResult(true)));
+        Assert.assertEquals(0, failedEntries.length);
+    }
+
+    @Test
+    public void singleResponseCoversTheBatch() throws Exception {
+        RequestBatch requestBatch = newRequestBatch();
+
+        Assert.assertEquals(0, requestBatch.getFailedEntries(newResponse(new TResult(true))).length);
+        Assert.assertArrayEquals(new int[] {0, 1, 2}, requestBatch.getFailedEntries(newResponse(new TResult(false))));
+        // does not match the entries
+        Assert.assertArrayEquals(new int[] {0, 1, 2}, requestBatch.getFailedEntries(newResponse(new TResult(true), new TResult(true))));
+    }
+}
@@ -0,0 +1,99 @@
+package com.m2u.eyelink.agent.profiler.sender;
+
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.thrift.TBase;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.m2u.eyelink.context.TApiMetaData;
+import com.m2u.eyelink.context.thrift.HeaderTBaseDeserializer;
+import com.m2u.eyelink.context.thrift.HeaderTBaseDeserializerFactory;
+
+public class UdpDataSenderTest {
+
+    private static final int PACKING_LENGTH = 1472;
+
+    private final HeaderTBaseDeserializer deserializer = HeaderTBaseDeserializerFactory.DEFAULT_FACTORY.createDeserializer();
+
+    private DatagramSocket receiver;
+    private UdpDataSender sender;
+
+    @Before
+    public void setUp() throws Exception {
+        receiver = new DatagramSocket(0, InetAddress.getByName("127.0.0.1"));
+        receiver.setSoTimeout(3000);
+        sender = new UdpDataSender("127.0.0.1", receiver.getLocalPort(), "UdpDataSenderTest", 128, 1000, 1024 * 64, AsyncQueueingExecutorFactory.DEFAULT_FACTORY, PACKING_LENGTH);
+    }
+
+    @After
+    public void tearDown() {
+        sender.stop();
+        receiver.close();
+    }
+
+    private List<Object> newMessages(int count, int apiInfoLength) {
+        StringBuilder apiInfo = new StringBuilder(apiInfoLength);
+        for (int i = 0; i < apiInfoLength; i++) {
+            apiInfo.append('a');
+        }
+        List<Object> messages = new ArrayList<Object>();
+        for (int i = 0; i < count; i++) {
+            messages.add(new TApiMetaData("agentId", 1L, i, apiInfo.toString()));
+        }
+        return messages;
+    }
+
+    // splits each datagram back into messages until count messages were received
+    private List<TBase<?, ?>> receive(int count, List<Integer> datagramLengths) throws Exception {
+        List<TBase<?, ?>> received = new ArrayList<TBase<?, ?>>();
+        byte[] buffer = new byte[UdpDataSender.UDP_MAX_PACKET_LENGTH];
+        while (received.size() < count) {
+            DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+            receiver.receive(packet);
+            datagramLengths.add(packet.getLength());
+            byte[] datagram = new byte[packet.getLength()];
+            System.arraycopy(packet.getData(), packet.getOffset(), datagram, 0, packet.getLength());
+            received.addAll(deserializer.deserializeList(datagram));
+        }
+        return received;
+    }
+
+    @Test
+    public void packIntoOneDatagram() throws Exception {
+        List<Object> messages = newMessages(3, 10);
+
+        sender.sendPacketN(messages);
+
+        List<Integer> datagramLengths = new ArrayList<Integer>();
+        Assert.assertEquals(messages, receive(messages.size(), datagramLengths));
+        Assert.assertEquals(1, datagramLengths.size());
+    }
+
+    @Test
+    public void splitAcrossDatagrams() throws Exception {
+        List<Object> messages = newMessages(40, 200);
+
+        sender.sendPacketN(messages);
+
+        List<Integer> datagramLengths = new ArrayList<Integer>();
+        Assert.assertEquals(messages, receive(messages.size(), datagramLengths));
+        Assert.assertTrue(datagramLengths.size() > 1);
+        for (int length : datagramLengths) {
+            Assert.assertTrue(length <= PACKING_LENGTH);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void packingNotSupportedByNio() {
+        UdpDataSenderFactory factory = new UdpDataSenderFactory("127.0.0.1", receiver.getLocalPort(), "UdpDataSenderTest", 128, 1000, 1024 * 64,
+                AsyncQueueingExecutorFactory.DEFAULT_FACTORY, PACKING_LENGTH);
+        factory.create(UdpDataSenderType.NIO);
+    }
+}
@@ -0,0 +1,26 @@
+package com.m2u.eyelink.agent.profiler.sender.queue;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AsyncQueueFactoryTest {
+
+    @Test
+    public void testQueueType() {
+        Assert.assertEquals(AsyncQueueType.LINKED, AsyncQueueFactory.getQueueType(null));
+        Assert.assertEquals(AsyncQueueType.RING_BUFFER, AsyncQueueFactory.getQueueType(" ring_buffer "));
+        Assert.assertEquals(WaitStrategyType.BLOCKING, AsyncQueueFactory.getWaitStrategyType(null));
+        Assert.assertEquals(WaitStrategyType.BUSY_SPIN, AsyncQueueFactory.getWaitStrategyType("busy_spin"));
+    }
+
+    @Test
+    public void testUnknownType() {
+        Assert.assertEquals(AsyncQueueType.LINKED, AsyncQueueFactory.getQueueType("RINGBUFFER"));
+        Assert.assertEquals(WaitStrategyType.BLOCKING, AsyncQueueFactory.getWaitStrategyType(""));
+
+        AsyncQueueFactory factory = new AsyncQueueFactory("RINGBUFFER", "SPIN");
+        Assert.assertEquals(AsyncQueueType.LINKED, factory.getQueueType());
+        Assert.assertEquals(WaitStrategyType.BLOCKING, factory.getWaitStrategyType());
+        Assert.assertTrue(factory.createQueue(16) instanceof LinkedAsyncQueue);
+    }
+}
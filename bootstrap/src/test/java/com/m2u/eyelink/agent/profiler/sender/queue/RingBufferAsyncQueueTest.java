@@ -0,0 +1,106 @@
+package com.m2u.eyelink.agent.profiler.sender.queue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RingBufferAsyncQueueTest {
+
+    @Test
+    public void testCapacity() throws Exception {
+        RingBufferAsyncQueue<Integer> queue = new RingBufferAsyncQueue<Integer>(3);
+
+        Assert.assertTrue(queue.offer(1));
+        Assert.assertTrue(queue.offer(2));
+        Assert.assertTrue(queue.offer(3));
+        // drop on full
+        Assert.assertFalse(queue.offer(4));
+        Assert.assertEquals(3, queue.size());
+
+        Assert.assertEquals(Integer.valueOf(1), queue.poll(1, TimeUnit.SECONDS));
+        Assert.assertTrue(queue.offer(4));
+    }
+
+    @Test
+    public void testDrainTo() throws Exception {
+        RingBufferAsyncQueue<Integer> queue = new RingBufferAsyncQueue<Integer>(16);
+        for (int i = 0; i < 10; i++) {
+            queue.offer(i);
+        }
+
+        List<Integer> drain = new ArrayList<Integer>();
+        Assert.assertEquals(4, queue.drainTo(drain, 4));
+        Assert.assertEquals(6, queue.drainTo(drain, 100));
+        Assert.assertEquals(0, queue.drainTo(drain, 100));
+        for (int i = 0; i < 10; i++) {
+            Assert.assertEquals(Integer.valueOf(i), drain.get(i));
+        }
+        Assert.assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void testPollTimeout() throws Exception {
+        RingBufferAsyncQueue<Integer> queue = new RingBufferAsyncQueue<Integer>(4);
+
+        long start = System.currentTimeMillis();
+        Assert.assertNull(queue.poll(100, TimeUnit.MILLISECONDS));
+        Assert.assertTrue(System.currentTimeMillis() - start >= 90);
+    }
+
+    @Test
+    public void testMultiProducer() throws Exception {
+        final int producerCount = 8;
+        final int messageCount = 10000;
+        final RingBufferAsyncQueue<Integer> queue = new RingBufferAsyncQueue<Integer>(128, new SleepingWaitStrategy());
+        final AtomicInteger dropped = new AtomicInteger();
+        final CountDownLatch latch = new CountDownLatch(producerCount);
+
+        for (int i = 0; i < producerCount; i++) {
+            final int producerId = i;
+            Thread producer = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < messageCount; j++) {
+                        if (!queue.offer(producerId * messageCount + j)) {
+                            dropped.incrementAndGet();
+                        }
+                    }
+                    latch.countDown();
+                }
+            });
+            producer.start();
+        }
+
+        final int[] lastSeen = new int[producerCount];
+        for (int i = 0; i < producerCount; i++) {
+            lastSeen[i] = -1;
+        }
+        int received = 0;
+        final List<Integer> drain = new ArrayList<Integer>();
+        while (received + dropped.get() < producerCount * messageCount) {
+            drain.clear();
+            if (queue.drainTo(drain, 10) == 0) {
+                Integer element = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (element != null) {
+                    drain.add(element);
+                }
+            }
+            for (Integer element : drain) {
+                int producerId = element / messageCount;
+                int sequence = element % messageCount;
+                // per producer FIFO
+                Assert.assertTrue(sequence > lastSeen[producerId]);
+                lastSeen[producerId] = sequence;
+                received++;
+            }
+        }
+        Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        Assert.assertTrue(queue.isEmpty());
+        Assert.assertEquals(producerCount * messageCount, received + dropped.get());
+    }
+}
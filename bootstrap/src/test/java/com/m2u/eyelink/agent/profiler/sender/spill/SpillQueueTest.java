@@ -0,0 +1,212 @@
+package com.m2u.eyelink.agent.profiler.sender.spill;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SpillQueueTest {
+
+    private static final int SEGMENT_SIZE = 1024;
+
+    private File directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = File.createTempFile("spill", "test");
+        directory.delete();
+    }
+
+    @After
+    public void tearDown() {
+        final File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void testAppendAndPoll() throws Exception {
+        SpillQueue queue = new SpillQueue(directory, SEGMENT_SIZE, SEGMENT_SIZE * 4);
+        Assert.assertTrue(queue.isEmpty());
+        Assert.assertNull(queue.poll());
+
+        // spans several segments
+        for (int i = 0; i < 20; i++) {
+            Assert.assertTrue(queue.append(packet(i, 100), 0, 100));
+        }
+        Assert.assertFalse(queue.isEmpty());
+        for (int i = 0; i < 20; i++) {
+            Assert.assertArrayEquals(packet(i, 100), queue.poll());
+        }
+        Assert.assertNull(queue.poll());
+        Assert.assertTrue(queue.isEmpty());
+        Assert.assertEquals(2000, queue.getSpilledBytes());
+        Assert.assertEquals(2000, queue.getReplayedBytes());
+        // drained segments are deleted except the last one
+        Assert.assertEquals(SEGMENT_SIZE, queue.getDiskUsage());
+        queue.close();
+    }
+
+    @Test
+    public void testBoundedDiskUsage() throws Exception {
+        SpillQueue queue = new SpillQueue(directory, SEGMENT_SIZE, SEGMENT_SIZE * 2);
+        int appended = 0;
+        for (int i = 0; i < 100; i++) {
+            if (queue.append(packet(i, 100), 0, 100)) {
+                appended++;
+            }
+        }
+        Assert.assertTrue(appended < 100);
+        Assert.assertEquals(SEGMENT_SIZE * 2, queue.getDiskUsage());
+        Assert.assertEquals((100 - appended) * 100, queue.getDroppedBytes());
+        // older packets are kept
+        Assert.assertArrayEquals(packet(0, 100), queue.poll());
+
+        Assert.assertFalse(queue.append(new byte[SEGMENT_SIZE], 0, SEGMENT_SIZE));
+        queue.close();
+    }
+
+    @Test
+    public void testRecover() throws Exception {
+        SpillQueue queue = new SpillQueue(directory, SEGMENT_SIZE, SEGMENT_SIZE * 4);
+        for (int i = 0; i < 15; i++) {
+            queue.append(packet(i, 100), 0, 100);
+        }
+        Assert.assertArrayEquals(packet(0, 100), queue.poll());
+        queue.close();
+
+        SpillQueue recovered = new SpillQueue(directory, SEGMENT_SIZE, SEGMENT_SIZE * 4);
+        for (int i = 1; i < 15; i++) {
+            Assert.assertArrayEquals(packet(i, 100), recovered.poll());
+        }
+        Assert.assertNull(recovered.poll());
+        recovered.close();
+    }
+
+    @Test
+    public void testRecoverBrokenRecord() throws Exception {
+        SpillQueue queue = new SpillQueue(directory, SEGMENT_SIZE, SEGMENT_SIZE * 4);
+        queue.append(packet(0, 100), 0, 100);
+        queue.append(packet(1, 100), 0, 100);
+        queue.close();
+
+        // corrupt the body of the second record
+        File segment = directory.listFiles()[0];
+        RandomAccessFile file = new RandomAccessFile(segment, "rw");
+        try {
+            file.seek(SpillSegment.HEADER_SIZE + (SpillSegment.RECORD_HEADER_SIZE + 100) + SpillSegment.RECORD_HEADER_SIZE);
+            file.write(0xFF);
+        } finally {
+            file.close();
+        }
+
+        SpillQueue recovered = new SpillQueue(directory, SEGMENT_SIZE, SEGMENT_SIZE * 4);
+        Assert.assertArrayEquals(packet(0, 100), recovered.poll());
+        Assert.assertNull(recovered.poll());
+        recovered.close();
+    }
+
+    @Test
+    public void testSegmentRotation() throws Exception {
+        SpillQueue queue = new SpillQueue(directory, SEGMENT_SIZE, SEGMENT_SIZE * 4);
+        // 9 records of 108 bytes fit in a segment
+        for (int i = 0; i < 20; i++) {
+            Assert.assertTrue(queue.append(packet(i, 100), 0, 100));
+        }
+        Assert.assertEquals(SEGMENT_SIZE * 3, queue.getDiskUsage());
+        Assert.assertTrue(segmentFile(0).exists());
+        Assert.assertTrue(segmentFile(2).exists());
+
+        // a segment is deleted once replayed
+        for (int i = 0; i < 10; i++) {
+            Assert.assertArrayEquals(packet(i, 100), queue.poll());
+        }
+        Assert.assertFalse(segmentFile(0).exists());
+        Assert.assertEquals(SEGMENT_SIZE * 2, queue.getDiskUsage());
+
+        // sequences keep growing, files are never reused out of order
+        for (int i = 20; i < 30; i++) {
+            Assert.assertTrue(queue.append(packet(i, 100), 0, 100));
+        }
+        Assert.assertTrue(segmentFile(3).exists());
+        for (int i = 10; i < 30; i++) {
+            Assert.assertArrayEquals(packet(i, 100), queue.poll());
+        }
+        Assert.assertNull(queue.poll());
+        queue.close();
+    }
+
+    @Test
+    public void testRecoverOverDiskLimit() throws Exception {
+        SpillQueue queue = new SpillQueue(directory, SEGMENT_SIZE, SEGMENT_SIZE * 4);
+        for (int i = 0; i < 30; i++) {
+            queue.append(packet(i, 100), 0, 100);
+        }
+        Assert.assertEquals(SEGMENT_SIZE * 4, queue.getDiskUsage());
+        queue.close();
+
+        // the limit was lowered. the newest segments are kept
+        SpillQueue recovered = new SpillQueue(directory, SEGMENT_SIZE, SEGMENT_SIZE * 2);
+        Assert.assertEquals(SEGMENT_SIZE * 2, recovered.getDiskUsage());
+        Assert.assertEquals(2, directory.listFiles().length);
+        Assert.assertArrayEquals(packet(18, 100), recovered.poll());
+        // still bounded after the restart
+        for (int i = 0; i < 30; i++) {
+            recovered.append(packet(i, 100), 0, 100);
+        }
+        Assert.assertEquals(SEGMENT_SIZE * 2, recovered.getDiskUsage());
+        Assert.assertTrue(recovered.getDroppedBytes() > 0);
+        recovered.close();
+    }
+
+    @Test
+    public void testRecoverUnreadableSegment() throws Exception {
+        SpillQueue queue = new SpillQueue(directory, SEGMENT_SIZE, SEGMENT_SIZE * 4);
+        for (int i = 0; i < 10; i++) {
+            queue.append(packet(i, 100), 0, 100);
+        }
+        queue.close();
+
+        // a crash while the second segment was created, before its header was written
+        RandomAccessFile file = new RandomAccessFile(segmentFile(1), "rw");
+        try {
+            file.seek(0);
+            file.write(new byte[SpillSegment.HEADER_SIZE]);
+        } finally {
+            file.close();
+        }
+
+        SpillQueue recovered = new SpillQueue(directory, SEGMENT_SIZE, SEGMENT_SIZE * 4);
+        Assert.assertFalse(segmentFile(1).exists());
+        for (int i = 0; i < 9; i++) {
+            Assert.assertArrayEquals(packet(i, 100), recovered.poll());
+        }
+        Assert.assertNull(recovered.poll());
+        // the next segment does not collide with a deleted sequence
+        for (int i = 0; i < 10; i++) {
+            Assert.assertTrue(recovered.append(packet(i, 100), 0, 100));
+        }
+        Assert.assertTrue(segmentFile(2).exists());
+        recovered.close();
+    }
+
+    private File segmentFile(long sequence) {
+        return new File(directory, SpillQueue.SEGMENT_PREFIX + sequence + SpillQueue.SEGMENT_SUFFIX);
+    }
+
+    private byte[] packet(int seed, int length) {
+        byte[] packet = new byte[length];
+        for (int i = 0; i < length; i++) {
+            packet[i] = (byte) (seed + i);
+        }
+        return packet;
+    }
+}
@@ -0,0 +1,184 @@
+package com.m2u.eyelink.agent.profiler.sender.spill;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SpillSegmentTest {
+
+    private static final int SEGMENT_SIZE = 1024;
+    private static final int RECORD_SIZE = SpillSegment.RECORD_HEADER_SIZE + 100;
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("spill", ".seg");
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void testAppendAndPoll() throws Exception {
+        SpillSegment segment = SpillSegment.create(file, 0, SEGMENT_SIZE);
+        Assert.assertTrue(segment.isDrained());
+        int appended = 0;
+        while (segment.append(packet(appended, 100), 0, 100)) {
+            appended++;
+        }
+        Assert.assertEquals((SEGMENT_SIZE - SpillSegment.HEADER_SIZE) / RECORD_SIZE, appended);
+        Assert.assertEquals(appended * RECORD_SIZE, segment.getPendingBytes());
+
+        for (int i = 0; i < appended; i++) {
+            Assert.assertArrayEquals(packet(i, 100), segment.poll());
+        }
+        Assert.assertNull(segment.poll());
+        Assert.assertTrue(segment.isDrained());
+        segment.close();
+    }
+
+    @Test
+    public void testReopenKeepsReadPosition() throws Exception {
+        SpillSegment segment = SpillSegment.create(file, 0, SEGMENT_SIZE);
+        for (int i = 0; i < 3; i++) {
+            segment.append(packet(i, 100), 0, 100);
+        }
+        Assert.assertArrayEquals(packet(0, 100), segment.poll());
+        segment.close();
+
+        SpillSegment reopened = SpillSegment.open(file, 0);
+        Assert.assertArrayEquals(packet(1, 100), reopened.poll());
+        Assert.assertArrayEquals(packet(2, 100), reopened.poll());
+        Assert.assertNull(reopened.poll());
+        reopened.close();
+    }
+
+    @Test
+    public void testChecksumMismatch() throws Exception {
+        SpillSegment segment = SpillSegment.create(file, 0, SEGMENT_SIZE);
+        for (int i = 0; i < 3; i++) {
+            segment.append(packet(i, 100), 0, 100);
+        }
+        segment.close();
+
+        // the stored crc of the second record no longer matches its body
+        final int secondRecord = SpillSegment.HEADER_SIZE + RECORD_SIZE;
+        writeInt(secondRecord + 4, readInt(secondRecord + 4) ^ 1);
+
+        // the second record and everything after it is dropped
+        SpillSegment reopened = SpillSegment.open(file, 0);
+        Assert.assertEquals(RECORD_SIZE, reopened.getPendingBytes());
+        Assert.assertArrayEquals(packet(0, 100), reopened.poll());
+        Assert.assertNull(reopened.poll());
+        reopened.close();
+    }
+
+    @Test
+    public void testCrashBeforeCommit() throws Exception {
+        SpillSegment segment = SpillSegment.create(file, 0, SEGMENT_SIZE);
+        segment.append(packet(0, 100), 0, 100);
+        segment.append(packet(1, 100), 0, 100);
+        segment.close();
+
+        // the body of the second record was written, the header update was not
+        writeInt(8, SpillSegment.HEADER_SIZE + RECORD_SIZE);
+
+        SpillSegment reopened = SpillSegment.open(file, 0);
+        Assert.assertArrayEquals(packet(0, 100), reopened.poll());
+        Assert.assertNull(reopened.poll());
+        // the uncommitted space is written over
+        Assert.assertTrue(reopened.append(packet(2, 50), 0, 50));
+        Assert.assertArrayEquals(packet(2, 50), reopened.poll());
+        reopened.close();
+    }
+
+    @Test
+    public void testTornRecord() throws Exception {
+        SpillSegment segment = SpillSegment.create(file, 0, SEGMENT_SIZE);
+        segment.append(packet(0, 100), 0, 100);
+        segment.append(packet(1, 100), 0, 100);
+        segment.close();
+
+        // the header made it to disk, the tail of the second body did not
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            randomAccessFile.seek(SpillSegment.HEADER_SIZE + RECORD_SIZE + SpillSegment.RECORD_HEADER_SIZE + 50);
+            randomAccessFile.write(new byte[50]);
+        } finally {
+            randomAccessFile.close();
+        }
+
+        SpillSegment reopened = SpillSegment.open(file, 0);
+        Assert.assertArrayEquals(packet(0, 100), reopened.poll());
+        Assert.assertNull(reopened.poll());
+        reopened.close();
+    }
+
+    @Test
+    public void testInvalidPositions() throws Exception {
+        SpillSegment segment = SpillSegment.create(file, 0, SEGMENT_SIZE);
+        segment.append(packet(0, 100), 0, 100);
+        segment.close();
+
+        // a write position past the end of the file is not trusted
+        writeInt(8, SEGMENT_SIZE * 2);
+        SpillSegment reopened = SpillSegment.open(file, 0);
+        Assert.assertTrue(reopened.isDrained());
+        reopened.close();
+    }
+
+    @Test(expected = IOException.class)
+    public void testInvalidMagic() throws Exception {
+        SpillSegment segment = SpillSegment.create(file, 0, SEGMENT_SIZE);
+        segment.close();
+        writeInt(0, 0);
+        SpillSegment.open(file, 0);
+    }
+
+    @Test(expected = IOException.class)
+    public void testTruncatedFile() throws Exception {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            randomAccessFile.setLength(SpillSegment.HEADER_SIZE);
+        } finally {
+            randomAccessFile.close();
+        }
+        SpillSegment.open(file, 0);
+    }
+
+    private int readInt(int position) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            randomAccessFile.seek(position);
+            return randomAccessFile.readInt();
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    private void writeInt(int position, int value) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            randomAccessFile.seek(position);
+            randomAccessFile.writeInt(value);
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    private byte[] packet(int seed, int length) {
+        byte[] packet = new byte[length];
+        for (int i = 0; i < length; i++) {
+            packet[i] = (byte) (seed + i);
+        }
+        return packet;
+    }
+}
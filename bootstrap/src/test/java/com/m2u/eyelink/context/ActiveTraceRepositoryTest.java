@@ -0,0 +1,190 @@
+package com.m2u.eyelink.context;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ActiveTraceRepositoryTest {
+
+    @Test
+    public void testPutAndRemove() {
+        ActiveTraceRepository repository = new ActiveTraceRepository(64);
+        List<Trace> traces = new ArrayList<Trace>();
+        for (int i = 0; i < 50; i++) {
+            Trace trace = new DisableTrace(IdGenerator.INITIAL_DISABLED_ID - i * IdGenerator.DECREMENT_CYCLE);
+            traces.add(trace);
+            repository.put(trace);
+        }
+        Assert.assertEquals(50, repository.collect().size());
+
+        for (int i = 0; i < 50; i += 2) {
+            Assert.assertTrue(repository.remove(traces.get(i).getId()));
+        }
+        Assert.assertFalse(repository.remove(traces.get(0).getId()));
+
+        List<ActiveTraceInfo> activeTraceInfos = repository.collect();
+        Assert.assertEquals(25, activeTraceInfos.size());
+        for (ActiveTraceInfo activeTraceInfo : activeTraceInfos) {
+            Assert.assertTrue((activeTraceInfo.getLocalTraceId() - IdGenerator.INITIAL_DISABLED_ID) % 2 != 0);
+        }
+    }
+
+    @Test
+    public void testOverflow() {
+        ActiveTraceRepository repository = new ActiveTraceRepository(32);
+        List<Trace> traces = new ArrayList<Trace>();
+        for (int i = 0; i < 40; i++) {
+            Trace trace = new DisableTrace(i);
+            traces.add(trace);
+            repository.put(trace);
+        }
+        Assert.assertEquals(8, repository.getOverflowCount());
+        Assert.assertEquals(32, repository.collect().size());
+    }
+
+    @Test
+    public void testCountByElapsedTime() {
+        ActiveTraceRepository repository = new ActiveTraceRepository(64);
+        List<Trace> traces = new ArrayList<Trace>();
+        for (int i = 0; i < 3; i++) {
+            Trace trace = new DisableTrace(i);
+            traces.add(trace);
+            repository.put(trace);
+        }
+        final long startTime = traces.get(0).getStartTime();
+        final int[] elapsedLimits = {1000, 3000, 5000};
+
+        int[] counts = new int[4];
+        repository.countByElapsedTime(startTime + 2000, elapsedLimits, counts);
+        Assert.assertArrayEquals(new int[] {0, 3, 0, 0}, counts);
+
+        repository.remove(traces.get(0).getId());
+        counts = new int[4];
+        // older than the bucket ring
+        repository.countByElapsedTime(startTime + 60000, elapsedLimits, counts);
+        Assert.assertArrayEquals(new int[] {0, 0, 0, 2}, counts);
+    }
+
+    private static final int[] ELAPSED_LIMITS = {100, 300, 500};
+
+    // a trace started at a given time
+    private static class StartedTrace extends DisableTrace {
+        private final long startTime;
+
+        private StartedTrace(long id, long startTime) {
+            super(id);
+            this.startTime = startTime;
+        }
+
+        @Override
+        public long getStartTime() {
+            return startTime;
+        }
+    }
+
+    private int[] countByElapsedTime(ActiveTraceRepository repository, long currentTime) {
+        int[] counts = new int[ELAPSED_LIMITS.length + 1];
+        repository.countByElapsedTime(currentTime, ELAPSED_LIMITS, counts);
+        return counts;
+    }
+
+    @Test
+    public void testBucketBoundary() {
+        final long bucketStart = 1000000 * ActiveTraceRepository.BUCKET_MILLIS;
+        ActiveTraceRepository repository = new ActiveTraceRepository(64);
+        repository.put(new StartedTrace(1, bucketStart));
+        repository.put(new StartedTrace(2, bucketStart + ActiveTraceRepository.BUCKET_MILLIS - 1));
+        repository.put(new StartedTrace(3, bucketStart + ActiveTraceRepository.BUCKET_MILLIS));
+
+        // elapsed time is measured from the start of the bucket
+        Assert.assertArrayEquals(new int[] {3, 0, 0, 0}, countByElapsedTime(repository, bucketStart + 100));
+        Assert.assertArrayEquals(new int[] {1, 2, 0, 0}, countByElapsedTime(repository, bucketStart + 101));
+        Assert.assertArrayEquals(new int[] {0, 1, 2, 0}, countByElapsedTime(repository, bucketStart + 301));
+        Assert.assertArrayEquals(new int[] {0, 0, 0, 3}, countByElapsedTime(repository, bucketStart + 511));
+    }
+
+    @Test
+    public void testNotStartedTraceNotCounted() {
+        ActiveTraceRepository repository = new ActiveTraceRepository(64);
+        repository.put(new StartedTrace(1, 0));
+        Assert.assertArrayEquals(new int[] {0, 0, 0, 0}, countByElapsedTime(repository, 1000));
+        Assert.assertTrue(repository.remove(1));
+        Assert.assertArrayEquals(new int[] {0, 0, 0, 0}, countByElapsedTime(repository, 1000));
+    }
+
+    @Test
+    public void testBucketReplacedOnWrapAround() {
+        final long startTime = 1000000 * ActiveTraceRepository.BUCKET_MILLIS;
+        final long ringMillis = ActiveTraceRepository.BUCKET_COUNT * ActiveTraceRepository.BUCKET_MILLIS;
+        ActiveTraceRepository repository = new ActiveTraceRepository(64);
+        repository.put(new StartedTrace(1, startTime));
+        repository.put(new StartedTrace(2, startTime));
+        // same index of the ring, one lap later
+        repository.put(new StartedTrace(3, startTime + ringMillis));
+
+        // the replaced bucket is not read anymore, its traces are the rest
+        Assert.assertArrayEquals(new int[] {1, 0, 0, 2}, countByElapsedTime(repository, startTime + ringMillis + 50));
+
+        // released from the replaced bucket, not from the one in the ring
+        Assert.assertTrue(repository.remove(1));
+        Assert.assertArrayEquals(new int[] {1, 0, 0, 1}, countByElapsedTime(repository, startTime + ringMillis + 50));
+        Assert.assertTrue(repository.remove(3));
+        Assert.assertArrayEquals(new int[] {0, 0, 0, 1}, countByElapsedTime(repository, startTime + ringMillis + 50));
+        Assert.assertTrue(repository.remove(2));
+        Assert.assertArrayEquals(new int[] {0, 0, 0, 0}, countByElapsedTime(repository, startTime + ringMillis + 50));
+    }
+
+    @Test
+    public void testStartedBeforeRing() {
+        final long startTime = 1000000 * ActiveTraceRepository.BUCKET_MILLIS;
+        final long ringMillis = ActiveTraceRepository.BUCKET_COUNT * ActiveTraceRepository.BUCKET_MILLIS;
+        ActiveTraceRepository repository = new ActiveTraceRepository(64);
+        repository.put(new StartedTrace(1, startTime + ringMillis));
+        // put late, its bucket index already holds a newer epoch
+        repository.put(new StartedTrace(2, startTime));
+
+        Assert.assertArrayEquals(new int[] {1, 0, 0, 1}, countByElapsedTime(repository, startTime + ringMillis));
+        Assert.assertTrue(repository.remove(2));
+        Assert.assertArrayEquals(new int[] {1, 0, 0, 0}, countByElapsedTime(repository, startTime + ringMillis));
+    }
+
+    @Test
+    public void testCountsAccumulate() {
+        ActiveTraceRepository repository = new ActiveTraceRepository(64);
+        repository.put(new StartedTrace(1, 1000));
+        int[] counts = {1, 1, 1, 1};
+        repository.countByElapsedTime(1000, ELAPSED_LIMITS, counts);
+        Assert.assertArrayEquals(new int[] {2, 1, 1, 1}, counts);
+    }
+
+    @Test
+    public void testLeakedTraceSweptByCount() throws InterruptedException {
+        final long startTime = 1000000 * ActiveTraceRepository.BUCKET_MILLIS;
+        ActiveTraceRepository repository = new ActiveTraceRepository(64);
+        putLeakedTrace(repository, startTime);
+        Assert.assertArrayEquals(new int[] {0, 0, 0, 1}, countByElapsedTime(repository, startTime + 1000));
+
+        for (int i = 0; i < 100; i++) {
+            System.gc();
+            Thread.sleep(10);
+            if (countByElapsedTime(repository, startTime + 1000)[3] == 0) {
+                break;
+            }
+        }
+        // swept by the count itself, without collect()
+        Assert.assertArrayEquals(new int[] {0, 0, 0, 0}, countByElapsedTime(repository, startTime + 1000));
+    }
+
+    // never removed, unreachable once this returns
+    private void putLeakedTrace(ActiveTraceRepository repository, long startTime) {
+        repository.put(new StartedTrace(1, startTime));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCountsTooShort() {
+        ActiveTraceRepository repository = new ActiveTraceRepository(64);
+        repository.countByElapsedTime(1000, ELAPSED_LIMITS, new int[ELAPSED_LIMITS.length]);
+    }
+}
@@ -0,0 +1,48 @@
+package com.m2u.eyelink.context;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CallStackTest {
+
+    @Test
+    public void testOverflow() {
+        Span span = new Span();
+        CallStack callStack = new CallStack(span, 2);
+        for (int i = 0; i < 3; i++) {
+            callStack.push(new SpanEvent(span));
+        }
+        Assert.assertTrue(callStack.isOverflow());
+
+        callStack.push(new SpanEvent(span));
+        callStack.push(new SpanEvent(span));
+        Assert.assertSame(CallStack.OVERFLOW_FRAME, callStack.peek());
+        Assert.assertSame(CallStack.OVERFLOW_FRAME, callStack.pop());
+        callStack.push(new SpanEvent(span));
+        Assert.assertSame(CallStack.OVERFLOW_FRAME, callStack.pop());
+        Assert.assertSame(CallStack.OVERFLOW_FRAME, callStack.pop());
+        Assert.assertNotSame(CallStack.OVERFLOW_FRAME, callStack.pop());
+
+        Assert.assertEquals(3, callStack.getDroppedFrameCount());
+        Assert.assertEquals(2, callStack.getMaxOverflowDepth());
+    }
+
+    @Test
+    public void testReleaseReusesStack() {
+        Span span = new Span();
+        CallStack callStack = new CallStack(span);
+        for (int i = 0; i < 20; i++) {
+            callStack.push(new SpanEvent(span));
+        }
+        callStack.release();
+        Assert.assertTrue(callStack.empty());
+        Assert.assertNull(callStack.peek());
+
+        CallStack next = new CallStack(span);
+        Assert.assertEquals(0, next.copyStackFrame().length);
+        for (int i = 0; i < 20; i++) {
+            next.push(new SpanEvent(span));
+        }
+        Assert.assertEquals(20, next.copyStackFrame().length);
+    }
+}
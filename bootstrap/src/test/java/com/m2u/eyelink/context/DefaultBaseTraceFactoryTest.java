@@ -0,0 +1,230 @@
+package com.m2u.eyelink.context;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.m2u.eyelink.agent.profiler.context.TransactionCounter.SamplingType;
+import com.m2u.eyelink.agent.profiler.context.storage.TailSamplingStorageFactory;
+import com.m2u.eyelink.agent.profiler.sampler.FalseSampler;
+import com.m2u.eyelink.agent.profiler.sampler.RateLimitSampler;
+
+public class DefaultBaseTraceFactoryTest {
+
+    private final List<Object> stored = new ArrayList<Object>();
+
+    private final StorageFactory storageFactory = new StorageFactory() {
+        @Override
+        public Storage createStorage() {
+            return new Storage() {
+                @Override
+                public SpanEvent newSpanEvent(Span span) {
+                    return new SpanEvent(span);
+                }
+
+                @Override
+                public void store(SpanEvent spanEvent) {
+                    stored.add(spanEvent);
+                }
+
+                @Override
+                public void store(Span span) {
+                    stored.add(span);
+                }
+
+                @Override
+                public void flush() {
+                }
+
+                @Override
+                public void close() {
+                }
+            };
+        }
+    };
+
+    private TraceContext traceContext;
+    private IdGenerator idGenerator;
+
+    @Before
+    public void setUp() {
+        traceContext = mock(TraceContext.class);
+        when(traceContext.getAgentId()).thenReturn("agentId");
+        when(traceContext.getApplicationName()).thenReturn("applicationName");
+        when(traceContext.getAgentStartTime()).thenReturn(1L);
+        when(traceContext.getAsyncId()).thenReturn(1);
+        idGenerator = new IdGenerator(1);
+    }
+
+    private DefaultBaseTraceFactory newTailTraceFactory(TailSamplingStorageFactory tailStorageFactory) {
+        return new DefaultBaseTraceFactory(traceContext, storageFactory, new FalseSampler(), new TrueSampler(), tailStorageFactory, idGenerator);
+    }
+
+    @Test
+    public void testTailTraceDiscarded() {
+        TailSamplingStorageFactory tailStorageFactory = new TailSamplingStorageFactory(storageFactory, 60000, 16, 1024 * 1024);
+        DefaultBaseTraceFactory traceFactory = newTailTraceFactory(tailStorageFactory);
+        DefaultTransactionCounter transactionCounter = new DefaultTransactionCounter(idGenerator, tailStorageFactory);
+
+        Trace trace = traceFactory.newTraceObject();
+        Assert.assertTrue(trace.canSampled());
+        Assert.assertTrue(trace.isSamplingDeferred());
+        Assert.assertTrue(trace.getId() >= IdGenerator.INITIAL_TRANSACTION_ID);
+        Assert.assertEquals(0, idGenerator.getTransactionCount());
+        Assert.assertEquals(1, idGenerator.getTailTransactionCount());
+        // not counted until decided
+        Assert.assertEquals(0, transactionCounter.getTransactionCount(SamplingType.SAMPLED_NEW));
+        Assert.assertEquals(0, transactionCounter.getTransactionCount(SamplingType.UNSAMPLED_NEW));
+
+        trace.traceBlockBegin();
+        trace.traceBlockEnd();
+        trace.close();
+
+        Assert.assertTrue(stored.isEmpty());
+        Assert.assertEquals(0, transactionCounter.getTransactionCount(SamplingType.SAMPLED_NEW));
+        Assert.assertEquals(1, transactionCounter.getTransactionCount(SamplingType.UNSAMPLED_NEW));
+    }
+
+    @Test
+    public void testTailTraceEmitted() {
+        TailSamplingStorageFactory tailStorageFactory = new TailSamplingStorageFactory(storageFactory, 0, 16, 1024 * 1024);
+        DefaultBaseTraceFactory traceFactory = newTailTraceFactory(tailStorageFactory);
+        DefaultTransactionCounter transactionCounter = new DefaultTransactionCounter(idGenerator, tailStorageFactory);
+
+        Trace trace = traceFactory.newTraceObject();
+        trace.traceBlockBegin();
+        trace.traceBlockEnd();
+        trace.close();
+
+        Assert.assertEquals(2, stored.size());
+        Assert.assertEquals(1, transactionCounter.getTransactionCount(SamplingType.SAMPLED_NEW));
+        Assert.assertEquals(0, transactionCounter.getTransactionCount(SamplingType.UNSAMPLED_NEW));
+    }
+
+    @Test
+    public void testTailTraceIdsAreUnique() {
+        TailSamplingStorageFactory tailStorageFactory = new TailSamplingStorageFactory(storageFactory, 0, 16, 1024 * 1024);
+        DefaultBaseTraceFactory traceFactory = newTailTraceFactory(tailStorageFactory);
+
+        long sampledId = idGenerator.nextTransactionId();
+        Trace trace = traceFactory.newTraceObject();
+        Assert.assertTrue(trace.getId() != sampledId);
+    }
+
+    @Test
+    public void testAsyncTraceDiscardedWithParent() {
+        TailSamplingStorageFactory tailStorageFactory = new TailSamplingStorageFactory(storageFactory, 60000, 16, 1024 * 1024);
+        DefaultBaseTraceFactory traceFactory = newTailTraceFactory(tailStorageFactory);
+
+        Trace trace = traceFactory.newTraceObject();
+        AsyncTraceId asyncTraceId = trace.getAsyncTraceId();
+        Trace asyncTrace = traceFactory.continueAsyncTraceObject(asyncTraceId, asyncTraceId.getAsyncId(), trace.getStartTime());
+        Assert.assertTrue(asyncTrace.isSamplingDeferred());
+        asyncTrace.traceBlockBegin();
+        asyncTrace.traceBlockEnd();
+        asyncTrace.close();
+        Assert.assertTrue(stored.isEmpty());
+
+        trace.close();
+        Assert.assertTrue(stored.isEmpty());
+        Assert.assertEquals(1, tailStorageFactory.getDiscardedCount());
+        Assert.assertEquals(0, tailStorageFactory.getBufferBytes());
+
+        // after the decision
+        Trace lateAsyncTrace = traceFactory.continueAsyncTraceObject(asyncTraceId, asyncTraceId.getAsyncId(), trace.getStartTime());
+        lateAsyncTrace.close();
+        Assert.assertTrue(stored.isEmpty());
+    }
+
+    @Test
+    public void testAsyncTraceEmittedWithParent() {
+        TailSamplingStorageFactory tailStorageFactory = new TailSamplingStorageFactory(storageFactory, 0, 16, 1024 * 1024);
+        DefaultBaseTraceFactory traceFactory = newTailTraceFactory(tailStorageFactory);
+
+        Trace trace = traceFactory.newTraceObject();
+        AsyncTraceId asyncTraceId = trace.getAsyncTraceId();
+        Trace asyncTrace = traceFactory.continueAsyncTraceObject(asyncTraceId, asyncTraceId.getAsyncId(), trace.getStartTime());
+        asyncTrace.traceBlockBegin();
+        asyncTrace.traceBlockEnd();
+        asyncTrace.close();
+        Assert.assertTrue(stored.isEmpty());
+
+        trace.close();
+        // the span of the trace and the two events of the async trace
+        Assert.assertEquals(3, stored.size());
+        Assert.assertEquals(1, tailStorageFactory.getEmittedCount());
+        Assert.assertEquals(1, tailStorageFactory.getBufferedCount());
+        Assert.assertEquals(0, tailStorageFactory.getBufferBytes());
+
+        Trace lateAsyncTrace = traceFactory.continueAsyncTraceObject(asyncTraceId, asyncTraceId.getAsyncId(), trace.getStartTime());
+        lateAsyncTrace.close();
+        Assert.assertEquals(4, stored.size());
+    }
+
+    @Test
+    public void testSampledTraceIsNotDeferred() {
+        DefaultBaseTraceFactory traceFactory = new DefaultBaseTraceFactory(traceContext, storageFactory, new TrueSampler(), idGenerator);
+        Trace trace = traceFactory.newTraceObject();
+        Assert.assertTrue(trace.canSampled());
+        Assert.assertFalse(trace.isSamplingDeferred());
+        Assert.assertNull(trace.getAsyncTraceId().getDeferredStorageFactory());
+        Assert.assertEquals(1, idGenerator.getTransactionCount());
+    }
+
+    @Test
+    public void testContinuationDowngraded() {
+        DefaultBaseTraceFactory traceFactory = new DefaultBaseTraceFactory(traceContext, storageFactory, new TrueSampler(), new FalseSampler(), idGenerator);
+        TraceId traceId = new DefaultTraceId("parentAgentId", 2L, 10L);
+
+        Trace trace = traceFactory.continueTraceObject(traceId);
+        Assert.assertFalse(trace.canSampled());
+        // keeps the traceId of the previous node
+        Assert.assertSame(traceId, trace.getTraceId());
+        Assert.assertEquals(1, traceFactory.getContinuationDowngradeCount());
+
+        Trace asyncTrace = traceFactory.continueAsyncTraceObject(traceId);
+        Assert.assertFalse(asyncTrace.canSampled());
+        Assert.assertSame(traceId, asyncTrace.getTraceId());
+        Assert.assertEquals(2, traceFactory.getContinuationDowngradeCount());
+
+        // counted as unsampled continuations
+        Assert.assertEquals(2, idGenerator.getContinuedDisabledCount());
+        Assert.assertEquals(0, idGenerator.getContinuedTransactionCount());
+        Assert.assertTrue(stored.isEmpty());
+    }
+
+    @Test
+    public void testContinuationRateLimit() {
+        DefaultBaseTraceFactory traceFactory = new DefaultBaseTraceFactory(traceContext, storageFactory, new TrueSampler(), new RateLimitSampler(2), idGenerator);
+        TraceId traceId = new DefaultTraceId("parentAgentId", 2L, 10L);
+
+        // a burst of one second
+        Assert.assertTrue(traceFactory.continueTraceObject(traceId).canSampled());
+        Assert.assertTrue(traceFactory.continueTraceObject(traceId).canSampled());
+        Assert.assertFalse(traceFactory.continueTraceObject(traceId).canSampled());
+        Assert.assertEquals(1, traceFactory.getContinuationDowngradeCount());
+        Assert.assertEquals(2, idGenerator.getContinuedTransactionCount());
+        Assert.assertEquals(1, idGenerator.getContinuedDisabledCount());
+
+        // new traces are not limited by the continuation sampler
+        Assert.assertTrue(traceFactory.newTraceObject().canSampled());
+    }
+
+    @Test
+    public void testContinuationNotLimitedByDefault() {
+        DefaultBaseTraceFactory traceFactory = new DefaultBaseTraceFactory(traceContext, storageFactory, new FalseSampler(), idGenerator);
+        TraceId traceId = new DefaultTraceId("parentAgentId", 2L, 10L);
+
+        for (int i = 0; i < 10; i++) {
+            Assert.assertTrue(traceFactory.continueTraceObject(traceId).canSampled());
+        }
+        Assert.assertEquals(0, traceFactory.getContinuationDowngradeCount());
+        Assert.assertEquals(10, idGenerator.getContinuedTransactionCount());
+    }
+}
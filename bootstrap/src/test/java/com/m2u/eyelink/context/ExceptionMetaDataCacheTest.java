@@ -0,0 +1,58 @@
+package com.m2u.eyelink.context;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ExceptionMetaDataCacheTest {
+
+    private final AtomicInteger cacheStringCount = new AtomicInteger();
+
+    @Test
+    public void exceptionClassId() {
+        ExceptionMetaDataCache cache = new ExceptionMetaDataCache(newTraceContext());
+        final int id = cache.getExceptionClassId(IllegalStateException.class);
+        Assert.assertEquals(id, cache.getExceptionClassId(IllegalStateException.class));
+        Assert.assertTrue(id != cache.getExceptionClassId(IllegalArgumentException.class));
+        Assert.assertEquals(2, cacheStringCount.get());
+    }
+
+    @Test
+    public void exceptionMessage() {
+        ExceptionMetaDataCache cache = new ExceptionMetaDataCache(newTraceContext());
+        Assert.assertNull(cache.getExceptionMessage(IllegalStateException.class, null));
+        Assert.assertEquals("timeout", cache.getExceptionMessage(IllegalStateException.class, "timeout"));
+        Assert.assertEquals("timeout", cache.getExceptionMessage(IllegalStateException.class, new String("timeout")));
+        Assert.assertEquals("other", cache.getExceptionMessage(IllegalStateException.class, "other"));
+        Assert.assertEquals(0, cache.getDedupCount());
+    }
+
+    @Test
+    public void dedupWithinWindow() {
+        ExceptionMetaDataCache cache = new ExceptionMetaDataCache(newTraceContext(), 60 * 1000);
+        Assert.assertEquals("timeout", cache.getExceptionMessage(IllegalStateException.class, "timeout"));
+        Assert.assertNull(cache.getExceptionMessage(IllegalStateException.class, "timeout"));
+        Assert.assertNull(cache.getExceptionMessage(IllegalStateException.class, "timeout"));
+        // other class, other message
+        Assert.assertEquals("timeout", cache.getExceptionMessage(IllegalArgumentException.class, "timeout"));
+        Assert.assertEquals("other", cache.getExceptionMessage(IllegalStateException.class, "other"));
+        Assert.assertEquals(2, cache.getDedupCount());
+    }
+
+    private TraceContext newTraceContext() {
+        InvocationHandler handler = new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if (method.getName().equals("cacheString")) {
+                    return cacheStringCount.incrementAndGet();
+                }
+                throw new UnsupportedOperationException(method.getName());
+            }
+        };
+        return (TraceContext) Proxy.newProxyInstance(TraceContext.class.getClassLoader(), new Class<?>[] {TraceContext.class}, handler);
+    }
+}
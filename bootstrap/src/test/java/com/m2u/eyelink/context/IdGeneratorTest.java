@@ -0,0 +1,51 @@
+package com.m2u.eyelink.context;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class IdGeneratorTest {
+
+    @Test
+    public void testSequence() {
+        IdGenerator idGenerator = new IdGenerator(1);
+        Assert.assertEquals(IdGenerator.INITIAL_TRANSACTION_ID, idGenerator.nextTransactionId());
+        Assert.assertEquals(IdGenerator.INITIAL_TRANSACTION_ID + 1, idGenerator.nextTransactionId());
+        Assert.assertEquals(IdGenerator.INITIAL_DISABLED_ID, idGenerator.nextDisabledId());
+        Assert.assertEquals(IdGenerator.INITIAL_DISABLED_ID - IdGenerator.DECREMENT_CYCLE, idGenerator.nextDisabledId());
+        Assert.assertEquals(2, idGenerator.getTransactionCount());
+        Assert.assertEquals(2, idGenerator.getDisabledCount());
+        Assert.assertEquals(0, idGenerator.getContinuedTransactionCount());
+    }
+
+    @Test
+    public void testUniqueAcrossThreads() throws Exception {
+        final IdGenerator idGenerator = new IdGenerator(8);
+        final Set<Long> ids = ConcurrentHashMap.newKeySet();
+        final int threadCount = 4;
+        final int idsPerThread = 1000;
+        final CountDownLatch latch = new CountDownLatch(threadCount);
+        for (int i = 0; i < threadCount; i++) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < idsPerThread; j++) {
+                        ids.add(idGenerator.nextContinuedDisabledId());
+                    }
+                    latch.countDown();
+                }
+            }).start();
+        }
+        latch.await();
+
+        Assert.assertEquals(threadCount * idsPerThread, ids.size());
+        Assert.assertEquals(threadCount * idsPerThread, idGenerator.getContinuedDisabledCount());
+        for (Long id : ids) {
+            // the residue identifies the kind of id
+            Assert.assertEquals(0, (id - IdGenerator.INITIAL_CONTINUED_DISABLED_ID) % IdGenerator.DECREMENT_CYCLE);
+        }
+    }
+}
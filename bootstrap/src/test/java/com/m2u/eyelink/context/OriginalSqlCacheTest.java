@@ -0,0 +1,126 @@
+package com.m2u.eyelink.context;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class OriginalSqlCacheTest {
+
+    // entries up to 100 chars are cached
+    private static final long MAX_WEIGHT = 100 * 64;
+
+    private String newSql(int length, char c) {
+        StringBuilder sql = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sql.append(c);
+        }
+        return sql.toString();
+    }
+
+    private int identitySlot(String sql) {
+        return System.identityHashCode(sql) & 255;
+    }
+
+    @Test
+    public void hit() {
+        OriginalSqlCache cache = new OriginalSqlCache(MAX_WEIGHT);
+        String originalSql = "select * from t where id = 1";
+        CachedParsingResult result = new CachedParsingResult("select * from t where id = ?", "1", 1);
+        Assert.assertNull(cache.get(originalSql));
+
+        cache.put(originalSql, result);
+        Assert.assertSame(result, cache.get(originalSql));
+        // an equal sql from another execution of a plain statement
+        Assert.assertSame(result, cache.get(new String(originalSql)));
+        Assert.assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void identityHitAfterEviction() {
+        OriginalSqlCache cache = new OriginalSqlCache(MAX_WEIGHT);
+        String originalSql = "select 1 from dual /* prepared */";
+        CachedParsingResult result = new CachedParsingResult(originalSql, null, 1);
+        cache.put(originalSql, result);
+
+        // fill the cache many times over, without taking the identity slot of originalSql
+        final int slot = identitySlot(originalSql);
+        for (int i = 0; i < 10000; i++) {
+            String sql = "select " + i + " from t";
+            if (identitySlot(sql) == slot) {
+                continue;
+            }
+            cache.put(sql, new CachedParsingResult(sql, null, i + 2));
+        }
+
+        // gone from the weighted cache, still found by the instance a prepared statement passes again
+        Assert.assertNull(cache.get(new String(originalSql)));
+        Assert.assertSame(result, cache.get(originalSql));
+    }
+
+    @Test
+    public void identitySlotNotReplacedByCollidingHit() {
+        OriginalSqlCache cache = new OriginalSqlCache(MAX_WEIGHT);
+        String prepared = "select 1 from dual /* prepared */";
+        CachedParsingResult preparedResult = new CachedParsingResult(prepared, null, 1);
+        cache.put(prepared, preparedResult);
+
+        final int slot = identitySlot(prepared);
+        String colliding = null;
+        for (int i = 0; colliding == null; i++) {
+            String sql = "select " + i + " from t";
+            if (identitySlot(sql) == slot) {
+                colliding = sql;
+            }
+        }
+        cache.put(colliding, new CachedParsingResult(colliding, null, 2));
+        Assert.assertNotNull(cache.get(colliding));
+
+        // fill the cache many times over with sql that never takes the slot
+        for (int i = 0; i < 10000; i++) {
+            String sql = "select " + i + " from u";
+            if (identitySlot(sql) == slot) {
+                continue;
+            }
+            cache.put(sql, new CachedParsingResult(sql, null, i + 3));
+        }
+
+        // gone from the map, the slot still holds the entry that took it first
+        Assert.assertNull(cache.get(new String(prepared)));
+        Assert.assertSame(preparedResult, cache.get(prepared));
+    }
+
+    @Test
+    public void frequentSqlSurvivesOneOffSql() {
+        OriginalSqlCache cache = new OriginalSqlCache(MAX_WEIGHT);
+        String frequent = "select * from member where id = ?";
+        cache.put(frequent, new CachedParsingResult(frequent, null, 1));
+        Assert.assertNotNull(cache.get(new String(frequent)));
+
+        for (int i = 0; i < 10000; i++) {
+            String sql = "select * from member where id = " + i;
+            cache.put(sql, new CachedParsingResult(sql, null, i + 2));
+        }
+        Assert.assertNotNull(cache.get(new String(frequent)));
+    }
+
+    @Test
+    public void weightedEviction() {
+        OriginalSqlCache cache = new OriginalSqlCache(MAX_WEIGHT);
+        // original sql + normalized sql = 50 chars
+        for (int i = 0; i < 1000; i++) {
+            String sql = newSql(21, 'a') + String.format("%04d", i);
+            cache.put(sql, new CachedParsingResult(sql, null, i + 1));
+        }
+        Assert.assertTrue(cache.size() > 0);
+        Assert.assertTrue(cache.size() * 50 <= MAX_WEIGHT);
+    }
+
+    @Test
+    public void heavyEntryNotCached() {
+        OriginalSqlCache cache = new OriginalSqlCache(MAX_WEIGHT);
+        String originalSql = newSql(60, 'b');
+        cache.put(originalSql, new CachedParsingResult(originalSql, null, 1));
+
+        Assert.assertNull(cache.get(originalSql));
+        Assert.assertEquals(0, cache.size());
+    }
+}
@@ -0,0 +1,54 @@
+package com.m2u.eyelink.context;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.m2u.eyelink.context.thrift.TAnnotation;
+
+public class PrimitiveAnnotationsTest {
+
+    @Test
+    public void flushInRecordingOrder() {
+        List<TAnnotation> annotations = new ArrayList<TAnnotation>();
+        PrimitiveAnnotations primitiveAnnotations = new PrimitiveAnnotations();
+
+        primitiveAnnotations.addInt(1, 10, annotations.size());
+        annotations.add(new Annotation(2, "two"));
+        primitiveAnnotations.addLong(3, 30L, annotations.size());
+        primitiveAnnotations.addBoolean(4, true, annotations.size());
+        annotations.add(new Annotation(5, "five"));
+        primitiveAnnotations.addInt(6, 60, annotations.size());
+        Assert.assertEquals(4, primitiveAnnotations.size());
+
+        List<TAnnotation> merged = primitiveAnnotations.flushTo(annotations);
+        Assert.assertEquals(6, merged.size());
+        for (int i = 0; i < merged.size(); i++) {
+            Assert.assertEquals(i + 1, merged.get(i).getKey());
+        }
+        Assert.assertEquals(10, merged.get(0).getValue().getIntValue());
+        Assert.assertEquals(30L, merged.get(2).getValue().getLongValue());
+        Assert.assertTrue(merged.get(3).getValue().getBoolValue());
+        Assert.assertEquals(0, primitiveAnnotations.size());
+    }
+
+    @Test
+    public void nothingPending() {
+        List<TAnnotation> annotations = new ArrayList<TAnnotation>();
+        Assert.assertSame(annotations, new PrimitiveAnnotations().flushTo(annotations));
+        Assert.assertNull(new PrimitiveAnnotations().flushTo(null));
+    }
+
+    @Test
+    public void flushWithoutObjectAnnotations() {
+        PrimitiveAnnotations primitiveAnnotations = new PrimitiveAnnotations();
+        for (int i = 0; i < 10; i++) {
+            primitiveAnnotations.addInt(i, i, 0);
+        }
+        List<TAnnotation> merged = primitiveAnnotations.flushTo(null);
+        Assert.assertEquals(10, merged.size());
+        Assert.assertEquals(9, merged.get(9).getKey());
+    }
+}
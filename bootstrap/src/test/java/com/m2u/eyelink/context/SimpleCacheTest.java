@@ -0,0 +1,45 @@
+package com.m2u.eyelink.context;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SimpleCacheTest {
+
+    @Test
+    public void put() {
+        SimpleCache<String> cache = new SimpleCache<String>(16);
+        Result first = cache.put("a");
+        Assert.assertTrue(first.isNewValue());
+
+        Result second = cache.put("a");
+        Assert.assertFalse(second.isNewValue());
+        Assert.assertEquals(first.getId(), second.getId());
+        Assert.assertTrue(first.getId() != cache.put("b").getId());
+
+        Assert.assertEquals(1, cache.getHitCount());
+        Assert.assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    public void bounded() {
+        SimpleCache<String> cache = new SimpleCache<String>(10);
+        for (int i = 0; i < 100; i++) {
+            cache.put("value" + i);
+        }
+        Assert.assertEquals(10, cache.size());
+        Assert.assertEquals(90, cache.getEvictionCount());
+    }
+
+    @Test
+    public void frequentValueSurvivesOneOffValues() {
+        SimpleCache<String> cache = new SimpleCache<String>(10);
+        final int id = cache.put("frequent").getId();
+        cache.put("frequent");
+        for (int i = 0; i < 1000; i++) {
+            cache.put("oneOff" + i);
+        }
+        Result result = cache.put("frequent");
+        Assert.assertFalse(result.isNewValue());
+        Assert.assertEquals(id, result.getId());
+    }
+}
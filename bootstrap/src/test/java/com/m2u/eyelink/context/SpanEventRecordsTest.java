@@ -0,0 +1,111 @@
+package com.m2u.eyelink.context;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.m2u.eyelink.context.thrift.TAnnotation;
+
+public class SpanEventRecordsTest {
+
+    private SpanEvent newSpanEvent(Span span, int apiId) {
+        SpanEvent spanEvent = new SpanEvent(span);
+        spanEvent.setApiId(apiId);
+        spanEvent.setServiceType((short) 1010);
+        spanEvent.setStartElapsed(apiId);
+        spanEvent.setEndElapsed(apiId * 2);
+        return spanEvent;
+    }
+
+    @Test
+    public void convertsFieldsAndAnnotations() {
+        Span span = new Span();
+        SpanEvent first = newSpanEvent(span, 1);
+        first.setDestinationId("destination");
+        first.setEndPoint("endPoint");
+        first.setNextSpanId(10L);
+        first.setExceptionInfo(3, "message");
+        first.addAnnotation(1, 10);
+        first.addAnnotation(new Annotation(2, "two"));
+        first.addAnnotation(3, 30L);
+
+        SpanEvent second = newSpanEvent(span, 2);
+        second.setNextAsyncId(5);
+        second.setElapsedMicros(1500);
+
+        SpanEvent third = newSpanEvent(span, 3);
+        third.addAnnotation(new Annotation(4, "four"));
+        third.addAnnotation(5, true);
+
+        SpanEventRecords records = new SpanEventRecords();
+        Assert.assertTrue(records.isEmpty());
+        records.add(first);
+        records.add(second);
+        records.add(third);
+        Assert.assertEquals(3, records.size());
+        Assert.assertSame(span, records.getSpan());
+
+        List<TSpanEvent> spanEventList = new ArrayList<TSpanEvent>();
+        records.toSpanEventList(spanEventList);
+        Assert.assertEquals(3, spanEventList.size());
+
+        first.flushAnnotations();
+        third.flushAnnotations();
+        Assert.assertEquals(first, spanEventList.get(0));
+        Assert.assertEquals(second, spanEventList.get(1));
+        Assert.assertEquals(third, spanEventList.get(2));
+
+        List<TAnnotation> annotations = spanEventList.get(0).getAnnotations();
+        Assert.assertEquals(3, annotations.size());
+        for (int i = 0; i < annotations.size(); i++) {
+            Assert.assertEquals(i + 1, annotations.get(i).getKey());
+        }
+        Assert.assertFalse(spanEventList.get(1).isSetAnnotations());
+        Assert.assertFalse(spanEventList.get(1).isSetExceptionInfo());
+        Assert.assertEquals(4, spanEventList.get(2).getAnnotations().get(0).getKey());
+        Assert.assertTrue(spanEventList.get(2).getAnnotations().get(1).getValue().getBoolValue());
+    }
+
+    @Test
+    public void growsPastInitialSize() {
+        Span span = new Span();
+        SpanEventRecords records = new SpanEventRecords();
+        for (int i = 0; i < 100; i++) {
+            SpanEvent spanEvent = newSpanEvent(span, i);
+            spanEvent.addAnnotation(i, i);
+            records.add(spanEvent);
+        }
+
+        List<TSpanEvent> spanEventList = new ArrayList<TSpanEvent>();
+        records.toSpanEventList(spanEventList);
+        Assert.assertEquals(100, spanEventList.size());
+        for (int i = 0; i < 100; i++) {
+            TSpanEvent spanEvent = spanEventList.get(i);
+            Assert.assertEquals(i, spanEvent.getApiId());
+            Assert.assertEquals(1, spanEvent.getAnnotationsSize());
+            Assert.assertEquals(i, spanEvent.getAnnotations().get(0).getValue().getIntValue());
+        }
+    }
+
+    @Test
+    public void resetForRecycle() {
+        Span span = new Span();
+        SpanEventRecords records = new SpanEventRecords();
+        SpanEvent spanEvent = newSpanEvent(span, 1);
+        spanEvent.addAnnotation(1, 1);
+        records.add(spanEvent);
+
+        records.resetForRecycle();
+        Assert.assertTrue(records.isEmpty());
+        Assert.assertNull(records.getSpan());
+
+        records.add(newSpanEvent(span, 2));
+        List<TSpanEvent> spanEventList = new ArrayList<TSpanEvent>();
+        records.toSpanEventList(spanEventList);
+        Assert.assertEquals(1, spanEventList.size());
+        Assert.assertEquals(2, spanEventList.get(0).getApiId());
+        Assert.assertFalse(spanEventList.get(0).isSetAnnotations());
+    }
+}
@@ -0,0 +1,201 @@
+package com.m2u.eyelink.context;
+
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ThreadIdBinderTest {
+
+    @Test
+    public void testBind() throws Exception {
+        final ThreadIdBinder<String> binder = new ThreadIdBinder<String>();
+        Assert.assertNull(binder.get());
+        binder.set("main");
+        Assert.assertEquals("main", binder.get());
+
+        final String[] other = new String[2];
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                other[0] = binder.get();
+                binder.set("other");
+                other[1] = binder.get();
+            }
+        });
+        thread.start();
+        thread.join();
+        Assert.assertNull(other[0]);
+        Assert.assertEquals("other", other[1]);
+
+        Assert.assertEquals("main", binder.remove());
+        Assert.assertNull(binder.get());
+    }
+
+    private static class Binding implements Runnable {
+        private final ThreadIdBinder<String> binder;
+        private final String value;
+        private final CountDownLatch bound = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+        private volatile String bindResult;
+        private volatile String removeResult;
+
+        private Binding(ThreadIdBinder<String> binder, String value) {
+            this.binder = binder;
+            this.value = value;
+        }
+
+        @Override
+        public void run() {
+            binder.set(value);
+            bindResult = binder.get();
+            bound.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            removeResult = binder.remove();
+        }
+    }
+
+    @Test
+    public void testFallback() throws Exception {
+        final ThreadIdBinder<String> binder = new ThreadIdBinder<String>(1);
+        binder.set("main");
+
+        // the only slot is taken by a live thread
+        Binding binding = new Binding(binder, "other");
+        Thread thread = new Thread(binding);
+        thread.start();
+        binding.bound.await();
+        Assert.assertTrue(binder.isFallbackUsed());
+        Assert.assertEquals("other", binding.bindResult);
+        binding.release.countDown();
+        thread.join();
+        Assert.assertEquals("other", binding.removeResult);
+
+        Assert.assertEquals("main", binder.get());
+        Assert.assertEquals("main", binder.remove());
+        Assert.assertNull(binder.get());
+    }
+
+    @Test
+    public void testProbe() throws Exception {
+        final int capacity = 16;
+        final ThreadIdBinder<String> binder = new ThreadIdBinder<String>(capacity);
+        Binding first = new Binding(binder, "first");
+        Thread firstThread = new Thread(first);
+        Binding second = new Binding(binder, "second");
+        Thread secondThread = new Thread(second);
+        // same home index as the first thread
+        while ((secondThread.getId() - firstThread.getId()) % capacity != 0) {
+            secondThread = new Thread(second);
+        }
+        firstThread.start();
+        first.bound.await();
+        secondThread.start();
+        second.bound.await();
+
+        Assert.assertEquals("first", first.bindResult);
+        Assert.assertEquals("second", second.bindResult);
+        Assert.assertFalse(binder.isFallbackUsed());
+        Assert.assertEquals(2, binder.getSlotCount());
+
+        first.release.countDown();
+        second.release.countDown();
+        firstThread.join();
+        secondThread.join();
+        Assert.assertEquals("first", first.removeResult);
+        Assert.assertEquals("second", second.removeResult);
+    }
+
+    @Test
+    public void testSlotsOfTerminatedThreadsReused() throws Exception {
+        final int capacity = 16;
+        final ThreadIdBinder<String> binder = new ThreadIdBinder<String>(capacity);
+        // thread ids keep growing far beyond the capacity
+        for (int i = 0; i < capacity * 20; i++) {
+            Binding binding = new Binding(binder, "value" + i);
+            binding.release.countDown();
+            Thread thread = new Thread(binding);
+            thread.start();
+            thread.join();
+            Assert.assertEquals("value" + i, binding.bindResult);
+        }
+        Assert.assertFalse(binder.isFallbackUsed());
+        Assert.assertTrue(binder.getSlotCount() <= capacity);
+
+        // no leak once the threads are gone
+        binder.sweep();
+        Assert.assertEquals(0, binder.getSlotCount());
+    }
+
+    @Test
+    public void testSweepTerminatedThread() throws Exception {
+        final ThreadIdBinder<String> binder = new ThreadIdBinder<String>();
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                // leaked
+                binder.set("value");
+            }
+        });
+        thread.start();
+        thread.join();
+        Assert.assertEquals(1, binder.getSlotCount());
+
+        binder.sweep();
+        Assert.assertEquals(0, binder.getSlotCount());
+    }
+
+    @Test
+    public void testRemoveSweepsTerminatedThread() throws Exception {
+        final int capacity = 16;
+        final ThreadIdBinder<String> binder = new ThreadIdBinder<String>(capacity);
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                // leaked
+                binder.set("value");
+            }
+        });
+        thread.start();
+        thread.join();
+        Assert.assertEquals(1, binder.getSlotCount());
+
+        // the thread stays reachable, so only a sweep frees its slot. no new thread takes a slot
+        binder.set("main");
+        Assert.assertEquals(2, binder.getSlotCount());
+        for (int i = 0; i < capacity / ThreadIdBinder.SWEEP_STEP; i++) {
+            binder.remove();
+            binder.set("main");
+        }
+        Assert.assertEquals(1, binder.getSlotCount());
+        Assert.assertTrue(thread.getId() > 0);
+    }
+
+    @Test
+    public void testExpungeCollectedThread() throws Exception {
+        final ThreadIdBinder<String> binder = new ThreadIdBinder<String>();
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                // leaked
+                binder.set("value");
+            }
+        });
+        thread.start();
+        thread.join();
+        Assert.assertEquals(1, binder.getSlotCount());
+        thread = null;
+
+        // no new thread takes a slot, lookups release the value once the thread is collected
+        for (int i = 0; i < 100 && binder.getSlotCount() != 0; i++) {
+            System.gc();
+            Thread.sleep(10);
+            Assert.assertNull(binder.get());
+        }
+        Assert.assertEquals(0, binder.getSlotCount());
+    }
+}
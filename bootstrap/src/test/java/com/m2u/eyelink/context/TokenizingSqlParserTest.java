@@ -0,0 +1,106 @@
+package com.m2u.eyelink.context;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.m2u.eyelink.util.NormalizedSql;
+
+public class TokenizingSqlParserTest {
+
+    private final DefaultSqlParser defaultSqlParser = new DefaultSqlParser();
+    private final TokenizingSqlParser tokenizingSqlParser = new TokenizingSqlParser();
+
+    private static final String[] CORPUS = {
+            "",
+            "select * from table",
+            "select * from table where id = 1",
+            "select * from table where id = 1 and name = 'abc'",
+            "SELECT a, b FROM t WHERE a=10 AND b<>-3.14E10 AND c>=.5",
+            "select * from table where a=1.2e-3 or b=0x1F",
+            "select a1, b2 from table3 where c4=5",
+            "update member set name='kim, lee', age=20 where id=?",
+            "insert into t values (1, 'a''b', '', 'c,,d', -2)",
+            "insert into t values ('', 1)",
+            "insert into t values (''x)",
+            "select 'unterminated",
+            "select 'a', 'unterminated, 1",
+            "select \"quoted\", 1 from dual",
+            "select /* comment 1 */ 1 from dual",
+            "select /* unterminated comment 1",
+            "select /*/ 1 */ 2",
+            "select 1 -- line comment 2\n from dual where a=3",
+            "select 1 // line comment 2\n, 3",
+            "select 1 -- no new line 2",
+            "select 10/2, 5-3, a-1, @v:=1, :name, t.col1, _x2",
+            "select 가 = '한글', 나 = 1 from 테이블",
+            "exec proc @p1=1, @p2='x'",
+            "select * from t where a in (1,2,3) and b in ('x','y','z');select 1;",
+            "/",
+            "-",
+            "'",
+            "''",
+            "1",
+            "a'",
+    };
+
+    @Test
+    public void normalizedSql() {
+        NormalizedSql normalizedSql = tokenizingSqlParser.normalizedSql("select * from t where id = 10 and name = 'a,b'");
+        Assert.assertEquals("select * from t where id = 0# and name = '1$'", normalizedSql.getNormalizedSql());
+        Assert.assertEquals("10,a,,b", normalizedSql.getParseParameter());
+    }
+
+    @Test
+    public void notModified() {
+        String sql = "select * from t where id = ?";
+        NormalizedSql normalizedSql = tokenizingSqlParser.normalizedSql(sql);
+        Assert.assertSame(sql, normalizedSql.getNormalizedSql());
+        Assert.assertEquals("", normalizedSql.getParseParameter());
+    }
+
+    @Test
+    public void nullSql() {
+        NormalizedSql normalizedSql = tokenizingSqlParser.normalizedSql(null);
+        Assert.assertEquals("", normalizedSql.getNormalizedSql());
+        Assert.assertEquals("", normalizedSql.getParseParameter());
+    }
+
+    @Test
+    public void corpusParity() {
+        for (String sql : CORPUS) {
+            assertParity(sql);
+        }
+    }
+
+    @Test
+    public void batchParity() {
+        StringBuilder batch = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            batch.append("insert into t (id, name, price) values (").append(i).append(", 'name").append(i).append("', ").append(i).append(".5);\n");
+        }
+        assertParity(batch.toString());
+    }
+
+    @Test
+    public void randomParity() {
+        final char[] alphabet = "ab1.9eE_@:'/*-\n ,()=\"가".toCharArray();
+        final Random random = new Random(10);
+        final char[] chars = new char[64];
+        for (int i = 0; i < 20000; i++) {
+            final int length = random.nextInt(chars.length);
+            for (int j = 0; j < length; j++) {
+                chars[j] = alphabet[random.nextInt(alphabet.length)];
+            }
+            assertParity(new String(chars, 0, length));
+        }
+    }
+
+    private void assertParity(String sql) {
+        NormalizedSql expected = defaultSqlParser.normalizedSql(sql);
+        NormalizedSql actual = tokenizingSqlParser.normalizedSql(sql);
+        Assert.assertEquals(sql, expected.getNormalizedSql(), actual.getNormalizedSql());
+        Assert.assertEquals(sql, expected.getParseParameter(), actual.getParseParameter());
+    }
+}
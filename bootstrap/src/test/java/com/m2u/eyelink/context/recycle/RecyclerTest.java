@@ -0,0 +1,96 @@
+package com.m2u.eyelink.context.recycle;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RecyclerTest {
+
+    @Test
+    public void testReuse() {
+        TestRecycler recycler = new TestRecycler(4);
+
+        TestObject first = recycler.get();
+        first.value = 10;
+        first.recycle();
+        Assert.assertTrue(first.handle.isRecycled());
+        Assert.assertEquals(0, first.value);
+
+        TestObject second = recycler.get();
+        Assert.assertSame(first, second);
+        Assert.assertFalse(second.handle.isRecycled());
+
+        Assert.assertEquals(1, recycler.getCreatedCount());
+        Assert.assertEquals(1, recycler.getReusedCount());
+        Assert.assertEquals(1, recycler.getRecycledCount());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testDoubleRecycle() {
+        TestRecycler recycler = new TestRecycler(4);
+
+        TestObject object = recycler.get();
+        object.recycle();
+        object.recycle();
+    }
+
+    @Test
+    public void testRecycleFromOtherThread() throws Exception {
+        final TestRecycler recycler = new TestRecycler(4);
+        final TestObject object = recycler.get();
+
+        Thread sender = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                object.recycle();
+            }
+        });
+        sender.start();
+        sender.join();
+
+        // returned to the pool of the creating thread
+        Assert.assertSame(object, recycler.get());
+        Assert.assertEquals(1, recycler.getCreatedCount());
+    }
+
+    @Test
+    public void testMaxCapacity() {
+        TestRecycler recycler = new TestRecycler(1);
+
+        TestObject first = recycler.get();
+        TestObject second = recycler.get();
+        first.recycle();
+        second.recycle();
+
+        Assert.assertEquals(1, recycler.getDroppedCount());
+    }
+
+    private static class TestObject implements Recyclable {
+        private final Recycler.Handle<TestObject> handle;
+        private int value;
+
+        private TestObject(Recycler.Handle<TestObject> handle) {
+            this.handle = handle;
+        }
+
+        @Override
+        public void recycle() {
+            handle.recycle();
+        }
+    }
+
+    private static class TestRecycler extends Recycler<TestObject> {
+        private TestRecycler(int maxCapacityPerThread) {
+            super(maxCapacityPerThread);
+        }
+
+        @Override
+        protected TestObject newObject(Handle<TestObject> handle) {
+            return new TestObject(handle);
+        }
+
+        @Override
+        protected void resetObject(TestObject object) {
+            object.value = 0;
+        }
+    }
+}
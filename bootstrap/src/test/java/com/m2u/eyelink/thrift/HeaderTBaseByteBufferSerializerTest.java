@@ -0,0 +1,103 @@
+package com.m2u.eyelink.thrift;
+
+import java.nio.ByteBuffer;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.m2u.eyelink.context.TApiMetaData;
+import com.m2u.eyelink.context.thrift.BufferOverflowException;
+import com.m2u.eyelink.context.thrift.HeaderTBaseDeserializer;
+import com.m2u.eyelink.context.thrift.HeaderTBaseDeserializerFactory;
+import com.m2u.eyelink.context.thrift.HeaderTBaseSerializerFactory;
+import com.m2u.eyelink.rpc.packet.ByteBufferSendPacket;
+import com.m2u.eyelink.rpc.packet.Packet;
+import com.m2u.eyelink.rpc.packet.PacketType;
+import com.m2u.eyelink.rpc.packet.SendPacket;
+
+public class HeaderTBaseByteBufferSerializerTest {
+
+    private static final int POSITION = 7;
+    private static final int ARRAY_OFFSET = 5;
+
+    private final TApiMetaData message = new TApiMetaData("agentId", 1L, 10, "api");
+
+    private final HeaderTBaseByteBufferSerializer serializer = new HeaderTBaseByteBufferSerializer();
+
+    private byte[] expected() throws Exception {
+        return HeaderTBaseSerializerFactory.DEFAULT_FACTORY.createSerializer().serialize(message);
+    }
+
+    private byte[] serializeFromPosition(ByteBuffer byteBuffer) throws Exception {
+        byteBuffer.position(POSITION);
+        int size = serializer.serialize(message, byteBuffer);
+        Assert.assertEquals(POSITION + size, byteBuffer.position());
+
+        byteBuffer.flip();
+        byteBuffer.position(POSITION);
+        byte[] payload = new byte[byteBuffer.remaining()];
+        byteBuffer.duplicate().get(payload);
+        return payload;
+    }
+
+    @Test
+    public void serializeFromPosition() throws Exception {
+        Assert.assertArrayEquals(expected(), serializeFromPosition(ByteBuffer.allocate(1024)));
+        Assert.assertArrayEquals(expected(), serializeFromPosition(ByteBuffer.allocateDirect(1024)));
+    }
+
+    @Test
+    public void serializeIntoArrayOffset() throws Exception {
+        byte[] array = new byte[1024];
+        ByteBuffer byteBuffer = ByteBuffer.wrap(array, ARRAY_OFFSET, array.length - ARRAY_OFFSET).slice();
+        Assert.assertEquals(ARRAY_OFFSET, byteBuffer.arrayOffset());
+
+        byte[] payload = serializeFromPosition(byteBuffer);
+        Assert.assertArrayEquals(expected(), payload);
+        for (int i = 0; i < payload.length; i++) {
+            Assert.assertEquals(payload[i], array[ARRAY_OFFSET + POSITION + i]);
+        }
+    }
+
+    @Test
+    public void restorePositionOnOverflow() throws Exception {
+        ByteBuffer byteBuffer = ByteBuffer.allocate(POSITION + 4);
+        byteBuffer.position(POSITION);
+        try {
+            serializer.serialize(message, byteBuffer);
+            Assert.fail("BufferOverflowException expected");
+        } catch (BufferOverflowException e) {
+            Assert.assertEquals(POSITION, byteBuffer.position());
+        }
+    }
+
+    private void assertPacketRoundTrip(ByteBuffer byteBuffer) throws Exception {
+        byte[] expected = serializeFromPosition(byteBuffer);
+        final int position = byteBuffer.position();
+        final int limit = byteBuffer.limit();
+
+        ChannelBuffer buffer = new ByteBufferSendPacket(byteBuffer).toBuffer();
+        // wrapping must not move the caller's buffer
+        Assert.assertEquals(position, byteBuffer.position());
+        Assert.assertEquals(limit, byteBuffer.limit());
+
+        short packetType = buffer.readShort();
+        Assert.assertEquals(PacketType.APPLICATION_SEND, packetType);
+        Packet packet = SendPacket.readBuffer(packetType, buffer);
+        Assert.assertArrayEquals(expected, packet.getPayload());
+        Assert.assertFalse(buffer.readable());
+
+        HeaderTBaseDeserializer deserializer = HeaderTBaseDeserializerFactory.DEFAULT_FACTORY.createDeserializer();
+        Assert.assertEquals(message, deserializer.deserialize(packet.getPayload()));
+    }
+
+    @Test
+    public void sendPacketRoundTrip() throws Exception {
+        assertPacketRoundTrip(ByteBuffer.allocate(1024));
+        assertPacketRoundTrip(ByteBuffer.allocateDirect(1024));
+
+        byte[] array = new byte[1024];
+        assertPacketRoundTrip(ByteBuffer.wrap(array, ARRAY_OFFSET, array.length - ARRAY_OFFSET).slice());
+    }
+}
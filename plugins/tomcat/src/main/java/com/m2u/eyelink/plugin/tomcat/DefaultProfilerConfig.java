@@ -31,6 +31,12 @@ public class DefaultProfilerConfig implements ProfilerConfig {
     public static final String INSTRUMENT_ENGINE_JAVASSIST = "JAVASSIST";
     public static final String INSTRUMENT_ENGINE_ASM = "ASM";
 
+    public static final String TIMING_CLOCK_SYSTEM = "SYSTEM";
+    public static final String TIMING_CLOCK_COARSE = "COARSE";
+
+    public static final String TRACE_BINDER_THREAD_LOCAL = "THREAD_LOCAL";
+    public static final String TRACE_BINDER_THREAD_ID = "THREAD_ID";
+
     public interface ValueResolver {
         String resolve(String value, Properties properties);
     }
@@ -91,23 +97,41 @@ public class DefaultProfilerConfig implements ProfilerConfig {
     private int spanDataSenderSocketTimeout = 1000 * 3;
     private int spanDataSenderChunkSize = 1024 * 16;
     private String spanDataSenderSocketType = "OIO";
+    private String spanDataSenderWriteQueueType = "LINKED";
+    private boolean spanDataSenderPackingEnable = false;
+    private int spanDataSenderPackingLength = 65507;
+    private boolean spanDataSenderSpillEnable = false;
+    private String spanDataSenderSpillDir = "";
+    private int spanDataSenderSpillSegmentSize = 1024 * 1024 * 8;
+    private long spanDataSenderSpillMaxSize = 1024 * 1024 * 256;
+    private int spanDataSenderSpillHighWaterMark = 1024 * 4;
+    private int spanDataSenderSpillReplayBytesPerSecond = 1024 * 1024;
 
     private int statDataSenderWriteQueueSize = 1024 * 5;
     private int statDataSenderSocketSendBufferSize = 1024 * 64 * 16;
     private int statDataSenderSocketTimeout = 1000 * 3;
     private int statDataSenderChunkSize = 1024 * 16;
     private String statDataSenderSocketType = "OIO";
+    private String statDataSenderWriteQueueType = "LINKED";
+
+    private String dataSenderWriteQueueWaitStrategy = "BLOCKING";
+    private int dataSenderFlushMaxBatchCount = 64;
+    private int dataSenderFlushMaxBatchBytes = 0;
+    private long dataSenderFlushLingerTime = 0;
 
     private boolean tcpDataSenderCommandAcceptEnable = false;
     private boolean tcpDataSenderCommandActiveThreadEnable = false;
     private boolean tcpDataSenderCommandActiveThreadCountEnable = false;
     private boolean tcpDataSenderCommandActiveThreadDumpEnable = false;
     private boolean tcpDataSenderCommandActiveThreadLightDumpEnable = false;
+    private int tcpDataSenderRequestBatchSize = 0;
+    private Map<String, Integer> tcpDataSenderRetryBudgets = Collections.emptyMap();
 
     private boolean traceAgentActiveThread = true;
     private boolean traceAgentDataSource = false;
 
     private int callStackMaxDepth = 512;
+    private String traceBinder = TRACE_BINDER_THREAD_LOCAL;
 
     private int jdbcSqlCacheSize = 1024;
     private boolean traceSqlBindValue = false;
@@ -116,10 +140,23 @@ public class DefaultProfilerConfig implements ProfilerConfig {
     // Sampling
     private boolean samplingEnable = true;
     private int samplingRate = 1;
+    private String samplingType = "COUNTER";
+    private int samplingAdaptiveTracesPerSecond = 20;
+    private int samplingContinuationLimit = 0;
+    private boolean samplingTailEnable = false;
+    private long samplingTailLatencyThreshold = 1000;
+    private int samplingTailTraceMaxEvents = 256;
+    private long samplingTailBufferMaxBytes = 1024 * 1024 * 8;
 
     // span buffering
     private boolean ioBufferingEnable;
     private int ioBufferingBufferSize;
+    private int ioBufferingBufferBytes = 0;
+    private boolean ioBufferingRecycleEnable = false;
+    private int ioBufferingRecycleCapacity = 1024;
+    private boolean ioBufferingDeferredAssemblyEnable = false;
+
+    private long exceptionMessageDedupWindow = 0;
 
     private int profileJvmCollectInterval;
     private String profileJvmVendorName;
@@ -136,6 +173,10 @@ public class DefaultProfilerConfig implements ProfilerConfig {
 
     private boolean propagateInterceptorException = false;
 
+    private String timingClock = TIMING_CLOCK_SYSTEM;
+    private int timingCoarseClockTick = 1;
+    private boolean timingNanoEnable = false;
+
     public DefaultProfilerConfig() {
         this.properties = new Properties();
     }
@@ -203,6 +244,11 @@ public class DefaultProfilerConfig implements ProfilerConfig {
         return statDataSenderSocketType;
     }
 
+    @Override
+    public String getStatDataSenderWriteQueueType() {
+        return statDataSenderWriteQueueType;
+    }
+
     @Override
     public int getSpanDataSenderWriteQueueSize() {
         return spanDataSenderWriteQueueSize;
@@ -238,6 +284,16 @@ public class DefaultProfilerConfig implements ProfilerConfig {
         return tcpDataSenderCommandActiveThreadLightDumpEnable;
     }
 
+    @Override
+    public int getTcpDataSenderRequestBatchSize() {
+        return tcpDataSenderRequestBatchSize;
+    }
+
+    @Override
+    public Map<String, Integer> getTcpDataSenderRetryBudgets() {
+        return tcpDataSenderRetryBudgets;
+    }
+
     @Override
     public boolean isTraceAgentActiveThread() {
         return traceAgentActiveThread;
@@ -258,6 +314,71 @@ public class DefaultProfilerConfig implements ProfilerConfig {
         return spanDataSenderSocketType;
     }
 
+    @Override
+    public String getSpanDataSenderWriteQueueType() {
+        return spanDataSenderWriteQueueType;
+    }
+
+    @Override
+    public boolean isSpanDataSenderPackingEnable() {
+        return spanDataSenderPackingEnable;
+    }
+
+    @Override
+    public int getSpanDataSenderPackingLength() {
+        return spanDataSenderPackingLength;
+    }
+
+    @Override
+    public boolean isSpanDataSenderSpillEnable() {
+        return spanDataSenderSpillEnable;
+    }
+
+    @Override
+    public String getSpanDataSenderSpillDir() {
+        return spanDataSenderSpillDir;
+    }
+
+    @Override
+    public int getSpanDataSenderSpillSegmentSize() {
+        return spanDataSenderSpillSegmentSize;
+    }
+
+    @Override
+    public long getSpanDataSenderSpillMaxSize() {
+        return spanDataSenderSpillMaxSize;
+    }
+
+    @Override
+    public int getSpanDataSenderSpillHighWaterMark() {
+        return spanDataSenderSpillHighWaterMark;
+    }
+
+    @Override
+    public int getSpanDataSenderSpillReplayBytesPerSecond() {
+        return spanDataSenderSpillReplayBytesPerSecond;
+    }
+
+    @Override
+    public String getDataSenderWriteQueueWaitStrategy() {
+        return dataSenderWriteQueueWaitStrategy;
+    }
+
+    @Override
+    public int getDataSenderFlushMaxBatchCount() {
+        return dataSenderFlushMaxBatchCount;
+    }
+
+    @Override
+    public int getDataSenderFlushMaxBatchBytes() {
+        return dataSenderFlushMaxBatchBytes;
+    }
+
+    @Override
+    public long getDataSenderFlushLingerTime() {
+        return dataSenderFlushLingerTime;
+    }
+
     @Override
     public int getSpanDataSenderChunkSize() {
         return spanDataSenderChunkSize;
@@ -299,6 +420,41 @@ public class DefaultProfilerConfig implements ProfilerConfig {
         return samplingRate;
     }
 
+    @Override
+    public String getSamplingType() {
+        return samplingType;
+    }
+
+    @Override
+    public int getSamplingAdaptiveTracesPerSecond() {
+        return samplingAdaptiveTracesPerSecond;
+    }
+
+    @Override
+    public int getSamplingContinuationLimit() {
+        return samplingContinuationLimit;
+    }
+
+    @Override
+    public boolean isSamplingTailEnable() {
+        return samplingTailEnable;
+    }
+
+    @Override
+    public long getSamplingTailLatencyThreshold() {
+        return samplingTailLatencyThreshold;
+    }
+
+    @Override
+    public int getSamplingTailTraceMaxEvents() {
+        return samplingTailTraceMaxEvents;
+    }
+
+    @Override
+    public long getSamplingTailBufferMaxBytes() {
+        return samplingTailBufferMaxBytes;
+    }
+
     @Override
     public boolean isIoBufferingEnable() {
         return ioBufferingEnable;
@@ -309,6 +465,31 @@ public class DefaultProfilerConfig implements ProfilerConfig {
         return ioBufferingBufferSize;
     }
 
+    @Override
+    public int getIoBufferingBufferBytes() {
+        return ioBufferingBufferBytes;
+    }
+
+    @Override
+    public boolean isIoBufferingRecycleEnable() {
+        return ioBufferingRecycleEnable;
+    }
+
+    @Override
+    public int getIoBufferingRecycleCapacity() {
+        return ioBufferingRecycleCapacity;
+    }
+
+    @Override
+    public boolean isIoBufferingDeferredAssemblyEnable() {
+        return ioBufferingDeferredAssemblyEnable;
+    }
+
+    @Override
+    public long getExceptionMessageDedupWindow() {
+        return exceptionMessageDedupWindow;
+    }
+
     @Override
     public int getProfileJvmCollectInterval() {
         return profileJvmCollectInterval;
@@ -367,6 +548,11 @@ public class DefaultProfilerConfig implements ProfilerConfig {
     public void setCallStackMaxDepth(int callStackMaxDepth) {
         this.callStackMaxDepth = callStackMaxDepth;
     }
+
+    @Override
+    public String getTraceBinder() {
+        return traceBinder;
+    }
     
     @Override
     public boolean isPropagateInterceptorException() {
@@ -378,6 +564,21 @@ public class DefaultProfilerConfig implements ProfilerConfig {
         return profileInstrumentEngine;
     }
 
+    @Override
+    public String getTimingClock() {
+        return timingClock;
+    }
+
+    @Override
+    public int getTimingCoarseClockTick() {
+        return timingCoarseClockTick;
+    }
+
+    @Override
+    public boolean isTimingNanoEnable() {
+        return timingNanoEnable;
+    }
+
 
     // for test
     void readPropertyValues() {
@@ -403,18 +604,35 @@ public class DefaultProfilerConfig implements ProfilerConfig {
         this.spanDataSenderSocketTimeout = readInt("profiler.spandatasender.socket.timeout", 1000 * 3);
         this.spanDataSenderChunkSize = readInt("profiler.spandatasender.chunk.size", 1024 * 16);
         this.spanDataSenderSocketType = readString("profiler.spandatasender.socket.type", "OIO");
+        this.spanDataSenderWriteQueueType = readString("profiler.spandatasender.write.queue.type", "LINKED");
+        this.spanDataSenderPackingEnable = readBoolean("profiler.spandatasender.packing.enable", false);
+        this.spanDataSenderPackingLength = readInt("profiler.spandatasender.packing.length", 65507);
+        this.spanDataSenderSpillEnable = readBoolean("profiler.spandatasender.spill.enable", false);
+        this.spanDataSenderSpillDir = readString("profiler.spandatasender.spill.dir", "");
+        this.spanDataSenderSpillSegmentSize = readInt("profiler.spandatasender.spill.segment.size", 1024 * 1024 * 8);
+        this.spanDataSenderSpillMaxSize = readLong("profiler.spandatasender.spill.max.size", 1024 * 1024 * 256);
+        this.spanDataSenderSpillHighWaterMark = readInt("profiler.spandatasender.spill.highwatermark", 1024 * 4);
+        this.spanDataSenderSpillReplayBytesPerSecond = readInt("profiler.spandatasender.spill.replay.bytespersecond", 1024 * 1024);
 
         this.statDataSenderWriteQueueSize = readInt("profiler.statdatasender.write.queue.size", 1024 * 5);
         this.statDataSenderSocketSendBufferSize = readInt("profiler.statdatasender.socket.sendbuffersize", 1024 * 64 * 16);
         this.statDataSenderSocketTimeout = readInt("profiler.statdatasender.socket.timeout", 1000 * 3);
         this.statDataSenderChunkSize = readInt("profiler.statdatasender.chunk.size", 1024 * 16);
         this.statDataSenderSocketType = readString("profiler.statdatasender.socket.type", "OIO");
+        this.statDataSenderWriteQueueType = readString("profiler.statdatasender.write.queue.type", "LINKED");
+
+        this.dataSenderWriteQueueWaitStrategy = readString("profiler.datasender.write.queue.waitstrategy", "BLOCKING");
+        this.dataSenderFlushMaxBatchCount = readInt("profiler.datasender.flush.batch.count", 64);
+        this.dataSenderFlushMaxBatchBytes = readInt("profiler.datasender.flush.batch.bytes", 0);
+        this.dataSenderFlushLingerTime = readLong("profiler.datasender.flush.linger.time", 0);
 
         this.tcpDataSenderCommandAcceptEnable = readBoolean("profiler.tcpdatasender.command.accept.enable", false);
         this.tcpDataSenderCommandActiveThreadEnable = readBoolean("profiler.tcpdatasender.command.activethread.enable", false);
         this.tcpDataSenderCommandActiveThreadCountEnable = readBoolean("profiler.tcpdatasender.command.activethread.count.enable", false);
         this.tcpDataSenderCommandActiveThreadDumpEnable = readBoolean("profiler.tcpdatasender.command.activethread.threaddump.enable", false);
         this.tcpDataSenderCommandActiveThreadLightDumpEnable = readBoolean("profiler.tcpdatasender.command.activethread.threadlightdump.enable", false);
+        this.tcpDataSenderRequestBatchSize = readInt("profiler.tcpdatasender.request.batch.size", 0);
+        this.tcpDataSenderRetryBudgets = readRetryBudgets("profiler.tcpdatasender.retry.budget.");
 
         this.traceAgentActiveThread = readBoolean("profiler.pinpoint.activethread", true);
         this.traceAgentDataSource = readBoolean("profiler.pinpoint.datasource", false);
@@ -424,6 +642,8 @@ public class DefaultProfilerConfig implements ProfilerConfig {
         if(this.callStackMaxDepth < 2) {
             this.callStackMaxDepth = 2;
         }
+
+        this.traceBinder = readString("profiler.trace.binder", TRACE_BINDER_THREAD_LOCAL);
         
         // JDBC
         this.jdbcSqlCacheSize = readInt("profiler.jdbc.sqlcachesize", 1024);
@@ -432,12 +652,25 @@ public class DefaultProfilerConfig implements ProfilerConfig {
 
         this.samplingEnable = readBoolean("profiler.sampling.enable", true);
         this.samplingRate = readInt("profiler.sampling.rate", 1);
+        this.samplingType = readString("profiler.sampling.type", "COUNTER");
+        this.samplingAdaptiveTracesPerSecond = readInt("profiler.sampling.adaptive.tracespersecond", 20);
+        this.samplingContinuationLimit = readInt("profiler.sampling.continuation.limit", 0);
+        this.samplingTailEnable = readBoolean("profiler.sampling.tail.enable", false);
+        this.samplingTailLatencyThreshold = readLong("profiler.sampling.tail.latency.threshold", 1000);
+        this.samplingTailTraceMaxEvents = readInt("profiler.sampling.tail.trace.max.events", 256);
+        this.samplingTailBufferMaxBytes = readLong("profiler.sampling.tail.buffer.max.bytes", 1024 * 1024 * 8);
 
         // configuration for sampling and IO buffer 
         this.ioBufferingEnable = readBoolean("profiler.io.buffering.enable", true);
 
         // it may be a problem to be here.  need to modify(delete or move or .. )  this configuration.
         this.ioBufferingBufferSize = readInt("profiler.io.buffering.buffersize", 20);
+        this.ioBufferingBufferBytes = readInt("profiler.io.buffering.bufferbytes", 0);
+        this.ioBufferingRecycleEnable = readBoolean("profiler.io.buffering.recycle.enable", false);
+        this.ioBufferingRecycleCapacity = readInt("profiler.io.buffering.recycle.capacity", 1024);
+        this.ioBufferingDeferredAssemblyEnable = readBoolean("profiler.io.buffering.deferred.assembly.enable", false);
+
+        this.exceptionMessageDedupWindow = readLong("profiler.exception.message.dedup.window", 0);
 
         // JVM
         this.profileJvmCollectInterval = readInt("profiler.jvm.collect.interval", 1000);
@@ -465,6 +698,10 @@ public class DefaultProfilerConfig implements ProfilerConfig {
         
         this.propagateInterceptorException = readBoolean("profiler.interceptor.exception.propagate", false);
 
+        this.timingClock = readString("profiler.timing.clock", TIMING_CLOCK_SYSTEM);
+        this.timingCoarseClockTick = readInt("profiler.timing.clock.coarse.tick", 1);
+        this.timingNanoEnable = readBoolean("profiler.timing.nano.enable", false);
+
 
 
         logger.info("configuration loaded successfully.");
@@ -547,6 +784,20 @@ public class DefaultProfilerConfig implements ProfilerConfig {
         return result;
     }
 
+    // <prefix><message type>=<budget>
+    private Map<String, Integer> readRetryBudgets(String prefix) {
+        final Map<String, Integer> result = new HashMap<String, Integer>();
+        for (Map.Entry<String, String> entry : readPattern(Pattern.quote(prefix) + ".+").entrySet()) {
+            final int budget = NumberUtils.parseInteger(entry.getValue(), 0);
+            if (budget <= 0) {
+                logger.warn(entry.getKey() + " must be a positive number. value:" + entry.getValue());
+                continue;
+            }
+            result.put(entry.getKey().substring(prefix.length()), budget);
+        }
+        return result;
+    }
+
     @Override
     public Map<String, String> readPattern(String propertyNamePatternRegex) {
         final Pattern pattern = Pattern.compile(propertyNamePatternRegex);
@@ -601,6 +852,24 @@ public class DefaultProfilerConfig implements ProfilerConfig {
         builder.append(spanDataSenderChunkSize);
         builder.append(", spanDataSenderSocketType=");
         builder.append(spanDataSenderSocketType);
+        builder.append(", spanDataSenderWriteQueueType=");
+        builder.append(spanDataSenderWriteQueueType);
+        builder.append(", spanDataSenderPackingEnable=");
+        builder.append(spanDataSenderPackingEnable);
+        builder.append(", spanDataSenderPackingLength=");
+        builder.append(spanDataSenderPackingLength);
+        builder.append(", spanDataSenderSpillEnable=");
+        builder.append(spanDataSenderSpillEnable);
+        builder.append(", spanDataSenderSpillDir=");
+        builder.append(spanDataSenderSpillDir);
+        builder.append(", spanDataSenderSpillSegmentSize=");
+        builder.append(spanDataSenderSpillSegmentSize);
+        builder.append(", spanDataSenderSpillMaxSize=");
+        builder.append(spanDataSenderSpillMaxSize);
+        builder.append(", spanDataSenderSpillHighWaterMark=");
+        builder.append(spanDataSenderSpillHighWaterMark);
+        builder.append(", spanDataSenderSpillReplayBytesPerSecond=");
+        builder.append(spanDataSenderSpillReplayBytesPerSecond);
         builder.append(", statDataSenderWriteQueueSize=");
         builder.append(statDataSenderWriteQueueSize);
         builder.append(", statDataSenderSocketSendBufferSize=");
@@ -611,6 +880,16 @@ public class DefaultProfilerConfig implements ProfilerConfig {
         builder.append(statDataSenderChunkSize);
         builder.append(", statDataSenderSocketType=");
         builder.append(statDataSenderSocketType);
+        builder.append(", statDataSenderWriteQueueType=");
+        builder.append(statDataSenderWriteQueueType);
+        builder.append(", dataSenderWriteQueueWaitStrategy=");
+        builder.append(dataSenderWriteQueueWaitStrategy);
+        builder.append(", dataSenderFlushMaxBatchCount=");
+        builder.append(dataSenderFlushMaxBatchCount);
+        builder.append(", dataSenderFlushMaxBatchBytes=");
+        builder.append(dataSenderFlushMaxBatchBytes);
+        builder.append(", dataSenderFlushLingerTime=");
+        builder.append(dataSenderFlushLingerTime);
         builder.append(", tcpDataSenderCommandAcceptEnable=");
         builder.append(tcpDataSenderCommandAcceptEnable);
         builder.append(", tcpDataSenderCommandActiveThreadEnable=");
@@ -621,12 +900,24 @@ public class DefaultProfilerConfig implements ProfilerConfig {
         builder.append(tcpDataSenderCommandActiveThreadDumpEnable);
         builder.append(", tcpDataSenderCommandActiveThreadLightDumpEnable=");
         builder.append(tcpDataSenderCommandActiveThreadLightDumpEnable);
+        builder.append(", tcpDataSenderRequestBatchSize=");
+        builder.append(tcpDataSenderRequestBatchSize);
+        builder.append(", tcpDataSenderRetryBudgets=");
+        builder.append(tcpDataSenderRetryBudgets);
         builder.append(", traceAgentActiveThread=");
         builder.append(traceAgentActiveThread);
         builder.append(", traceAgentDataSource=");
         builder.append(traceAgentDataSource);
         builder.append(", callStackMaxDepth=");
         builder.append(callStackMaxDepth);
+        builder.append(", traceBinder=");
+        builder.append(traceBinder);
+        builder.append(", timingClock=");
+        builder.append(timingClock);
+        builder.append(", timingCoarseClockTick=");
+        builder.append(timingCoarseClockTick);
+        builder.append(", timingNanoEnable=");
+        builder.append(timingNanoEnable);
         builder.append(", jdbcSqlCacheSize=");
         builder.append(jdbcSqlCacheSize);
         builder.append(", traceSqlBindValue=");
@@ -637,10 +928,34 @@ public class DefaultProfilerConfig implements ProfilerConfig {
         builder.append(samplingEnable);
         builder.append(", samplingRate=");
         builder.append(samplingRate);
+        builder.append(", samplingType=");
+        builder.append(samplingType);
+        builder.append(", samplingAdaptiveTracesPerSecond=");
+        builder.append(samplingAdaptiveTracesPerSecond);
+        builder.append(", samplingContinuationLimit=");
+        builder.append(samplingContinuationLimit);
+        builder.append(", samplingTailEnable=");
+        builder.append(samplingTailEnable);
+        builder.append(", samplingTailLatencyThreshold=");
+        builder.append(samplingTailLatencyThreshold);
+        builder.append(", samplingTailTraceMaxEvents=");
+        builder.append(samplingTailTraceMaxEvents);
+        builder.append(", samplingTailBufferMaxBytes=");
+        builder.append(samplingTailBufferMaxBytes);
         builder.append(", ioBufferingEnable=");
         builder.append(ioBufferingEnable);
         builder.append(", ioBufferingBufferSize=");
         builder.append(ioBufferingBufferSize);
+        builder.append(", ioBufferingBufferBytes=");
+        builder.append(ioBufferingBufferBytes);
+        builder.append(", ioBufferingRecycleEnable=");
+        builder.append(ioBufferingRecycleEnable);
+        builder.append(", ioBufferingRecycleCapacity=");
+        builder.append(ioBufferingRecycleCapacity);
+        builder.append(", ioBufferingDeferredAssemblyEnable=");
+        builder.append(ioBufferingDeferredAssemblyEnable);
+        builder.append(", exceptionMessageDedupWindow=");
+        builder.append(exceptionMessageDedupWindow);
         builder.append(", profileJvmCollectInterval=");
         builder.append(profileJvmCollectInterval);
         builder.append(", profilableClassFilter=");